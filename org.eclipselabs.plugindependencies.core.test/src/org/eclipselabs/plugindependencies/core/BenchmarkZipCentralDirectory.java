@@ -0,0 +1,82 @@
+/*******************************************************************************
+ * Copyright (c) 2026 Andrey Loskutov
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *    Andrey Loskutov <loskutov@gmx.de> - initial API and implementation
+ *******************************************************************************/
+package org.eclipselabs.plugindependencies.core;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assume.assumeTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Paths;
+import java.util.List;
+import java.util.jar.JarFile;
+
+import org.junit.Test;
+
+/**
+ * Compares manifest reading via {@link JarFile} with the central directory based
+ * reading. Not part of {@link org.eclipselabs.plugindependencies.core.fixture.AllTests},
+ * run it explicitly with -Dbenchmark=true. There are no assertions on timing, the
+ * numbers are only printed.
+ */
+public class BenchmarkZipCentralDirectory {
+
+    private static final int WARM_UP_ROUNDS = 20;
+
+    private static final int BENCHMARK_ROUNDS = 200;
+
+    @Test
+    public void benchmarkManifestReading() throws Exception {
+        assumeTrue("Run with -Dbenchmark=true", Boolean.getBoolean("benchmark"));
+        List<File> jars = TestZipCentralDirectory.findJars(Paths.get("testdata_Plugins"));
+        assertEquals(2, jars.size());
+        // warm up both code paths
+        readWithJarFile(jars, WARM_UP_ROUNDS);
+        readWithCentralDirectory(jars, WARM_UP_ROUNDS);
+
+        long start = System.nanoTime();
+        int jarFileCount = readWithJarFile(jars, BENCHMARK_ROUNDS);
+        long jarFileTime = System.nanoTime() - start;
+
+        start = System.nanoTime();
+        int directoryCount = readWithCentralDirectory(jars, BENCHMARK_ROUNDS);
+        long directoryTime = System.nanoTime() - start;
+
+        assertEquals(jarFileCount, directoryCount);
+        System.out.println("Manifest reading, " + jarFileCount + " reads: JarFile: " + jarFileTime / 1_000_000
+                + " ms, central directory: " + directoryTime / 1_000_000 + " ms");
+    }
+
+    private static int readWithJarFile(List<File> jars, int rounds) throws IOException {
+        int count = 0;
+        for (int i = 0; i < rounds; i++) {
+            for (File jar : jars) {
+                try (JarFile jarfile = new JarFile(jar)) {
+                    assertNotNull(jarfile.getManifest());
+                    count++;
+                }
+            }
+        }
+        return count;
+    }
+
+    private static int readWithCentralDirectory(List<File> jars, int rounds) throws IOException {
+        int count = 0;
+        for (int i = 0; i < rounds; i++) {
+            for (File jar : jars) {
+                assertNotNull(BundleArchive.readJarManifest(jar));
+                count++;
+            }
+        }
+        return count;
+    }
+}
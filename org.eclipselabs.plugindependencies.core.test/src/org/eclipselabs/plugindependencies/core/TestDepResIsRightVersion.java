@@ -11,7 +11,10 @@
  *******************************************************************************/
 package org.eclipselabs.plugindependencies.core;
 
+import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
 
 import org.eclipselabs.plugindependencies.core.fixture.BaseTest;
@@ -88,4 +91,55 @@ public class TestDepResIsRightVersion  extends BaseTest {
         assertFalse(DependencyResolver.isCompatibleVersion("(1.0.0,1.2)", version1));
     }
 
+    @Test
+    public void testRangeIntersection() {
+        // two ranges are compatible if they have some version in common
+        assertTrue(DependencyResolver.isCompatibleVersion("[1.0,2.0)", "[1.0,2.0)"));
+        assertTrue(DependencyResolver.isCompatibleVersion("[1.0,2.0)", "[1.5,3.0)"));
+        assertTrue(DependencyResolver.isCompatibleVersion("[1.5,3.0)", "[1.0,2.0)"));
+        assertTrue(DependencyResolver.isCompatibleVersion("[1.0,2.0]", "[2.0,3.0)"));
+        assertFalse(DependencyResolver.isCompatibleVersion("[1.0,2.0)", "[2.0,3.0)"));
+        assertFalse(DependencyResolver.isCompatibleVersion("[1.0,2.0]", "(2.0,3.0)"));
+        assertFalse(DependencyResolver.isCompatibleVersion("[3.0,4.0)", "[1.0,2.0)"));
+        assertTrue(DependencyResolver.isCompatibleVersion("(1.0,1.0.1)", "[1.0.0.a,1.0.0.b]"));
+
+        // given range against a lower limit: only if the range includes 0.0.0
+        assertTrue(DependencyResolver.isCompatibleVersion("", "[0.0.0,1.0)"));
+        assertTrue(DependencyResolver.isCompatibleVersion("1.0", "[0.0.0,1.0)"));
+        assertFalse(DependencyResolver.isCompatibleVersion("1.0", "[1.0,2.0)"));
+    }
+
+    @Test
+    public void testVersionRangeParsing() {
+        VersionRange range = VersionRange.valueOf("[1.0,2.0)");
+        assertSame(range, VersionRange.valueOf("[1.0,2.0)"));
+        assertTrue(range.isRange());
+        assertEquals(Version.valueOf("1.0"), range.getMinimum());
+        assertEquals(Version.valueOf("2.0"), range.getMaximum());
+        assertTrue(range.includes(Version.valueOf("1.0")));
+        assertTrue(range.includes(Version.valueOf("1.9.9.z")));
+        assertFalse(range.includes(Version.valueOf("2.0")));
+        assertEquals("[1.0,2.0)", range.toString());
+
+        VersionRange version = VersionRange.valueOf("1.2.3.v20200101-1200_x");
+        assertFalse(version.isRange());
+        assertNull(version.getMaximum());
+        assertTrue(version.includes(Version.valueOf("99")));
+        assertFalse(version.includes(Version.valueOf("1.2.3")));
+
+        assertSame(VersionRange.ANY, VersionRange.valueOf(""));
+        assertNull(VersionRange.valueOf(unimportant));
+        assertNull(VersionRange.valueOf("1.2.3.4.5"));
+        assertNull(VersionRange.valueOf("1..2"));
+        assertNull(VersionRange.valueOf("1.2.3.a+b"));
+        assertNull(VersionRange.valueOf("[1.0, 2.0)"));
+        assertNull(VersionRange.valueOf("[1.0,2.0,3.0)"));
+        assertNull(VersionRange.valueOf("[1.0,2.0"));
+        assertNull(VersionRange.valueOf("a.1"));
+
+        ManifestEntry entry = new ManifestEntry("a", "[1.0,2.0)");
+        assertTrue(entry.isMatching(new Plugin("a", "1.5")));
+        assertFalse(entry.isMatching(new Plugin("a", "2.0")));
+        assertFalse(entry.isMatching(new Plugin("b", "1.5")));
+    }
 }
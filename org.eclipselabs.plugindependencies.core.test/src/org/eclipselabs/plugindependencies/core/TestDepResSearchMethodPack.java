@@ -13,6 +13,7 @@ package org.eclipselabs.plugindependencies.core;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
 
 import java.io.IOException;
@@ -95,7 +96,17 @@ public class TestDepResSearchMethodPack extends BaseTest {
         ManifestEntry entry = new ManifestEntry("javax.crypto", "");
         Package result = new Package("javax.crypto", "");
 
-        assertEquals(result, depres.searchInJavaHomeJar(entry).iterator().next());
+        Set<Package> found = depres.searchInJavaHomeJar(entry);
+        assertEquals(result, found.iterator().next());
+        assertEquals(1, found.size());
+        // repeated lookups reuse the same package
+        assertSame(found, depres.searchInJavaHomeJar(new ManifestEntry("javax.crypto", "1.0")));
+
+        // packages outside of the JDK prefixes are never looked up in the Java home
+        entry = new ManifestEntry("javax", "");
+        assertTrue(depres.searchInJavaHomeJar(entry).isEmpty());
+        entry = new ManifestEntry("javax.package.not.in.jdk", "");
+        assertTrue(depres.searchInJavaHomeJar(entry).isEmpty());
 
         entry = new ManifestEntry("Package.can.not.be.found", "");
         assertTrue(depres.searchInJavaHomeJar(entry).isEmpty());
@@ -13,8 +13,14 @@ package org.eclipselabs.plugindependencies.core;
 
 import static org.eclipselabs.plugindependencies.core.StringUtil.asList;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
 
+import java.util.Arrays;
 import java.util.LinkedHashSet;
 import java.util.Set;
 
@@ -158,4 +164,63 @@ public class TestDepResSearchMethodPlugin extends BaseTest {
         assertEquals(resultSet, depres.searchInPluginSet(entry2, false));
     }
 
+    @Test
+    public void testNameLookups() {
+        PlatformState state = new PlatformState(new LinkedHashSet<>(pluginSet), null, null, null);
+        Plugin copy = new Plugin("com.company.core", "3.4.5");
+        copy.setPath("elsewhere");
+        assertSame(plugin1, state.addPlugin(copy));
+        assertEquals(1, plugin1.getDuplicates().size());
+
+        Set<Plugin> found = state.getPlugins("com.company.core");
+        assertEquals(2, found.size());
+        assertEquals("[" + plugin1 + ", " + plugin2 + "]", found.toString());
+        assertTrue(found.contains(plugin2));
+        assertSame(found, state.getPlugins("com.company.core"));
+        try {
+            found.remove(plugin1);
+            fail("View should be read-only");
+        } catch (UnsupportedOperationException e) {
+            // expected
+        }
+
+        // equal duplicate is counted, so the plugin is not unique anymore
+        assertNull(state.getPlugin("com.company.core"));
+        assertSame(systemBundle, state.getPlugin("org.eclipse.osgi"));
+
+        Package p1 = state.createPackage("org.example.p", "1.0.0");
+        assertSame(p1, state.createPackage("org.example.p", "1.0.0"));
+        assertSame(p1, state.getPackage("org.example.p"));
+
+        // lenient mode (default) returns everything for unknown names
+        assertEquals(state.getPlugins().size(), state.getPlugins("unknown").size());
+        state.setStrictLookups(true);
+        assertTrue(state.getPlugins("unknown").isEmpty());
+        assertTrue(state.getPackages("unknown").isEmpty());
+        assertTrue(state.getFeatures("unknown").isEmpty());
+        assertTrue(state.getCapabilities("unknown").isEmpty());
+        assertEquals(2, state.getPlugins("com.company.core").size());
+    }
+
+    @Test
+    public void testNameLookupsOfResolvedFragments() {
+        Plugin host = new Plugin("org.h", "1.0");
+        Plugin f1 = new Plugin("org.f", "1.0", true, false);
+        Plugin f2 = new Plugin("org.f", "2.0", true, false);
+        Set<Plugin> plugins = new LinkedHashSet<>(Arrays.asList(host, f1, f2));
+        PlatformState state = new PlatformState(plugins, null, null, null);
+
+        // host is only known after indexing, it must not affect the lookups
+        f1.setHost(host);
+        f2.setHost(host);
+        Set<Plugin> found = state.getPlugins("org.f");
+        assertTrue(found.contains(f1));
+        assertTrue(found.contains(f2));
+        assertFalse(found.contains(new Plugin("org.f", "1.0")));
+
+        Plugin copy = new Plugin("org.f", "1.0", true, false);
+        copy.setPath("elsewhere");
+        assertSame(f1, state.addPlugin(copy));
+        assertEquals(1, f1.getDuplicates().size());
+    }
 }
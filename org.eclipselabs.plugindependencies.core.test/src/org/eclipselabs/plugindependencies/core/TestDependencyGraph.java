@@ -0,0 +1,186 @@
+/*******************************************************************************
+ * Copyright (c) 2026 Andrey Loskutov
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *    Andrey Loskutov <loskutov@gmx.de> - initial API and implementation
+ *******************************************************************************/
+package org.eclipselabs.plugindependencies.core;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.util.BitSet;
+import java.util.LinkedHashSet;
+import java.util.Set;
+import java.util.stream.Stream;
+
+import org.eclipselabs.plugindependencies.core.DependencyGraph.EdgeKind;
+import org.eclipselabs.plugindependencies.core.fixture.BaseTest;
+import org.junit.FixMethodOrder;
+import org.junit.Test;
+import org.junit.runners.MethodSorters;
+
+@FixMethodOrder(MethodSorters.NAME_ASCENDING)
+public class TestDependencyGraph extends BaseTest {
+
+    @Test
+    public void testEdgeKinds() {
+        Plugin p1 = new Plugin("p1", "1.0.0", false, false);
+        Plugin p2 = new Plugin("p2", "1.0.0", false, false);
+        Plugin p3 = new Plugin("p3", "1.0.0", false, false);
+        Plugin f1 = new Plugin("f1", "1.0.0", true, false);
+        p1.setRequiredPlugins("p2;visibility:=reexport,p3");
+        p3.setImportedPackageEntries("a");
+        f1.setFragmentHost("p2");
+
+        Set<Plugin> plugins = new LinkedHashSet<>();
+        plugins.add(p1);
+        plugins.add(p2);
+        plugins.add(p3);
+        plugins.add(f1);
+        Feature top = new Feature("top", "1.0.0");
+        Feature sub = new Feature("sub", "1.0.0");
+        top.addIncludedPlugin(p1);
+        top.addIncludedFeature(sub);
+        sub.addRequiredFeature(top);
+        Set<Feature> features = new LinkedHashSet<>();
+        features.add(top);
+        features.add(sub);
+
+        PlatformState ps = new PlatformState(plugins, null, features, null);
+        p2.setExportedPackages("a", ps);
+        DependencyGraph graph = ps.getDependencyGraph();
+        assertSame(graph, ps.getDependencyGraph());
+
+        assertEquals(6, graph.size());
+        assertEquals(4, graph.getPluginCount());
+        int n1 = graph.idOf(p1);
+        int n2 = graph.idOf(p2);
+        int n3 = graph.idOf(p3);
+        int nf = graph.idOf(f1);
+        int nTop = graph.idOf(top);
+        int nSub = graph.idOf(sub);
+        assertTrue(graph.isPlugin(n1));
+        assertFalse(graph.isPlugin(nTop));
+        assertSame(p3, graph.get(n3));
+        assertSame(sub, graph.get(nSub));
+        assertEquals(-1, graph.idOf(new Plugin("p4", "1.0.0", false, false)));
+        assertEquals(-1, graph.idOf(new Feature("other", "1.0.0")));
+
+        assertArrayEquals(new int[] { n2, n3 }, graph.successors(EdgeKind.REQUIRES, n1));
+        assertArrayEquals(new int[] { n2 }, graph.successors(EdgeKind.REEXPORTS, n1));
+        assertArrayEquals(new int[] { n2 }, graph.successors(EdgeKind.IMPORTS, n3));
+        assertArrayEquals(new int[] { n2 }, graph.successors(EdgeKind.FRAGMENT_HOST, nf));
+        assertArrayEquals(new int[] { n1, nSub }, graph.successors(EdgeKind.INCLUDES, nTop));
+        assertArrayEquals(new int[] { nTop }, graph.successors(EdgeKind.REQUIRES, nSub));
+
+        assertArrayEquals(new int[] { nf }, graph.predecessors(EdgeKind.FRAGMENT_HOST, n2));
+        assertArrayEquals(new int[] { n1 }, graph.predecessors(EdgeKind.REQUIRES, n3));
+        assertEquals(0, graph.inDegree(EdgeKind.REQUIRES, n1));
+        assertEquals(2, graph.outDegree(EdgeKind.REQUIRES, n1));
+        assertEquals(3, graph.getEdgeCount(EdgeKind.REQUIRES));
+
+        BitSet reachable = graph.reachable(nTop, EdgeKind.INCLUDES, EdgeKind.REQUIRES);
+        assertEquals(bits(nTop, nSub, n1, n2, n3), reachable);
+        assertEquals(bits(n2, n3), graph.reachable(n1));
+        assertEquals(bits(n1, n3, nf, nTop, nSub), graph.reachableFrom(n2));
+        assertEquals(bits(nSub), graph.reachableFrom(nTop, EdgeKind.REQUIRES));
+        assertEquals(bits(), graph.reachableFrom(nSub, EdgeKind.REQUIRES));
+    }
+
+    @Test
+    public void testGraphAfterUpdate() {
+        Plugin p1 = new Plugin("p1", "1.0.0", false, false);
+        Plugin p2 = new Plugin("p2", "1.0.0", false, false);
+        p1.setRequiredPlugins("p2");
+        Set<Plugin> plugins = new LinkedHashSet<>();
+        plugins.add(p1);
+        plugins.add(p2);
+        PlatformState ps = new PlatformState(plugins, null, null, null);
+        DependencyGraph graph = ps.getDependencyGraph();
+        int n1 = graph.idOf(p1);
+        int n2 = graph.idOf(p2);
+
+        Plugin newP2 = new Plugin("p2", "1.0.0", false, false);
+        assertSame(newP2, ps.updatePlugin(p2, newP2));
+        DependencyGraph newGraph = ps.getDependencyGraph();
+        assertNotSame(graph, newGraph);
+        assertSame(newP2, newGraph.get(newGraph.idOf(newP2)));
+        assertEquals(-1, newGraph.idOf(p2));
+
+        // old graph still answers as before the update
+        assertSame(p2, graph.get(n2));
+        assertEquals(n2, graph.idOf(p2));
+        assertEquals(n1, graph.idOf(p1));
+        assertEquals(-1, graph.idOf(newP2));
+        assertArrayEquals(new int[] { n2 }, graph.successors(EdgeKind.REQUIRES, n1));
+    }
+
+    @Test
+    public void testGraphMatchesState() throws Exception {
+        Set<Plugin> plugins = new LinkedHashSet<>();
+        Set<Feature> features = new LinkedHashSet<>();
+        PlatformState state = new PlatformState(plugins, new LinkedHashSet<>(), features, new LinkedHashSet<>());
+        FeatureParser.createFeaturesAndAddToSet(new File("testdata_dependencies/eclipse/features"), state);
+        new PluginParser(state).createPluginsAndAddToSet(new File("testdata_dependencies/eclipse/plugins"));
+        DependencyGraph graph = state.getDependencyGraph();
+
+        assertTrue(graph.getPluginCount() > 1);
+        assertEquals(state.getPlugins().size() + state.getFeatures().size(), graph.size());
+        for (int node = 0; node < graph.size(); node++) {
+            OSGIElement element = graph.get(node);
+            assertEquals(node, graph.idOf(element));
+            assertArrayEquals(ids(graph, element.getRequiredPlugins(), element instanceof Feature
+                    ? ((Feature) element).getRequiredFeatures() : Set.of()),
+                    graph.successors(EdgeKind.REQUIRES, node));
+            if (element instanceof Feature) {
+                Feature feature = (Feature) element;
+                assertArrayEquals(ids(graph, feature.getIncludedPlugins(), feature.getIncludedFeatures()),
+                        graph.successors(EdgeKind.INCLUDES, node));
+            }
+        }
+        for (EdgeKind kind : EdgeKind.values()) {
+            int in = 0;
+            int out = 0;
+            for (int node = 0; node < graph.size(); node++) {
+                in += graph.inDegree(kind, node);
+                out += graph.outDegree(kind, node);
+                for (int target : graph.successors(kind, node)) {
+                    BitSet sources = new BitSet();
+                    for (int source : graph.predecessors(kind, target)) {
+                        sources.set(source);
+                    }
+                    assertTrue(kind + " " + element(graph, node), sources.get(node));
+                }
+            }
+            assertEquals(graph.getEdgeCount(kind), in);
+            assertEquals(graph.getEdgeCount(kind), out);
+        }
+    }
+
+    private static String element(DependencyGraph graph, int node) {
+        return graph.get(node).getNameAndVersion();
+    }
+
+    private static int[] ids(DependencyGraph graph, Set<? extends OSGIElement> first,
+            Set<? extends OSGIElement> second) {
+        return Stream.concat(first.stream(), second.stream()).mapToInt(graph::idOf).toArray();
+    }
+
+    private static BitSet bits(int... nodes) {
+        BitSet bits = new BitSet();
+        for (int node : nodes) {
+            bits.set(node);
+        }
+        return bits;
+    }
+}
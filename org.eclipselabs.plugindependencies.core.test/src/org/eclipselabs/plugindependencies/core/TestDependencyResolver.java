@@ -11,9 +11,24 @@
 package org.eclipselabs.plugindependencies.core;
 
 import static org.junit.Assert.assertEquals;
-
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Random;
 import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.stream.Collectors;
 
 import org.eclipselabs.plugindependencies.core.fixture.BaseTest;
@@ -293,7 +308,7 @@ public class TestDependencyResolver extends BaseTest {
         PlatformState ps = new PlatformState(plugins, null, null, null);
         ps.computeAllDependenciesRecursive();
 
-        assertEquals("[Error: [p1 1.0.0] Dependency cycle detected with p3 1.0.0]", p1.getLog().toString());
+        assertEquals("[Error: [p1 1.0.0] Dependency cycle detected with p2 1.0.0, p3 1.0.0]", p1.getLog().toString());
     }
 
     @Test
@@ -315,7 +330,7 @@ public class TestDependencyResolver extends BaseTest {
         ps.setIgnoredBundlesWithCycles(plugins.stream().map(p -> p.getName()).collect(Collectors.toSet()));
         ps.computeAllDependenciesRecursive();
 
-        assertEquals("[Warning: [p1 1.0.0] Dependency cycle detected with p3 1.0.0]", p1.getLog().toString());
+        assertEquals("[Warning: [p1 1.0.0] Dependency cycle detected with p2 1.0.0, p3 1.0.0]", p1.getLog().toString());
     }
 
     @Test
@@ -337,7 +352,7 @@ public class TestDependencyResolver extends BaseTest {
         ps.setIgnoredBundlesWithCycles(plugins.stream().map(p -> p.getName()).filter(s -> !s.contains("p2")).collect(Collectors.toSet()));
         ps.computeAllDependenciesRecursive();
 
-        assertEquals("[Warning: [p1 1.0.0] Dependency cycle detected with p3 1.0.0]", p1.getLog().toString());
+        assertEquals("[Warning: [p1 1.0.0] Dependency cycle detected with p2 1.0.0, p3 1.0.0]", p1.getLog().toString());
     }
 
     @Test
@@ -382,7 +397,120 @@ public class TestDependencyResolver extends BaseTest {
 
         ps.computeAllDependenciesRecursive();
 
-        assertEquals("[Error: [p1 1.0.0] Dependency cycle detected with p3 1.0.0]", p1.getLog().toString());
+        assertEquals("[Error: [p1 1.0.0] Dependency cycle detected with p2 1.0.0, p3 1.0.0]", p1.getLog().toString());
+    }
+
+    @Test
+    public void testCycleClosures() {
+        Plugin p1 = new Plugin("p1", "1.0.0", false, false);
+        Plugin p2 = new Plugin("p2", "1.0.0", false, false);
+        Plugin p3 = new Plugin("p3", "1.0.0", false, false);
+        Plugin p4 = new Plugin("p4", "1.0.0", false, false);
+        Plugin p5 = new Plugin("p5", "1.0.0", false, false);
+        Plugin p6 = new Plugin("p6", "1.0.0", false, false);
+
+        // p6 -> (p1 <-> p2) -> (p3 -> p4 -> p5 -> p3)
+        p6.setRequiredPlugins("p1");
+        p1.setRequiredPlugins("p2");
+        p2.setRequiredPlugins("p1,p3");
+        p3.setRequiredPlugins("p4");
+        p4.setRequiredPlugins("p5");
+        p5.setRequiredPlugins("p3");
+
+        Set<Plugin> plugins = new LinkedHashSet<>(Arrays.asList(p6, p1, p2, p3, p4, p5));
+
+        PlatformState ps = new PlatformState(plugins, null, null, null);
+        ps.setIgnoredBundlesWithCycles(Collections.singleton("p4"));
+        ps.computeAllDependenciesRecursive();
+
+        assertEquals("[p1, p2, p3, p4, p5]", names(p6.getRecursiveResolvedPlugins()));
+        assertEquals("[p2, p3, p4, p5]", names(p1.getRecursiveResolvedPlugins()));
+        assertEquals("[p1, p3, p4, p5]", names(p2.getRecursiveResolvedPlugins()));
+        assertEquals("[p4, p5]", names(p3.getRecursiveResolvedPlugins()));
+        assertEquals("[p3, p5]", names(p4.getRecursiveResolvedPlugins()));
+        assertEquals("[p3, p4]", names(p5.getRecursiveResolvedPlugins()));
+
+        // each cycle reported once per member, errors only for dependencies between not ignored bundles
+        assertEquals("[]", p6.getLog().toString());
+        assertEquals("[Error: [p1 1.0.0] Dependency cycle detected with p2 1.0.0]", p1.getLog().toString());
+        assertEquals("[Error: [p2 1.0.0] Dependency cycle detected with p1 1.0.0]", p2.getLog().toString());
+        assertEquals("[Warning: [p3 1.0.0] Dependency cycle detected with p4 1.0.0, p5 1.0.0]", p3.getLog().toString());
+        assertEquals("[Warning: [p4 1.0.0] Dependency cycle detected with p3 1.0.0, p5 1.0.0]", p4.getLog().toString());
+        assertEquals("[Error: [p5 1.0.0] Dependency cycle detected with p3 1.0.0, p4 1.0.0]", p5.getLog().toString());
+    }
+
+    @Test
+    public void testClosureBitSets() {
+        // chain p0 -> p1 -> ... -> p149, closures span several bitset words
+        int count = 150;
+        List<Plugin> chain = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            Plugin p = new Plugin("p" + i, "1.0.0", false, false);
+            if (i + 1 < count) {
+                p.setRequiredPlugins("p" + (i + 1));
+            }
+            chain.add(p);
+        }
+        // reversed, so ids don't follow the chain
+        List<Plugin> reversed = new ArrayList<>(chain);
+        Collections.reverse(reversed);
+        PlatformState ps = new PlatformState(new LinkedHashSet<>(reversed), null, null, null);
+        ps.computeAllDependenciesRecursive();
+
+        for (int i = 0; i < count; i++) {
+            Set<Plugin> closure = chain.get(i).getRecursiveResolvedPlugins();
+            assertEquals(count - i - 1, closure.size());
+            assertEquals(new LinkedHashSet<>(chain.subList(i + 1, count)), new LinkedHashSet<>(closure));
+            assertFalse(closure.contains(chain.get(i)));
+            if (i > 0) {
+                assertFalse(closure.contains(chain.get(i - 1)));
+            }
+        }
+    }
+
+    @Test
+    public void testClosureStore() {
+        // lib0 ... lib199, u1 and u2 require the first and the last one
+        int count = 200;
+        List<Plugin> libs = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            libs.add(new Plugin("lib" + i, "1.0.0", false, false));
+        }
+        Plugin u1 = new Plugin("u1", "1.0.0", false, false);
+        Plugin u2 = new Plugin("u2", "1.0.0", false, false);
+        Plugin u3 = new Plugin("u3", "1.0.0", false, false);
+        u1.setRequiredPlugins("lib199,lib0");
+        u2.setRequiredPlugins("lib199,lib0");
+        u3.setRequiredPlugins("lib0,lib199");
+
+        Set<Plugin> plugins = new LinkedHashSet<>(libs);
+        plugins.add(u1);
+        plugins.add(u2);
+        plugins.add(u3);
+        PlatformState ps = new PlatformState(plugins, null, null, null);
+        ps.computeAllDependenciesRecursive();
+
+        Plugin first = libs.get(0);
+        Plugin last = libs.get(count - 1);
+        assertSame(u1.getRecursiveResolvedPlugins(), u2.getRecursiveResolvedPlugins());
+        assertSame(u1.getRecursiveResolvedPlugins(), u3.getRecursiveResolvedPlugins());
+        assertEquals(2, u1.getRecursiveResolvedPlugins().size());
+        assertTrue(u1.getRecursiveResolvedPlugins().contains(first));
+        assertTrue(u1.getRecursiveResolvedPlugins().contains(last));
+        assertFalse(u1.getRecursiveResolvedPlugins().contains(libs.get(100)));
+
+        // classpaths are shared only if the order is the same
+        assertSame(u1.getVisibleOnCompilePlugins(), u2.getVisibleOnCompilePlugins());
+        assertEquals(Arrays.asList(last, first), new ArrayList<>(u1.getVisibleOnCompilePlugins()));
+        assertEquals(Arrays.asList(first, last), new ArrayList<>(u3.getVisibleOnCompilePlugins()));
+        assertTrue(u3.getVisibleOnCompilePlugins().contains(last));
+        assertFalse(u3.getVisibleOnCompilePlugins().contains(u1));
+        assertSame(Collections.emptySet(), first.getRecursiveResolvedPlugins());
+        assertSame(Collections.emptySet(), first.getVisibleOnCompilePlugins());
+    }
+
+    private static String names(Set<Plugin> plugins) {
+        return plugins.stream().map(Plugin::getName).sorted().collect(Collectors.toList()).toString();
     }
 
     @Test
@@ -403,4 +531,227 @@ public class TestDependencyResolver extends BaseTest {
         assertEquals("[]", p1.getLog().toString());
         assertEquals("[]", p2.getLog().toString());
     }
+
+    @Test
+    public void testHiddenElements() {
+        PlatformState ps = new PlatformState();
+        ps.hideElement(new ManifestEntry("p1", ""));
+        ps.hideElement(new ManifestEntry("p2", "2.0.0"));
+        ps.hideElement(new ManifestEntry("org.example.*", ""));
+        ps.hideElement(new ManifestEntry("org.other.*", "1.0.0"));
+
+        assertSame(Plugin.DUMMY_PLUGIN, ps.addPlugin(new Plugin("p1", "1.0.0")));
+        assertSame(Plugin.DUMMY_PLUGIN, ps.addPlugin(new Plugin("p2", "2.0.0")));
+        assertSame(Plugin.DUMMY_PLUGIN, ps.addPlugin(new Plugin("org.example.a", "3.0.0")));
+        assertSame(Plugin.DUMMY_PLUGIN, ps.addPlugin(new Plugin("org.other.b", "1.0.0")));
+        assertSame(Feature.DUMMY_FEATURE, ps.addFeature(new Feature("org.example.feature", "1.0.0")));
+
+        Plugin p2 = new Plugin("p2", "2.0.1");
+        assertSame(p2, ps.addPlugin(p2));
+        Plugin p11 = new Plugin("p11", "1.0.0");
+        assertSame(p11, ps.addPlugin(p11));
+        Plugin example = new Plugin("org.example", "1.0.0");
+        assertSame(example, ps.addPlugin(example));
+        Plugin other = new Plugin("org.other.b", "1.0.1");
+        assertSame(other, ps.addPlugin(other));
+        assertEquals(4, ps.getPlugins().size());
+
+        ps = new PlatformState();
+        ps.hideElement(new ManifestEntry("*", ""));
+        assertSame(Plugin.DUMMY_PLUGIN, ps.addPlugin(new Plugin("p1", "1.0.0")));
+        assertEquals(0, ps.getPlugins().size());
+    }
+
+    @Test
+    public void testResolutionMemo() {
+        Plugin base1 = new Plugin("base", "1.0.0");
+        Plugin base2 = new Plugin("base", "2.0.0");
+        Plugin u1 = new Plugin("u1", "1.0.0");
+        Plugin u2 = new Plugin("u2", "1.0.0");
+        Plugin u3 = new Plugin("u3", "1.0.0");
+        u1.setRequiredPlugins("base,missing");
+        u1.setImportedPackageEntries("hello");
+        u2.setRequiredPlugins("base;bundle-version=\"1.0.0\",missing");
+        u2.setImportedPackageEntries("hello;version=\"0.0.0\"");
+        u3.setRequiredPlugins("base;bundle-version=\"1.0\",missing");
+        u3.setImportedPackageEntries("hello");
+
+        Set<Plugin> plugins = new LinkedHashSet<>(Arrays.asList(base1, base2, u1, u2, u3));
+        PlatformState ps = new PlatformState(plugins, null, null, null);
+        base2.setExportedPackages("hello", ps);
+        ResolutionMemo memo = ps.resolveDependencies().getMemo();
+
+        // "" and "0.0.0", "1.0" and "1.0.0" are same ranges
+        assertEquals(4, memo.size());
+        assertEquals(9, memo.getLookups());
+        assertEquals(5, memo.getHits());
+        assertEquals("ResolutionMemo [requirements=4, hits=5/9 (55%)]", ps.getResolutionStatistics());
+        for (Plugin plugin : Arrays.asList(u1, u2, u3)) {
+            assertEquals(Collections.singleton(base2), plugin.getRequiredPlugins());
+            assertEquals(Collections.singleton(ps.getPackage("hello")), plugin.getImportedPackages());
+            List<Problem> log = plugin.getLog();
+            assertEquals(2, log.size());
+            assertTrue(log.get(0).getMessage().startsWith("more than one plugin found for base"));
+            assertEquals(2, log.get(0).getRelated().size());
+            assertEquals("plugin not found: missing", log.get(1).getMessage().trim());
+        }
+    }
+
+    @Test
+    public void testParallelResolution() {
+        String sequential = resolveRandomState(1);
+        assertEquals(sequential, resolveRandomState(8));
+    }
+
+    @Test
+    public void testParallelClosures() throws IOException {
+        String sequential = closeLayeredState(1, null);
+        assertEquals(sequential, closeLayeredState(4, null));
+    }
+
+    @Test
+    public void testClosureFile() throws IOException {
+        File file = File.createTempFile("closures", ".bin");
+        file.deleteOnExit();
+        String onHeap = closeLayeredState(1, null);
+        assertEquals(onHeap, closeLayeredState(1, file));
+        assertEquals(onHeap, closeLayeredState(4, file));
+        assertTrue(file.length() > 0);
+    }
+
+    @Test
+    public void testClosureFileParallelAppend() throws Exception {
+        File file = File.createTempFile("closures", ".bin");
+        file.deleteOnExit();
+        List<Plugin> plugins = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            plugins.add(new Plugin("p" + i, "1.0.0", false, false));
+        }
+        PluginIds ids = new PluginIds(plugins);
+        ClosureFile closureFile = ClosureFile.open(file);
+        ClosureStore store = new ClosureStore(ids, closureFile);
+        int closures = plugins.size() - 1;
+        int threads = 8;
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<Set<Plugin>>> results = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                for (int i = 0; i < closures; i++) {
+                    long[] bits = PluginBitSet.set(new long[ids.words()], i);
+                    long[] closure = PluginBitSet.set(bits, i + 1);
+                    results.add(executor.submit(() -> store.closure(closure)));
+                }
+            }
+            for (int i = 0; i < results.size(); i++) {
+                Set<Plugin> closure = results.get(i).get();
+                assertSame(results.get(i % closures).get(), closure);
+                assertEquals(Arrays.asList(plugins.get(i % closures), plugins.get(i % closures + 1)),
+                        new ArrayList<>(closure));
+            }
+        } finally {
+            executor.shutdown();
+        }
+        // equal closures computed in parallel are written once
+        assertEquals(closures, closureFile.records());
+    }
+
+    /**
+     * @return closures of a state with wide dependency levels and some cycles, same
+     *         state for all calls
+     */
+    private static String closeLayeredState(int threads, File closureFile) throws IOException {
+        Random random = new Random(7);
+        int layers = 6;
+        int width = 300;
+        Set<Plugin> plugins = new LinkedHashSet<>();
+        for (int layer = 0; layer < layers; layer++) {
+            for (int i = 0; i < width; i++) {
+                StringBuilder required = new StringBuilder();
+                if (layer + 1 < layers) {
+                    for (int j = random.nextInt(4); j > 0; j--) {
+                        required.append(",l").append(layer + 1).append("p").append(random.nextInt(width));
+                    }
+                }
+                if (i % 50 < 2) {
+                    // cycle between p0 and p1, p50 and p51...
+                    required.append(",l").append(layer).append("p").append(i % 50 == 0 ? i + 1 : i - 1);
+                }
+                Plugin plugin = new Plugin("l" + layer + "p" + i, "1.0.0", false, false);
+                plugin.setRequiredPlugins(required.length() == 0 ? "" : required.substring(1));
+                plugins.add(plugin);
+            }
+        }
+        PlatformState ps = new PlatformState(plugins, null, null, null);
+        ps.setThreads(threads);
+        if (closureFile != null) {
+            ps.setClosureFile(closureFile);
+        }
+        List<Problem> errors = ps.computeAllDependenciesRecursive();
+        StringBuilder sb = new StringBuilder();
+        sb.append(errors).append('\n');
+        for (Plugin plugin : ps.getPlugins()) {
+            sb.append(plugin.getNameAndVersion()).append(" -> ").append(plugin.getRecursiveResolvedPlugins())
+                    .append(' ').append(plugin.getVisibleOnCompilePlugins()).append(' ').append(plugin.getLog())
+                    .append('\n');
+        }
+        return sb.toString();
+    }
+
+    /**
+     * @return dump of a resolved random state, same state for all calls
+     */
+    private static String resolveRandomState(int threads) {
+        Random random = new Random(42);
+        String[] javaPackages = { "javax.xml.parsers", "javax.crypto", "java.util", "javax.not.there" };
+        String[] versions = { "", ";version=\"1.0\"", ";version=\"[1.0,2.0)\"", ";version=\"[2.0,3.0)\"" };
+        Set<Plugin> plugins = new LinkedHashSet<>();
+        for (int i = 0; i < 1000; i++) {
+            String name = "p" + random.nextInt(600);
+            String version = (1 + random.nextInt(3)) + ".0.0";
+            Plugin plugin = new Plugin(name, version, random.nextInt(10) == 0, false);
+            if (plugin.isFragment()) {
+                plugin.setFragmentHost("p" + random.nextInt(600));
+            }
+            StringBuilder required = new StringBuilder();
+            StringBuilder imported = new StringBuilder();
+            for (int j = random.nextInt(6); j > 0; j--) {
+                required.append(required.length() == 0 ? "" : ",").append("p").append(random.nextInt(650))
+                        .append(random.nextBoolean() ? "" : ";bundle-version=\"2.0\"");
+                String pack = random.nextInt(4) == 0 ? javaPackages[random.nextInt(javaPackages.length)]
+                        : "pack" + random.nextInt(400);
+                imported.append(imported.length() == 0 ? "" : ",").append(pack)
+                        .append(versions[random.nextInt(versions.length)]);
+            }
+            plugin.setRequiredPlugins(required.toString());
+            plugin.setImportedPackageEntries(imported.toString());
+            plugins.add(plugin);
+        }
+        Set<Feature> features = new LinkedHashSet<>();
+        for (int i = 0; i < 100; i++) {
+            Feature feature = new Feature("f" + i, "1.0.0");
+            feature.addIncludedFeatureEntry(new ManifestEntry("f" + random.nextInt(120), "1.0.0"));
+            feature.addIncludedPluginEntry(new ManifestEntry("p" + random.nextInt(650), "1.0.0"));
+            feature.setRequiredPlugins("p" + random.nextInt(650));
+            features.add(feature);
+        }
+        PlatformState ps = new PlatformState(plugins, null, features, null);
+        for (Plugin plugin : ps.getPlugins()) {
+            plugin.setExportedPackages("pack" + random.nextInt(400) + ";version=\"" + plugin.getVersion() + "\"", ps);
+        }
+        ps.setThreads(threads);
+        ps.resolveDependencies();
+        List<Problem> errors = ps.computeAllDependenciesRecursive();
+        StringWriter out = new StringWriter();
+        PrintWriter pw = new PrintWriter(out);
+        ps.dumpAllElements(pw);
+        pw.println(ps.dumpLogs());
+        pw.println(errors);
+        for (Plugin plugin : ps.getPlugins()) {
+            pw.println(plugin.getNameAndVersion() + " -> " + plugin.getRequiredPlugins() + " "
+                    + plugin.getImportedPackages() + " " + plugin.getRecursiveResolvedPlugins());
+        }
+        pw.println(ps.getPackages());
+        pw.flush();
+        return out.toString();
+    }
 }
@@ -0,0 +1,151 @@
+/*******************************************************************************
+ * Copyright (c) 2026 Andrey Loskutov
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *    Andrey Loskutov <loskutov@gmx.de> - initial API and implementation
+ *******************************************************************************/
+package org.eclipselabs.plugindependencies.core;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import static org.junit.Assume.assumeTrue;
+
+import java.io.File;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.eclipselabs.plugindependencies.core.fixture.BaseTest;
+import org.junit.FixMethodOrder;
+import org.junit.Test;
+import org.junit.runners.MethodSorters;
+
+@FixMethodOrder(MethodSorters.NAME_ASCENDING)
+public class TestExecutionEnvironment extends BaseTest {
+
+    @Test
+    public void testLdapFilter() {
+        Map<String, Object> props = new HashMap<>();
+        props.put("osgi.ee", "JavaSE");
+        props.put("version", Arrays.asList(Version.valueOf("1.8"), Version.valueOf("11")));
+        assertTrue(LdapFilter.parse("(&(osgi.ee=JavaSE)(version=1.8))").matches(props));
+        assertTrue(LdapFilter.parse("(&(osgi.ee=JavaSE)(version>=11))").matches(props));
+        assertFalse(LdapFilter.parse("(&(osgi.ee=JavaSE)(version>=17))").matches(props));
+        assertTrue(LdapFilter.parse("(&(osgi.ee=JavaSE)(!(version>=17)))").matches(props));
+        assertTrue(LdapFilter.parse(" ( | (osgi.ee=CDC/Foundation) (OSGI.EE=Java*) ) ").matches(props));
+        assertTrue(LdapFilter.parse("(osgi.ee=*)").matches(props));
+        assertFalse(LdapFilter.parse("(osgi.os=*)").matches(props));
+        assertTrue(LdapFilter.parse("(osgi.ee=J*v*SE)").matches(props));
+        assertFalse(LdapFilter.parse("(osgi.ee=J*x*SE)").matches(props));
+        assertTrue(LdapFilter.parse("(osgi.ee~=java se)").matches(props));
+        assertTrue(LdapFilter.parse("(version<=1.8)").matches(props));
+        assertFalse(LdapFilter.parse("(version=abc)").matches(props));
+
+        for (String invalid : new String[] { "", "(", "(osgi.ee=JavaSE", "(&)", "(=JavaSE)", "(a=b))", "a=b" }) {
+            try {
+                LdapFilter.parse(invalid);
+                fail("Filter should be invalid: " + invalid);
+            } catch (IllegalArgumentException e) {
+                // expected
+            }
+        }
+    }
+
+    @Test
+    public void testEnvironments() {
+        ExecutionEnvironment java8 = ExecutionEnvironment.valueOf("JavaSE-1.8");
+        ExecutionEnvironment java17 = ExecutionEnvironment.valueOf("17");
+        assertEquals("JavaSE-1.8", java8.getName());
+        assertEquals(8, java8.getRelease());
+        assertEquals("JavaSE-17", java17.getName());
+        assertEquals("J2SE-1.4", ExecutionEnvironment.valueOf("J2SE-1.4").getName());
+        for (String invalid : new String[] { "CDC-1.1/Foundation-1.1", "JavaSE-x", "0" }) {
+            try {
+                ExecutionEnvironment.valueOf(invalid);
+                fail("Environment should be invalid: " + invalid);
+            } catch (IllegalArgumentException e) {
+                // expected
+            }
+        }
+
+        String filter11 = "(&(osgi.ee=JavaSE)(version=11))";
+        assertFalse(java8.matches(filter11));
+        assertTrue(java17.matches(filter11));
+        assertTrue(java8.matches("(&(osgi.ee=JavaSE)(version=1.8))"));
+        assertTrue(java17.matches("(&(osgi.ee=JavaSE/compact1)(version=1.8))"));
+        assertTrue(java8.matches("(&(osgi.ee=OSGi/Minimum)(version=1.2))"));
+        try {
+            java8.matches("(osgi.ee=JavaSE");
+            fail();
+        } catch (IllegalArgumentException e) {
+            // expected
+        }
+
+        assertTrue(java8.provides("JavaSE-1.8"));
+        assertTrue(java8.provides("J2SE-1.5"));
+        assertTrue(java8.provides("JRE-1.1"));
+        assertTrue(java8.provides("OSGi/Minimum-1.2"));
+        assertTrue(java8.provides("CDC-1.1/Foundation-1.1"));
+        assertFalse(java8.provides("JavaSE-11"));
+        assertTrue(java17.provides("JavaSE-11"));
+        assertFalse(java17.provides("JavaSE-21"));
+        assertFalse(java17.provides("CDC-1.1/Foundation-1.0"));
+        assertFalse(java17.provides("unknown"));
+    }
+
+    @Test
+    public void testResolveAgainstEnvironments() {
+        File ctSym = new File(System.getProperty("java.home"), "lib/ct.sym");
+        assumeTrue("ct.sym required", ctSym.isFile());
+
+        Plugin java11 = new Plugin("org.test.java11", "1.0.0");
+        java11.setRequiredCapabilityEntries("osgi.ee;filter:=\"(&(osgi.ee=JavaSE)(version=11))\"");
+        java11.setImportedPackageEntries("java.net.http");
+        Plugin bree = new Plugin("org.test.bree", "1.0.0");
+        bree.setRequiredExecutionEnvironments("J2SE-1.5, JavaSE-1.8");
+        bree.setImportedPackageEntries("java.lang.constant,javax.xml.parsers");
+        Plugin optional = new Plugin("org.test.optional", "1.0.0");
+        optional.setImportedPackageEntries("java.lang.constant;resolution:=optional");
+        optional.setRequiredCapabilityEntries("osgi.ee;filter:=\"(&(osgi.ee=JavaSE)(version=17))\";resolution:=optional");
+
+        Set<Plugin> plugins = new LinkedHashSet<>(Arrays.asList(java11, bree, optional));
+        PlatformState state = new PlatformState(plugins, new LinkedHashSet<>(), new LinkedHashSet<>(),
+                new LinkedHashSet<>());
+        state.setExecutionEnvironments(Arrays.asList("JavaSE-1.8", "JavaSE-11", "11", "JavaSE-17"));
+        assertEquals(3, state.getExecutionEnvironments().size());
+        state.resolveDependencies();
+
+        List<String> expected11 = Arrays.asList(
+                "execution environment JavaSE-1.8 not supported, requires: osgi.ee (&(osgi.ee=JavaSE)(version=11))",
+                "package java.net.http not available in JavaSE-1.8");
+        assertEquals(expected11, messages(java11));
+        List<String> expectedBree = Arrays.asList(
+                "package java.lang.constant not available in JavaSE-1.8",
+                "package java.lang.constant not available in JavaSE-11");
+        assertEquals(expectedBree, messages(bree));
+        assertEquals(Collections.emptyList(), messages(optional));
+
+        state = new PlatformState(new LinkedHashSet<>(Arrays.asList(new Plugin("org.test.bree", "1.0.0"))),
+                new LinkedHashSet<>(), new LinkedHashSet<>(), new LinkedHashSet<>());
+        Plugin newBree = state.getPlugin("org.test.bree");
+        newBree.setRequiredExecutionEnvironments("JavaSE-21");
+        state.setExecutionEnvironments(Arrays.asList("JavaSE-17"));
+        state.resolveDependencies();
+        assertEquals(Arrays.asList("execution environment JavaSE-17 not supported, requires: JavaSE-21"),
+                messages(newBree));
+    }
+
+    private static List<String> messages(Plugin plugin) {
+        return plugin.getLog().stream().map(Problem::getMessage).map(String::trim).toList();
+    }
+}
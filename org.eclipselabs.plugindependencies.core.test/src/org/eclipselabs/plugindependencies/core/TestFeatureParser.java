@@ -16,16 +16,26 @@ import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 
+import java.io.ByteArrayInputStream;
 import java.io.File;
 import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.util.ArrayList;
 import java.util.LinkedHashSet;
+import java.util.List;
 import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 import javax.xml.parsers.DocumentBuilder;
 import javax.xml.parsers.DocumentBuilderFactory;
 import javax.xml.parsers.ParserConfigurationException;
 
+import org.eclipselabs.plugindependencies.core.FeatureParser.FeatureXml;
 import org.eclipselabs.plugindependencies.core.fixture.BaseTest;
 import org.junit.After;
 import org.junit.AfterClass;
@@ -34,6 +44,8 @@ import org.junit.FixMethodOrder;
 import org.junit.Test;
 import org.junit.runners.MethodSorters;
 import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.NodeList;
 import org.xml.sax.SAXException;
 
 @FixMethodOrder(MethodSorters.NAME_ASCENDING)
@@ -203,4 +215,118 @@ public class TestFeatureParser  extends BaseTest {
         assertNull(FeatureParser.parseFeature(null));
         assertEquals(null, FeatureParser.parseFeature(builder.newDocument()));
     }
+
+    @Test
+    public void testStreamingParserSameAsDom() throws Exception {
+        List<Path> featureXmls;
+        try (Stream<Path> files = Files.walk(Paths.get("."))) {
+            featureXmls = files.filter(p -> p.getFileName().toString().equals("feature.xml"))
+                    .sorted().collect(Collectors.toList());
+        }
+        assertTrue(featureXmls.size() > 10);
+        for (Path path : featureXmls) {
+            Feature expected = FeatureParser.createFeature(readWithDom(builder.parse(path.toFile())));
+            try (InputStream stream = Files.newInputStream(path)) {
+                Feature actual = FeatureParser.createFeature(FeatureParser.readFeatureXml(stream));
+                assertEquals(path.toString(), describe(expected), describe(actual));
+            }
+        }
+
+        // nested elements are found at any depth, as with getElementsByTagName()
+        String xml = "<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n"
+                + "<feature id=\"nested\" version=\"1.0.0.qualifier\">\n"
+                + "  <plugin id=\"p1\" version=\"1.0.0\" os=\" linux \"/>\n"
+                + "  <group><plugin id=\"p2\" version=\"0.0.0\" ws=\"gtk\" arch=\"\"/></group>\n"
+                + "  <includes id=\"f1\" version=\"2.0.0\"/>\n"
+                + "  <requires>\n"
+                + "    <import plugin=\"r1\" version=\"1.2.3\" match=\"compatible\"/>\n"
+                + "    <import feature=\"r2\" version=\"1.2.3\" match=\"perfect\" optional=\"true\"/>\n"
+                + "    <import plugin=\"r3\" filter=\"(osgi.os=linux)\"/>\n"
+                + "  </requires>\n"
+                + "</feature>\n";
+        byte[] bytes = xml.getBytes(StandardCharsets.UTF_8);
+        Feature expected = FeatureParser.createFeature(readWithDom(builder.parse(new ByteArrayInputStream(bytes))));
+        Feature actual = FeatureParser.createFeature(FeatureParser.readFeatureXml(new ByteArrayInputStream(bytes)));
+        assertEquals(describe(expected), describe(actual));
+        assertEquals(describe(expected), describe(FeatureParser.parseFeature(builder.parse(new ByteArrayInputStream(bytes)))));
+        assertEquals(2, actual.getIncludedPluginEntries().size());
+        assertEquals(2, actual.getRequiredPluginEntries().size());
+        assertTrue(actual.getRequiredFeatureEntries().get(0).isOptional());
+
+        try {
+            FeatureParser.readFeatureXml(new ByteArrayInputStream("<feature id=\"broken\"><plugin".getBytes()));
+            fail("Broken xml should not be accepted");
+        } catch (IOException e) {
+            // expected
+        }
+    }
+
+    @Test
+    public void testReadFeaturesParallel() throws IOException {
+        String[] dirs = { dirPath, "testdata_OutputGeneration/eclipseRE/features", "testdata_dependencies/eclipse/features",
+                "testdata_equalFeatures/features" };
+        for (String dir : dirs) {
+            PlatformState sequential = new PlatformState();
+            int rc1 = FeatureParser.createFeaturesAndAddToSet(new File(dir), sequential, null, 1);
+            PlatformState parallel = new PlatformState();
+            int rc2 = FeatureParser.createFeaturesAndAddToSet(new File(dir), parallel, null, 4);
+            assertEquals(dir, rc1, rc2);
+            List<Feature> expected = new ArrayList<>(sequential.getFeatures());
+            List<Feature> actual = new ArrayList<>(parallel.getFeatures());
+            assertEquals(dir, expected, actual);
+            for (int i = 0; i < expected.size(); i++) {
+                assertEquals(expected.get(i).getPath(), actual.get(i).getPath());
+                assertEquals(describe(expected.get(i)), describe(actual.get(i)));
+            }
+        }
+    }
+
+    /**
+     * Reference reader: walks the DOM with getElementsByTagName(), the way feature.xml
+     * was read before streaming
+     */
+    private static FeatureXml readWithDom(Document featureXml) {
+        Element root = featureXml.getDocumentElement();
+        FeatureXml data = new FeatureXml(root.getAttribute("id"), root.getAttribute("version"));
+        NodeList list = root.getElementsByTagName("plugin");
+        for (int i = 0; i < list.getLength(); i++) {
+            data.plugins.add(attributes((Element) list.item(i), FeatureXml.INCLUDED_ATTRIBUTES));
+        }
+        list = root.getElementsByTagName("includes");
+        for (int i = 0; i < list.getLength(); i++) {
+            data.features.add(attributes((Element) list.item(i), FeatureXml.INCLUDED_ATTRIBUTES));
+        }
+        list = root.getElementsByTagName("import");
+        for (int i = 0; i < list.getLength(); i++) {
+            data.imports.add(attributes((Element) list.item(i), FeatureXml.IMPORT_ATTRIBUTES));
+        }
+        return data;
+    }
+
+    private static String[] attributes(Element e, String[] names) {
+        String[] values = new String[names.length];
+        for (int i = 0; i < names.length; i++) {
+            values[i] = e.getAttribute(names[i]);
+        }
+        return values;
+    }
+
+    private static String describe(Feature feature) {
+        if (feature == null) {
+            return null;
+        }
+        StringBuilder sb = new StringBuilder();
+        sb.append(feature.getName()).append(' ').append(feature.getVersion()).append('\n');
+        describe(sb, "included plugin", feature.getIncludedPluginEntries());
+        describe(sb, "included feature", feature.getIncludedFeatureEntries());
+        describe(sb, "required plugin", feature.getRequiredPluginEntries());
+        describe(sb, "required feature", feature.getRequiredFeatureEntries());
+        return sb.toString();
+    }
+
+    private static void describe(StringBuilder sb, String kind, List<ManifestEntry> entries) {
+        for (ManifestEntry entry : entries) {
+            sb.append(kind).append(": ").append(entry).append(entry.isOptional() ? " optional" : "").append('\n');
+        }
+    }
 }
@@ -0,0 +1,205 @@
+/*******************************************************************************
+ * Copyright (c) 2026 Andrey Loskutov
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *    Andrey Loskutov <loskutov@gmx.de> - initial API and implementation
+ *******************************************************************************/
+package org.eclipselabs.plugindependencies.core;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.File;
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.eclipselabs.plugindependencies.core.fixture.BaseTest;
+import org.junit.FixMethodOrder;
+import org.junit.Test;
+import org.junit.runners.MethodSorters;
+
+/**
+ * Incremental changes of a resolved state must give the same result as a full
+ * resolution of the changed plugins
+ */
+@FixMethodOrder(MethodSorters.NAME_ASCENDING)
+public class TestIncrementalResolver extends BaseTest {
+
+    private static final File PLUGINS = new File("testdata_dependencies/eclipse/plugins");
+    private static final File FEATURES = new File("testdata_dependencies/eclipse/features");
+
+    @Test
+    public void testAddPlugin() throws Exception {
+        for (File dir : pluginDirs()) {
+            PlatformState state = readState(dir);
+            state.computeAllDependenciesRecursive();
+            new PluginParser(state).createPluginAndAddToSet(dir, false);
+
+            PlatformState expected = readState(dir);
+            new PluginParser(expected).createPluginAndAddToSet(dir, false);
+            expected.computeAllDependenciesRecursive();
+            assertEquals(dir.getName(), dump(expected), dump(state));
+        }
+    }
+
+    @Test
+    public void testRemovePlugin() throws Exception {
+        for (File dir : pluginDirs()) {
+            PlatformState state = readState(null);
+            state.computeAllDependenciesRecursive();
+            Plugin removed = find(state, dir);
+            state.removePlugin(removed);
+            assertFalse(state.getPlugins().contains(removed));
+
+            PlatformState expected = readState(dir);
+            expected.computeAllDependenciesRecursive();
+            assertEquals(dir.getName(), dump(expected), dump(state));
+        }
+    }
+
+    @Test
+    public void testUpdatePlugin() throws Exception {
+        for (File dir : pluginDirs()) {
+            PlatformState state = readState(null);
+            state.computeAllDependenciesRecursive();
+            List<Plugin> before = new ArrayList<>(state.getPlugins());
+            Plugin oldOne = find(state, dir);
+            Plugin newOne = new PluginParser(state).updatePlugin(oldOne, dir, false);
+            assertNotSame(oldOne, newOne);
+            before.set(before.indexOf(oldOne), newOne);
+            assertEquals(before, new ArrayList<>(state.getPlugins()));
+
+            PlatformState expected = readState(null);
+            expected.computeAllDependenciesRecursive();
+            assertEquals(dir.getName(), dump(expected), dump(state));
+        }
+    }
+
+    @Test
+    public void testUpdateChangedRequirements() {
+        Plugin p1 = new Plugin("p1", "1.0.0", false, false);
+        Plugin p2 = new Plugin("p2", "1.0.0", false, false);
+        Plugin p3 = new Plugin("p3", "1.0.0", false, false);
+        Plugin p4 = new Plugin("p4", "1.0.0", false, false);
+        p3.setRequiredPlugins("p1");
+        p3.setImportedPackageEntries("a");
+        p4.setRequiredPlugins("p3");
+        Set<Plugin> plugins = new LinkedHashSet<>(Arrays.asList(p1, p2, p3, p4));
+        PlatformState ps = new PlatformState(plugins, null, null, null);
+        p1.setExportedPackages("a", ps);
+        p2.setExportedPackages("b", ps);
+        ps.computeAllDependenciesRecursive();
+        assertEquals(Set.of(p3, p1), p4.getRecursiveResolvedPlugins());
+
+        Plugin p3b = new Plugin("p3", "1.0.1", false, false);
+        p3b.setImportedPackageEntries("b");
+        assertSame(p3b, ps.updatePlugin(p3, p3b));
+
+        assertEquals(Arrays.asList(p1, p2, p3b, p4), new ArrayList<>(ps.getPlugins()));
+        assertTrue(p1.getRequiredBy().isEmpty());
+        assertEquals(Set.of(p3b), p2.getExportedPackages().iterator().next().getImportedBy());
+        assertTrue(p1.getExportedPackages().iterator().next().getImportedBy().isEmpty());
+        assertEquals(Set.of(p3b), p4.getRequiredPlugins());
+        assertEquals(Set.of(p2), p3b.getRecursiveResolvedPlugins());
+        assertEquals(Set.of(p3b, p2), p4.getRecursiveResolvedPlugins());
+        assertTrue(p4.getLog().isEmpty());
+
+        ps.removePlugin(p2);
+        assertEquals(Collections.emptySet(), p3b.getRecursiveResolvedPlugins());
+        assertEquals("[Error: [p3 1.0.1] package not found: b ]", p3b.getLog().toString());
+    }
+
+    @Test
+    public void testUpdateUnknownPlugin() {
+        Plugin p1 = new Plugin("p1", "1.0.0", false, false);
+        PlatformState ps = new PlatformState(new LinkedHashSet<>(List.of(p1)), null, null, null);
+        ps.resolveDependencies();
+        try {
+            ps.removePlugin(new Plugin("p1", "1.0.0", false, false));
+            fail("plugin is not part of the state");
+        } catch (IllegalArgumentException e) {
+            // expected
+        }
+        try {
+            ps.updatePlugin(p1, p1);
+            fail("same plugin");
+        } catch (IllegalArgumentException e) {
+            // expected
+        }
+    }
+
+    private static File[] pluginDirs() {
+        return PluginParser.sortFiles(PLUGINS.listFiles());
+    }
+
+    /**
+     * @param skipped
+     *            plugin not to add, can be null
+     */
+    private static PlatformState readState(File skipped) throws Exception {
+        PlatformState state = new PlatformState();
+        FeatureParser.createFeaturesAndAddToSet(FEATURES, state);
+        PluginParser parser = new PluginParser(state);
+        for (File dir : pluginDirs()) {
+            if (!dir.equals(skipped)) {
+                parser.createPluginAndAddToSet(dir, false);
+            }
+        }
+        return state;
+    }
+
+    private static Plugin find(PlatformState state, File dir) throws Exception {
+        String path = dir.getCanonicalPath();
+        for (Plugin plugin : state.getPlugins()) {
+            if (path.equals(plugin.getPath())) {
+                return plugin;
+            }
+        }
+        throw new AssertionError("Not found: " + dir);
+    }
+
+    /**
+     * @return dump of all elements, problems, closures and classpaths. Problems and
+     *         packages are in different order after incremental changes, so lines are
+     *         sorted
+     */
+    private static String dump(PlatformState state) {
+        StringWriter sw = new StringWriter();
+        PrintWriter pw = new PrintWriter(sw);
+        state.dumpAllElements(pw);
+        pw.println(state.dumpLogs());
+        for (Plugin plugin : state.getPlugins()) {
+            List<String> closure = new ArrayList<>();
+            for (Plugin p : plugin.getRecursiveResolvedPlugins()) {
+                closure.add(p.getNameAndVersion());
+            }
+            Collections.sort(closure);
+            pw.println(plugin.getNameAndVersion() + " closure: " + closure);
+            pw.println(plugin.getNameAndVersion() + " classpath: " + plugin.getVisibleOnCompilePlugins());
+            pw.println(plugin.getNameAndVersion() + " required by: " + plugin.getRequiredBy() + ", fragments: "
+                    + plugin.getFragments() + ", re-exported by: " + plugin.getReexportedBy());
+        }
+        for (Package pack : state.getPackages()) {
+            pw.println(pack + " exported by: " + pack.getExportedBy() + ", imported by: " + pack.getImportedBy()
+                    + ", re-exported by: " + pack.getReexportedBy());
+        }
+        pw.flush();
+        List<String> lines = new ArrayList<>(Arrays.asList(sw.toString().split("\n")));
+        Collections.sort(lines);
+        return String.join("\n", lines);
+    }
+}
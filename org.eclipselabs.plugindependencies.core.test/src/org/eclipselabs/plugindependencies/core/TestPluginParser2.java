@@ -10,22 +10,32 @@
  *******************************************************************************/
 package org.eclipselabs.plugindependencies.core;
 
+import static org.eclipselabs.plugindependencies.core.CommandLineInterpreter.RC_OK;
 import static org.eclipselabs.plugindependencies.core.PluginParser.getManifest;
 import static org.eclipselabs.plugindependencies.core.PluginParser.parseManifest;
 import static org.eclipselabs.plugindependencies.core.PluginParser.readAttribute;
 import static org.eclipselabs.plugindependencies.core.StringUtil.splitInManifestEntries;
 import static org.eclipselabs.plugindependencies.core.StringUtil.splitListOfEntries;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
 
 import java.io.File;
 import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 import java.util.Set;
 import java.util.jar.Manifest;
 
+import org.eclipselabs.plugindependencies.core.BundleArchive.PluginXml;
 import org.eclipselabs.plugindependencies.core.fixture.BaseTest;
 import org.junit.After;
 import org.junit.AfterClass;
@@ -164,5 +174,174 @@ public class TestPluginParser2  extends BaseTest {
         assertEquals("Unexpected log: " + log, "fragment host not found: hello1 [3.116.0", log.get(1).getMessage());
     }
 
+    @Test
+    public void testParallelParsing() throws IOException {
+        CommandLineInterpreter sequential = new CommandLineInterpreter();
+        sequential.setParseEarlyStartup(true);
+        sequential.readInEclipseFolder(dirPath);
+        sequential.getState().resolveDependencies();
+
+        CommandLineInterpreter parallel = new CommandLineInterpreter();
+        parallel.setParseEarlyStartup(true);
+        parallel.setThreads(4);
+        parallel.readInEclipseFolder(dirPath);
+        parallel.getState().resolveDependencies();
+
+        PlatformState expected = sequential.getState();
+        PlatformState actual = parallel.getState();
+        assertTrue(expected.getPlugins().size() > 1);
+        assertEquals(new ArrayList<>(expected.getPlugins()), new ArrayList<>(actual.getPlugins()));
+        assertEquals(new ArrayList<>(expected.getPackages()), new ArrayList<>(actual.getPackages()));
+        assertEquals(dump(expected), dump(actual));
+        assertEquals(expected.dumpLogs().toString(), actual.dumpLogs().toString());
+    }
+
+    @Test
+    public void testBundleArchive() throws IOException {
+        File jar = new File("testdata_Plugins/org.eclipse.equinox.app_1.3.100.v20110321.jar");
+        BundleArchive archive = BundleArchive.read(jar, true);
+        assertNotNull(archive);
+        assertEquals("org.eclipse.equinox.app; singleton:=true",
+                readAttribute(archive.getManifest(), "Bundle-SymbolicName"));
+        assertNull(archive.getPluginXml());
+        assertEquals(jar.getCanonicalPath(), archive.getCanonicalPath());
+        assertEquals(jar.length(), archive.getLength());
+        assertEquals(jar.lastModified(), archive.getLastModified());
+
+        File legacy = new File("testdata_Plugins/legacyPlugin");
+        archive = BundleArchive.read(legacy, false);
+        assertNotNull(archive);
+        assertNull(readAttribute(archive.getManifest(), "Bundle-SymbolicName"));
+        PluginXml pluginXml = archive.getPluginXml();
+        assertNotNull(pluginXml);
+        assertNull(pluginXml.getError());
+        assertEquals("com.legacyPlugin", pluginXml.getId());
+        assertEquals("7.5.0.v200910221234", pluginXml.getVersion());
+        assertEquals(4, pluginXml.getImports().size());
+        assertEquals("[org.compatible, 1.2.3, compatible]", Arrays.toString(pluginXml.getImports().get(0)));
+        assertTrue(pluginXml.isEarlyStartup());
+
+        assertNull(BundleArchive.read(new File(dirPath), true));
+    }
+
+    @Test
+    public void testBundleCache() throws IOException {
+        File cacheDir = Files.createTempDirectory("testBundleCache").toFile();
+        try {
+            CommandLineInterpreter cold = new CommandLineInterpreter();
+            cold.setParseEarlyStartup(true);
+            cold.setCacheDirectory(cacheDir);
+            cold.readInEclipseFolder(dirPath);
+            BundleCache cache = cold.getPluginParser().getCache();
+            assertEquals(0, cache.getHits());
+            assertTrue(cache.getMisses() > 0);
+            assertEquals(RC_OK, cold.saveCache());
+            cold.getState().resolveDependencies();
+
+            CommandLineInterpreter warm = new CommandLineInterpreter();
+            warm.setParseEarlyStartup(true);
+            warm.setCacheDirectory(cacheDir);
+            warm.readInEclipseFolder(dirPath);
+            BundleCache warmCache = warm.getPluginParser().getCache();
+            assertEquals(cache.getMisses(), warmCache.getHits());
+            assertEquals(0, warmCache.getMisses());
+            warm.getState().resolveDependencies();
+
+            assertEquals(1, warm.getState().getFeatures().size());
+            assertEquals(dump(cold.getState()), dump(warm.getState()));
+            assertEquals(cold.getState().dumpLogs().toString(), warm.getState().dumpLogs().toString());
+        } finally {
+            for (File file : cacheDir.listFiles()) {
+                file.delete();
+            }
+            cacheDir.delete();
+        }
+    }
+
+    @Test
+    public void testManifestEntryDirectives() {
+        List<ManifestEntry> entries = splitInManifestEntries(
+                "org.a;bundle-version=\"1.0\";visibility:=reexport;resolution:=\"optional\","
+                + "org.b;x-note=\"not optional, not reexport\";common=split;mandatory:=common,"
+                + "org.c;filter:=\"(&(osgi.ee=JavaSE)(version=1.8))\";dynamicImport");
+        ManifestEntry a = entries.get(0);
+        assertTrue(a.isReexport());
+        assertTrue(a.isOptional());
+        assertTrue(a.usesBundleVersion());
+        assertFalse(a.isSplit());
+        assertFalse(a.isDynamicImport());
+        assertEquals("1.0", a.getAttribute("bundle-version"));
+        assertEquals("optional", a.getDirective("resolution"));
+        assertNull(a.getAttribute("resolution"));
+
+        ManifestEntry b = entries.get(1);
+        assertFalse(b.isOptional());
+        assertFalse(b.isReexport());
+        assertTrue(b.isSplit());
+        assertFalse(b.usesBundleVersion());
+        assertEquals("not optional, not reexport", b.getAttribute("x-note"));
+        assertEquals("common", b.getDirective("mandatory"));
+        assertNull(b.getFilter());
+        assertNull(b.getCapabilityFilter());
+
+        ManifestEntry c = entries.get(2);
+        assertTrue(c.isDynamicImport());
+        assertFalse(c.isOptional());
+        assertEquals("(&(osgi.ee=JavaSE)(version=1.8))", c.getFilter());
+        assertEquals("filter:=\"(&(osgi.ee=JavaSE)(version=1.8))\"", c.getCapabilityFilter());
+
+        ManifestEntry feature = new ManifestEntry("org.d", "1.0", true);
+        assertTrue(feature.isOptional());
+        assertFalse(feature.isReexport());
+    }
+
+    @Test
+    public void testInternPool() {
+        InternPool pool = new InternPool();
+        String header1 = "org.osgi.framework;version=\"1.3.0\", org.a;resolution:=optional,org.b";
+        String header2 = "org.b,org.osgi.framework;version=\"1.3.0\" ,org.c;version=\"[1.0,2.0)\"";
+        List<ManifestEntry> entries1 = pool.splitInManifestEntries(header1);
+        List<ManifestEntry> entries2 = pool.splitInManifestEntries(header2);
+        assertEquals(splitInManifestEntries(header1), entries1);
+        assertEquals(splitInManifestEntries(header2), entries2);
+        assertSame(entries1.get(0), entries2.get(1));
+        assertSame(entries1.get(2), entries2.get(0));
+        assertTrue(entries1.get(1).isOptional());
+        assertSame(entries1.get(2).getName(), pool.intern(new String("org.b")));
+        assertSame(entries2.get(2).getVersion(), entries2.get(2).getAttribute("version"));
+
+        // returned lists are modifiable, like the ones from StringUtil
+        entries1.add(new ManifestEntry("org.d", ""));
+        assertEquals(4, entries1.size());
+        assertEquals(3, pool.splitInManifestEntries(header1).size());
+        assertTrue(pool.splitInManifestEntries(null).isEmpty());
+        assertEquals(splitInManifestEntries(""), pool.splitInManifestEntries(""));
+        assertTrue(pool.getHits() > 0);
+
+        // shared entries can't have own problems or filters
+        ManifestEntry shared = entries1.get(0);
+        try {
+            shared.addErrorToLog("error");
+            fail("Shared entry should have no own log");
+        } catch (UnsupportedOperationException e) {
+            // expected
+        }
+        try {
+            shared.addFilter(new Plugin("org.e", "1.0"), new Filter("osgi.os=linux"));
+            fail("Shared entry should have no own filters");
+        } catch (UnsupportedOperationException e) {
+            // expected
+        }
+        assertTrue(shared.getLog().isEmpty());
+        assertFalse(shared.hasFilter());
+    }
+
+    private static String dump(PlatformState state) {
+        StringWriter sw = new StringWriter();
+        try (PrintWriter pw = new PrintWriter(sw)) {
+            state.dumpAllElements(pw);
+        }
+        return sw.toString();
+    }
 
 }
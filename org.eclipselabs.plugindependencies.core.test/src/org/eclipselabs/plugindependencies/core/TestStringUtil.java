@@ -187,6 +187,70 @@ public class TestStringUtil extends BaseTest {
         assertEquals(resultList, splitInManifestEntries(null));
     }
 
+    @Test
+    public void testSplitIntoAttributesQuoted() {
+        String header = " org.a ; version=\"[1.0, 2.0)\" ;uses:=\"org.b,org.c\", ,org.d;filter:=\"(&(x=1);(y=2))\";resolution:=optional,;";
+        List<ManifestEntry> entries = splitInManifestEntries(header);
+        assertEquals(2, entries.size());
+        assertEquals("org.a", entries.get(0).getName());
+        assertEquals("[1.0,2.0)", entries.get(0).getVersion());
+        assertEquals(Arrays.asList("version=\"[1.0, 2.0)\"", "uses:=\"org.b,org.c\""), entries.get(0).attributes);
+        assertEquals("org.d", entries.get(1).getName());
+        assertEquals(Arrays.asList("filter:=\"(&(x=1);(y=2))\"", "resolution:=optional"), entries.get(1).attributes);
+        assertTrue(entries.get(1).isOptional());
+    }
+
+    @Test
+    public void testHeaderTokenizer() {
+        HeaderTokenizer t = new HeaderTokenizer("a.b;x=1; y := \"v;w\" ,c;d=\"q\\\",r\"");
+        assertTrue(t.nextClause());
+        assertTrue(t.nextPart());
+        assertEquals("a.b", t.part());
+        assertFalse(t.hasValue());
+        assertTrue(t.keyEquals("a.b"));
+        assertTrue(t.nextPart());
+        assertTrue(t.hasValue());
+        assertFalse(t.isDirective());
+        assertEquals("x", t.key());
+        assertEquals("1", t.value());
+        assertTrue(t.nextPart());
+        assertTrue(t.isDirective());
+        assertTrue(t.keyEquals("y"));
+        assertTrue(t.valueEquals("v;w"));
+        assertEquals("v;w", t.value());
+        assertFalse(t.nextPart());
+        assertTrue(t.nextClause());
+        assertTrue(t.nextPart());
+        assertEquals("c", t.key());
+        assertTrue(t.nextPart());
+        assertEquals("d=\"q\\\",r\"", t.part());
+        assertFalse(t.nextPart());
+        assertFalse(t.nextClause());
+
+        t = new HeaderTokenizer(" , ;; ,");
+        assertFalse(t.nextClause());
+    }
+
+    @Test
+    public void testSplitLargeHeader() {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < 5000; i++) {
+            if (i > 0) {
+                sb.append(',');
+            }
+            sb.append("org.example.p").append(i).append(";version=\"1.0.").append(i)
+                    .append("\";uses:=\"org.example.a,org.example.b\";x-internal:=true");
+        }
+        String header = sb.toString();
+        List<ManifestEntry> entries = splitInManifestEntries(header);
+        assertEquals(5000, entries.size());
+        List<String> legacy = splitListOfEntries(header);
+        assertEquals(5000, legacy.size());
+        for (int i = 0; i < entries.size(); i++) {
+            assertEquals(new ManifestEntry(split(legacy.get(i), ';')), entries.get(i));
+        }
+    }
+
     private static List<String> asList(String ... strings) {
         return new ArrayList<>(Arrays.asList(strings));
     }
@@ -0,0 +1,167 @@
+/*******************************************************************************
+ * Copyright (c) 2026 Andrey Loskutov
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *    Andrey Loskutov <loskutov@gmx.de> - initial API and implementation
+ *******************************************************************************/
+package org.eclipselabs.plugindependencies.core;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assume.assumeTrue;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.eclipselabs.plugindependencies.core.SystemPackageIndex.ReleasePackages;
+import org.eclipselabs.plugindependencies.core.fixture.BaseTest;
+import org.junit.FixMethodOrder;
+import org.junit.Test;
+import org.junit.runners.MethodSorters;
+
+@FixMethodOrder(MethodSorters.NAME_ASCENDING)
+public class TestSystemPackageIndex extends BaseTest {
+
+    private static File jrtJar() {
+        return new File(System.getProperty("java.home"), "lib/jrt-fs.jar");
+    }
+
+    @Test
+    public void testPersistentIndex() throws Exception {
+        File cacheDir = Files.createTempDirectory("systemPackages").toFile();
+        try {
+            SystemPackageIndex.clearLoaded();
+            Set<String> packages = SystemPackageIndex.getPackages(jrtJar(), cacheDir);
+            assertTrue(packages.contains("java.lang"));
+            assertTrue(packages.contains("javax.xml.parsers"));
+            assertFalse(packages.contains("org.eclipse.core.runtime"));
+            File[] files = cacheDir.listFiles();
+            assertEquals(1, files.length);
+            assertTrue(files[0].getName().startsWith(SystemPackageIndex.FILE_PREFIX));
+
+            // same as in the next process: index is read from disk
+            SystemPackageIndex.clearLoaded();
+            Set<String> loaded = SystemPackageIndex.getPackages(jrtJar(), cacheDir);
+            assertEquals(new ArrayList<>(packages), new ArrayList<>(loaded));
+
+            // broken index is ignored and rewritten
+            Files.write(files[0].toPath(), new byte[] { 1, 2, 3 });
+            SystemPackageIndex.clearLoaded();
+            assertEquals(packages, SystemPackageIndex.getPackages(jrtJar(), cacheDir));
+            assertTrue(files[0].length() > 3);
+        } finally {
+            for (File file : cacheDir.listFiles()) {
+                file.delete();
+            }
+            cacheDir.delete();
+        }
+    }
+
+    @Test
+    public void testReleasePackages() throws Exception {
+        assumeTrue("ct.sym required", new File(jrtJar().getParentFile(), "ct.sym").isFile());
+        File cacheDir = Files.createTempDirectory("releasePackages").toFile();
+        try {
+            SystemPackageIndex.clearLoaded();
+            ReleasePackages releases = SystemPackageIndex.getReleasePackages(jrtJar(), cacheDir);
+            int current = Runtime.version().feature();
+            assertEquals(current, releases.getCurrentRelease());
+            assertTrue(releases.isKnownRelease(current));
+            assertTrue(releases.isKnownRelease(11));
+            assertTrue(releases.isAvailable("java.lang", 11));
+            assertTrue(releases.isAvailable("java.lang", current));
+            assertTrue(releases.isAvailable("javax.xml.bind", 10));
+            assertFalse(releases.isAvailable("javax.xml.bind", 11));
+            assertTrue(releases.isAvailable("java.net.http", 11));
+            assertFalse(releases.isAvailable("java.net.http", 10));
+            assertTrue(releases.isKnown("javax.xml.bind"));
+            // vendor packages are not indexed
+            assertFalse(releases.isKnown("sun.misc"));
+            assertFalse(releases.isKnown("org.eclipse.core.runtime"));
+
+            File[] files = cacheDir.listFiles((dir, name) -> name.endsWith(SystemPackageIndex.RELEASES_SUFFIX));
+            assertEquals(1, files.length);
+            SystemPackageIndex.clearLoaded();
+            ReleasePackages loaded = SystemPackageIndex.getReleasePackages(jrtJar(), cacheDir);
+            assertEquals(releases.size(), loaded.size());
+            assertEquals(current, loaded.getCurrentRelease());
+            assertFalse(loaded.isAvailable("javax.xml.bind", 11));
+
+            assertEquals(0, SystemPackageIndex.getReleasePackages(new File("lib/rt.jar"), cacheDir).size());
+        } finally {
+            for (File file : cacheDir.listFiles()) {
+                file.delete();
+            }
+            cacheDir.delete();
+        }
+    }
+
+    @Test
+    public void testConcurrentAccess() throws Exception {
+        SystemPackageIndex.clearLoaded();
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<Set<String>>> results = new ArrayList<>();
+            for (int i = 0; i < 8; i++) {
+                results.add(executor.submit(() -> SystemPackageIndex.getPackages(jrtJar(), null)));
+            }
+            Set<String> first = results.get(0).get();
+            for (Future<Set<String>> result : results) {
+                assertSame(first, result.get());
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        assertTrue(SystemPackageIndex.getPackages(new File("not/a/java/home/lib/tools.jar"), null).isEmpty());
+    }
+
+    @Test
+    public void testPrefixTrie() {
+        PrefixTrie<String> trie = new PrefixTrie<>();
+        assertTrue(trie.isEmpty());
+        assertFalse(trie.hasPrefixOf("java.lang"));
+        trie.put("java.", "a");
+        trie.put("javax.", "b");
+        trie.put("java.", "a");
+        trie.put("java.lang", "c");
+        assertFalse(trie.isEmpty());
+        assertTrue(trie.hasPrefixOf("java."));
+        assertTrue(trie.hasPrefixOf("java.util"));
+        assertTrue(trie.hasPrefixOf("javax.xml"));
+        assertFalse(trie.hasPrefixOf("java"));
+        assertFalse(trie.hasPrefixOf("javafx.scene"));
+        assertFalse(trie.hasPrefixOf(""));
+        assertEquals("a", trie.findPrefixOf("java.lang.reflect", v -> true));
+        assertEquals("c", trie.findPrefixOf("java.lang.reflect", v -> !v.equals("a")));
+        assertNull(trie.findPrefixOf("java.util", v -> !v.equals("a")));
+
+        trie.put("", "all");
+        assertTrue(trie.hasPrefixOf(""));
+        assertEquals("all", trie.findPrefixOf("org.example", v -> true));
+    }
+
+    @Test
+    public void testSortedNames() {
+        SystemPackageIndex.SortedNames names = new SystemPackageIndex.SortedNames(
+                new String[] { "javax.xml", "java.util", "java.lang", "java.util" });
+        assertEquals(3, names.size());
+        assertEquals(Arrays.asList("java.lang", "java.util", "javax.xml"), new ArrayList<>(names));
+        assertTrue(names.contains("java.util"));
+        assertFalse(names.contains("java"));
+        assertFalse(names.contains(null));
+    }
+}
@@ -8,6 +8,11 @@ package org.eclipselabs.plugindependencies.core;
 
 import static org.junit.Assert.*;
 
+import java.util.Arrays;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
 import org.junit.Test;
 
 /**
@@ -61,4 +66,90 @@ public class TestVersions {
         assertFalse(m3.exactMatch(m4));
     }
 
+
+    @Test
+    public void testBoundedCache() {
+        BoundedCache<Version> cache = new BoundedCache<>(16);
+        int cached = 0;
+        for (int i = 0; i < 1000; i++) {
+            cache.put("1.0." + i, new Version("1.0." + i));
+        }
+        for (int i = 0; i < 1000; i++) {
+            Version v = cache.get("1.0." + i);
+            if (v != null) {
+                assertEquals(new Version("1.0." + i), v);
+                cached++;
+            }
+        }
+        assertTrue("Cached: " + cached, cached > 0 && cached <= 16);
+        assertEquals(new Version("1.0.999"), cache.get("1.0.999"));
+        assertNull(cache.get("1.0.1000"));
+    }
+
+    @Test
+    public void testVersionCache() {
+        Version v1 = Version.valueOf("1.2");
+        assertSame(v1, Version.valueOf("1.2"));
+        assertSame(v1, Version.valueOf("1.2.0"));
+        assertEquals(new Version("1.2.0"), v1);
+        assertEquals("1.2.0", v1.toString());
+        assertSame(Version.ZERO, Version.valueOf("0"));
+        assertNotSame(v1, Version.valueOf("1.2.0.qualifier"));
+        try {
+            Version.valueOf("[1.0,2.0)");
+            fail("Range is not a version");
+        } catch (IllegalArgumentException e) {
+            // expected
+        }
+
+        Plugin p1 = new Plugin("a", "1.10.0");
+        Plugin p2 = new Plugin("a", "1.9.0.v2020");
+        Plugin p3 = new Plugin("a", "1.10");
+        assertSame(p1.getParsedVersion(), p3.getParsedVersion());
+        assertTrue(new PlatformState.NameAndVersionComparator().compare(p1, p2) > 0);
+        assertEquals(0, new PlatformState.NameAndVersionComparator().compare(p1, p3));
+        assertSame(Version.ZERO, new ManifestEntry("a", "[1.0,2.0)").getParsedVersion());
+    }
+
+    @Test
+    public void testVersionIndex() {
+        List<Plugin> plugins = Arrays.asList(new Plugin("a", "2.0.0"), new Plugin("a", "1.0.0"),
+                new Plugin("a", "[1.0,2.0)"), new Plugin("a", "1.5.0.v1"), new Plugin("a", "2.0", true, false),
+                new Plugin("a", ""), new Plugin("a", "3.0.0"), new Plugin("a", "(0.0.0,1.0.0)"));
+        VersionIndex<Plugin> index = new VersionIndex<>(plugins);
+        String[] required = { "", "0.0.0", "1.0.0", "2.0.0", "4.0", "[1.0,2.0)", "(1.0,2.0]", "[1.5,1.5]",
+                "(2.0,3.0)", "[0.0.0,0.0.0]", "[1.0,2.0)", "invalid" };
+        for (String version : required) {
+            ManifestEntry entry = new ManifestEntry("a", version);
+            Set<Plugin> expected = new LinkedHashSet<>();
+            Set<Plugin> expectedExact = new LinkedHashSet<>();
+            for (Plugin plugin : plugins) {
+                if (entry.isMatching(plugin)) {
+                    expected.add(plugin);
+                }
+                if (plugin.matches("a", entry.getVersion())) {
+                    expectedExact.add(plugin);
+                }
+            }
+            VersionIndex.Matches<Plugin> matches = index.match(entry);
+            assertEquals(version, expected, matches.toSet());
+            assertEquals(version, expected.size(), matches.size());
+            assertSame(version, highest(expected), matches.highest());
+            matches = index.matchExact("a", entry.getVersion());
+            assertEquals(version, expectedExact, matches.toSet());
+            assertSame(version, highest(expectedExact), matches.highest());
+        }
+        assertEquals(0, VersionIndex.Matches.empty().size());
+        assertNull(VersionIndex.Matches.empty().highest());
+    }
+
+    private static Plugin highest(Set<Plugin> plugins) {
+        Plugin highest = null;
+        for (Plugin plugin : plugins) {
+            if (highest == null || plugin.getParsedVersion().compareTo(highest.getParsedVersion()) > 0) {
+                highest = plugin;
+            }
+        }
+        return highest;
+    }
 }
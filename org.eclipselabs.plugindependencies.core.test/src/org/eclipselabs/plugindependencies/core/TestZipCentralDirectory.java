@@ -0,0 +1,148 @@
+/*******************************************************************************
+ * Copyright (c) 2026 Andrey Loskutov
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *    Andrey Loskutov <loskutov@gmx.de> - initial API and implementation
+ *******************************************************************************/
+package org.eclipselabs.plugindependencies.core;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.List;
+import java.util.jar.JarFile;
+import java.util.jar.Manifest;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipException;
+
+import org.eclipselabs.plugindependencies.core.fixture.BaseTest;
+import org.junit.FixMethodOrder;
+import org.junit.Test;
+import org.junit.runners.MethodSorters;
+
+@FixMethodOrder(MethodSorters.NAME_ASCENDING)
+public class TestZipCentralDirectory extends BaseTest {
+
+    @Test
+    public void testSameContentAsJarFile() throws Exception {
+        List<File> jars = findJars(Paths.get("."));
+        assertTrue(jars.size() > 10);
+        for (File jar : jars) {
+            try (ZipCentralDirectory zip = ZipCentralDirectory.open(jar); JarFile jarFile = new JarFile(jar, false)) {
+                Manifest expected = jarFile.getManifest();
+                byte[] manifest = zip.readManifest();
+                if (expected == null) {
+                    assertNull(jar.toString(), manifest);
+                } else {
+                    assertNotNull(jar.toString(), manifest);
+                    assertEquals(jar.toString(), expected, new Manifest(new ByteArrayInputStream(manifest)));
+                }
+                ZipEntry entry = jarFile.getEntry("plugin.xml");
+                byte[] pluginXml = zip.read("plugin.xml");
+                if (entry == null) {
+                    assertNull(jar.toString(), pluginXml);
+                } else {
+                    try (InputStream is = jarFile.getInputStream(entry)) {
+                        assertArrayEquals(jar.toString(), readAll(is), pluginXml);
+                    }
+                }
+                assertNull(zip.read("does/not/exist.txt"));
+                assertEquals(jar.toString(), expected, PluginParser.getManifest(jar));
+            }
+        }
+    }
+
+    @Test
+    public void testPrependedData() throws Exception {
+        File jar = new File("testdata_Plugins/org.eclipse.equinox.app_1.3.100.v20110321.jar");
+        File copy = File.createTempFile("prepended", ".jar");
+        try {
+            byte[] prefix = "#!/bin/sh\nexit 0\n".getBytes();
+            byte[] content = Files.readAllBytes(jar.toPath());
+            byte[] all = new byte[prefix.length + content.length];
+            System.arraycopy(prefix, 0, all, 0, prefix.length);
+            System.arraycopy(content, 0, all, prefix.length, content.length);
+            Files.write(copy.toPath(), all);
+            try (ZipCentralDirectory zip = ZipCentralDirectory.open(copy)) {
+                Manifest manifest = new Manifest(new ByteArrayInputStream(zip.readManifest()));
+                assertEquals(PluginParser.getManifest(jar), manifest);
+            }
+        } finally {
+            copy.delete();
+        }
+    }
+
+    @Test
+    public void testMalformedArchive() throws Exception {
+        File garbage = File.createTempFile("garbage", ".jar");
+        try {
+            Files.write(garbage.toPath(), "this is not a zip file, but long enough to look like one".getBytes());
+            try {
+                ZipCentralDirectory.open(garbage).close();
+                fail("Should not be able to open " + garbage);
+            } catch (ZipException e) {
+                // expected, fast path gives up
+            }
+            try {
+                BundleArchive.read(garbage, false);
+                fail("Should not be able to read " + garbage);
+            } catch (IOException e) {
+                // expected, JarFile fallback fails too
+            }
+        } finally {
+            garbage.delete();
+        }
+
+        File jar = new File("testdata_Plugins/org.eclipse.ant.optional.junit_3.3.0.jar");
+        File truncated = File.createTempFile("truncated", ".jar");
+        try {
+            byte[] content = Files.readAllBytes(jar.toPath());
+            byte[] half = new byte[content.length / 2];
+            System.arraycopy(content, 0, half, 0, half.length);
+            Files.write(truncated.toPath(), half);
+            try {
+                PluginParser.getManifest(truncated);
+                fail("Should not be able to read " + truncated);
+            } catch (IOException e) {
+                // expected
+            }
+        } finally {
+            truncated.delete();
+        }
+    }
+
+    static List<File> findJars(Path root) throws IOException {
+        try (Stream<Path> files = Files.walk(root)) {
+            return files.filter(p -> p.toString().endsWith(".jar") && !p.startsWith(root.resolve("bin")))
+                    .map(Path::toFile).sorted().collect(Collectors.toList());
+        }
+    }
+
+    private static byte[] readAll(InputStream is) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        byte[] buffer = new byte[8192];
+        int n;
+        while ((n = is.read(buffer)) != -1) {
+            out.write(buffer, 0, n);
+        }
+        return out.toByteArray();
+    }
+}
@@ -19,14 +19,19 @@ import org.eclipselabs.plugindependencies.core.TestDepResResolving;
 import org.eclipselabs.plugindependencies.core.TestDepResSearchMethodFeature;
 import org.eclipselabs.plugindependencies.core.TestDepResSearchMethodPack;
 import org.eclipselabs.plugindependencies.core.TestDepResSearchMethodPlugin;
+import org.eclipselabs.plugindependencies.core.TestDependencyGraph;
 import org.eclipselabs.plugindependencies.core.TestDependencyResolver;
 import org.eclipselabs.plugindependencies.core.TestExceptions;
+import org.eclipselabs.plugindependencies.core.TestExecutionEnvironment;
 import org.eclipselabs.plugindependencies.core.TestFeatureParser;
+import org.eclipselabs.plugindependencies.core.TestIncrementalResolver;
 import org.eclipselabs.plugindependencies.core.TestPlugin;
 import org.eclipselabs.plugindependencies.core.TestPluginParser;
 import org.eclipselabs.plugindependencies.core.TestPluginParser2;
 import org.eclipselabs.plugindependencies.core.TestStringUtil;
+import org.eclipselabs.plugindependencies.core.TestSystemPackageIndex;
 import org.eclipselabs.plugindependencies.core.TestVersions;
+import org.eclipselabs.plugindependencies.core.TestZipCentralDirectory;
 import org.junit.runner.RunWith;
 import org.junit.runners.Suite;
 import org.junit.runners.Suite.SuiteClasses;
@@ -40,6 +45,7 @@ import org.junit.runners.Suite.SuiteClasses;
     TestBuildFileGen2.class,
     TestBuildFileGen3.class,
     TestCLI.class,
+    TestDependencyGraph.class,
     TestDependencyResolver.class,
     TestDepResIsRightVersion.class,
     TestDepResResolving.class,
@@ -47,12 +53,16 @@ import org.junit.runners.Suite.SuiteClasses;
     TestDepResSearchMethodPack.class,
     TestDepResSearchMethodPlugin.class,
     TestExceptions.class,
+    TestExecutionEnvironment.class,
     TestFeatureParser.class,
+    TestIncrementalResolver.class,
     TestPlugin.class,
     TestPluginParser.class,
     TestPluginParser2.class,
     TestStringUtil.class,
+    TestSystemPackageIndex.class,
     TestVersions.class,
+    TestZipCentralDirectory.class,
 })
 public class AllTests {
     //
@@ -0,0 +1,64 @@
+/*******************************************************************************
+ * Copyright (c) 2026 Andrey Loskutov
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *    Andrey Loskutov <loskutov@gmx.de> - initial API and implementation
+ *******************************************************************************/
+package org.eclipselabs.plugindependencies.core;
+
+/**
+ * Fixed size cache of immutable values parsed from strings, shared by all states of
+ * the process. Each key has one slot (chosen by hash), a new key replaces whatever
+ * was cached in its slot before, so the memory used never grows, no matter how many
+ * different strings are seen by a long running application.
+ * <p>
+ * Lookups and updates are not synchronized: entries are immutable, so a racing
+ * reader sees either the old or the new entry, or misses and parses again.
+ */
+final class BoundedCache<V> {
+
+    private final Entry<V>[] slots;
+
+    /**
+     * @param size
+     *            number of slots, must be a power of two
+     */
+    @SuppressWarnings("unchecked")
+    BoundedCache(int size) {
+        if (Integer.bitCount(size) != 1) {
+            throw new IllegalArgumentException("Size must be a power of two: " + size);
+        }
+        slots = (Entry<V>[]) new Entry<?>[size];
+    }
+
+    /**
+     * @return cached value for given key or null
+     */
+    V get(String key) {
+        Entry<V> entry = slots[index(key)];
+        return entry != null && entry.key.equals(key) ? entry.value : null;
+    }
+
+    void put(String key, V value) {
+        slots[index(key)] = new Entry<>(key, value);
+    }
+
+    private int index(String key) {
+        int h = key.hashCode();
+        return (h ^ (h >>> 16)) & (slots.length - 1);
+    }
+
+    private static final class Entry<V> {
+        final String key;
+        final V value;
+
+        Entry(String key, V value) {
+            this.key = key;
+            this.value = value;
+        }
+    }
+}
@@ -0,0 +1,382 @@
+/*******************************************************************************
+ * Copyright (c) 2026 Andrey Loskutov
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *    Andrey Loskutov <loskutov@gmx.de> - initial API and implementation
+ *******************************************************************************/
+package org.eclipselabs.plugindependencies.core;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.FileSystemException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.jar.JarFile;
+import java.util.jar.Manifest;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipException;
+
+import javax.xml.parsers.ParserConfigurationException;
+import javax.xml.parsers.SAXParser;
+import javax.xml.parsers.SAXParserFactory;
+
+import org.xml.sax.Attributes;
+import org.xml.sax.SAXException;
+import org.xml.sax.helpers.DefaultHandler;
+
+/**
+ * Bundle (jar file or directory) content read in one pass: the bundle is opened only
+ * once, and manifest, plugin.xml facts and file metadata are extracted together.
+ * plugin.xml is parsed with a streaming parser and never kept in memory.
+ */
+public class BundleArchive {
+
+    static final String MANIFEST_PATH = "META-INF/MANIFEST.MF";
+    static final String PLUGIN_XML = "plugin.xml";
+
+    private static final SAXParserFactory SAX_FACTORY = createSaxFactory();
+
+    private final File file;
+    private final String canonicalPath;
+    private final long length;
+    private final long lastModified;
+    private final Manifest manifest;
+    private final PluginXml pluginXml;
+
+    BundleArchive(File file, String canonicalPath, long length, long lastModified, Manifest manifest,
+            PluginXml pluginXml) {
+        this.file = file;
+        this.canonicalPath = canonicalPath;
+        this.length = length;
+        this.lastModified = lastModified;
+        this.manifest = manifest;
+        this.pluginXml = pluginXml;
+    }
+
+    /**
+     * Reads given bundle.
+     *
+     * @param pluginOrFolder
+     *            folder or jar archive
+     * @param readPluginXml
+     *            true to read plugin.xml even if the bundle has a valid OSGI manifest
+     * @return null if given file contains neither a manifest nor a plugin.xml
+     * @throws IOException
+     *             from reading file system
+     */
+    public static BundleArchive read(File pluginOrFolder, boolean readPluginXml) throws IOException {
+        if (pluginOrFolder.getName().endsWith(".jar")) {
+            return readJar(pluginOrFolder, readPluginXml);
+        }
+        return readDirectory(pluginOrFolder, readPluginXml);
+    }
+
+    private static BundleArchive readJar(File jar, boolean readPluginXml) throws IOException {
+        BasicFileAttributes attributes = Files.readAttributes(jar.toPath(), BasicFileAttributes.class);
+        Manifest manifest;
+        PluginXml pluginXml = null;
+        try (ZipCentralDirectory zip = ZipCentralDirectory.open(jar)) {
+            manifest = toManifest(zip.readManifest());
+            if (readPluginXml || !hasIdentity(manifest)) {
+                byte[] xml = zip.read(PLUGIN_XML);
+                if (xml != null) {
+                    pluginXml = PluginXml.parse(new ByteArrayInputStream(xml));
+                }
+            }
+        } catch (ZipException e) {
+            // something we don't support in the fast path, let JarFile handle it
+            return readJarFile(jar, attributes, readPluginXml);
+        }
+        return createJarArchive(jar, attributes, manifest, pluginXml);
+    }
+
+    private static BundleArchive readJarFile(File jar, BasicFileAttributes attributes, boolean readPluginXml)
+            throws IOException {
+        Manifest manifest;
+        PluginXml pluginXml = null;
+        try (JarFile jarfile = new JarFile(jar, false)) {
+            manifest = jarfile.getManifest();
+            if (readPluginXml || !hasIdentity(manifest)) {
+                ZipEntry entry = jarfile.getEntry(PLUGIN_XML);
+                if (entry != null) {
+                    try (InputStream is = jarfile.getInputStream(entry)) {
+                        pluginXml = PluginXml.parse(is);
+                    }
+                }
+            }
+        } catch (RuntimeException e) {
+            throw new IOException(e);
+        }
+        return createJarArchive(jar, attributes, manifest, pluginXml);
+    }
+
+    private static BundleArchive createJarArchive(File jar, BasicFileAttributes attributes, Manifest manifest,
+            PluginXml pluginXml) throws IOException {
+        if (manifest == null && pluginXml == null) {
+            return null;
+        }
+        return new BundleArchive(jar, jar.getCanonicalPath(), attributes.size(),
+                attributes.lastModifiedTime().toMillis(), manifest, pluginXml);
+    }
+
+    /**
+     * Reads only the manifest from given jar, without verifying signatures.
+     *
+     * @return may return null if the jar has no manifest
+     * @throws IOException
+     *             from reading file system or if the file is not a valid jar
+     */
+    static Manifest readJarManifest(File jar) throws IOException {
+        try (ZipCentralDirectory zip = ZipCentralDirectory.open(jar)) {
+            return toManifest(zip.readManifest());
+        } catch (ZipException e) {
+            // something we don't support in the fast path, let JarFile handle it
+            try (JarFile jarfile = new JarFile(jar, false)) {
+                return jarfile.getManifest();
+            } catch (RuntimeException re) {
+                throw new IOException(re);
+            }
+        }
+    }
+
+    private static Manifest toManifest(byte[] content) throws IOException {
+        if (content == null) {
+            return null;
+        }
+        try {
+            return new Manifest(new ByteArrayInputStream(content));
+        } catch (RuntimeException e) {
+            throw new IOException(e);
+        }
+    }
+
+    private static BundleArchive readDirectory(File dir, boolean readPluginXml) throws IOException {
+        Path manifestPath = dir.toPath().resolve(MANIFEST_PATH);
+        BasicFileAttributes attributes = attributes(manifestPath);
+        if (attributes != null && dir.isHidden()) {
+            attributes = null;
+        }
+        Manifest manifest = null;
+        if (attributes != null) {
+            try (InputStream stream = Files.newInputStream(manifestPath)) {
+                manifest = new Manifest(stream);
+            } catch (RuntimeException e) {
+                throw new IOException(e);
+            }
+        }
+        PluginXml pluginXml = null;
+        if (readPluginXml || !hasIdentity(manifest)) {
+            Path pluginXmlPath = dir.toPath().resolve(PLUGIN_XML);
+            BasicFileAttributes xmlAttributes = attributes(pluginXmlPath);
+            if (xmlAttributes != null && !dir.isHidden()) {
+                try (InputStream stream = Files.newInputStream(pluginXmlPath)) {
+                    pluginXml = PluginXml.parse(stream);
+                }
+                if (attributes == null) {
+                    attributes = xmlAttributes;
+                }
+            }
+        }
+        if (manifest == null && pluginXml == null) {
+            return null;
+        }
+        return new BundleArchive(dir, dir.getCanonicalPath(), attributes.size(),
+                attributes.lastModifiedTime().toMillis(), manifest, pluginXml);
+    }
+
+    private static BasicFileAttributes attributes(Path path) throws IOException {
+        try {
+            BasicFileAttributes attributes = Files.readAttributes(path, BasicFileAttributes.class);
+            return attributes.isDirectory() ? null : attributes;
+        } catch (FileSystemException e) {
+            // does not exist or parent is not a directory
+            return null;
+        }
+    }
+
+    /**
+     * @return true if given manifest is an OSGI bundle manifest (has symbolic name and
+     *         version)
+     */
+    static boolean hasIdentity(Manifest manifest) {
+        if (manifest == null) {
+            return false;
+        }
+        return PluginParser.readAttribute(manifest, "Bundle-SymbolicName") != null
+                && PluginParser.readAttribute(manifest, "Bundle-Version") != null;
+    }
+
+    public File getFile() {
+        return file;
+    }
+
+    public String getCanonicalPath() {
+        return canonicalPath;
+    }
+
+    /**
+     * @return size of the jar file, or size of the manifest file for bundle directories
+     */
+    public long getLength() {
+        return length;
+    }
+
+    /**
+     * @return time stamp of the jar file, or time stamp of the manifest file for bundle
+     *         directories
+     */
+    public long getLastModified() {
+        return lastModified;
+    }
+
+    /**
+     * @return may return null if the bundle has no manifest
+     */
+    public Manifest getManifest() {
+        return manifest;
+    }
+
+    /**
+     * @return may return null if the bundle has no plugin.xml or it was not read
+     */
+    public PluginXml getPluginXml() {
+        return pluginXml;
+    }
+
+    private static SAXParserFactory createSaxFactory() {
+        SAXParserFactory factory = SAXParserFactory.newInstance();
+        try {
+            factory.setFeature("http://apache.org/xml/features/nonvalidating/load-external-dtd", false);
+        } catch (ParserConfigurationException | SAXException e) {
+            // not supported by the parser, ignore
+        }
+        return factory;
+    }
+
+    /**
+     * Facts extracted from plugin.xml
+     */
+    public static class PluginXml {
+        private int pluginElements;
+        private String id;
+        private String version;
+        private final List<String[]> imports;
+        private boolean earlyStartup;
+        private Exception error;
+
+        PluginXml() {
+            imports = new ArrayList<>();
+        }
+
+        /**
+         * Restores previously extracted facts, see {@link BundleCache}
+         */
+        PluginXml(String id, String version, List<String[]> imports, boolean earlyStartup) {
+            this.pluginElements = id == null ? 0 : 1;
+            this.id = id;
+            this.version = version;
+            this.imports = imports;
+            this.earlyStartup = earlyStartup;
+        }
+
+        static PluginXml parse(InputStream stream) throws IOException {
+            PluginXml facts = new PluginXml();
+            try {
+                SAXParser parser;
+                // factory is not thread safe, but bundles might be read by parallel parser threads
+                synchronized (SAX_FACTORY) {
+                    parser = SAX_FACTORY.newSAXParser();
+                }
+                parser.parse(stream, facts.new Handler());
+            } catch (SAXException | ParserConfigurationException e) {
+                // keep what we've seen so far, the caller decides how to deal with the error
+                facts.error = e;
+            }
+            return facts;
+        }
+
+        /**
+         * @return value of the "id" attribute of the only "plugin" element, null if
+         *         there is no or more than one such element or if it has no id
+         */
+        public String getId() {
+            return pluginElements == 1 ? id : null;
+        }
+
+        /**
+         * @return value of the "version" attribute of the "plugin" element, empty string
+         *         if not set
+         */
+        public String getVersion() {
+            return version == null ? NamedElement.EMPTY_VERSION : version;
+        }
+
+        /**
+         * @return never null, list of "import" elements with non empty "plugin"
+         *         attribute, each as array of trimmed plugin id, version and match
+         *         attribute values (empty strings if not set)
+         */
+        public List<String[]> getImports() {
+            return Collections.unmodifiableList(imports);
+        }
+
+        /**
+         * @return true if plugin.xml contributes to the "org.eclipse.ui.startup"
+         *         extension point
+         */
+        public boolean isEarlyStartup() {
+            return earlyStartup;
+        }
+
+        /**
+         * @return parse error, if any
+         */
+        public Exception getError() {
+            return error;
+        }
+
+        private final class Handler extends DefaultHandler {
+
+            @Override
+            public void startElement(String uri, String localName, String qName, Attributes attributes) {
+                switch (qName) {
+                case "plugin":
+                    pluginElements++;
+                    if (pluginElements == 1) {
+                        id = attributes.getValue("id");
+                        version = attributes.getValue("version");
+                    }
+                    break;
+                case "import":
+                    String plugin = trimmed(attributes, "plugin");
+                    if (!plugin.isEmpty()) {
+                        imports.add(new String[] { plugin, trimmed(attributes, "version"), trimmed(attributes, "match") });
+                    }
+                    break;
+                case "extension":
+                    if ("org.eclipse.ui.startup".equals(trimmed(attributes, "point"))) {
+                        earlyStartup = true;
+                    }
+                    break;
+                default:
+                    break;
+                }
+            }
+
+            private String trimmed(Attributes attributes, String name) {
+                String value = attributes.getValue(name);
+                return value == null ? "" : value.trim();
+            }
+        }
+    }
+}
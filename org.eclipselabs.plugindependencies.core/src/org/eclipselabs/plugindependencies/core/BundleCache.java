@@ -0,0 +1,482 @@
+/*******************************************************************************
+ * Copyright (c) 2026 Andrey Loskutov
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *    Andrey Loskutov <loskutov@gmx.de> - initial API and implementation
+ *******************************************************************************/
+package org.eclipselabs.plugindependencies.core;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.FileSystemException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.jar.Attributes;
+import java.util.jar.Manifest;
+
+import org.eclipselabs.plugindependencies.core.BundleArchive.PluginXml;
+import org.eclipselabs.plugindependencies.core.FeatureParser.FeatureXml;
+
+/**
+ * Persistent cache for data read from bundle manifests, plugin.xml and feature.xml
+ * files. Entries are keyed by canonical path and validated by file size and time stamp,
+ * so unchanged bundles don't need to be opened at all.
+ * <p>
+ * The cache is stored in a compact binary file in the cache directory, see
+ * {@link #load(File)} and {@link #save()}. Only manifest headers which are used by
+ * {@link PluginParser} are stored, so manifests restored from cache contain only those.
+ */
+public class BundleCache {
+
+    public static final String FILE_NAME = "bundles.cache";
+
+    /** Manifest headers used by {@link PluginParser#parseManifest(Manifest, PlatformState)} */
+    static final String[] MANIFEST_HEADERS = { "Bundle-SymbolicName", "Bundle-Version", "Fragment-Host",
+            "Require-Bundle", "Import-Package", "DynamicImport-Package", "Require-Capability", "Export-Package",
+            "Provide-Capability", "Bundle-ClassPath", "Bundle-RequiredExecutionEnvironment" };
+
+    /** "PDBC" */
+    private static final int MAGIC = 0x50444243;
+    /** Must be incremented on any change of the file format or of the cached data */
+    private static final int FORMAT_VERSION = 2;
+
+    private static final byte KIND_BUNDLE = 1;
+    private static final byte KIND_FEATURE = 2;
+
+    private static final int HAS_MANIFEST = 1;
+    private static final int PLUGIN_XML_READ = 1 << 1;
+    private static final int HAS_PLUGIN_XML = 1 << 2;
+    private static final int EARLY_STARTUP = 1 << 3;
+
+    private final File file;
+    private final Map<String, Entry> entries;
+    private final AtomicInteger hits;
+    private final AtomicInteger misses;
+
+    private BundleCache(File file) {
+        this.file = file;
+        entries = new ConcurrentHashMap<>();
+        hits = new AtomicInteger();
+        misses = new AtomicInteger();
+    }
+
+    /**
+     * Loads the cache from given directory. If the cache file does not exist or can't
+     * be read, an empty cache is returned.
+     *
+     * @param cacheDir
+     *            directory to store the cache file, will be created if not existing
+     * @return never null
+     */
+    public static BundleCache load(File cacheDir) {
+        BundleCache cache = new BundleCache(new File(cacheDir, FILE_NAME));
+        if (!cache.file.isFile()) {
+            return cache;
+        }
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(cache.file.toPath())))) {
+            cache.read(in);
+        } catch (IOException | RuntimeException e) {
+            cache.entries.clear();
+            Logging.getLogger().warning("Ignoring broken bundle cache: " + cache.file + ", " + e);
+        }
+        return cache;
+    }
+
+    /**
+     * Writes all entries used or added since the cache was loaded, and all other
+     * previously cached entries for files which still exist.
+     *
+     * @throws IOException
+     *             if cache file can't be written
+     */
+    public void save() throws IOException {
+        Path target = file.toPath();
+        Files.createDirectories(target.getParent());
+        Path tmp = Files.createTempFile(target.getParent(), FILE_NAME, ".tmp");
+        try {
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tmp)))) {
+                write(out);
+            }
+            try {
+                Files.move(tmp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(tmp, target, StandardCopyOption.REPLACE_EXISTING);
+            }
+        } finally {
+            Files.deleteIfExists(tmp);
+        }
+    }
+
+    /**
+     * Returns bundle data from cache if the bundle is not changed since it was cached,
+     * otherwise reads the bundle and caches the result.
+     *
+     * @see BundleArchive#read(File, boolean)
+     */
+    public BundleArchive readBundle(File pluginOrFolder, boolean readPluginXml) throws IOException {
+        Stamp stamp = bundleStamp(pluginOrFolder);
+        if (stamp == null) {
+            return BundleArchive.read(pluginOrFolder, readPluginXml);
+        }
+        String path = pluginOrFolder.getCanonicalPath();
+        Entry entry = entries.get(path);
+        if (entry instanceof BundleEntry && entry.isValid(stamp)) {
+            BundleEntry bundle = (BundleEntry) entry;
+            if (!readPluginXml || (bundle.flags & PLUGIN_XML_READ) != 0) {
+                hits.incrementAndGet();
+                bundle.used = true;
+                return bundle.toArchive(pluginOrFolder, path);
+            }
+        }
+        misses.incrementAndGet();
+        BundleArchive archive = BundleArchive.read(pluginOrFolder, readPluginXml);
+        if (archive != null && (archive.getPluginXml() == null || archive.getPluginXml().getError() == null)) {
+            entries.put(path, new BundleEntry(stamp, archive, readPluginXml));
+        }
+        return archive;
+    }
+
+    /**
+     * Returns feature data from cache if the feature.xml (or the jar containing it) is
+     * not changed since it was cached, otherwise uses given reader and caches the
+     * result.
+     */
+    FeatureXml readFeature(File featureFile, FeatureReader reader) throws IOException {
+        Stamp stamp = stamp(featureFile.toPath());
+        if (stamp == null) {
+            return reader.read();
+        }
+        String path = featureFile.getCanonicalPath();
+        Entry entry = entries.get(path);
+        if (entry instanceof FeatureEntry && entry.isValid(stamp)) {
+            hits.incrementAndGet();
+            entry.used = true;
+            return ((FeatureEntry) entry).featureXml;
+        }
+        misses.incrementAndGet();
+        FeatureXml featureXml = reader.read();
+        if (featureXml != null) {
+            entries.put(path, new FeatureEntry(stamp, featureXml));
+        }
+        return featureXml;
+    }
+
+    /**
+     * @return number of bundles and features served from cache
+     */
+    public int getHits() {
+        return hits.get();
+    }
+
+    /**
+     * @return number of bundles and features which had to be read from disk
+     */
+    public int getMisses() {
+        return misses.get();
+    }
+
+    public File getFile() {
+        return file;
+    }
+
+    private static Stamp bundleStamp(File pluginOrFolder) throws IOException {
+        if (pluginOrFolder.getName().endsWith(".jar")) {
+            return stamp(pluginOrFolder.toPath());
+        }
+        Stamp manifest = stamp(pluginOrFolder.toPath().resolve(BundleArchive.MANIFEST_PATH));
+        Stamp pluginXml = stamp(pluginOrFolder.toPath().resolve(BundleArchive.PLUGIN_XML));
+        if (manifest == null) {
+            return pluginXml;
+        }
+        if (pluginXml == null) {
+            return manifest;
+        }
+        return new Stamp(manifest.size + pluginXml.size, Math.max(manifest.lastModified, pluginXml.lastModified));
+    }
+
+    private static Stamp stamp(Path path) throws IOException {
+        try {
+            BasicFileAttributes attributes = Files.readAttributes(path, BasicFileAttributes.class);
+            if (attributes.isDirectory()) {
+                return null;
+            }
+            return new Stamp(attributes.size(), attributes.lastModifiedTime().toMillis());
+        } catch (FileSystemException e) {
+            // does not exist or parent is not a directory
+            return null;
+        }
+    }
+
+    private void read(DataInputStream in) throws IOException {
+        if (in.readInt() != MAGIC || in.readInt() != FORMAT_VERSION) {
+            // other version, will be overridden on save
+            return;
+        }
+        int count = in.readInt();
+        for (int i = 0; i < count; i++) {
+            byte kind = in.readByte();
+            String path = readString(in);
+            Stamp stamp = new Stamp(in.readLong(), in.readLong());
+            Entry entry;
+            if (kind == KIND_BUNDLE) {
+                entry = BundleEntry.read(stamp, in);
+            } else if (kind == KIND_FEATURE) {
+                entry = FeatureEntry.read(stamp, in);
+            } else {
+                throw new IOException("Unexpected entry kind: " + kind);
+            }
+            entries.put(path, entry);
+        }
+    }
+
+    private void write(DataOutputStream out) throws IOException {
+        List<Map.Entry<String, Entry>> toWrite = new ArrayList<>();
+        for (Map.Entry<String, Entry> e : entries.entrySet()) {
+            if (e.getValue().used || new File(e.getKey()).exists()) {
+                toWrite.add(e);
+            }
+        }
+        out.writeInt(MAGIC);
+        out.writeInt(FORMAT_VERSION);
+        out.writeInt(toWrite.size());
+        for (Map.Entry<String, Entry> e : toWrite) {
+            Entry entry = e.getValue();
+            out.writeByte(entry instanceof BundleEntry ? KIND_BUNDLE : KIND_FEATURE);
+            writeString(out, e.getKey());
+            out.writeLong(entry.stamp.size);
+            out.writeLong(entry.stamp.lastModified);
+            entry.write(out);
+        }
+    }
+
+    static String readString(DataInputStream in) throws IOException {
+        int length = in.readInt();
+        if (length < 0) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    static void writeString(DataOutputStream out, String s) throws IOException {
+        if (s == null) {
+            out.writeInt(-1);
+            return;
+        }
+        byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static List<String[]> readStringArrays(DataInputStream in, int arity) throws IOException {
+        int size = in.readInt();
+        List<String[]> list = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            String[] values = new String[arity];
+            for (int j = 0; j < arity; j++) {
+                values[j] = readString(in);
+            }
+            list.add(values);
+        }
+        return list;
+    }
+
+    private static void writeStringArrays(DataOutputStream out, List<String[]> list) throws IOException {
+        out.writeInt(list.size());
+        for (String[] values : list) {
+            for (String value : values) {
+                writeString(out, value);
+            }
+        }
+    }
+
+    /**
+     * Reads feature.xml data from disk
+     */
+    interface FeatureReader {
+        FeatureXml read() throws IOException;
+    }
+
+    private static final class Stamp {
+        final long size;
+        final long lastModified;
+
+        Stamp(long size, long lastModified) {
+            this.size = size;
+            this.lastModified = lastModified;
+        }
+    }
+
+    private abstract static class Entry {
+        final Stamp stamp;
+        volatile boolean used;
+
+        Entry(Stamp stamp) {
+            this.stamp = stamp;
+        }
+
+        boolean isValid(Stamp current) {
+            return stamp.size == current.size && stamp.lastModified == current.lastModified;
+        }
+
+        abstract void write(DataOutputStream out) throws IOException;
+    }
+
+    private static final class BundleEntry extends Entry {
+        final int flags;
+        /** header name, value pairs */
+        final String[] headers;
+        final String pluginId;
+        final String pluginVersion;
+        final List<String[]> imports;
+
+        BundleEntry(Stamp stamp, int flags, String[] headers, String pluginId, String pluginVersion,
+                List<String[]> imports) {
+            super(stamp);
+            this.flags = flags;
+            this.headers = headers;
+            this.pluginId = pluginId;
+            this.pluginVersion = pluginVersion;
+            this.imports = imports;
+            this.used = true;
+        }
+
+        BundleEntry(Stamp stamp, BundleArchive archive, boolean pluginXmlRead) {
+            this(stamp, flags(archive, pluginXmlRead), headers(archive.getManifest()),
+                    archive.getPluginXml() == null ? null : archive.getPluginXml().getId(),
+                    archive.getPluginXml() == null ? null : archive.getPluginXml().getVersion(),
+                    archive.getPluginXml() == null ? Collections.emptyList() : archive.getPluginXml().getImports());
+        }
+
+        private static int flags(BundleArchive archive, boolean pluginXmlRead) {
+            int flags = 0;
+            if (archive.getManifest() != null) {
+                flags |= HAS_MANIFEST;
+            }
+            if (pluginXmlRead || !BundleArchive.hasIdentity(archive.getManifest())) {
+                flags |= PLUGIN_XML_READ;
+            }
+            PluginXml pluginXml = archive.getPluginXml();
+            if (pluginXml != null) {
+                flags |= HAS_PLUGIN_XML;
+                if (pluginXml.isEarlyStartup()) {
+                    flags |= EARLY_STARTUP;
+                }
+            }
+            return flags;
+        }
+
+        private static String[] headers(Manifest manifest) {
+            if (manifest == null) {
+                return new String[0];
+            }
+            List<String> list = new ArrayList<>();
+            for (String name : MANIFEST_HEADERS) {
+                String value = PluginParser.readAttribute(manifest, name);
+                if (value != null) {
+                    list.add(name);
+                    list.add(value);
+                }
+            }
+            return list.toArray(new String[list.size()]);
+        }
+
+        BundleArchive toArchive(File pluginOrFolder, String canonicalPath) {
+            Manifest manifest = null;
+            if ((flags & HAS_MANIFEST) != 0) {
+                manifest = new Manifest();
+                Attributes attributes = manifest.getMainAttributes();
+                for (int i = 0; i < headers.length; i += 2) {
+                    attributes.putValue(headers[i], headers[i + 1]);
+                }
+            }
+            PluginXml pluginXml = null;
+            if ((flags & HAS_PLUGIN_XML) != 0) {
+                pluginXml = new PluginXml(pluginId, pluginVersion, imports, (flags & EARLY_STARTUP) != 0);
+            }
+            return new BundleArchive(pluginOrFolder, canonicalPath, stamp.size, stamp.lastModified, manifest,
+                    pluginXml);
+        }
+
+        static BundleEntry read(Stamp stamp, DataInputStream in) throws IOException {
+            int flags = in.readByte();
+            String[] headers = new String[in.readInt()];
+            for (int i = 0; i < headers.length; i++) {
+                headers[i] = readString(in);
+            }
+            String pluginId = null;
+            String pluginVersion = null;
+            List<String[]> imports = Collections.emptyList();
+            if ((flags & HAS_PLUGIN_XML) != 0) {
+                pluginId = readString(in);
+                pluginVersion = readString(in);
+                imports = readStringArrays(in, 3);
+            }
+            BundleEntry entry = new BundleEntry(stamp, flags, headers, pluginId, pluginVersion, imports);
+            entry.used = false;
+            return entry;
+        }
+
+        @Override
+        void write(DataOutputStream out) throws IOException {
+            out.writeByte(flags);
+            out.writeInt(headers.length);
+            for (String header : headers) {
+                writeString(out, header);
+            }
+            if ((flags & HAS_PLUGIN_XML) != 0) {
+                writeString(out, pluginId);
+                writeString(out, pluginVersion);
+                writeStringArrays(out, imports);
+            }
+        }
+    }
+
+    private static final class FeatureEntry extends Entry {
+        final FeatureXml featureXml;
+
+        FeatureEntry(Stamp stamp, FeatureXml featureXml) {
+            super(stamp);
+            this.featureXml = featureXml;
+            this.used = true;
+        }
+
+        static FeatureEntry read(Stamp stamp, DataInputStream in) throws IOException {
+            FeatureXml featureXml = new FeatureXml(readString(in), readString(in));
+            featureXml.plugins.addAll(readStringArrays(in, FeatureXml.INCLUDED_ATTRIBUTES.length));
+            featureXml.features.addAll(readStringArrays(in, FeatureXml.INCLUDED_ATTRIBUTES.length));
+            featureXml.imports.addAll(readStringArrays(in, FeatureXml.IMPORT_ATTRIBUTES.length));
+            FeatureEntry entry = new FeatureEntry(stamp, featureXml);
+            entry.used = false;
+            return entry;
+        }
+
+        @Override
+        void write(DataOutputStream out) throws IOException {
+            writeString(out, featureXml.id);
+            writeString(out, featureXml.version);
+            writeStringArrays(out, featureXml.plugins);
+            writeStringArrays(out, featureXml.features);
+            writeStringArrays(out, featureXml.imports);
+        }
+    }
+}
@@ -10,7 +10,6 @@
  *******************************************************************************/
 package org.eclipselabs.plugindependencies.core;
 
-import java.util.Collections;
 import java.util.LinkedHashSet;
 import java.util.Set;
 
@@ -39,14 +38,26 @@ public class Capability extends NamedElement {
     }
 
     public void addProvidingPlugin(Plugin plugin) {
+        providedBy = modifiable(providedBy);
         this.providedBy.add(plugin);
     }
 
+    void removeProvidingPlugin(Plugin plugin) {
+        providedBy = modifiable(providedBy);
+        providedBy.removeIf(p -> p == plugin);
+    }
+
+    @Override
+    void restoreOrder() {
+        providedBy = sorted(providedBy, OSGIElement.STATE_ORDER);
+    }
+
     public Set<Plugin> getRequiredBy() {
         return requiredBy;
     }
 
     public void addRequiredBy(Plugin requiresCapability) {
+        requiredBy = modifiable(requiredBy);
         this.requiredBy.add(requiresCapability);
     }
 
@@ -108,8 +119,13 @@ public class Capability extends NamedElement {
     }
 
     public void parsingDone() {
-        requiredBy = requiredBy.isEmpty()? Collections.EMPTY_SET : Collections.unmodifiableSet(requiredBy);
-        providedBy = providedBy.isEmpty()? Collections.EMPTY_SET : Collections.unmodifiableSet(providedBy);
+        freeze();
+    }
+
+    @Override
+    void freeze() {
+        requiredBy = readOnly(requiredBy);
+        providedBy = readOnly(providedBy);
     }
 
 }
@@ -0,0 +1,104 @@
+/*******************************************************************************
+ * Copyright (c) 2026 Andrey Loskutov
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *    Andrey Loskutov <loskutov@gmx.de> - initial API and implementation
+ *******************************************************************************/
+package org.eclipselabs.plugindependencies.core;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.IntBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Append-only file with closures stored as packed arrays of {@link PluginIds}, see
+ * {@link MappedPluginSet}. The file is memory-mapped in segments, so the closures
+ * don't use heap memory. Existing file content is discarded on open.
+ */
+final class ClosureFile {
+
+    /** 64 MB per mapped segment, larger closures get a segment of their own */
+    private static final int SEGMENT_SIZE = 64 << 20;
+
+    private final File file;
+    private IntBuffer segment;
+    private long length;
+    private int records;
+
+    private ClosureFile(File file) {
+        this.file = file;
+    }
+
+    /**
+     * @param file
+     *            file to write closures to, created if missing, truncated otherwise
+     * @return opened file, never null
+     * @throws IOException
+     *             if the file can't be created or written
+     */
+    static ClosureFile open(File file) throws IOException {
+        File parent = file.getAbsoluteFile().getParentFile();
+        if (parent != null && !parent.isDirectory() && !parent.mkdirs()) {
+            throw new IOException("Can't create directory " + parent);
+        }
+        // just create or truncate
+        FileChannel.open(file.toPath(), StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING).close();
+        return new ClosureFile(file);
+    }
+
+    File getFile() {
+        return file;
+    }
+
+    /**
+     * @return number of bytes mapped so far
+     */
+    synchronized long length() {
+        return length;
+    }
+
+    /**
+     * @return number of closures appended so far
+     */
+    synchronized int records() {
+        return records;
+    }
+
+    /**
+     * @param ids
+     *            plugin ids to store
+     * @return read-only mapped buffer with given ids, position 0, not backed by heap
+     * @throws IOException
+     *             if the file can't be extended or mapped
+     */
+    synchronized IntBuffer append(int[] ids) throws IOException {
+        if (segment == null || segment.remaining() < ids.length) {
+            int size = Math.max(SEGMENT_SIZE, ids.length * 4);
+            // the mapping stays valid after the channel is closed
+            try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ,
+                    StandardOpenOption.WRITE)) {
+                segment = channel.map(MapMode.READ_WRITE, length, size).asIntBuffer();
+            }
+            length += size;
+        }
+        int start = segment.position();
+        segment.put(ids);
+        records++;
+        IntBuffer record = segment.duplicate();
+        record.position(start).limit(start + ids.length);
+        return record.slice().asReadOnlyBuffer();
+    }
+
+    @Override
+    public String toString() {
+        return "ClosureFile [" + file + ", " + records() + " closures, " + length() / (1024 * 1024) + " MB mapped]";
+    }
+}
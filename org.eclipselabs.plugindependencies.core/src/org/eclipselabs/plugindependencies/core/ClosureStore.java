@@ -0,0 +1,162 @@
+/*******************************************************************************
+ * Copyright (c) 2026 Andrey Loskutov
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *    Andrey Loskutov <loskutov@gmx.de> - initial API and implementation
+ *******************************************************************************/
+package org.eclipselabs.plugindependencies.core;
+
+import java.io.IOException;
+import java.nio.IntBuffer;
+import java.util.Collections;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Shared storage for the closures ({@link Plugin#getRecursiveResolvedPlugins()}) and
+ * classpaths ({@link Plugin#getVisibleOnCompilePlugins()}) of all plugins of one
+ * state. Plugins of one feature often have identical closures and classpaths: each
+ * distinct one is stored once, in compressed form, and shared by all plugins. The
+ * store is thread safe.
+ * <p>
+ * If a {@link ClosureFile} is given, closures are written to that file and read back
+ * through the mapping, see {@link MappedPluginSet}, so they don't use heap memory.
+ * Classpaths are always kept on heap.
+ */
+final class ClosureStore {
+
+    private final PluginIds ids;
+    /** null if closures are kept on heap */
+    private final ClosureFile file;
+    private final ConcurrentMap<BitsKey, PluginBitSet> closures;
+    private final ConcurrentMap<IntBuffer, MappedPluginSet> mappedClosures;
+    private final ConcurrentMap<OrderKey, OrderedPluginSet> classpaths;
+    private final LongAdder closureLookups;
+    private final LongAdder classpathLookups;
+
+    ClosureStore(PluginIds ids, ClosureFile file) {
+        this.ids = ids;
+        this.file = file;
+        closures = new ConcurrentHashMap<>();
+        mappedClosures = new ConcurrentHashMap<>();
+        classpaths = new ConcurrentHashMap<>();
+        closureLookups = new LongAdder();
+        classpathLookups = new LongAdder();
+    }
+
+    /**
+     * @param bits
+     *            plugin ids of the closure, not referenced after the call
+     * @return shared read-only set with given plugins
+     */
+    Set<Plugin> closure(long[] bits) {
+        if (file != null) {
+            return mappedClosure(bits);
+        }
+        PluginBitSet set = new PluginBitSet(ids, bits);
+        if (set.isEmpty()) {
+            return Collections.emptySet();
+        }
+        closureLookups.increment();
+        PluginBitSet old = closures.putIfAbsent(new BitsKey(set), set);
+        return old != null ? old : set;
+    }
+
+    private Set<Plugin> mappedClosure(long[] bits) {
+        int[] closure = PluginBitSet.toIds(bits);
+        if (closure.length == 0) {
+            return Collections.emptySet();
+        }
+        closureLookups.increment();
+        IntBuffer key = IntBuffer.wrap(closure);
+        MappedPluginSet set = mappedClosures.get(key);
+        if (set != null) {
+            return set;
+        }
+        // check again under the file lock, so equal closures computed in parallel are
+        // appended to the file only once
+        synchronized (file) {
+            set = mappedClosures.get(key);
+            if (set != null) {
+                return set;
+            }
+            try {
+                set = new MappedPluginSet(ids, file.append(closure));
+            } catch (IOException e) {
+                throw new IllegalStateException("Can't write closure to " + file.getFile(), e);
+            }
+            // key is the mapped buffer, so no heap copy of the ids is kept
+            mappedClosures.put(set.buffer(), set);
+            return set;
+        }
+    }
+
+    /**
+     * @return shared read-only set with given plugins, in same order
+     */
+    Set<Plugin> classpath(Set<Plugin> plugins) {
+        if (plugins.isEmpty()) {
+            return Collections.emptySet();
+        }
+        OrderedPluginSet set = new OrderedPluginSet(ids, plugins);
+        classpathLookups.increment();
+        OrderedPluginSet old = classpaths.putIfAbsent(new OrderKey(set), set);
+        return old != null ? old : set;
+    }
+
+    @Override
+    public String toString() {
+        long classpathBytes = classpaths.values().stream().mapToLong(OrderedPluginSet::idsSize).sum();
+        String closureInfo;
+        if (file != null) {
+            closureInfo = mappedClosures.size() + "/" + closureLookups.sum() + " (" + file + ")";
+        } else {
+            long closureBytes = closures.values().stream().mapToLong(PluginBitSet::bitsSize).sum();
+            closureInfo = closures.size() + "/" + closureLookups.sum() + " (" + closureBytes / 1024 + " KB)";
+        }
+        return "ClosureStore [closures=" + closureInfo + ", classpaths=" + classpaths.size() + "/" + classpathLookups.sum() + " (" + classpathBytes / 1024
+                + " KB)]";
+    }
+
+    private static final class BitsKey {
+        final PluginBitSet set;
+
+        BitsKey(PluginBitSet set) {
+            this.set = set;
+        }
+
+        @Override
+        public int hashCode() {
+            return set.bitsHash();
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            return obj instanceof BitsKey && set.sameBits(((BitsKey) obj).set);
+        }
+    }
+
+    private static final class OrderKey {
+        final OrderedPluginSet set;
+
+        OrderKey(OrderedPluginSet set) {
+            this.set = set;
+        }
+
+        @Override
+        public int hashCode() {
+            return set.orderHash();
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            return obj instanceof OrderKey && set.sameOrder(((OrderKey) obj).set);
+        }
+    }
+}
@@ -46,6 +46,8 @@ public class CommandLineInterpreter {
     public CommandLineInterpreter() {
         super();
         state = new PlatformState();
+        // unknown names must not match everything
+        state.setStrictLookups(true);
         pp = new PluginParser(state);
     }
 
@@ -244,6 +246,14 @@ public class CommandLineInterpreter {
             }
         }
         List<Problem> errors = state.computeAllDependenciesRecursive();
+        String statistics = state.getResolutionStatistics();
+        if(statistics != null) {
+            Logging.writeStandardOut(statistics);
+        }
+        statistics = state.getClosureStatistics();
+        if(statistics != null) {
+            Logging.writeStandardOut(statistics);
+        }
         if(!errors.isEmpty()) {
             Logging.writeStandardOut("Generated " + generated + " classpath files, but platform state has errors!");
             Logging.getLogger().error("Errors computing bundle dependencies in: " + sourceDir);
@@ -399,7 +409,7 @@ public class CommandLineInterpreter {
         File featureDir = new File(root, "features");
         boolean hasFeatures = false;
         if (featureDir.exists()) {
-            result = Math.min(result, FeatureParser.createFeaturesAndAddToSet(featureDir, state));
+            result = Math.min(result, FeatureParser.createFeaturesAndAddToSet(featureDir, state, pp.getCache(), pp.getThreads()));
             hasFeatures = true;
         }
         if(hasPlugins && hasFeatures){
@@ -414,12 +424,12 @@ public class CommandLineInterpreter {
 
     public int readInChildren(File directory) throws IOException {
         int result = pp.createPluginsAndAddToSet(directory);
-        result = Math.min(result, FeatureParser.createFeaturesAndAddToSet(directory, state));
+        result = Math.min(result, FeatureParser.createFeaturesAndAddToSet(directory, state, pp.getCache(), pp.getThreads()));
         return result;
     }
 
     public int readInFeature(File directory, boolean workspace) throws IOException {
-        return FeatureParser.createFeatureAndAddToSet(directory, workspace, state);
+        return FeatureParser.createFeatureAndAddToSet(directory, workspace, state, pp.getCache());
     }
 
     public int readInPlugin(File directory, boolean workspace) throws IOException {
@@ -446,6 +456,46 @@ public class CommandLineInterpreter {
         pp.setParseEarlyStartup(parseEarlyStartup);
     }
 
+    /**
+     * Enables persistent cache for bundle and feature data in the given directory
+     */
+    public void setCacheDirectory(File cacheDir) {
+        pp.setCache(BundleCache.load(cacheDir));
+        state.setCacheDirectory(cacheDir);
+    }
+
+    /**
+     * Writes bundle cache to disk, if enabled
+     */
+    public int saveCache() {
+        BundleCache cache = pp.getCache();
+        if (cache == null) {
+            return RC_OK;
+        }
+        try {
+            cache.save();
+            return RC_OK;
+        } catch (IOException e) {
+            Logging.getLogger().error("failed to write bundle cache: " + cache.getFile(), e);
+            return RC_RUNTIME_ERROR;
+        }
+    }
+
+    public void setThreads(int threads) {
+        pp.setThreads(threads);
+        state.setThreads(threads);
+    }
+
+    public int setClosureFile(File file) {
+        try {
+            state.setClosureFile(file);
+            return RC_OK;
+        } catch (IOException e) {
+            Logging.getLogger().error("failed to create closure store: " + file, e);
+            return RC_RUNTIME_ERROR;
+        }
+    }
+
     public PluginParser getPluginParser() {
         return pp;
     }
@@ -454,6 +504,10 @@ public class CommandLineInterpreter {
         state.setPlatformSpecs(platformSpecs);
     }
 
+    public void setExecutionEnvironments(List<String> environments) {
+        state.setExecutionEnvironments(environments);
+    }
+
     public void setBundlesWithCycles(List<String> bundleIds) {
         state.setIgnoredBundlesWithCycles(new LinkedHashSet<>(bundleIds));
     }
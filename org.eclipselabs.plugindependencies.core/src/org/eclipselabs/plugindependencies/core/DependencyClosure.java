@@ -0,0 +1,383 @@
+/*******************************************************************************
+ * Copyright (c) 2026 Andrey Loskutov
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *    Andrey Loskutov <loskutov@gmx.de> - initial API and implementation
+ *******************************************************************************/
+package org.eclipselabs.plugindependencies.core;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Computes all plugins each plugin depends on (directly or indirectly). The strongly
+ * connected components of the dependency graph are found with Tarjan's algorithm: all
+ * plugins of one component (a dependency cycle) depend on the same plugins, and a
+ * component is completed only after all components it depends on, so each closure is
+ * the union of the direct dependencies and their already known closures. Closures are
+ * bitsets over {@link PluginIds}, merged word-wise, and shared via {@link ClosureStore}.
+ * <p>
+ * The graph and the components are computed first, then the closures level by level
+ * of the component DAG, in parallel if the state uses more than one thread.
+ * <p>
+ * Each cycle is reported once to each of its members, with all other members. A host
+ * and its fragments always depend on each other, this alone is not a cycle.
+ * <p>
+ * Dependencies of a plugin are its required plugins, host (for fragments) or fragments
+ * (for hosts), and plugins exporting the packages it imports. Plugins resolved by
+ * previous runs are not visited again.
+ */
+final class DependencyClosure {
+
+    /** components of one level computed by one task */
+    private static final int CLOSURE_CHUNK = 64;
+
+    private static final String SELF_CYCLE = "Self-dependency cycle detected";
+    private static final String CYCLE = "Dependency cycle detected with ";
+
+    private final PlatformState state;
+    private final PluginIds ids;
+    private final ClosureStore store;
+    private final int threads;
+    private final Map<Plugin, Node> nodes;
+    /** Tarjan stack: visited nodes not assigned to a component yet */
+    private final Deque<Node> stack;
+    /** components in completion order: each one after all components it depends on */
+    private final List<Component> components;
+    private int index;
+
+    DependencyClosure(PlatformState state) {
+        this.state = state;
+        this.ids = state.getPluginIds();
+        this.store = state.getClosureStore();
+        this.threads = state.getThreads();
+        this.nodes = new IdentityHashMap<>();
+        this.stack = new ArrayDeque<>();
+        this.components = new ArrayList<>();
+    }
+
+    /**
+     * Computes and sets the closures of given plugins and of all plugins they depend on
+     */
+    void compute(Collection<Plugin> roots) {
+        for (Plugin root : roots) {
+            if (!root.isRecursiveResolved() && !nodes.containsKey(root)) {
+                visit(root);
+            }
+        }
+        computeClosures();
+        for (Component component : components) {
+            report(component.members);
+        }
+    }
+
+    /**
+     * Components of one level only depend on components of lower levels, so with more
+     * than one thread all components of a level are computed in parallel. This only
+     * reads the graph and writes the closures and classpaths of the members.
+     */
+    private void computeClosures() {
+        if (threads <= 1) {
+            for (Component component : components) {
+                close(component);
+            }
+            return;
+        }
+        List<List<Component>> levels = new ArrayList<>();
+        for (Component component : components) {
+            while (levels.size() <= component.level) {
+                levels.add(new ArrayList<>());
+            }
+            levels.get(component.level).add(component);
+        }
+        ForkJoinPool pool = new ForkJoinPool(threads);
+        try {
+            for (List<Component> level : levels) {
+                if (level.size() <= CLOSURE_CHUNK) {
+                    for (Component component : level) {
+                        close(component);
+                    }
+                } else {
+                    pool.invoke(new CloseLevel(level, 0, level.size()));
+                }
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    /**
+     * Depth first walk without recursion: deep dependency chains must not overflow the
+     * Java stack
+     */
+    private void visit(Plugin root) {
+        Deque<Node> path = new ArrayDeque<>();
+        path.push(push(root));
+        while (!path.isEmpty()) {
+            Node node = path.peek();
+            if (node.nextEdge < node.edges.size()) {
+                Plugin next = node.edges.get(node.nextEdge++);
+                if (next.isRecursiveResolved()) {
+                    // resolved by a previous run
+                    node.addResolved(next, ids);
+                    continue;
+                }
+                Node target = nodes.get(next);
+                if (target == null) {
+                    path.push(push(next));
+                } else if (target.onStack) {
+                    node.lowLink = Math.min(node.lowLink, target.index);
+                }
+                continue;
+            }
+            path.pop();
+            if (!path.isEmpty()) {
+                Node parent = path.peek();
+                parent.lowLink = Math.min(parent.lowLink, node.lowLink);
+            }
+            if (node.lowLink == node.index) {
+                List<Node> component = new ArrayList<>();
+                Node member;
+                do {
+                    member = stack.pop();
+                    member.onStack = false;
+                    component.add(member);
+                } while (member != node);
+                // visiting order
+                Collections.reverse(component);
+                components.add(new Component(component));
+            }
+        }
+    }
+
+    private Node push(Plugin plugin) {
+        Node node = new Node(plugin, ids.idOf(plugin), index++);
+        nodes.put(plugin, node);
+        stack.push(node);
+        node.onStack = true;
+        return node;
+    }
+
+    /**
+     * Sets the closure of all members of the component, the closures of all components
+     * it depends on must be known
+     */
+    private void close(Component component) {
+        long[] closure = new long[ids.words()];
+        for (Node member : component.members) {
+            if (member.resolved != null) {
+                PluginBitSet.or(closure, member.resolved);
+            }
+            for (Plugin dependency : member.edges) {
+                Node target = nodes.get(dependency);
+                if (target == null) {
+                    // resolved before, see above
+                    continue;
+                }
+                if (target.component != component) {
+                    PluginBitSet.or(closure, target.component.closure);
+                }
+                PluginBitSet.set(closure, target.id);
+            }
+        }
+        component.closure = closure;
+        for (Node member : component.members) {
+            long[] bits = closure;
+            if (PluginBitSet.get(closure, member.id)) {
+                // plugin doesn't depend on itself
+                bits = closure.clone();
+                PluginBitSet.clear(bits, member.id);
+            }
+            member.plugin.setRecursiveResolved(store.closure(bits), store);
+        }
+    }
+
+    private void report(List<Node> component) {
+        for (Node member : component) {
+            Plugin plugin = member.plugin;
+            if (plugin.getRequiredPlugins().contains(plugin)) {
+                if (state.shouldIgnoreCycleError(plugin.getName())) {
+                    plugin.addWarningToLog(SELF_CYCLE);
+                } else {
+                    plugin.addErrorToLog(SELF_CYCLE);
+                }
+            }
+        }
+        if (component.size() > 1 && !isHostWithFragments(component)) {
+            reportCycle(component);
+        }
+    }
+
+    private static boolean isHostWithFragments(List<Node> component) {
+        Plugin host = null;
+        for (Node member : component) {
+            Plugin plugin = member.plugin.isFragment() ? member.plugin.getHost() : member.plugin;
+            if (plugin == null || (host != null && host != plugin)) {
+                return false;
+            }
+            host = plugin;
+        }
+        return true;
+    }
+
+    /**
+     * Reports the cycle to each member, with all other members. Every dependency between
+     * two members is part of the cycle, and as for a pair of bundles, the cycle error is
+     * ignored if one of them is ignored: a member gets an error only if it depends on a
+     * not ignored member, and is not ignored itself.
+     */
+    private void reportCycle(List<Node> component) {
+        Map<Plugin, Node> members = new IdentityHashMap<>();
+        for (Node member : component) {
+            members.put(member.plugin, member);
+        }
+        for (Node member : component) {
+            Plugin plugin = member.plugin;
+            List<Plugin> others = new ArrayList<>();
+            StringBuilder sb = new StringBuilder(CYCLE);
+            for (Node other : component) {
+                if (other != member) {
+                    sb.append(others.isEmpty() ? "" : ", ").append(other.plugin.getNameAndVersion());
+                    others.add(other.plugin);
+                }
+            }
+            if (state.shouldIgnoreCycleError(plugin.getName()) || !hasNotIgnoredCycleDependency(member, members)) {
+                plugin.addWarningToLog(sb.toString(), others);
+            } else {
+                plugin.addErrorToLog(sb.toString(), others);
+            }
+        }
+    }
+
+    private boolean hasNotIgnoredCycleDependency(Node member, Map<Plugin, Node> members) {
+        for (Plugin dependency : member.edges) {
+            if (members.containsKey(dependency) && !member.plugin.isFragmentOrHost(dependency)
+                    && !state.shouldIgnoreCycleError(dependency.getName())) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Removes all cycles reported to given plugin, before its closure is computed again
+     */
+    static void removeCycleProblems(Plugin plugin) {
+        plugin.getLog().removeIf(p -> p.getMessage().equals(SELF_CYCLE) || p.getMessage().startsWith(CYCLE));
+    }
+
+    /**
+     * @return direct dependencies of given plugin, in the order they are visited
+     */
+    static List<Plugin> getDirectDependencies(Plugin plugin) {
+        Set<Plugin> dependencies = new LinkedHashSet<>(plugin.getRequiredPlugins());
+        if (plugin.isFragment()) {
+            dependencies.add(plugin.getHost());
+        } else {
+            // fragments can have extra dependencies we want to visit
+            dependencies.addAll(plugin.getFragments());
+        }
+        // TODO throw away "duplicated" bundles with different versions, exporting same package
+        Set<Plugin> requiredByImportPackage = new LinkedHashSet<>();
+        Plugin.addPluginsForImportedPackages(plugin, requiredByImportPackage);
+        dependencies.addAll(requiredByImportPackage);
+        dependencies.remove(null);
+        dependencies.removeIf(p -> p.equals(plugin));
+        return new ArrayList<>(dependencies);
+    }
+
+    private static final class Node {
+        final Plugin plugin;
+        /** see {@link PluginIds} */
+        final int id;
+        final int index;
+        final List<Plugin> edges;
+        int lowLink;
+        int nextEdge;
+        boolean onStack;
+        /** dependencies resolved by previous runs and their closures, may be null */
+        long[] resolved;
+        Component component;
+
+        Node(Plugin plugin, int id, int index) {
+            this.plugin = plugin;
+            this.id = id;
+            this.index = index;
+            this.lowLink = index;
+            this.edges = getDirectDependencies(plugin);
+        }
+
+        void addResolved(Plugin dependency, PluginIds ids) {
+            long[] bits = resolved == null ? new long[0] : resolved;
+            bits = PluginBitSet.or(bits, dependency.getRecursiveResolvedPlugins(), ids);
+            resolved = PluginBitSet.set(bits, ids.idOf(dependency));
+        }
+    }
+
+    /**
+     * Strongly connected component: one plugin or plugins in a cycle
+     */
+    private final class Component {
+        final List<Node> members;
+        /** 0 if the component depends on no other component, otherwise one more than the highest level of them */
+        final int level;
+        /** bitset shared by all members, null until computed */
+        long[] closure;
+
+        Component(List<Node> members) {
+            this.members = members;
+            int max = -1;
+            for (Node member : members) {
+                member.component = this;
+            }
+            for (Node member : members) {
+                for (Plugin dependency : member.edges) {
+                    Node target = nodes.get(dependency);
+                    if (target != null && target.component != this) {
+                        max = Math.max(max, target.component.level);
+                    }
+                }
+            }
+            level = max + 1;
+        }
+    }
+
+    private final class CloseLevel extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+        private final List<Component> level;
+        private final int from;
+        private final int to;
+
+        CloseLevel(List<Component> level, int from, int to) {
+            this.level = level;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= CLOSURE_CHUNK) {
+                for (int i = from; i < to; i++) {
+                    close(level.get(i));
+                }
+                return;
+            }
+            int middle = (from + to) >>> 1;
+            invokeAll(new CloseLevel(level, from, middle), new CloseLevel(level, middle, to));
+        }
+    }
+}
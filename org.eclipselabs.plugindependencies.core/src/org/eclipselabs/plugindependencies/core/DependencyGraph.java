@@ -0,0 +1,347 @@
+/*******************************************************************************
+ * Copyright (c) 2026 Andrey Loskutov
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *    Andrey Loskutov <loskutov@gmx.de> - initial API and implementation
+ *******************************************************************************/
+package org.eclipselabs.plugindependencies.core;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.EnumMap;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Frozen snapshot of the resolved dependencies of a {@link PlatformState}, stored as
+ * compressed sparse rows over dense int ids. Nodes 0 until {@link #getPluginCount()}
+ * are plugins with the ids of {@link PluginIds}, all following nodes are features.
+ * Each {@link EdgeKind} has its own forward and reverse adjacency.
+ * <p>
+ * Traversals on the graph only touch int arrays and don't hash any elements. The
+ * graph doesn't change if the state changes later, see
+ * {@link PlatformState#getDependencyGraph()}: it keeps a copy of the plugin ids, which
+ * can be given to other plugins by {@link PlatformState#updatePlugin(Plugin, Plugin)}.
+ */
+public final class DependencyGraph {
+
+    public enum EdgeKind {
+        /** plugin or feature to required plugin, feature to required feature */
+        REQUIRES,
+        /** plugin to plugins exporting the packages it imports */
+        IMPORTS,
+        /** plugin to required plugin which is re-exported */
+        REEXPORTS,
+        /** fragment to host */
+        FRAGMENT_HOST,
+        /** feature to included plugin or feature */
+        INCLUDES
+    }
+
+    private final PluginIds ids;
+    /** plugins of the graph, index is the id */
+    private final Plugin[] plugins;
+    /** created on first lookup of a plugin with changed or no id, see {@link #idOf(OSGIElement)} */
+    private volatile Map<Plugin, Integer> pluginIds;
+    private final int pluginCount;
+    private final Feature[] features;
+    private final Map<Feature, Integer> featureIds;
+    private final Map<EdgeKind, Rows> forward;
+    private final Map<EdgeKind, Rows> reverse;
+
+    private DependencyGraph(PluginIds ids, Plugin[] plugins, List<Feature> features,
+            Map<Feature, Integer> featureIds, Map<EdgeKind, Edges> edges) {
+        this.ids = ids;
+        this.plugins = plugins;
+        this.pluginCount = plugins.length;
+        this.features = features.toArray(new Feature[0]);
+        this.featureIds = featureIds;
+        forward = new EnumMap<>(EdgeKind.class);
+        reverse = new EnumMap<>(EdgeKind.class);
+        int size = size();
+        for (EdgeKind kind : EdgeKind.values()) {
+            Edges list = edges.get(kind);
+            int[] from = list.nodes(list.from, pluginCount);
+            int[] to = list.nodes(list.to, pluginCount);
+            forward.put(kind, new Rows(size, from, to, list.size));
+            reverse.put(kind, new Rows(size, to, from, list.size));
+        }
+    }
+
+    /**
+     * @return graph of all plugins and features of given resolved state
+     */
+    static DependencyGraph create(PlatformState state) {
+        PluginIds ids = state.getPluginIds();
+        for (Plugin plugin : state.getPlugins()) {
+            ids.idOf(plugin);
+        }
+        List<Feature> features = new ArrayList<>(state.getFeatures());
+        Map<Feature, Integer> featureIds = new IdentityHashMap<>();
+        for (Feature feature : features) {
+            featureIds.put(feature, featureIds.size());
+        }
+        Map<EdgeKind, Edges> edges = new EnumMap<>(EdgeKind.class);
+        for (EdgeKind kind : EdgeKind.values()) {
+            edges.put(kind, new Edges(ids, features, featureIds));
+        }
+        for (Plugin plugin : state.getPlugins()) {
+            edges.get(EdgeKind.REQUIRES).add(plugin, plugin.getRequiredPlugins());
+            edges.get(EdgeKind.REEXPORTS).add(plugin, plugin.getRequiredReexportedPlugins());
+            Set<Plugin> imported = new LinkedHashSet<>();
+            Plugin.addPluginsForImportedPackages(plugin, imported);
+            edges.get(EdgeKind.IMPORTS).add(plugin, imported);
+            if (plugin.isFragment() && plugin.getHost() != null) {
+                edges.get(EdgeKind.FRAGMENT_HOST).add(plugin, plugin.getHost());
+            }
+        }
+        for (int i = 0; i < features.size(); i++) {
+            // features list grows if features refer to unknown features
+            Feature feature = features.get(i);
+            edges.get(EdgeKind.REQUIRES).add(feature, feature.getRequiredPlugins());
+            edges.get(EdgeKind.REQUIRES).add(feature, feature.getRequiredFeatures());
+            edges.get(EdgeKind.INCLUDES).add(feature, feature.getIncludedPlugins());
+            edges.get(EdgeKind.INCLUDES).add(feature, feature.getIncludedFeatures());
+        }
+        return new DependencyGraph(ids, ids.toArray(), features, featureIds, edges);
+    }
+
+    /**
+     * @return number of nodes
+     */
+    public int size() {
+        return pluginCount + features.length;
+    }
+
+    /**
+     * @return number of plugin nodes, plugins have ids from 0 until this number
+     */
+    public int getPluginCount() {
+        return pluginCount;
+    }
+
+    public boolean isPlugin(int node) {
+        return node < pluginCount;
+    }
+
+    /**
+     * @return plugin or feature with given id
+     */
+    public OSGIElement get(int node) {
+        return node < pluginCount ? plugins[node] : features[node - pluginCount];
+    }
+
+    /**
+     * @return id of given plugin or feature, -1 if it is not part of the graph
+     */
+    public int idOf(OSGIElement element) {
+        if (element instanceof Plugin) {
+            int id = ((Plugin) element).getId(ids);
+            if (id >= 0 && id < pluginCount && plugins[id] == element) {
+                return id;
+            }
+            // plugin was replaced in the state after the graph was created, or is unknown
+            Integer replaced = pluginIds().get(element);
+            return replaced == null ? -1 : replaced.intValue();
+        }
+        Integer id = featureIds.get(element);
+        return id == null ? -1 : pluginCount + id.intValue();
+    }
+
+    private Map<Plugin, Integer> pluginIds() {
+        Map<Plugin, Integer> result = pluginIds;
+        if (result == null) {
+            result = new IdentityHashMap<>(pluginCount);
+            for (int id = 0; id < pluginCount; id++) {
+                result.put(plugins[id], Integer.valueOf(id));
+            }
+            pluginIds = result;
+        }
+        return result;
+    }
+
+    /**
+     * @return number of edges of given kind
+     */
+    public int getEdgeCount(EdgeKind kind) {
+        return forward.get(kind).targets.length;
+    }
+
+    public int outDegree(EdgeKind kind, int node) {
+        return forward.get(kind).degree(node);
+    }
+
+    public int inDegree(EdgeKind kind, int node) {
+        return reverse.get(kind).degree(node);
+    }
+
+    /**
+     * @return ids of the nodes given node has edges of given kind to, in the order of
+     *         the state
+     */
+    public int[] successors(EdgeKind kind, int node) {
+        return forward.get(kind).row(node);
+    }
+
+    /**
+     * @return ids of the nodes which have edges of given kind to given node
+     */
+    public int[] predecessors(EdgeKind kind, int node) {
+        return reverse.get(kind).row(node);
+    }
+
+    /**
+     * @param kinds
+     *            edge kinds to follow, all if none given
+     * @return ids of all nodes reachable from given node, without the node itself
+     *         unless it is part of a cycle
+     */
+    public BitSet reachable(int node, EdgeKind... kinds) {
+        return traverse(forward, node, kinds);
+    }
+
+    /**
+     * @param kinds
+     *            edge kinds to follow backwards, all if none given
+     * @return ids of all nodes from which given node is reachable, without the node
+     *         itself unless it is part of a cycle
+     */
+    public BitSet reachableFrom(int node, EdgeKind... kinds) {
+        return traverse(reverse, node, kinds);
+    }
+
+    private BitSet traverse(Map<EdgeKind, Rows> rows, int node, EdgeKind... kinds) {
+        EdgeKind[] followed = kinds.length == 0 ? EdgeKind.values() : kinds;
+        Rows[] follow = new Rows[followed.length];
+        for (int i = 0; i < followed.length; i++) {
+            follow[i] = rows.get(followed[i]);
+        }
+        BitSet visited = new BitSet(size());
+        // each node is pushed once, the start node maybe twice
+        int[] stack = new int[size() + 1];
+        int top = 0;
+        stack[top++] = node;
+        while (top > 0) {
+            int current = stack[--top];
+            for (Rows row : follow) {
+                for (int i = row.offsets[current]; i < row.offsets[current + 1]; i++) {
+                    int target = row.targets[i];
+                    if (!visited.get(target)) {
+                        visited.set(target);
+                        stack[top++] = target;
+                    }
+                }
+            }
+        }
+        return visited;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder("DependencyGraph [plugins=").append(pluginCount)
+                .append(", features=").append(features.length);
+        for (EdgeKind kind : EdgeKind.values()) {
+            sb.append(", ").append(kind).append('=').append(getEdgeCount(kind));
+        }
+        return sb.append(']').toString();
+    }
+
+    /** one compressed sparse row adjacency */
+    private static final class Rows {
+        /** row of node n is targets[offsets[n]] until targets[offsets[n + 1]] */
+        final int[] offsets;
+        final int[] targets;
+
+        Rows(int size, int[] from, int[] to, int count) {
+            offsets = new int[size + 1];
+            for (int i = 0; i < count; i++) {
+                offsets[from[i] + 1]++;
+            }
+            for (int n = 0; n < size; n++) {
+                offsets[n + 1] += offsets[n];
+            }
+            // stable counting sort keeps the order of the edges per node
+            targets = new int[count];
+            int[] next = Arrays.copyOf(offsets, size);
+            for (int i = 0; i < count; i++) {
+                targets[next[from[i]]++] = to[i];
+            }
+        }
+
+        int degree(int node) {
+            return offsets[node + 1] - offsets[node];
+        }
+
+        int[] row(int node) {
+            return Arrays.copyOfRange(targets, offsets[node], offsets[node + 1]);
+        }
+    }
+
+    /**
+     * Edges collected while the number of plugins is not known yet: plugins are
+     * stored with their ids, features as -1 - feature index
+     */
+    private static final class Edges {
+        final PluginIds ids;
+        final List<Feature> features;
+        final Map<Feature, Integer> featureIds;
+        int[] from = new int[16];
+        int[] to = new int[16];
+        int size;
+
+        Edges(PluginIds ids, List<Feature> features, Map<Feature, Integer> featureIds) {
+            this.ids = ids;
+            this.features = features;
+            this.featureIds = featureIds;
+        }
+
+        void add(OSGIElement source, Set<? extends OSGIElement> targets) {
+            for (OSGIElement target : targets) {
+                add(source, target);
+            }
+        }
+
+        void add(OSGIElement source, OSGIElement target) {
+            if (target == null) {
+                return;
+            }
+            if (size == from.length) {
+                from = Arrays.copyOf(from, size * 2);
+                to = Arrays.copyOf(to, size * 2);
+            }
+            from[size] = encode(source);
+            to[size] = encode(target);
+            size++;
+        }
+
+        private int encode(OSGIElement element) {
+            if (element instanceof Plugin) {
+                return ids.idOf((Plugin) element);
+            }
+            Feature feature = (Feature) element;
+            Integer id = featureIds.get(feature);
+            if (id == null) {
+                id = Integer.valueOf(features.size());
+                featureIds.put(feature, id);
+                features.add(feature);
+            }
+            return -1 - id.intValue();
+        }
+
+        int[] nodes(int[] encoded, int pluginCount) {
+            int[] result = new int[size];
+            for (int i = 0; i < size; i++) {
+                result[i] = encoded[i] >= 0 ? encoded[i] : pluginCount - 1 - encoded[i];
+            }
+            return result;
+        }
+    }
+}
@@ -11,15 +11,23 @@
  *******************************************************************************/
 package org.eclipselabs.plugindependencies.core;
 
-import static org.eclipselabs.plugindependencies.core.NamedElement.ZERO_VERSION;
 
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.Iterator;
 import java.util.LinkedHashSet;
-import java.util.LinkedList;
 import java.util.List;
 import java.util.Set;
-import java.util.regex.Pattern;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Function;
+
+import org.eclipselabs.plugindependencies.core.ResolutionMemo.Kind;
+import org.eclipselabs.plugindependencies.core.ResolutionMemo.Resolution;
+import org.eclipselabs.plugindependencies.core.VersionIndex.Matches;
 
 /**
  * @author obroesam
@@ -27,10 +35,16 @@ import java.util.regex.Pattern;
  */
 public class DependencyResolver {
 
+    /** number of plugins or features selected by one task of the parallel resolution */
+    private static final int SELECTION_CHUNK = 64;
+
     private final PlatformState state;
 
+    private final ResolutionMemo memo;
+
     public DependencyResolver(PlatformState state) {
         this.state = state;
+        this.memo = new ResolutionMemo();
     }
 
     /**
@@ -41,43 +55,240 @@ public class DependencyResolver {
         state.resolveDependencies();
     }
 
+    /**
+     * @return memo of already resolved requirements, for statistics
+     */
+    ResolutionMemo getMemo() {
+        return memo;
+    }
+
+    /**
+     * Resolves given plugins and then given features. With more than one thread, the
+     * providers for all requirements are selected in parallel first, which only reads
+     * the state. The selections are applied afterwards by the calling thread in the
+     * given order, so the state is the same as after the sequential resolution.
+     */
+    void resolve(Collection<Plugin> plugins, Collection<Feature> features, int threads) {
+        if (threads <= 1) {
+            for (Plugin plugin : plugins) {
+                resolvePluginDependency(plugin);
+            }
+            for (Feature feature : features) {
+                resolveFeatureDependency(feature);
+            }
+            return;
+        }
+        List<PluginSelection> pluginSelections;
+        List<FeatureSelection> featureSelections;
+        ExecutorService executor = Executors.newFixedThreadPool(threads,
+                new PluginParser.ParserThreadFactory("Dependency resolver"));
+        try {
+            List<Future<List<PluginSelection>>> pluginFutures = submit(executor, plugins, this::select);
+            List<Future<List<FeatureSelection>>> featureFutures = submit(executor, features, this::select);
+            pluginSelections = join(pluginFutures);
+            featureSelections = join(featureFutures);
+        } finally {
+            executor.shutdownNow();
+        }
+        Iterator<PluginSelection> pluginSelection = pluginSelections.iterator();
+        for (Plugin plugin : plugins) {
+            apply(plugin, pluginSelection.next());
+        }
+        Iterator<FeatureSelection> featureSelection = featureSelections.iterator();
+        for (Feature feature : features) {
+            apply(feature, featureSelection.next());
+        }
+    }
+
+    private static <T, S> List<Future<List<S>>> submit(ExecutorService executor, Collection<T> elements,
+            Function<T, S> select) {
+        List<Future<List<S>>> futures = new ArrayList<>();
+        List<T> list = new ArrayList<>(elements);
+        for (int start = 0; start < list.size(); start += SELECTION_CHUNK) {
+            List<T> chunk = list.subList(start, Math.min(start + SELECTION_CHUNK, list.size()));
+            futures.add(executor.submit(() -> {
+                List<S> selections = new ArrayList<>(chunk.size());
+                for (T element : chunk) {
+                    selections.add(select.apply(element));
+                }
+                return selections;
+            }));
+        }
+        return futures;
+    }
+
+    private static <S> List<S> join(List<Future<List<S>>> futures) {
+        List<S> result = new ArrayList<>();
+        for (Future<List<S>> future : futures) {
+            try {
+                result.addAll(future.get());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Interrupted while resolving dependencies", e);
+            } catch (ExecutionException e) {
+                Throwable cause = e.getCause();
+                if (cause instanceof RuntimeException) {
+                    throw (RuntimeException) cause;
+                }
+                if (cause instanceof Error) {
+                    throw (Error) cause;
+                }
+                throw new IllegalStateException(cause);
+            }
+        }
+        return result;
+    }
+
     public void resolveFeatureDependency(Feature feature) {
+        apply(feature, select(feature));
+    }
+
+    public void resolvePluginDependency(Plugin startPlugin) {
+        apply(startPlugin, select(startPlugin));
+    }
+
+    /**
+     * Selects providers for the requirements of given feature. Only reads the state,
+     * so can run concurrently for different features.
+     */
+    private FeatureSelection select(Feature feature) {
+        FeatureSelection selection = new FeatureSelection();
         for (ManifestEntry included : feature.getIncludedFeatureEntries()) {
-            resolveIncludedFeature(feature, included);
+            selection.includedFeatures.add(Resolution.of(state.findFeatures(included, true)));
         }
         for (ManifestEntry included : feature.getIncludedPluginEntries()) {
-            if (included.isMatchingPlatform(state.getPlatformSpecs())) {
-                resolveIncludedPlugin(feature, included);
+            selection.includedPlugins.add(!included.isMatchingPlatform(state.getPlatformSpecs()) ? null
+                    : memo.resolve(Kind.INCLUDED_PLUGIN, included, e -> Resolution.of(state.findPlugins(e, true))));
+        }
+        for (ManifestEntry requiredFeature : feature.getRequiredFeatureEntries()) {
+            selection.requiredFeatures.add(Resolution.of(state.findFeatures(requiredFeature, false)));
+        }
+        for (ManifestEntry requiredPlugin : feature.getRequiredPluginEntries()) {
+            selection.requiredPlugins.add(!requiredPlugin.isMatchingPlatform(state.getPlatformSpecs()) ? null
+                    : selectPlugin(requiredPlugin));
+        }
+        return selection;
+    }
+
+    private void apply(Feature feature, FeatureSelection selection) {
+        Iterator<Resolution<Feature>> features = selection.includedFeatures.iterator();
+        for (ManifestEntry included : feature.getIncludedFeatureEntries()) {
+            resolveIncludedFeature(feature, included, features.next());
+        }
+        Iterator<Resolution<Plugin>> plugins = selection.includedPlugins.iterator();
+        for (ManifestEntry included : feature.getIncludedPluginEntries()) {
+            Resolution<Plugin> resolution = plugins.next();
+            if (resolution != null) {
+                resolveIncludedPlugin(feature, included, resolution);
             }
         }
+        features = selection.requiredFeatures.iterator();
         for (ManifestEntry requiredFeature : feature.getRequiredFeatureEntries()) {
-            resolveRequiredFeature(feature, requiredFeature);
+            resolveRequiredFeature(feature, requiredFeature, features.next());
         }
+        plugins = selection.requiredPlugins.iterator();
         for (ManifestEntry requiredPlugin : feature.getRequiredPluginEntries()) {
-            if (requiredPlugin.isMatchingPlatform(state.getPlatformSpecs())) {
-                resolveRequiredPlugin(feature, requiredPlugin);
+            Resolution<Plugin> resolution = plugins.next();
+            if (resolution != null) {
+                resolveRequiredPlugin(feature, requiredPlugin, resolution);
             }
         }
     }
 
-    public void resolvePluginDependency(Plugin startPlugin) {
+    /**
+     * Selects providers for the requirements of given plugin. Only reads the state, so
+     * can run concurrently for different plugins.
+     */
+    private PluginSelection select(Plugin plugin) {
+        PluginSelection selection = new PluginSelection();
+        if (plugin.isFragment()) {
+            selection.host = selectHost(plugin);
+        }
+        for (ManifestEntry requiredPlugin : plugin.getRequiredPluginEntries()) {
+            selection.requiredPlugins.add(selectPlugin(requiredPlugin));
+        }
+        for (ManifestEntry requiredPackage : plugin.getImportedPackageEntries()) {
+            selection.importedPackages.add(memo.resolve(Kind.PACKAGE, requiredPackage, this::searchPackage));
+        }
+        return selection;
+    }
+
+    private void apply(Plugin startPlugin, PluginSelection selection) {
         if (startPlugin.isFragment()) {
-            searchHost(startPlugin);
+            applyHost(startPlugin, selection.host);
         }
 
         checkDuplicates(startPlugin);
 
+        Iterator<Resolution<Plugin>> plugins = selection.requiredPlugins.iterator();
         for (ManifestEntry requiredPlugin : startPlugin.getRequiredPluginEntries()) {
-            resolveRequiredPlugin(startPlugin, requiredPlugin);
+            resolveRequiredPlugin(startPlugin, requiredPlugin, plugins.next());
         }
 
+        Iterator<Resolution<Package>> packages = selection.importedPackages.iterator();
         for (ManifestEntry requiredPackage : startPlugin.getImportedPackageEntries()) {
-            resolveRequiredPackage(startPlugin, requiredPackage);
+            resolveRequiredPackage(startPlugin, requiredPackage, packages.next());
         }
 
         for (ManifestEntry requiredCapability : startPlugin.getRequiredCapabilityEntries()) {
             resolveRequiredCapability(startPlugin, requiredCapability);
         }
+
+        for (ExecutionEnvironment ee : state.getExecutionEnvironments()) {
+            checkExecutionEnvironment(startPlugin, ee);
+        }
+    }
+
+    /**
+     * Checks if the plugin can run on given execution environment: the environment
+     * must satisfy "osgi.ee" requirements and one of the required execution
+     * environments (if any), and must provide all (not optional) packages the plugin
+     * imports from the Java home.
+     */
+    private void checkExecutionEnvironment(Plugin plugin, ExecutionEnvironment ee) {
+        List<ManifestEntry> brees = plugin.getRequiredExecutionEnvironments();
+        if (!brees.isEmpty()) {
+            boolean provided = false;
+            StringBuilder names = new StringBuilder();
+            for (ManifestEntry bree : brees) {
+                if (bree.getName().isEmpty()) {
+                    continue;
+                }
+                provided |= ee.provides(bree.getName());
+                names.append(names.length() == 0 ? "" : ", ").append(bree.getName());
+            }
+            if (!provided && names.length() > 0) {
+                plugin.addErrorToLog("execution environment " + ee + " not supported, requires: " + names);
+            }
+        }
+        for (ManifestEntry required : plugin.getRequiredCapabilityEntries()) {
+            String filter = required.getFilter();
+            if (!ExecutionEnvironment.OSGI_EE.equals(required.getName()) || filter == null || required.isOptional()) {
+                continue;
+            }
+            try {
+                if (!ee.matches(filter)) {
+                    plugin.addErrorToLog("execution environment " + ee + " not supported, requires: "
+                            + ExecutionEnvironment.OSGI_EE + " " + filter);
+                }
+            } catch (IllegalArgumentException e) {
+                plugin.addWarningToLog("invalid " + ExecutionEnvironment.OSGI_EE + " filter: " + filter);
+            }
+        }
+        SystemPackageIndex.ReleasePackages releases = state.getReleasePackages();
+        if (!releases.isKnownRelease(ee.getRelease())) {
+            return;
+        }
+        for (Package pack : plugin.getImportedPackages()) {
+            // re-exporting plugins are not known before all plugins are resolved
+            if (!pack.getExportedBy().isEmpty() || plugin.isOptional(pack)) {
+                continue;
+            }
+            String name = pack.getName();
+            if (releases.isKnown(name) && !releases.isAvailable(name, ee.getRelease())) {
+                plugin.addErrorToLog("package " + name + " not available in " + ee, pack);
+            }
+        }
     }
 
     private void checkDuplicates(Plugin startPlugin) {
@@ -93,49 +304,38 @@ public class DependencyResolver {
         }
     }
 
-    private void resolveRequiredFeature(Feature feature, ManifestEntry requiredFeature) {
-        Set<Feature> features;
-        features = searchInFeatureSet(requiredFeature, false);
+    private static void resolveRequiredFeature(Feature feature, ManifestEntry requiredFeature,
+            Resolution<Feature> features) {
         if (features.size() == 0) {
-            feature.logBrokenEntry(requiredFeature, features, "feature");
-        }
-        int setSize = features.size();
-        Feature highVersionFeature = null;
-        if (setSize > 0) {
-            highVersionFeature = getFeatureWithHighestVersion(features);
+            feature.logBrokenEntry(requiredFeature, features.getCandidates(), "feature");
         }
+        Feature highVersionFeature = features.getChosen();
         if(highVersionFeature != null) {
             feature.addRequiredFeature(highVersionFeature);
         }
     }
 
-    private void resolveIncludedFeature(Feature feature, ManifestEntry includedFeature) {
-        Set<Feature> features;
-        features = searchInFeatureSet(includedFeature, true);
+    private static void resolveIncludedFeature(Feature feature, ManifestEntry includedFeature,
+            Resolution<Feature> features) {
         if (features.size() != 1) {
-            feature.logBrokenEntry(includedFeature, features, "feature");
-        }
-        int setSize = features.size();
-        Feature highVersionFeature = null;
-        if (setSize >= 1) {
-            highVersionFeature = getFeatureWithHighestVersion(features);
+            feature.logBrokenEntry(includedFeature, features.getCandidates(), "feature");
         }
+        Feature highVersionFeature = features.getChosen();
         if(highVersionFeature != null) {
             feature.addIncludedFeature(highVersionFeature);
         }
     }
 
-    private void resolveRequiredPlugin(OSGIElement elt, ManifestEntry requiredPlugin) {
-        Plugin highVersionPlugin = null;
+    private Resolution<Plugin> selectPlugin(ManifestEntry requiredPlugin) {
+        return memo.resolve(Kind.PLUGIN, requiredPlugin, e -> Resolution.of(state.findPlugins(e, false)));
+    }
 
-        Set<Plugin> plugins = searchInPluginSet(requiredPlugin, false);
-        int setSize = plugins.size();
-        if (setSize >= 1) {
-            highVersionPlugin = getPluginWithHighestVersion(plugins);
-        }
+    private static void resolveRequiredPlugin(OSGIElement elt, ManifestEntry requiredPlugin,
+            Resolution<Plugin> plugins) {
+        Plugin highVersionPlugin = plugins.getChosen();
 
-        if (setSize != 1) {
-            elt.logBrokenEntry(requiredPlugin, plugins, "plugin");
+        if (plugins.size() != 1) {
+            elt.logBrokenEntry(requiredPlugin, plugins.getCandidates(), "plugin");
         }
 
         if (highVersionPlugin != null) {
@@ -147,17 +347,12 @@ public class DependencyResolver {
         }
     }
 
-    private void resolveIncludedPlugin(Feature elt, ManifestEntry includedPlugin) {
-        Plugin highVersionPlugin = null;
-
-        Set<Plugin> plugins = searchInPluginSet(includedPlugin, true);
-        int setSize = plugins.size();
-        if (setSize >= 1) {
-            highVersionPlugin = getPluginWithHighestVersion(plugins);
-        }
+    private static void resolveIncludedPlugin(Feature elt, ManifestEntry includedPlugin,
+            Resolution<Plugin> plugins) {
+        Plugin highVersionPlugin = plugins.getChosen();
 
-        if (setSize != 1) {
-            elt.logBrokenEntry(includedPlugin, plugins, "plugin");
+        if (plugins.size() != 1) {
+            elt.logBrokenEntry(includedPlugin, plugins.getCandidates(), "plugin");
         }
 
         if (highVersionPlugin != null) {
@@ -165,69 +360,43 @@ public class DependencyResolver {
         }
     }
 
-    private static Plugin getPluginWithHighestVersion(Set<Plugin> plugins) {
-        Plugin highestPlugin = plugins.iterator().next();
-        for (Plugin plugin : plugins) {
-            if (compareVersions(plugin.getVersion(), highestPlugin.getVersion()) > 0) {
-                highestPlugin = plugin;
-            }
-        }
-        return highestPlugin;
-    }
-
-    private static Feature getFeatureWithHighestVersion(Set<Feature> features) {
-        Feature highestFeature = features.iterator().next();
-        for (Feature feature : features) {
-            if (compareVersions(feature.getVersion(), highestFeature.getVersion()) > 0) {
-                highestFeature = feature;
-            }
-        }
-        return highestFeature;
-    }
-
-    private static Package getPackageWithHighestVersion(Set<Package> packages) {
-        Package highestPackage = packages.iterator().next();
-        for (Package pack : packages) {
-            if (compareVersions(pack.getVersion(), highestPackage.getVersion()) > 0) {
-                highestPackage = pack;
-            }
-        }
-        return highestPackage;
-    }
-
     private static Capability getCapabilityWithHighestVersion(Set<Capability> capabilities) {
         Capability highestCapability = capabilities.iterator().next();
         for (Capability cap : capabilities) {
-            if (compareVersions(cap.getVersion(), highestCapability.getVersion()) > 0) {
+            if (cap.getParsedVersion().compareTo(highestCapability.getParsedVersion()) > 0) {
                 highestCapability = cap;
             }
         }
         return highestCapability;
     }
 
-    private void resolveRequiredPackage(Plugin startPlugin, ManifestEntry requiredPackage) {
-        Set<Package> packages = searchInPackageSet(requiredPackage);
-        if(packages.isEmpty()){
-            packages = searchInJavaHomeJar(requiredPackage);
-            if(!packages.isEmpty()) {
-                state.addPackage(packages.iterator().next());
-            }
+    private void resolveRequiredPackage(Plugin startPlugin, ManifestEntry requiredPackage,
+            Resolution<Package> packages) {
+        Package importedPackage = packages.getChosen();
+        if (packages == Resolution.JAVA_HOME) {
+            // created now (and not while selecting) to add Java packages to the state in order
+            importedPackage = searchInJavaHomeJar(requiredPackage).iterator().next();
+            state.addPackage(importedPackage);
         }
-        int packagesSize = packages.size();
-
-        if (packagesSize > 0) {
-            Package importedPackage;
-            if (packagesSize == 1) {
-                importedPackage = packages.iterator().next();
-            } else {
-                importedPackage = getPackageWithHighestVersion(packages);
-            }
+        if (importedPackage != null) {
             startPlugin.addImportedPackage(importedPackage);
         } else {
-            startPlugin.writePackageErrorLog(requiredPackage, packages);
+            startPlugin.writePackageErrorLog(requiredPackage, Collections.emptySet());
         }
     }
 
+    private Resolution<Package> searchPackage(ManifestEntry requiredPackage) {
+        Matches<Package> packages = state.findPackages(requiredPackage);
+        if (packages.size() > 0) {
+            return Resolution.of(packages);
+        }
+        String name = requiredPackage.getName().trim();
+        if (!name.isEmpty() && state.isJavaHomePackage(name)) {
+            return Resolution.JAVA_HOME;
+        }
+        return Resolution.of(packages);
+    }
+
     private void resolveRequiredCapability(Plugin startPlugin, ManifestEntry requiredCapabilityEntry) {
         // required capability with same name might have different version and filters added
         // so we need to create a new Capability instance with all extra data from the ManifestEntry
@@ -262,18 +431,19 @@ public class DependencyResolver {
     }
 
     public void searchHost(Plugin fragment) {
+        applyHost(fragment, selectHost(fragment));
+    }
+
+    private Resolution<Plugin> selectHost(Plugin fragment) {
         ManifestEntry entry = fragment.getFragmentHost();
-        Set<Plugin> resultSet = searchInPluginSet(entry, false);
-        int setSize = resultSet.size();
+        return entry == null ? Resolution.of(Matches.empty()) : selectPlugin(entry);
+    }
 
-        Plugin fragmentHost = null;
-        if (setSize == 1) {
-            fragmentHost = resultSet.iterator().next();
-        } else {
-            if(setSize > 1){
-                fragmentHost = getPluginWithHighestVersion(resultSet);
-            }
-            fragment.logBrokenEntry(entry, resultSet, "fragment host");
+    private static void applyHost(Plugin fragment, Resolution<Plugin> hosts) {
+        ManifestEntry entry = fragment.getFragmentHost();
+        Plugin fragmentHost = hosts.getChosen();
+        if (hosts.size() != 1) {
+            fragment.logBrokenEntry(entry, hosts.getCandidates(), "fragment host");
         }
         if(fragmentHost != null){
             fragment.setHost(fragmentHost);
@@ -285,13 +455,7 @@ public class DependencyResolver {
         if (requiredPackage == null) {
             return Collections.emptySet();
         }
-        Set<Package> ret = new LinkedHashSet<>();
-        for (Package pack : state.getPackages(requiredPackage.getName())) {
-            if (requiredPackage.isMatching(pack)) {
-                ret.add(pack);
-            }
-        }
-        return ret;
+        return state.findPackages(requiredPackage).toSet();
     }
 
     public Set<Capability> searchInCapabilitiesSet(Capability requiredCapability) {
@@ -318,140 +482,31 @@ public class DependencyResolver {
 
 
     /**
-     * Stack element for resolving plugin dependencies. If {@link #toVisit} is empty, plugin is resolved.
+     * Providers selected for the requirements of one plugin, in the order of the
+     * manifest entries
      */
-    static class PluginElt {
-        static final PluginElt EMPTY = new PluginElt(null, Plugin.DUMMY_PLUGIN);
-        final Plugin plugin;
-        final PluginElt parent;
-
-        List<Plugin> toVisit;
-
-        public PluginElt(PluginElt parent, Plugin plugin) {
-            super();
-            this.parent = parent;
-            this.plugin = plugin;
-            toVisit = new LinkedList<>();
-            addDirectDependencies();
-        }
-
-        void setResolved(PlatformState state){
-            plugin.setResolved(state);
-            if(plugin.getRequiredPlugins().contains(plugin)) {
-                plugin.addToRecursiveResolvedPlugins(plugin, state);
-            }
-            resolved(plugin, state);
-        }
-
-        void resolved(Plugin p, PlatformState state){
-            toVisit.remove(p);
-            if(plugin != p){
-                plugin.addToRecursiveResolvedPlugins(p, state);
-            }
-
-            if(parent != null && parent != this){
-                parent.resolved(p, state);
-            }
-        }
-
-        PluginElt next(){
-            if(toVisit.isEmpty()){
-                return EMPTY;
-            }
-            return new PluginElt(this, toVisit.remove(0));
-        }
-
-        void addToVisit(Plugin p){
-            if(p == null || plugin.equals(p)){
-                return;
-            }
-            if(!toVisit.contains(p)) {
-                toVisit.add(p);
-            }
-        }
-
-        void addToVisit(Collection<Plugin> plugins){
-            for (Plugin p : plugins) {
-                addToVisit(p);
-            }
-        }
-
-        void addDirectDependencies(){
-            for (Plugin pluginToVisit : plugin.getRequiredPlugins()) {
-                addToVisit(pluginToVisit);
-            }
-            if(plugin.isFragment()) {
-                addToVisit(plugin.getHost());
-            } else {
-                for (Plugin fragment : plugin.getFragments()) {
-                    // fragments can have extra dependencies we want to visit
-                    addToVisit(fragment);
-                }
-            }
-
-            // TODO throw away "duplicated" bundles with different versions, exporting same package
-            Set<Plugin> requiredByImportPackage = new LinkedHashSet<>();
-            Plugin.addPluginsForImportedPackages(plugin, requiredByImportPackage);
-
-            addToVisit(requiredByImportPackage);
-        }
-
-
-        @Override
-        public String toString() {
-            StringBuilder sb = new StringBuilder();
-            sb.append("[plugin=");
-            sb.append(plugin);
-            sb.append(", toVisit=");
-            sb.append(toVisit);
-            sb.append("]");
-            return sb.toString();
-        }
-
-        @Override
-        public int hashCode() {
-            return plugin.hashCode();
-        }
-
-        @Override
-        public boolean equals(Object obj) {
-            if (this == obj) {
-                return true;
-            }
-            if (!(obj instanceof PluginElt)) {
-                return false;
-            }
-            PluginElt other = (PluginElt) obj;
-            if (!plugin.equals(other.plugin)) {
-                return false;
-            }
-            return true;
-        }
+    private static final class PluginSelection {
+        Resolution<Plugin> host;
+        final List<Resolution<Plugin>> requiredPlugins = new ArrayList<>();
+        final List<Resolution<Package>> importedPackages = new ArrayList<>();
+    }
 
+    /**
+     * Providers selected for the requirements of one feature, in the order of the
+     * entries. Plugin entries not matching the platform have null resolutions.
+     */
+    private static final class FeatureSelection {
+        final List<Resolution<Feature>> includedFeatures = new ArrayList<>();
+        final List<Resolution<Plugin>> includedPlugins = new ArrayList<>();
+        final List<Resolution<Feature>> requiredFeatures = new ArrayList<>();
+        final List<Resolution<Plugin>> requiredPlugins = new ArrayList<>();
     }
 
     public Set<Plugin> searchInPluginSet(ManifestEntry requiredPlugin,  boolean exactVersion) {
         if (requiredPlugin == null) {
             return Collections.emptySet();
         }
-        String pluginName = requiredPlugin.getName().trim();
-        String version = requiredPlugin.getVersion();
-        Set<Plugin> ret = new LinkedHashSet<Plugin>();
-
-        if (exactVersion) {
-            for (Plugin plugin : state.getPlugins(pluginName)) {
-                if (plugin.matches(pluginName, version)) {
-                    ret.add(plugin);
-                }
-            }
-        } else {
-            for (Plugin plugin : state.getPlugins(pluginName)) {
-                if (requiredPlugin.isMatching(plugin)) {
-                    ret.add(plugin);
-                }
-            }
-        }
-        return ret;
+        return state.findPlugins(requiredPlugin, exactVersion).toSet();
     }
 
     public Set<Plugin> searchInPluginSet(Plugin requiredPlugin) {
@@ -471,30 +526,9 @@ public class DependencyResolver {
         if (entry == null) {
             return Collections.emptySet();
         }
-        String id = entry.getName();
-        String version = entry.getVersion();
-        Set<Feature> ret = new LinkedHashSet<Feature>();
-
-        for (Feature feature : state.getFeatures(id)) {
-            if(exact) {
-                if (feature.matches(id, version)) {
-                    ret.add(feature);
-                }
-            } else {
-                if(entry.isMatching(feature)) {
-                    ret.add(feature);
-                }
-            }
-        }
-        return ret;
+        return state.findFeatures(entry, exact).toSet();
     }
 
-    static final String VER_STR = "[0-9]+([.][0-9]+)?([.][0-9]+)?([.][0-9a-zA-Z-_]+)?";
-
-    static final Pattern VERSION = Pattern.compile(VER_STR);
-
-    static final Pattern RANGE = Pattern.compile("[(|\\[]" + VER_STR + "," + VER_STR + "[)|\\]]");
-
     /**
      * @return true if the 'givenVersion' greater or equals to the 'rangeOrLowerLimit'
      */
@@ -502,72 +536,30 @@ public class DependencyResolver {
         if (rangeOrLowerLimit == null || givenVersion == null) {
             return false;
         }
-        if (givenVersion.isEmpty()) {
-            givenVersion = ZERO_VERSION;
-        } else {
-            if (!VERSION.matcher(givenVersion).matches()) {
-                // version range?
-                if(!RANGE.matcher(givenVersion).matches()){
-                    return false;
-                }
-                if (rangeOrLowerLimit.isEmpty() || !RANGE.matcher(rangeOrLowerLimit).matches()) {
-                    return isVersionInRange(ZERO_VERSION, givenVersion);
-                }
-                // TODO compare two compatible ranges
-                return rangeOrLowerLimit.equals(givenVersion);
-            }
-        }
-        boolean isRange = false;
-        if (rangeOrLowerLimit.isEmpty()) {
-            rangeOrLowerLimit = ZERO_VERSION;
-        } else {
-            isRange = RANGE.matcher(rangeOrLowerLimit).matches();
-            if (isRange) {
-                return isVersionInRange(givenVersion, rangeOrLowerLimit);
-            }
-        }
-        boolean isVersion = rangeOrLowerLimit == ZERO_VERSION || VERSION.matcher(rangeOrLowerLimit).matches();
-        if (isVersion) {
-            return compareVersions(rangeOrLowerLimit, givenVersion) <= 0 ? true : false;
-        }
-        return false;
+        return isCompatible(VersionRange.valueOf(rangeOrLowerLimit), VersionRange.valueOf(givenVersion));
     }
 
-    private static boolean isVersionInRange(String version, final String versionRange) {
-        List<String> strings = StringUtil.split(versionRange, ',');
-        if(strings.size() < 2){
+    /**
+     * @param required
+     *            required version or range, null if not a valid version or range
+     * @param given
+     *            given version or range, null if not a valid version or range
+     * @return true if the 'given' version is inside the 'required' range (or greater or
+     *         equals to the required version). If 'given' is a range, it is compatible
+     *         to a required range if both have at least one version in common, and to
+     *         the required lower limit if it includes 0.0.0
+     */
+    static boolean isCompatible(VersionRange required, VersionRange given) {
+        if (given == null) {
             return false;
         }
-        String lowerBorder = strings.get(0);
-        char leftBorderType = lowerBorder.charAt(0);
-        lowerBorder = lowerBorder.substring(1);
-        int lowerBorderCheck = compareVersions(lowerBorder, version);
-
-        if (lowerBorderCheck < 0 || (lowerBorderCheck == 0 && leftBorderType == '[')) {
-
-            String upperBorder = strings.get(1);
-            char rightBorderType = upperBorder.charAt(upperBorder.length() - 1);
-            upperBorder = upperBorder.substring(0, upperBorder.length() - 1);
-
-            int upperBorderCheck = compareVersions(version, upperBorder);
-            if (upperBorderCheck < 0 || (upperBorderCheck == 0 && rightBorderType == ']')) {
-                return true;
-            }
+        if (!given.isRange()) {
+            return required != null && required.includes(given.getMinimum());
         }
-        return false;
-    }
-
-    private static int compareVersions(String v1, String v2) {
-        if (v1.isEmpty()) {
-            v1 = ZERO_VERSION;
+        if (required == null || !required.isRange()) {
+            return given.includes(Version.ZERO);
         }
-        if (v2.isEmpty()) {
-            v2 = ZERO_VERSION;
-        }
-        Version version1 = new Version(v1);
-        Version version2 = new Version(v2);
-        return version1.compareTo(version2);
+        return required.intersects(given);
     }
 
-
 }
@@ -0,0 +1,194 @@
+/*******************************************************************************
+ * Copyright (c) 2026 Andrey Loskutov
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *    Andrey Loskutov <loskutov@gmx.de> - initial API and implementation
+ *******************************************************************************/
+package org.eclipselabs.plugindependencies.core;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Java SE execution environment bundles are checked against, like "JavaSE-17". Knows
+ * the {@code osgi.ee} capabilities provided by the Java release (same as Equinox
+ * does) and so can evaluate both {@code Require-Capability: osgi.ee} filters and
+ * {@code Bundle-RequiredExecutionEnvironment} names.
+ */
+final class ExecutionEnvironment {
+
+    static final String OSGI_EE = "osgi.ee";
+
+    private static final String JAVA_SE = "JavaSE";
+
+    private final String name;
+    private final int release;
+    /** capability properties ("osgi.ee" and "version") for each provided EE name */
+    private final List<Map<String, Object>> capabilities;
+    /** results of already evaluated (valid) filters */
+    private final ConcurrentMap<String, Boolean> filterResults;
+
+    private ExecutionEnvironment(int release) {
+        this.release = release;
+        this.name = release <= 4 ? "J2SE-1." + release : release <= 8 ? JAVA_SE + "-1." + release : JAVA_SE + "-" + release;
+        this.filterResults = new ConcurrentHashMap<>();
+        Map<String, List<Version>> provided = new LinkedHashMap<>();
+        List<Version> javaSe = new ArrayList<>();
+        for (int i = 0; i <= release; i++) {
+            javaSe.add(Version.valueOf(i <= 8 ? "1." + i : Integer.toString(i)));
+        }
+        provided.put(JAVA_SE, javaSe);
+        if (release >= 8) {
+            List<Version> compact = javaSe.subList(8, javaSe.size());
+            provided.put(JAVA_SE + "/compact1", compact);
+            provided.put(JAVA_SE + "/compact2", compact);
+            provided.put(JAVA_SE + "/compact3", compact);
+        }
+        provided.put("JRE", versions("1.0", "1.1"));
+        provided.put("OSGi/Minimum", versions("1.0", "1.1", "1.2"));
+        provided.put("CDC/Foundation", versions("1.0", "1.1"));
+        List<Map<String, Object>> list = new ArrayList<>();
+        for (Map.Entry<String, List<Version>> e : provided.entrySet()) {
+            Map<String, Object> props = new HashMap<>();
+            props.put(OSGI_EE, e.getKey());
+            props.put("version", Collections.unmodifiableList(e.getValue()));
+            list.add(Collections.unmodifiableMap(props));
+        }
+        this.capabilities = Collections.unmodifiableList(list);
+    }
+
+    private static List<Version> versions(String... versions) {
+        List<Version> list = new ArrayList<>();
+        for (String v : versions) {
+            list.add(Version.valueOf(v));
+        }
+        return list;
+    }
+
+    /**
+     * @param ee
+     *            Java SE execution environment name like "JavaSE-17", "JavaSE-1.8",
+     *            "J2SE-1.5", or just the Java version like "17" or "1.8"
+     * @throws IllegalArgumentException
+     *             if the argument is not a Java SE execution environment
+     */
+    static ExecutionEnvironment valueOf(String ee) {
+        String version = ee.trim();
+        int dash = version.lastIndexOf('-');
+        if (dash >= 0) {
+            String eeName = version.substring(0, dash);
+            if (!eeName.equals(JAVA_SE) && !eeName.equals("J2SE")) {
+                throw new IllegalArgumentException("Not a Java SE execution environment: " + ee);
+            }
+            version = version.substring(dash + 1);
+        }
+        int release;
+        try {
+            Version v = Version.valueOf(version);
+            release = v.getMajor() == 1 ? v.getMinor() : v.getMajor();
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Invalid execution environment: " + ee, e);
+        }
+        if (release < 1 || release >= 64) {
+            throw new IllegalArgumentException("Invalid execution environment: " + ee);
+        }
+        return new ExecutionEnvironment(release);
+    }
+
+    /**
+     * @return canonical name, like "JavaSE-17" or "JavaSE-1.8"
+     */
+    String getName() {
+        return name;
+    }
+
+    /**
+     * @return Java feature release, like 17 or 8
+     */
+    int getRelease() {
+        return release;
+    }
+
+    /**
+     * @param filter
+     *            {@code osgi.ee} requirement filter
+     * @return true if one of the provided {@code osgi.ee} capabilities matches the
+     *         filter
+     * @throws IllegalArgumentException
+     *             if the filter can't be parsed
+     */
+    boolean matches(String filter) {
+        Boolean result = filterResults.get(filter);
+        if (result == null) {
+            LdapFilter parsed = LdapFilter.parse(filter);
+            result = Boolean.FALSE;
+            for (Map<String, Object> capability : capabilities) {
+                if (parsed.matches(capability)) {
+                    result = Boolean.TRUE;
+                    break;
+                }
+            }
+            filterResults.put(filter, result);
+        }
+        return result.booleanValue();
+    }
+
+    /**
+     * @param bree
+     *            one of {@code Bundle-RequiredExecutionEnvironment} values, like
+     *            "JavaSE-11", "J2SE-1.5" or "CDC-1.1/Foundation-1.1"
+     * @return true if this environment provides the given one
+     */
+    boolean provides(String bree) {
+        String eeName;
+        String version;
+        int slash = bree.indexOf('/');
+        int dash = bree.indexOf('-');
+        if (slash > 0 && dash > 0 && dash < slash) {
+            // CDC-1.1/Foundation-1.1
+            int dash2 = bree.lastIndexOf('-');
+            version = bree.substring(dash + 1, slash);
+            if (dash2 <= slash || !version.equals(bree.substring(dash2 + 1))) {
+                return false;
+            }
+            eeName = bree.substring(0, dash) + bree.substring(slash, dash2);
+        } else {
+            dash = bree.lastIndexOf('-');
+            if (dash <= 0) {
+                return false;
+            }
+            eeName = bree.substring(0, dash);
+            version = bree.substring(dash + 1);
+        }
+        if (eeName.equals("J2SE")) {
+            eeName = JAVA_SE;
+        }
+        Version v;
+        try {
+            v = Version.valueOf(version);
+        } catch (IllegalArgumentException e) {
+            return false;
+        }
+        for (Map<String, Object> capability : capabilities) {
+            if (capability.get(OSGI_EE).equals(eeName)) {
+                return ((List<?>) capability.get("version")).contains(v);
+            }
+        }
+        return false;
+    }
+
+    @Override
+    public String toString() {
+        return name;
+    }
+}
@@ -12,6 +12,7 @@
 package org.eclipselabs.plugindependencies.core;
 
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.LinkedHashSet;
 import java.util.List;
@@ -59,6 +60,10 @@ public class Feature extends OSGIElement {
         this.requiredFeatureEntries.add(required);
     }
 
+    /**
+     * @deprecated features are read with {@link FeatureParser#parseFeature(org.w3c.dom.Document)}
+     */
+    @Deprecated
     public void addIncludedPluginEntries(NodeList requiredplugins) {
         for (int i = 0; i < requiredplugins.getLength(); i++) {
             Element xmlElement = (Element)requiredplugins.item(i);
@@ -67,12 +72,24 @@ public class Feature extends OSGIElement {
         }
     }
 
+    /**
+     * @deprecated features are read with {@link FeatureParser#parseFeature(org.w3c.dom.Document)}
+     */
+    @Deprecated
     public void addIncludedFeatureEntries(NodeList requiredplugins) {
         for (int i = 0; i < requiredplugins.getLength(); i++) {
             this.includedFeatureEntries.add(new ManifestEntry((Element)requiredplugins.item(i), "id"));
         }
     }
 
+    void addIncludedPluginEntry(ManifestEntry included) {
+        this.includedPluginEntries.add(included);
+    }
+
+    void addIncludedFeatureEntry(ManifestEntry included) {
+        this.includedFeatureEntries.add(included);
+    }
+
     public List<ManifestEntry> getRequiredFeatureEntries() {
         return requiredFeatureEntries;
     }
@@ -94,32 +111,50 @@ public class Feature extends OSGIElement {
 
     public void addRequiredFeature(Feature requires) {
         if(requires != null) {
+            requiredFeatures = modifiable(requiredFeatures);
             this.requiredFeatures.add(requires);
             requires.addRequiring(this);
         }
     }
 
     public void addIncludedFeature(Feature included) {
+        includedFeatures = modifiable(includedFeatures);
         this.includedFeatures.add(included);
         included.addIncludingFeature(this);
     }
 
     public void addIncludedPlugin(Plugin included) {
+        includedPlugins = modifiable(includedPlugins);
         this.includedPlugins.add(included);
         included.addIncludingFeature(this);
     }
 
     @Override
-    public void parsingDone() {
-        super.parsingDone();
-        includedFeatures = includedFeatures.isEmpty()? Collections.EMPTY_SET : Collections.unmodifiableSet(includedFeatures);
-        includedPlugins = includedPlugins.isEmpty()? Collections.EMPTY_SET : Collections.unmodifiableSet(includedPlugins);
-        requiredFeatures = requiredFeatures.isEmpty()? Collections.EMPTY_SET : Collections.unmodifiableSet(requiredFeatures);
+    void freeze() {
+        super.freeze();
+        includedFeatures = readOnly(includedFeatures);
+        includedPlugins = readOnly(includedPlugins);
+        requiredFeatures = readOnly(requiredFeatures);
+
+        requiredFeatureEntries = readOnly(requiredFeatureEntries);
+        includedFeatureEntries = readOnly(includedFeatureEntries);
+        includedPluginEntries = readOnly(includedPluginEntries);
+    }
 
-        requiredFeatureEntries = requiredFeatureEntries.isEmpty()? Collections.EMPTY_LIST : Collections.unmodifiableList(requiredFeatureEntries);
+    @Override
+    void resetResolution() {
+        super.resetResolution();
+        includedFeatures = new LinkedHashSet<>();
+        includedPlugins = new LinkedHashSet<>();
+        requiredFeatures = new LinkedHashSet<>();
+    }
 
-        includedFeatureEntries = includedFeatureEntries.isEmpty()? Collections.EMPTY_LIST : Collections.unmodifiableList(includedFeatureEntries);
-        includedPluginEntries = includedPluginEntries.isEmpty()? Collections.EMPTY_LIST : Collections.unmodifiableList(includedPluginEntries);
+    @Override
+    void addResolvedTargets(Collection<NamedElement> targets) {
+        super.addResolvedTargets(targets);
+        targets.addAll(includedFeatures);
+        targets.addAll(includedPlugins);
+        targets.addAll(requiredFeatures);
     }
 
     @Override
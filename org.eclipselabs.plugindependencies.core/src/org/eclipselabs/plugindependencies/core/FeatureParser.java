@@ -17,27 +17,52 @@ import static org.eclipselabs.plugindependencies.core.CommandLineInterpreter.RC_
 import static org.eclipselabs.plugindependencies.core.PlatformState.fixName;
 import static org.eclipselabs.plugindependencies.core.PlatformState.fixVersion;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.file.Files;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.jar.JarEntry;
 import java.util.jar.JarFile;
 
 import javax.xml.parsers.DocumentBuilderFactory;
-import javax.xml.parsers.ParserConfigurationException;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import javax.xml.transform.TransformerException;
+import javax.xml.transform.TransformerFactory;
+import javax.xml.transform.dom.DOMSource;
+import javax.xml.transform.stream.StreamResult;
 
 import org.w3c.dom.Document;
 import org.w3c.dom.Element;
-import org.w3c.dom.NodeList;
-import org.xml.sax.SAXException;
 
 /**
  * @author obroesam
  *
  */
 public class FeatureParser {
+    /**
+     * @deprecated not used anymore, feature.xml files are read with StAX
+     */
+    @Deprecated
     public static final DocumentBuilderFactory DB_FACTORY = DocumentBuilderFactory.newInstance();
 
+    private static final XMLInputFactory XML_FACTORY = createXmlFactory();
+
+    private static final String[] ROOT_ATTRIBUTES = { "id", "version" };
+
     /**
      * Parses all Features located in featureDirectoryPath and adds them to the features
      * Set. Features are parsed through the feature.xml file which is located in each
@@ -50,6 +75,34 @@ public class FeatureParser {
      */
     public static int createFeaturesAndAddToSet(File rootDir, PlatformState state)
             throws IOException {
+        return createFeaturesAndAddToSet(rootDir, state, null);
+    }
+
+    /**
+     * Same as {@link #createFeaturesAndAddToSet(File, PlatformState)}, but feature.xml
+     * data is taken from the given cache, if available and up to date.
+     *
+     * @param cache
+     *            may be null
+     */
+    public static int createFeaturesAndAddToSet(File rootDir, PlatformState state, BundleCache cache)
+            throws IOException {
+        return createFeaturesAndAddToSet(rootDir, state, cache, 1);
+    }
+
+    /**
+     * Same as {@link #createFeaturesAndAddToSet(File, PlatformState, BundleCache)}, but
+     * if more than one thread is given, feature.xml files are read and parsed in
+     * parallel. Features are added to the platform state strictly in the sorted file
+     * order, so the resulting state is the same as with the sequential parsing.
+     *
+     * @param cache
+     *            may be null
+     * @param threads
+     *            number of parser threads, 1 for sequential parsing
+     */
+    public static int createFeaturesAndAddToSet(File rootDir, PlatformState state, BundleCache cache, int threads)
+            throws IOException {
         if (!rootDir.isDirectory()) {
             Logging.getLogger().error("given directory does not exist: " + rootDir);
             return RC_RUNTIME_ERROR;
@@ -61,106 +114,305 @@ public class FeatureParser {
             return RC_RUNTIME_ERROR;
         }
         PluginParser.sortFiles(dirArray);
+        if (threads > 1 && dirArray.length > 1) {
+            return createFeaturesInParallel(dirArray, state, cache, threads);
+        }
         int result = RC_OK;
         for (File featureFolder : dirArray) {
-            result = Math.min(result, createFeatureAndAddToSet(featureFolder, false, state));
+            result = Math.min(result, createFeatureAndAddToSet(featureFolder, false, state, cache));
+        }
+        return result;
+    }
+
+    /**
+     * Same scheme as for plugins: a bounded pool of parser threads reads features ahead,
+     * the calling thread commits them in the given (sorted) order. As in the sequential
+     * case, the first feature which can't be read stops the processing with an
+     * {@link IOException}.
+     */
+    private static int createFeaturesInParallel(File[] dirArray, PlatformState state, BundleCache cache,
+            int threads) throws IOException {
+        int poolSize = Math.min(threads, dirArray.length);
+        InternPool pool = state.getInternPool();
+        ExecutorService executor = Executors.newFixedThreadPool(poolSize,
+                new PluginParser.ParserThreadFactory("Feature parser"));
+        Deque<Future<Feature>> window = new ArrayDeque<>();
+        int windowSize = poolSize * 4;
+        int submitted = 0;
+        int result = RC_OK;
+        try {
+            for (File featureFolder : dirArray) {
+                while (submitted < dirArray.length && window.size() < windowSize) {
+                    File next = dirArray[submitted++];
+                    window.add(executor.submit(() -> readFeature(next, false, cache, pool)));
+                }
+                Future<Feature> future = window.poll();
+                try {
+                    result = Math.min(result, addToState(future.get(), state));
+                } catch (ExecutionException e) {
+                    Throwable cause = e.getCause();
+                    if (cause instanceof IOException) {
+                        throw (IOException) cause;
+                    }
+                    if (cause instanceof RuntimeException) {
+                        throw (RuntimeException) cause;
+                    }
+                    if (cause instanceof Error) {
+                        throw (Error) cause;
+                    }
+                    throw new IOException(cause);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    Logging.getLogger().error("Interrupted while discovering features from: " + featureFolder, e);
+                    return RC_RUNTIME_ERROR;
+                }
+            }
+        } finally {
+            executor.shutdownNow();
         }
         return result;
     }
 
     public static int createFeatureAndAddToSet(File featureFolder, boolean workspace, PlatformState state)
             throws IOException {
+        return createFeatureAndAddToSet(featureFolder, workspace, state, null);
+    }
+
+    /**
+     * Same as {@link #createFeatureAndAddToSet(File, boolean, PlatformState)}, but
+     * feature.xml data is taken from the given cache, if available and up to date.
+     *
+     * @param cache
+     *            may be null
+     */
+    public static int createFeatureAndAddToSet(File featureFolder, boolean workspace, PlatformState state,
+            BundleCache cache) throws IOException {
+        return addToState(readFeature(featureFolder, workspace, cache, state.getInternPool()), state);
+    }
+
+    private static int addToState(Feature feature, PlatformState state) {
+        if (feature == null) {
+            return RC_OK;
+        }
+        Feature addedFeature = state.addFeature(feature);
+        if (addedFeature == feature) {
+            return RC_OK;
+        }
+        return RC_ANALYSIS_ERROR;
+    }
+
+    /**
+     * Reads and parses given feature. This does not modify the platform state and so can
+     * be executed concurrently for different features.
+     *
+     * @return null if the given file is not a feature
+     */
+    private static Feature readFeature(File featureFolder, boolean workspace, BundleCache cache, InternPool pool)
+            throws IOException {
         File featureXMLFile = new File(featureFolder, "feature.xml").getCanonicalFile();
-        Feature feature = null;
+        Feature feature;
         if (!featureXMLFile.exists()) {
             // check if we have an archive here.
             // this would be usually "broken", not extracted feature
             if(!featureFolder.getName().endsWith(".jar") || !featureFolder.isFile()){
-                return RC_OK;
+                return null;
             }
-
-            try (JarFile jarfile = new JarFile(featureFolder)) {
-                JarEntry entry = jarfile.getJarEntry("feature.xml");
-                if(entry == null){
-                    return RC_OK;
-                }
-                try (InputStream inputStream = jarfile.getInputStream(entry)){
-                    feature = parseFeature(DB_FACTORY.newDocumentBuilder().parse(inputStream));
-                }
-            } catch(SAXException | ParserConfigurationException | RuntimeException e) {
-                throw new IOException(e);
+            FeatureXml featureXml;
+            if (cache == null) {
+                featureXml = readFeatureJar(featureFolder);
+            } else {
+                featureXml = cache.readFeature(featureFolder, () -> readFeatureJar(featureFolder));
             }
+            feature = createFeature(featureXml, pool);
             if(feature == null){
-                return RC_OK;
+                return null;
             }
             // TODO add flag if we should warn in this case
             feature.addWarningToLog("Feature is contained in a jar file: " + featureFolder + "!");
-        }
-
-        if(feature == null) {
-            try {
-                feature = parseFeature(DB_FACTORY.newDocumentBuilder().parse(featureXMLFile));
-            } catch (SAXException | ParserConfigurationException | RuntimeException e) {
-                throw new IOException(e);
+        } else {
+            FeatureXml featureXml;
+            if (cache == null) {
+                featureXml = readFeatureXml(featureXMLFile);
+            } else {
+                featureXml = cache.readFeature(featureXMLFile, () -> readFeatureXml(featureXMLFile));
             }
+            feature = createFeature(featureXml, pool);
         }
         if (feature == null) {
-            return RC_OK;
+            return null;
         }
         feature.setFromWorkspace(workspace);
         feature.setPath(featureXMLFile.toString());
-        Feature addedFeature = state.addFeature(feature);
-        if (addedFeature == feature) {
-            return RC_OK;
+        return feature;
+    }
+
+    private static FeatureXml readFeatureJar(File jar) throws IOException {
+        try (JarFile jarfile = new JarFile(jar)) {
+            JarEntry entry = jarfile.getJarEntry("feature.xml");
+            if(entry == null){
+                return null;
+            }
+            try (InputStream inputStream = jarfile.getInputStream(entry)){
+                return readFeatureXml(inputStream);
+            }
+        } catch(RuntimeException e) {
+            throw new IOException(e);
         }
-        return RC_ANALYSIS_ERROR;
+    }
+
+    private static FeatureXml readFeatureXml(File featureXMLFile) throws IOException {
+        try (InputStream inputStream = Files.newInputStream(featureXMLFile.toPath())) {
+            return readFeatureXml(inputStream);
+        }
+    }
+
+    /**
+     * Reads feature.xml in one streaming pass: root element id and version, and all
+     * "plugin", "includes" and "import" elements below the root, at any depth, in
+     * document order (as with DOM getElementsByTagName()).
+     */
+    static FeatureXml readFeatureXml(InputStream inputStream) throws IOException {
+        XMLStreamReader reader = null;
+        try {
+            // factory is not guaranteed to be thread safe, but features might be read in parallel
+            synchronized (XML_FACTORY) {
+                reader = XML_FACTORY.createXMLStreamReader(inputStream);
+            }
+            FeatureXml data = null;
+            while (reader.hasNext()) {
+                if (reader.next() != XMLStreamConstants.START_ELEMENT) {
+                    continue;
+                }
+                if (data == null) {
+                    String[] root = attributes(reader, ROOT_ATTRIBUTES);
+                    data = new FeatureXml(root[0], root[1]);
+                    continue;
+                }
+                switch (qualifiedName(reader.getPrefix(), reader.getLocalName())) {
+                case "plugin":
+                    data.plugins.add(attributes(reader, FeatureXml.INCLUDED_ATTRIBUTES));
+                    break;
+                case "includes":
+                    data.features.add(attributes(reader, FeatureXml.INCLUDED_ATTRIBUTES));
+                    break;
+                case "import":
+                    data.imports.add(attributes(reader, FeatureXml.IMPORT_ATTRIBUTES));
+                    break;
+                default:
+                    break;
+                }
+            }
+            return data;
+        } catch (XMLStreamException | RuntimeException e) {
+            throw new IOException(e);
+        } finally {
+            if (reader != null) {
+                try {
+                    reader.close();
+                } catch (XMLStreamException e) {
+                    // ignore, the stream is closed by the caller
+                }
+            }
+        }
+    }
+
+    private static String[] attributes(XMLStreamReader reader, String[] names) {
+        String[] values = new String[names.length];
+        Arrays.fill(values, "");
+        int count = reader.getAttributeCount();
+        for (int i = 0; i < count; i++) {
+            String name = qualifiedName(reader.getAttributePrefix(i), reader.getAttributeLocalName(i));
+            for (int j = 0; j < names.length; j++) {
+                if (names[j].equals(name)) {
+                    values[j] = reader.getAttributeValue(i);
+                    break;
+                }
+            }
+        }
+        return values;
+    }
+
+    private static String qualifiedName(String prefix, String localName) {
+        if (prefix == null || prefix.isEmpty()) {
+            return localName;
+        }
+        return prefix + ":" + localName;
+    }
+
+    private static XMLInputFactory createXmlFactory() {
+        XMLInputFactory factory = XMLInputFactory.newFactory();
+        // feature.xml has no namespaces: element names are matched as written
+        factory.setProperty(XMLInputFactory.IS_NAMESPACE_AWARE, Boolean.FALSE);
+        return factory;
     }
 
     /**
      * Parses the featureXml Document and returns the parsed Feature.
+     * <p>
+     * The document is serialized and read with the same streaming reader as
+     * feature.xml files, so both paths give the same result.
      *
      * @param featureXml
      *            feature.xml file that is read in and in form of Document.
      * @return parsed Feature
      */
     public static Feature parseFeature(Document featureXml) {
+        if (featureXml == null || !featureXml.hasChildNodes()) {
+            return null;
+        }
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try {
+            TransformerFactory.newInstance().newTransformer().transform(new DOMSource(featureXml),
+                    new StreamResult(bytes));
+            return createFeature(readFeatureXml(new ByteArrayInputStream(bytes.toByteArray())));
+        } catch (TransformerException | IOException e) {
+            throw new IllegalArgumentException("Can't read feature document", e);
+        }
+    }
+
+    static Feature createFeature(FeatureXml featureXml) {
+        return createFeature(featureXml, new InternPool());
+    }
+
+    /**
+     * @param pool
+     *            pool for the names and versions shared with other features and plugins
+     */
+    static Feature createFeature(FeatureXml featureXml, InternPool pool) {
         if (featureXml == null) {
             return null;
         }
-        if (featureXml.hasChildNodes()) {
-            Element root = featureXml.getDocumentElement();
-            String id = root.getAttribute("id");
-            String version = root.getAttribute("version");
-            Feature ret = new Feature(id, fixVersion(version));
-
-            ret.addIncludedPluginEntries(root.getElementsByTagName("plugin"));
-            ret.addIncludedFeatureEntries(root.getElementsByTagName("includes"));
-            NodeList list = root.getElementsByTagName("import");
-            for (int i = 0; i < list.getLength(); i++) {
-                Element e = (Element)list.item(i);
-                String feat = e.getAttribute("feature").trim();
-                String plug = e.getAttribute("plugin").trim();
-                boolean optional = Boolean.parseBoolean(e.getAttribute("optional").trim());
-                ManifestEntry required = null;
-                if(feat.isEmpty() && !plug.isEmpty()) {
-                    required = addRequiredPlugin(e, ret, plug, optional);
-                } else if(!feat.isEmpty() && plug.isEmpty()) {
-                    required = addRequiredFeature(e, ret, feat, optional);
-                }
-                if(required != null) {
-                    String filter = e.getAttribute("filter").trim();
-                    if(!filter.isEmpty()) {
-                        ret.addFilter(required, new Filter(filter));
-                    }
+        Feature ret = new Feature(pool.intern(featureXml.id), fixVersion(featureXml.version));
+        for (String[] a : featureXml.plugins) {
+            ret.addIncludedPluginEntry(new ManifestEntry(pool.intern(a[0].trim()), pool.intern(a[1].trim()),
+                    ManifestEntry.createPlatformSpecs(a[2], a[3], a[4])));
+        }
+        for (String[] a : featureXml.features) {
+            ret.addIncludedFeatureEntry(new ManifestEntry(pool.intern(a[0].trim()), pool.intern(a[1].trim()),
+                    ManifestEntry.createPlatformSpecs(a[2], a[3], a[4])));
+        }
+        for (String[] a : featureXml.imports) {
+            String feat = pool.intern(a[0].trim());
+            String plug = pool.intern(a[1].trim());
+            String version = pool.intern(createVersion(a[2].trim(), a[3].trim()));
+            boolean optional = Boolean.parseBoolean(a[4].trim());
+            ManifestEntry required = null;
+            if(feat.isEmpty() && !plug.isEmpty()) {
+                required = addRequiredPlugin(version, ret, plug, optional);
+            } else if(!feat.isEmpty() && plug.isEmpty()) {
+                required = addRequiredFeature(version, ret, feat, optional);
+            }
+            if(required != null) {
+                String filter = a[5].trim();
+                if(!filter.isEmpty()) {
+                    ret.addFilter(required, new Filter(filter));
                 }
             }
-            return ret;
         }
-        return null;
+        return ret;
     }
 
-    private static ManifestEntry addRequiredFeature(Element e, Feature ret, String feat, boolean optional) {
-        String version = createVersion(e);
+    private static ManifestEntry addRequiredFeature(String version, Feature ret, String feat, boolean optional) {
         ManifestEntry required = new ManifestEntry(fixName(feat), fixVersion(version), optional);
         ret.addRequiredFeatureEntry(required);
         return required;
@@ -171,12 +423,18 @@ public class FeatureParser {
 //    <import plugin="ccc"  version="1"     match="greaterOrEqual"/>
 //    <import plugin="eee"  version="1"     match="equivalent"/>
 //    <import feature="ddd" version="1.2.3.qualifier" match="compatible"/>
+    /**
+     * @deprecated use {@link #parseFeature(Document)} to read a feature DOM
+     */
+    @Deprecated
     public static String createVersion(Element e) {
-        String v = e.getAttribute("version").trim();
+        return createVersion(e.getAttribute("version").trim(), e.getAttribute("match").trim());
+    }
+
+    static String createVersion(String v, String match) {
         if(v.isEmpty()) {
             return NamedElement.EMPTY_VERSION;
         }
-        String match = e.getAttribute("match").trim();
         if(match.isEmpty()) {
             return v;
         }
@@ -201,10 +459,33 @@ public class FeatureParser {
         return NamedElement.EMPTY_VERSION;
     }
 
-    private static ManifestEntry addRequiredPlugin(Element e, Feature ret, String plug, boolean optional) {
-        String version = createVersion(e);
+    private static ManifestEntry addRequiredPlugin(String version, Feature ret, String plug, boolean optional) {
         ManifestEntry required = new ManifestEntry(fixName(plug), fixVersion(version), optional);
         ret.addRequiredPluginEntry(required);
         return required;
     }
+
+    /**
+     * Raw data read from feature.xml: root element id and version and the attribute
+     * values of all included plugins, included features and imports. Attribute values
+     * are empty strings if not set.
+     */
+    static final class FeatureXml {
+        static final String[] INCLUDED_ATTRIBUTES = { "id", "version", "os", "ws", "arch" };
+        static final String[] IMPORT_ATTRIBUTES = { "feature", "plugin", "version", "match", "optional", "filter" };
+
+        final String id;
+        final String version;
+        final List<String[]> plugins;
+        final List<String[]> features;
+        final List<String[]> imports;
+
+        FeatureXml(String id, String version) {
+            this.id = id;
+            this.version = version;
+            plugins = new ArrayList<>();
+            features = new ArrayList<>();
+            imports = new ArrayList<>();
+        }
+    }
 }
@@ -0,0 +1,248 @@
+/*******************************************************************************
+ * Copyright (c) 2026 Andrey Loskutov
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *    Andrey Loskutov <loskutov@gmx.de> - initial API and implementation
+ *******************************************************************************/
+package org.eclipselabs.plugindependencies.core;
+
+/**
+ * Single pass tokenizer for OSGI manifest headers like Export-Package or
+ * Require-Capability:
+ *
+ * <pre>
+ * header ::= clause ( ',' clause )*
+ * clause ::= part ( ';' part )*
+ * part   ::= name | key '=' value | key ':=' value
+ * </pre>
+ *
+ * Separators inside double quotes are ignored. The tokenizer only moves offsets over
+ * the header string: clause and part bounds are trimmed (as with {@link String#trim()}), empty clauses and parts are
+ * skipped, and strings are only created if requested via {@link #part()},
+ * {@link #key()} or {@link #value()}.
+ * <p>
+ * Typical usage:
+ *
+ * <pre>
+ * HeaderTokenizer t = new HeaderTokenizer(header);
+ * while (t.nextClause()) {
+ *     while (t.nextPart()) {
+ *         if (t.isDirective() &amp;&amp; t.keyEquals("resolution")) ...
+ *     }
+ * }
+ * </pre>
+ */
+final class HeaderTokenizer {
+
+    private final String header;
+    private final int length;
+
+    /** start of the next clause */
+    private int nextClause;
+    /** start of the current clause */
+    private int clauseStart;
+    /** end (exclusive) of the current clause */
+    private int clauseEnd;
+    /** start of the next part in the current clause */
+    private int nextPart;
+
+    /** trimmed bounds of the current part */
+    private int partStart;
+    private int partEnd;
+    /** end of the trimmed key, -1 if the part has no value */
+    private int keyEnd;
+    /** start of the trimmed value */
+    private int valueStart;
+    private boolean directive;
+
+    HeaderTokenizer(String header) {
+        this.header = header;
+        this.length = header.length();
+    }
+
+    /**
+     * Moves to the next non empty clause
+     *
+     * @return false if there are no more clauses
+     */
+    boolean nextClause() {
+        while (nextClause < length) {
+            int start = nextClause;
+            int end = scan(start, length, ',');
+            nextClause = end + 1;
+            if (hasContent(start, end)) {
+                clauseStart = start;
+                clauseEnd = end;
+                nextPart = start;
+                partStart = partEnd = start;
+                keyEnd = -1;
+                return true;
+            }
+        }
+        clauseEnd = nextPart = length;
+        return false;
+    }
+
+    /**
+     * Moves to the next non empty part of the current clause
+     *
+     * @return false if there are no more parts in the current clause
+     */
+    boolean nextPart() {
+        while (nextPart < clauseEnd) {
+            int start = nextPart;
+            int end = scan(start, clauseEnd, ';');
+            nextPart = end + 1;
+            start = skipWhitespace(start, end);
+            end = trimEnd(start, end);
+            if (start == end) {
+                continue;
+            }
+            partStart = start;
+            partEnd = end;
+            int eq = indexOf('=', start, end);
+            if (eq < 0) {
+                keyEnd = -1;
+                directive = false;
+                valueStart = end;
+            } else {
+                directive = eq > start && header.charAt(eq - 1) == ':';
+                keyEnd = trimEnd(start, directive ? eq - 1 : eq);
+                valueStart = skipWhitespace(eq + 1, end);
+            }
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * @return current clause as is (but trimmed), for example
+     *         {@code org.osgi.framework;version="1.3.0"}
+     */
+    String clause() {
+        int start = skipWhitespace(clauseStart, clauseEnd);
+        return header.substring(start, trimEnd(start, clauseEnd));
+    }
+
+    /**
+     * @return current part as is, for example {@code version="[1.0,2.0)"}
+     */
+    String part() {
+        return header.substring(partStart, partEnd);
+    }
+
+    /**
+     * @return true if the current part is a {@code key=value} attribute or a
+     *         {@code key:=value} directive, false if it is a plain name
+     */
+    boolean hasValue() {
+        return keyEnd >= 0;
+    }
+
+    /**
+     * @return true if the current part is a {@code key:=value} directive
+     */
+    boolean isDirective() {
+        return directive;
+    }
+
+    /**
+     * @return true if the key of the current part is the given one. For parts without
+     *         value the whole part is compared
+     */
+    boolean keyEquals(String key) {
+        int end = keyEnd < 0 ? partEnd : keyEnd;
+        return end - partStart == key.length() && header.regionMatches(partStart, key, 0, key.length());
+    }
+
+    /**
+     * @return key of the current part, or the whole part if it has no value
+     */
+    String key() {
+        return header.substring(partStart, keyEnd < 0 ? partEnd : keyEnd);
+    }
+
+    /**
+     * @return true if the unquoted value of the current part is the given one
+     */
+    boolean valueEquals(String value) {
+        int start = valueStart;
+        int end = partEnd;
+        if (isQuoted(start, end)) {
+            start++;
+            end--;
+        }
+        return end - start == value.length() && header.regionMatches(start, value, 0, value.length());
+    }
+
+    /**
+     * @return value of the current part without surrounding quotes, empty string if
+     *         the part has no value
+     */
+    String value() {
+        int start = valueStart;
+        int end = partEnd;
+        if (isQuoted(start, end)) {
+            start++;
+            end--;
+        }
+        return header.substring(start, end);
+    }
+
+    private boolean isQuoted(int start, int end) {
+        return end - start >= 2 && header.charAt(start) == '"' && header.charAt(end - 1) == '"';
+    }
+
+    /**
+     * @return position of the first given separator outside of quotes, or end
+     */
+    private int scan(int from, int end, char separator) {
+        boolean quoted = false;
+        for (int i = from; i < end; i++) {
+            char c = header.charAt(i);
+            if (c == '"') {
+                quoted = !quoted;
+            } else if (quoted) {
+                if (c == '\\') {
+                    i++;
+                }
+            } else if (c == separator) {
+                return i;
+            }
+        }
+        return end;
+    }
+
+    private int indexOf(char c, int from, int end) {
+        int i = header.indexOf(c, from);
+        return i < end ? i : -1;
+    }
+
+    private boolean hasContent(int start, int end) {
+        for (int i = start; i < end; i++) {
+            char c = header.charAt(i);
+            if (c != ';' && c > ' ') {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private int skipWhitespace(int start, int end) {
+        while (start < end && header.charAt(start) <= ' ') {
+            start++;
+        }
+        return start;
+    }
+
+    private int trimEnd(int start, int end) {
+        while (end > start && header.charAt(end - 1) <= ' ') {
+            end--;
+        }
+        return end;
+    }
+}
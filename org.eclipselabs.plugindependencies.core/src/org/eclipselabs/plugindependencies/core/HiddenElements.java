@@ -0,0 +1,80 @@
+/*******************************************************************************
+ * Copyright (c) 2026 Andrey Loskutov
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *    Andrey Loskutov <loskutov@gmx.de> - initial API and implementation
+ *******************************************************************************/
+package org.eclipselabs.plugindependencies.core;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Elements hidden via {@link PlatformState#hideElement(ManifestEntry)}, indexed by
+ * name, so checking a plugin or feature does not depend on the number of hidden
+ * entries.
+ * <p>
+ * Entry without version (or with 0.0.0) hides all versions of the element, otherwise
+ * only the given version is hidden. Entry name ending with '*' is a prefix pattern:
+ * {@code org.example.*} hides all elements with names starting with
+ * {@code org.example.}, single {@code *} hides everything. Prefix patterns are kept
+ * in a trie, so only the patterns which are prefixes of the checked name are
+ * considered.
+ */
+final class HiddenElements {
+
+    private static final char WILDCARD = '*';
+
+    private final Map<String, List<ManifestEntry>> byName;
+    private final PrefixTrie<ManifestEntry> patterns;
+
+    HiddenElements() {
+        byName = new HashMap<>();
+        patterns = new PrefixTrie<>();
+    }
+
+    void add(ManifestEntry hidden) {
+        String name = hidden.getName();
+        if (!name.isEmpty() && name.charAt(name.length() - 1) == WILDCARD) {
+            patterns.put(name.substring(0, name.length() - 1), hidden);
+            return;
+        }
+        List<ManifestEntry> list = byName.computeIfAbsent(name, n -> new ArrayList<>(1));
+        if (!list.contains(hidden)) {
+            list.add(hidden);
+        }
+    }
+
+    boolean isEmpty() {
+        return byName.isEmpty() && patterns.isEmpty();
+    }
+
+    /**
+     * @return true if given plugin or feature is hidden
+     */
+    boolean isHidden(NamedElement element) {
+        if (isEmpty()) {
+            return false;
+        }
+        List<ManifestEntry> list = byName.get(element.getName());
+        if (list != null) {
+            for (ManifestEntry hidden : list) {
+                if (hidden.hasDefaultVersion()) {
+                    if (hidden.isMatching(element)) {
+                        return true;
+                    }
+                } else if (hidden.exactMatch(element)) {
+                    return true;
+                }
+            }
+        }
+        return patterns.findPrefixOf(element.getName(),
+                pattern -> pattern.hasDefaultVersion() || pattern.sameVersion(element)) != null;
+    }
+}
@@ -0,0 +1,323 @@
+/*******************************************************************************
+ * Copyright (c) 2026 Andrey Loskutov
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *    Andrey Loskutov <loskutov@gmx.de> - initial API and implementation
+ *******************************************************************************/
+package org.eclipselabs.plugindependencies.core;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Updates a resolved {@link PlatformState} after one plugin was added, replaced or
+ * removed, without resolving all plugins again.
+ * <p>
+ * Resolved again are all plugins with the name of the changed one, all plugins and
+ * features requiring, including or hosted by a plugin with that name or importing a
+ * package (or requiring a capability) it provides, see {@link RequirementIndex}, and
+ * all plugins re-exporting one of them. Elements they were resolved to get them
+ * removed from their sets of depending elements (reverse edges) first, and these sets
+ * are sorted afterwards as if all plugins were resolved again. Closures are computed
+ * again for plugins depending (directly or not) on a changed plugin, before or after
+ * the change. Packages exported by the changed plugins are validated again.
+ * <p>
+ * Usage: {@link #reset()} before the plugin is exchanged in the state,
+ * {@link #resolve(Collection)} afterwards.
+ */
+final class IncrementalResolver {
+
+    private final PlatformState state;
+    /** null if a plugin is added */
+    private final Plugin oldOne;
+    /** null if a plugin is removed */
+    private final Plugin newOne;
+    /** elements to resolve again */
+    private final Set<OSGIElement> affected;
+    /** elements the affected ones were or are resolved to */
+    private final Set<NamedElement> targets;
+    /** plugins with closures to compute again */
+    private final Set<Plugin> dependents;
+
+    IncrementalResolver(PlatformState state, Plugin oldOne, Plugin newOne) {
+        this.state = state;
+        this.oldOne = oldOne;
+        this.newOne = newOne;
+        affected = identitySet();
+        targets = identitySet();
+        dependents = identitySet();
+    }
+
+    /**
+     * Finds and resets all affected elements, must be called before the state is
+     * changed
+     */
+    void reset() {
+        RequirementIndex index = state.getRequirementIndex();
+        Set<String> packageNames = new LinkedHashSet<>();
+        for (Plugin plugin : new Plugin[] { oldOne, newOne }) {
+            if (plugin == null) {
+                continue;
+            }
+            affected.addAll(state.getRegisteredPlugins(plugin.getName()));
+            affected.addAll(index.requiringPlugin(plugin.getName()));
+            for (Package pack : plugin.getOwnExportedPackages()) {
+                if (packageNames.add(pack.getName())) {
+                    affected.addAll(index.importingPackage(pack.getName()));
+                }
+            }
+            for (Capability cap : plugin.getProvidedCapabilities()) {
+                affected.addAll(index.requiringCapability(cap.getName()));
+            }
+        }
+        // plugins re-exporting affected plugins and fragments of affected hosts must be
+        // resolved again too. Hosts don't depend on their fragments, they are only
+        // targets of the fragment resolution, see removeResolvers() below
+        Deque<OSGIElement> queue = new ArrayDeque<>(affected);
+        while (!queue.isEmpty()) {
+            OSGIElement element = queue.poll();
+            if (!(element instanceof Plugin)) {
+                continue;
+            }
+            Plugin plugin = (Plugin) element;
+            List<Plugin> next = new ArrayList<>(plugin.getReexportedBy());
+            next.addAll(plugin.getFragments());
+            for (Plugin p : next) {
+                if (affected.add(p)) {
+                    queue.add(p);
+                }
+            }
+        }
+        if (oldOne != null) {
+            affected.add(oldOne);
+        }
+        List<OSGIElement> roots = new ArrayList<>(affected);
+        roots.addAll(exportersOfChangedPackages());
+        addDependents(roots);
+
+        Set<OSGIElement> resolvers = identitySet();
+        for (OSGIElement element : affected) {
+            if (element != newOne) {
+                element.addResolvedTargets(targets);
+                resolvers.add(element);
+            }
+        }
+        for (OSGIElement element : resolvers) {
+            element.resetResolution();
+        }
+        for (NamedElement target : targets) {
+            target.removeResolvers(resolvers);
+        }
+        affected.remove(oldOne);
+    }
+
+    /**
+     * Resolves all affected elements again, must be called after the state is changed
+     *
+     * @param changed
+     *            packages and capabilities with changed exporting plugins
+     */
+    void resolve(Collection<NamedElement> changed) {
+        RequirementIndex index = state.getRequirementIndex();
+        if (oldOne != null) {
+            index.remove(oldOne);
+        }
+        Set<Plugin> current = identitySet();
+        current.addAll(state.getPlugins());
+        if (newOne != null) {
+            affected.add(newOne);
+            if (isRegistered(newOne)) {
+                index.add(newOne);
+            }
+        }
+        // duplicates are not resolved, but could be promoted now
+        for (Plugin plugin : new Plugin[] { oldOne, newOne }) {
+            if (plugin != null) {
+                for (Plugin registered : state.getRegisteredPlugins(plugin.getName())) {
+                    affected.add(registered);
+                }
+            }
+        }
+        List<Plugin> plugins = new ArrayList<>();
+        List<Feature> features = new ArrayList<>();
+        for (OSGIElement element : affected) {
+            if (element instanceof Feature) {
+                features.add((Feature) element);
+            } else if (current.contains(element)) {
+                plugins.add((Plugin) element);
+            }
+        }
+        plugins.sort(OSGIElement.STATE_ORDER);
+        features.sort(OSGIElement.STATE_ORDER);
+        for (Plugin plugin : plugins) {
+            plugin.startResolution();
+        }
+        for (Feature feature : features) {
+            feature.startResolution();
+        }
+        new DependencyResolver(state).resolve(plugins, features, state.getThreads());
+
+        for (Plugin plugin : plugins) {
+            plugin.addResolvedTargets(targets);
+            state.checkContainedInFeatures(plugin);
+        }
+        for (Feature feature : features) {
+            feature.addResolvedTargets(targets);
+        }
+        for (NamedElement target : targets) {
+            if (target instanceof Package) {
+                // a full resolution would not add Java packages nobody imports
+                state.removeIfUnused((Package) target);
+            }
+        }
+        for (NamedElement target : targets) {
+            if (target instanceof Plugin && !affected.contains(target) && current.contains(target)) {
+                state.checkContainedInFeatures((Plugin) target);
+            }
+        }
+        // same order and same view on exports of other plugins as in a full resolution
+        for (Plugin plugin : plugins) {
+            plugin.parsingDone(p -> OSGIElement.STATE_ORDER.compare(p, plugin) < 0);
+            targets.addAll(plugin.getReExportedPackages());
+        }
+        for (Feature feature : features) {
+            feature.parsingDone();
+        }
+        targets.addAll(changed);
+        for (NamedElement target : targets) {
+            target.restoreOrder();
+            target.freeze();
+        }
+
+        computeClosures(plugins, current);
+        if (state.isValidated()) {
+            validate(plugins);
+        }
+    }
+
+    private void computeClosures(List<Plugin> plugins, Set<Plugin> current) {
+        List<Plugin> roots = new ArrayList<>(plugins);
+        roots.addAll(exportersOfChangedPackages());
+        addDependents(roots);
+        List<Plugin> invalid = new ArrayList<>();
+        for (Plugin plugin : dependents) {
+            plugin.resetClosure();
+            DependencyClosure.removeCycleProblems(plugin);
+            if (current.contains(plugin)) {
+                invalid.add(plugin);
+            }
+        }
+        if (state.isClosuresComputed()) {
+            invalid.sort(OSGIElement.STATE_ORDER);
+            new DependencyClosure(state).compute(invalid);
+        }
+    }
+
+    private void validate(List<Plugin> plugins) {
+        Set<Package> packages = identitySet();
+        for (NamedElement target : targets) {
+            if (target instanceof Package) {
+                packages.add((Package) target);
+            }
+        }
+        for (Plugin plugin : plugins) {
+            packages.addAll(plugin.getExportedPackages());
+        }
+        for (Package pack : packages) {
+            pack.getLog().clear();
+            for (Plugin plugin : pack.getExportedBy()) {
+                PlatformState.removePackageProblems(plugin, pack);
+            }
+            for (Plugin plugin : pack.getImportedBy()) {
+                PlatformState.removePackageProblems(plugin, pack);
+            }
+        }
+        for (Package pack : state.getPackages()) {
+            if (packages.contains(pack)) {
+                state.validatePackage(pack);
+            }
+        }
+        for (Plugin plugin : plugins) {
+            PlatformState.validateDuplicates(plugin);
+        }
+    }
+
+    /**
+     * @return the changed plugins and all plugins exporting same packages: classpaths
+     *         contain all exporters of a package
+     */
+    private List<Plugin> exportersOfChangedPackages() {
+        List<Plugin> result = new ArrayList<>();
+        for (Plugin plugin : new Plugin[] { oldOne, newOne }) {
+            if (plugin == null) {
+                continue;
+            }
+            result.add(plugin);
+            for (Package pack : plugin.getOwnExportedPackages()) {
+                result.addAll(pack.getExportedBy());
+                result.addAll(pack.getSplit());
+                result.addAll(pack.getReexportedBy());
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Adds given plugins and all plugins depending on them, directly or not. The graph
+     * is different before and after the change, so each walk starts from scratch
+     */
+    private void addDependents(Collection<? extends OSGIElement> roots) {
+        Set<Plugin> visited = identitySet();
+        Deque<Plugin> queue = new ArrayDeque<>();
+        for (OSGIElement root : roots) {
+            if (root instanceof Plugin && visited.add((Plugin) root)) {
+                queue.add((Plugin) root);
+            }
+        }
+        while (!queue.isEmpty()) {
+            Plugin plugin = queue.poll();
+            List<Plugin> next = new ArrayList<>(plugin.getFragments());
+            for (OSGIElement element : plugin.getRequiredBy()) {
+                if (element instanceof Plugin) {
+                    next.add((Plugin) element);
+                }
+            }
+            if (plugin.getHost() != null) {
+                next.add(plugin.getHost());
+            }
+            for (Package pack : plugin.getExportedPackages()) {
+                next.addAll(pack.getImportedBy());
+            }
+            for (Plugin p : next) {
+                if (visited.add(p)) {
+                    queue.add(p);
+                }
+            }
+        }
+        dependents.addAll(visited);
+    }
+
+    private boolean isRegistered(Plugin plugin) {
+        for (Plugin registered : state.getRegisteredPlugins(plugin.getName())) {
+            if (registered == plugin) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static <T> Set<T> identitySet() {
+        return Collections.newSetFromMap(new IdentityHashMap<>());
+    }
+}
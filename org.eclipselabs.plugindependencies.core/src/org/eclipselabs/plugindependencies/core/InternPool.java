@@ -0,0 +1,125 @@
+/*******************************************************************************
+ * Copyright (c) 2026 Andrey Loskutov
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *    Andrey Loskutov <loskutov@gmx.de> - initial API and implementation
+ *******************************************************************************/
+package org.eclipselabs.plugindependencies.core;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Parse scoped pool of canonical strings and manifest entries. Same names, versions
+ * and whole header clauses (like {@code org.osgi.framework;version="1.3.0"}) repeat
+ * across thousands of bundles, with the pool all parsed elements share one instance.
+ * <p>
+ * The pool is thread safe, so it can be used by parallel plugin and feature parsers.
+ * It only exists while parsing, see {@link PlatformState#getInternPool()}: the
+ * elements keep the shared instances, the lookup tables are released afterwards.
+ */
+final class InternPool {
+
+    private final ConcurrentMap<String, String> strings;
+
+    /** key is the trimmed header clause the entry was created from */
+    private final ConcurrentMap<String, ManifestEntry> entries;
+
+    private final LongAdder lookups;
+    private final LongAdder hits;
+
+    InternPool() {
+        strings = new ConcurrentHashMap<>(4096);
+        entries = new ConcurrentHashMap<>(4096);
+        lookups = new LongAdder();
+        hits = new LongAdder();
+    }
+
+    /**
+     * @return canonical instance equal to the given string, null for null
+     */
+    String intern(String s) {
+        if (s == null) {
+            return null;
+        }
+        if (s.isEmpty()) {
+            return NamedElement.EMPTY_VERSION;
+        }
+        lookups.increment();
+        String old = strings.putIfAbsent(s, s);
+        if (old == null) {
+            return s;
+        }
+        hits.increment();
+        return old;
+    }
+
+    /**
+     * Same as {@link StringUtil#splitInManifestEntries(String)}, but equal clauses are
+     * represented by the same (immutable) {@link ManifestEntry} instance.
+     *
+     * @return new modifiable list, never null
+     */
+    List<ManifestEntry> splitInManifestEntries(String header) {
+        if (header == null || header.isEmpty()) {
+            return StringUtil.splitInManifestEntries(header);
+        }
+        List<ManifestEntry> result = new ArrayList<>();
+        HeaderTokenizer tokenizer = new HeaderTokenizer(header);
+        while (tokenizer.nextClause()) {
+            result.add(entry(tokenizer));
+        }
+        return result;
+    }
+
+    private ManifestEntry entry(HeaderTokenizer tokenizer) {
+        String clause = tokenizer.clause();
+        lookups.increment();
+        ManifestEntry entry = entries.get(clause);
+        if (entry != null) {
+            hits.increment();
+            return entry;
+        }
+        List<String> parts = new ArrayList<>();
+        while (tokenizer.nextPart()) {
+            parts.add(intern(tokenizer.part()));
+        }
+        entry = new ManifestEntry(parts, this);
+        ManifestEntry old = entries.putIfAbsent(clause, entry);
+        return old == null ? entry : old;
+    }
+
+    /**
+     * @return number of distinct strings and entries in the pool
+     */
+    int size() {
+        return strings.size() + entries.size();
+    }
+
+    /**
+     * @return number of lookups which returned an already pooled instance
+     */
+    long getHits() {
+        return hits.sum();
+    }
+
+    /**
+     * @return number of all lookups
+     */
+    long getLookups() {
+        return lookups.sum();
+    }
+
+    @Override
+    public String toString() {
+        return "InternPool [strings=" + strings.size() + ", entries=" + entries.size() + ", hits=" + getHits()
+                + "/" + getLookups() + "]";
+    }
+}
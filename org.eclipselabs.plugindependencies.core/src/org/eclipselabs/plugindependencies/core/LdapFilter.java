@@ -0,0 +1,333 @@
+/*******************************************************************************
+ * Copyright (c) 2026 Andrey Loskutov
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *    Andrey Loskutov <loskutov@gmx.de> - initial API and implementation
+ *******************************************************************************/
+package org.eclipselabs.plugindependencies.core;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Parsed OSGi (LDAP style) filter, like {@code (&(osgi.ee=JavaSE)(version>=11))}, as
+ * used in {@code Require-Capability} headers.
+ * <p>
+ * Supported are {@code & | !}, the operations {@code = >= <= ~=}, presence
+ * ({@code attr=*}) and substrings ({@code attr=a*b}). Attribute values can be
+ * strings, {@link Version}s or collections of them: collections match if any element
+ * matches. Values are compared as versions if the attribute value is a
+ * {@link Version}, otherwise as strings. Attribute names are case insensitive.
+ */
+abstract class LdapFilter {
+
+    /**
+     * @throws IllegalArgumentException
+     *             if the filter can't be parsed
+     */
+    static LdapFilter parse(String filter) {
+        Parser parser = new Parser(filter.trim());
+        LdapFilter result = parser.parseFilter();
+        if (parser.pos != parser.text.length()) {
+            throw parser.error("unexpected trailing characters");
+        }
+        return result;
+    }
+
+    abstract boolean matches(Map<String, ?> properties);
+
+    private static final class And extends LdapFilter {
+        final List<LdapFilter> operands;
+
+        And(List<LdapFilter> operands) {
+            this.operands = operands;
+        }
+
+        @Override
+        boolean matches(Map<String, ?> properties) {
+            for (LdapFilter f : operands) {
+                if (!f.matches(properties)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+
+    private static final class Or extends LdapFilter {
+        final List<LdapFilter> operands;
+
+        Or(List<LdapFilter> operands) {
+            this.operands = operands;
+        }
+
+        @Override
+        boolean matches(Map<String, ?> properties) {
+            for (LdapFilter f : operands) {
+                if (f.matches(properties)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+
+    private static final class Not extends LdapFilter {
+        final LdapFilter operand;
+
+        Not(LdapFilter operand) {
+            this.operand = operand;
+        }
+
+        @Override
+        boolean matches(Map<String, ?> properties) {
+            return !operand.matches(properties);
+        }
+    }
+
+    private static final class Compare extends LdapFilter {
+        static final int EQUAL = 0;
+        static final int GREATER = 1;
+        static final int LESS = 2;
+        static final int APPROX = 3;
+        static final int PRESENT = 4;
+        static final int SUBSTRING = 5;
+
+        final String attribute;
+        final int operation;
+        /** value to compare with, null for presence and substring checks */
+        final String value;
+        /** substring parts with null for each '*', only for substring checks */
+        final List<String> parts;
+
+        Compare(String attribute, int operation, String value, List<String> parts) {
+            this.attribute = attribute;
+            this.operation = operation;
+            this.value = value;
+            this.parts = parts;
+        }
+
+        @Override
+        boolean matches(Map<String, ?> properties) {
+            Object actual = properties.get(attribute);
+            if (actual == null) {
+                for (Map.Entry<String, ?> e : properties.entrySet()) {
+                    if (e.getKey().equalsIgnoreCase(attribute)) {
+                        actual = e.getValue();
+                        break;
+                    }
+                }
+            }
+            if (actual == null) {
+                return false;
+            }
+            if (operation == PRESENT) {
+                return true;
+            }
+            if (actual instanceof Collection) {
+                for (Object o : (Collection<?>) actual) {
+                    if (o != null && matchesValue(o)) {
+                        return true;
+                    }
+                }
+                return false;
+            }
+            return matchesValue(actual);
+        }
+
+        private boolean matchesValue(Object actual) {
+            if (operation == SUBSTRING) {
+                return matchesSubstring(actual.toString());
+            }
+            int cmp;
+            if (actual instanceof Version) {
+                Version expected;
+                try {
+                    expected = Version.valueOf(value.trim());
+                } catch (IllegalArgumentException e) {
+                    return false;
+                }
+                cmp = ((Version) actual).compareTo(expected);
+            } else if (operation == APPROX) {
+                return normalize(actual.toString()).equalsIgnoreCase(normalize(value));
+            } else {
+                cmp = actual.toString().compareTo(value);
+            }
+            switch (operation) {
+            case GREATER:
+                return cmp >= 0;
+            case LESS:
+                return cmp <= 0;
+            default:
+                return cmp == 0;
+            }
+        }
+
+        private boolean matchesSubstring(String actual) {
+            int pos = 0;
+            int size = parts.size();
+            for (int i = 0; i < size; i++) {
+                String part = parts.get(i);
+                if (part == null) {
+                    continue;
+                }
+                boolean first = i == 0;
+                boolean last = i == size - 1;
+                if (first) {
+                    if (!actual.startsWith(part)) {
+                        return false;
+                    }
+                    pos = part.length();
+                } else if (last) {
+                    return actual.length() - part.length() >= pos && actual.endsWith(part);
+                } else {
+                    int idx = actual.indexOf(part, pos);
+                    if (idx < 0) {
+                        return false;
+                    }
+                    pos = idx + part.length();
+                }
+            }
+            return true;
+        }
+
+        private static String normalize(String s) {
+            StringBuilder sb = new StringBuilder(s.length());
+            for (int i = 0; i < s.length(); i++) {
+                char c = s.charAt(i);
+                if (!Character.isWhitespace(c)) {
+                    sb.append(c);
+                }
+            }
+            return sb.toString();
+        }
+    }
+
+    private static final class Parser {
+        final String text;
+        int pos;
+
+        Parser(String text) {
+            this.text = text;
+        }
+
+        LdapFilter parseFilter() {
+            skipWhitespace();
+            expect('(');
+            skipWhitespace();
+            LdapFilter result;
+            char c = peek();
+            if (c == '&') {
+                pos++;
+                result = new And(parseFilterList());
+            } else if (c == '|') {
+                pos++;
+                result = new Or(parseFilterList());
+            } else if (c == '!') {
+                pos++;
+                result = new Not(parseFilter());
+            } else {
+                result = parseItem();
+            }
+            skipWhitespace();
+            expect(')');
+            skipWhitespace();
+            return result;
+        }
+
+        private List<LdapFilter> parseFilterList() {
+            List<LdapFilter> list = new ArrayList<>();
+            skipWhitespace();
+            while (pos < text.length() && text.charAt(pos) == '(') {
+                list.add(parseFilter());
+            }
+            if (list.isEmpty()) {
+                throw error("missing operands");
+            }
+            return list;
+        }
+
+        private LdapFilter parseItem() {
+            int start = pos;
+            while (pos < text.length() && "=<>~()".indexOf(text.charAt(pos)) < 0) {
+                pos++;
+            }
+            String attribute = text.substring(start, pos).trim();
+            if (attribute.isEmpty()) {
+                throw error("missing attribute");
+            }
+            int operation;
+            char c = peek();
+            if (c == '=') {
+                pos++;
+                operation = Compare.EQUAL;
+            } else if (c == '>' || c == '<' || c == '~') {
+                pos++;
+                expect('=');
+                operation = c == '>' ? Compare.GREATER : c == '<' ? Compare.LESS : Compare.APPROX;
+            } else {
+                throw error("missing operation");
+            }
+            List<String> parts = new ArrayList<>();
+            StringBuilder sb = new StringBuilder();
+            boolean wildcard = false;
+            while (pos < text.length() && text.charAt(pos) != ')') {
+                c = text.charAt(pos++);
+                if (c == '\\' && pos < text.length()) {
+                    sb.append(text.charAt(pos++));
+                } else if (c == '*' && operation == Compare.EQUAL) {
+                    wildcard = true;
+                    if (sb.length() > 0) {
+                        parts.add(sb.toString());
+                        sb.setLength(0);
+                    }
+                    parts.add(null);
+                } else if (c == '(') {
+                    throw error("unescaped '('");
+                } else {
+                    sb.append(c);
+                }
+            }
+            if (!wildcard) {
+                return new Compare(attribute, operation, sb.toString(), null);
+            }
+            if (sb.length() > 0) {
+                parts.add(sb.toString());
+            }
+            if (parts.size() == 1) {
+                return new Compare(attribute, Compare.PRESENT, null, null);
+            }
+            return new Compare(attribute, Compare.SUBSTRING, null, parts);
+        }
+
+        private char peek() {
+            if (pos >= text.length()) {
+                throw error("unexpected end");
+            }
+            return text.charAt(pos);
+        }
+
+        private void expect(char c) {
+            if (peek() != c) {
+                throw error("expected '" + c + "'");
+            }
+            pos++;
+        }
+
+        private void skipWhitespace() {
+            while (pos < text.length() && Character.isWhitespace(text.charAt(pos))) {
+                pos++;
+            }
+        }
+
+        IllegalArgumentException error(String message) {
+            return new IllegalArgumentException("Invalid filter, " + message + " at " + pos + ": " + text);
+        }
+    }
+}
@@ -15,38 +15,47 @@ import static org.eclipselabs.plugindependencies.core.PlatformState.fixName;
 import static org.eclipselabs.plugindependencies.core.PlatformState.fixVersion;
 
 import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 
 import org.eclipselabs.plugindependencies.core.PlatformState.PlatformSpecs;
 import org.w3c.dom.Element;
 
 /**
+ * Immutable parsed manifest header clause. Entries are shared by all bundles with the
+ * same clause (see {@link InternPool}), so they have no own log and no filters:
+ * trying to add problems or filters fails with {@link UnsupportedOperationException}.
+ *
  * @author obroesam
  *
  */
 public class ManifestEntry extends NamedElement {
 
+    /** marker added to the entries of DynamicImport-Package header */
+    static final String DYNAMIC_IMPORT = "dynamicImport";
+
     final List<String> attributes;
     private final PlatformSpecs platformSpecs;
     private final boolean optional;
     private final boolean usesBundleVersion;
-    private String capabilityFilter;
+    private final boolean reexport;
+    private final boolean split;
+    private final boolean dynamicImport;
+    /** raw "filter" attribute or directive, as written in manifest */
+    private final String capabilityFilter;
+    /** unquoted value of the "filter" attribute or directive */
+    private final String filter;
+    private final Map<String, String> attributeValues;
+    private final Map<String, String> directiveValues;
 
     public ManifestEntry(String name, String vers) {
-        super(fixName(name), fixVersion(vers));
-        attributes = Collections.emptyList();
-        platformSpecs = readPlatformSpecs();
-        optional = hasOptionalAttr();
-        usesBundleVersion = false;
+        this(name, vers, false);
     }
 
     public ManifestEntry(String name, String vers, boolean optional) {
-        super(fixName(name), fixVersion(vers));
-        attributes = Collections.emptyList();
-        platformSpecs = readPlatformSpecs();
-        this.optional = optional;
-        usesBundleVersion = false;
+        this(name, vers, PlatformState.UNDEFINED_SPECS, optional);
     }
 
     /**
@@ -55,12 +64,59 @@ public class ManifestEntry extends NamedElement {
      *            or package id, other elements are not parsed plugin/package attributes
      */
     public ManifestEntry(List<String> manifestEntries) {
-        super(fixName(manifestEntries.get(0)), fixVersion(getVersion(manifestEntries)));
+        this(manifestEntries, null);
+    }
+
+    /**
+     * Same as {@link #ManifestEntry(List)}, but name, version and attribute strings
+     * are taken from the given pool
+     *
+     * @param pool
+     *            may be null
+     */
+    ManifestEntry(List<String> manifestEntries, InternPool pool) {
+        super(intern(pool, fixName(manifestEntries.get(0))), intern(pool, fixVersion(getVersion(manifestEntries))), true);
         attributes = createAttributes(manifestEntries);
+        Map<String, String> attrs = Collections.emptyMap();
+        Map<String, String> directives = Collections.emptyMap();
+        String rawFilter = null;
+        boolean isSplit = false;
+        boolean isDynamicImport = false;
+        for (String attr : attributes) {
+            int eq = attr.indexOf('=');
+            if (eq < 0) {
+                isDynamicImport |= attr.equals(DYNAMIC_IMPORT);
+                continue;
+            }
+            boolean directive = eq > 0 && attr.charAt(eq - 1) == ':';
+            String key = intern(pool, attr.substring(0, directive ? eq - 1 : eq).trim());
+            String value = intern(pool, unquote(attr.substring(eq + 1).trim()));
+            if (directive) {
+                if (directives.isEmpty()) {
+                    directives = new LinkedHashMap<>(4);
+                }
+                directives.putIfAbsent(key, value);
+            } else {
+                if (attrs.isEmpty()) {
+                    attrs = new LinkedHashMap<>(4);
+                }
+                attrs.putIfAbsent(key, value);
+                isSplit |= value.equals("split");
+            }
+            if (rawFilter == null && key.equals("filter")) {
+                rawFilter = attr;
+            }
+        }
+        attributeValues = attrs;
+        directiveValues = directives;
         platformSpecs = readPlatformSpecs();
-        capabilityFilter = attribute("filter");
-        optional = hasOptionalAttr();
-        usesBundleVersion = attributesContain("bundle-version");
+        capabilityFilter = rawFilter;
+        filter = rawFilter == null ? null : parameter("filter");
+        optional = "optional".equals(directiveValues.get("resolution"));
+        usesBundleVersion = attributeValues.containsKey("bundle-version");
+        reexport = "reexport".equals(directiveValues.get("visibility"));
+        split = isSplit;
+        dynamicImport = isDynamicImport;
     }
 
     /**
@@ -68,17 +124,58 @@ public class ManifestEntry extends NamedElement {
      *            xmlElement/xmlNode containing information about a plugin/feature.
      *            Minimal xmlElement must contain an id and a version. xmlElement comes
      *            from feature.xml
+     * @deprecated features are read with {@link FeatureParser#parseFeature(org.w3c.dom.Document)}
      */
+    @Deprecated
     public ManifestEntry(Element xmlElement, String idAttribute) {
-        super(fixName(xmlElement.getAttribute(idAttribute)), fixVersion(xmlElement.getAttribute("version")));
+        this(xmlElement.getAttribute(idAttribute), xmlElement.getAttribute("version"),
+                createPlatformSpecs(xmlElement.getAttribute("os"), xmlElement.getAttribute("ws"),
+                        xmlElement.getAttribute("arch")));
+    }
+
+    /**
+     * Entry for a plugin or feature included into a feature
+     */
+    ManifestEntry(String name, String vers, PlatformSpecs platformSpecs) {
+        this(name, vers, platformSpecs, false);
+    }
+
+    private ManifestEntry(String name, String vers, PlatformSpecs platformSpecs, boolean optional) {
+        super(fixName(name), fixVersion(vers), true);
         attributes = Collections.emptyList();
-        platformSpecs = computeSystemFlags(xmlElement);
-        optional = false;
+        this.platformSpecs = platformSpecs;
+        this.optional = optional;
         usesBundleVersion = false;
+        reexport = false;
+        split = false;
+        dynamicImport = false;
+        capabilityFilter = null;
+        filter = null;
+        attributeValues = Collections.emptyMap();
+        directiveValues = Collections.emptyMap();
+    }
+
+    private static String intern(InternPool pool, String s) {
+        return pool == null ? s : pool.intern(s);
+    }
+
+    private static String unquote(String value) {
+        if (value.length() >= 2 && value.charAt(0) == '"' && value.charAt(value.length() - 1) == '"') {
+            return value.substring(1, value.length() - 1);
+        }
+        return value;
+    }
+
+    /**
+     * @return attribute or (if there is no such attribute) directive value
+     */
+    private String parameter(String key) {
+        String value = attributeValues.get(key);
+        return value != null ? value : directiveValues.get(key);
     }
 
     private PlatformSpecs readPlatformSpecs() {
-        String platformFilter = attribute("Eclipse-PlatformFilter");
+        String platformFilter = parameter("Eclipse-PlatformFilter");
         if(platformFilter == null) {
             return PlatformState.UNDEFINED_SPECS;
         }
@@ -110,12 +207,20 @@ public class ManifestEntry extends NamedElement {
         return Collections.unmodifiableList(manifestEntries);
     }
 
-    private static PlatformSpecs computeSystemFlags(Element xmlElement) {
-        String os = xmlElement.getAttribute("os").trim();
+    /**
+     * @param os
+     *            os attribute value from feature.xml, never null
+     * @param ws
+     *            ws attribute value from feature.xml, never null
+     * @param arch
+     *            arch attribute value from feature.xml, never null
+     */
+    static PlatformSpecs createPlatformSpecs(String os, String ws, String arch) {
+        os = os.trim();
         os = os.isEmpty() ? null : os;
-        String ws = xmlElement.getAttribute("ws").trim();
+        ws = ws.trim();
         ws = ws.isEmpty() ? null : ws;
-        String arch = xmlElement.getAttribute("arch").trim();
+        arch = arch.trim();
         arch = arch.isEmpty() ? null : arch;
         return new PlatformSpecs(os, ws, arch);
     }
@@ -129,19 +234,9 @@ public class ManifestEntry extends NamedElement {
         return false;
     }
 
-    private String attribute(String id) {
-        for (String attr : attributes) {
-            if (attr.startsWith(id)) {
-                return attr;
-            }
-        }
-        return null;
-    }
-
-    private boolean hasOptionalAttr() {
-        return attributesContain("optional");
-    }
-
+    /**
+     * @return true for "resolution:=optional" directive (or optional feature import)
+     */
     public boolean isOptional() {
         return optional;
     }
@@ -151,18 +246,47 @@ public class ManifestEntry extends NamedElement {
     }
 
     public boolean isDynamicImport() {
-        return attributesContain("dynamicImport");
+        return dynamicImport;
     }
 
+    /**
+     * @return true for "visibility:=reexport" directive
+     */
     public boolean isReexport() {
-        boolean match = attributesContain("visibility:=\"reexport\"")
-                || attributesContain("visibility:=reexport");
-        return match;
+        return reexport;
     }
 
+    /**
+     * @return true if some attribute has "split" value, like "common=split"
+     */
     public boolean isSplit() {
-        boolean match = attributesContain("=\"split\"") || attributesContain("=split");
-        return match;
+        return split;
+    }
+
+    /**
+     * @param key
+     *            attribute name
+     * @return unquoted value of the given (not directive) attribute, or null
+     */
+    public String getAttribute(String key) {
+        return attributeValues.get(key);
+    }
+
+    /**
+     * @param key
+     *            directive name (without ":=")
+     * @return unquoted value of the given directive, or null
+     */
+    public String getDirective(String key) {
+        return directiveValues.get(key);
+    }
+
+    /**
+     * @return unquoted filter expression from the "filter" directive or attribute, or
+     *         null
+     */
+    public String getFilter() {
+        return filter;
     }
 
     public boolean isMatchingPlatform(PlatformSpecs p) {
@@ -205,25 +329,26 @@ public class ManifestEntry extends NamedElement {
         if(!nameOk) {
             return false;
         }
+        VersionRange range = getVersionRange();
         if(usesBundleVersion && element instanceof Package) {
             Package p = (Package) element;
             Set<Plugin> exportedBy = p.getExportedBy();
             for (Plugin plugin : exportedBy) {
-                boolean match = DependencyResolver.isCompatibleVersion(getVersion(), plugin.getVersion());
+                boolean match = DependencyResolver.isCompatible(range, plugin.getVersionRange());
                 if(match) {
                     return true;
                 }
             }
             Set<Plugin> reExportedBy = p.getReexportedBy();
             for (Plugin plugin : reExportedBy) {
-                boolean match = DependencyResolver.isCompatibleVersion(getVersion(), plugin.getVersion());
+                boolean match = DependencyResolver.isCompatible(range, plugin.getVersionRange());
                 if(match) {
                     return true;
                 }
             }
             return false;
         }
-        return DependencyResolver.isCompatibleVersion(getVersion(), element.getVersion());
+        return DependencyResolver.isCompatible(range, element.getVersionRange());
     }
 
     @Override
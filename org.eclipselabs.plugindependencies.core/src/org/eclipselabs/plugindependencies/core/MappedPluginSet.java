@@ -0,0 +1,116 @@
+/*******************************************************************************
+ * Copyright (c) 2026 Andrey Loskutov
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *    Andrey Loskutov <loskutov@gmx.de> - initial API and implementation
+ *******************************************************************************/
+package org.eclipselabs.plugindependencies.core;
+
+import java.nio.IntBuffer;
+import java.util.AbstractSet;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * Read-only set of plugins stored as sorted array of {@link PluginIds} in a
+ * {@link ClosureFile}. Plugins are decoded on access, iteration is in id order.
+ * Instances are shared via {@link ClosureStore}.
+ */
+final class MappedPluginSet extends AbstractSet<Plugin> {
+
+    private final PluginIds ids;
+    /** sorted plugin ids, position 0 */
+    private final IntBuffer buffer;
+
+    MappedPluginSet(PluginIds ids, IntBuffer buffer) {
+        this.ids = ids;
+        this.buffer = buffer;
+    }
+
+    /**
+     * @return stored ids, used as key for sharing: {@link IntBuffer#equals(Object)}
+     *         compares the content
+     */
+    IntBuffer buffer() {
+        return buffer;
+    }
+
+    /**
+     * Adds all plugins of this set to the bits
+     *
+     * @return given bits, or a longer copy if they were too short
+     */
+    long[] or(long[] bits, PluginIds pluginIds) {
+        if (pluginIds != ids) {
+            for (Plugin plugin : this) {
+                bits = PluginBitSet.set(bits, pluginIds.idOf(plugin));
+            }
+            return bits;
+        }
+        int size = buffer.limit();
+        if (size == 0) {
+            return bits;
+        }
+        // ids are sorted: the last one needs the longest array
+        bits = PluginBitSet.set(bits, buffer.get(size - 1));
+        for (int i = 0; i < size - 1; i++) {
+            int id = buffer.get(i);
+            bits[id >>> 6] |= 1L << id;
+        }
+        return bits;
+    }
+
+    @Override
+    public boolean contains(Object o) {
+        if (!(o instanceof Plugin)) {
+            return false;
+        }
+        int id = ((Plugin) o).getId(ids);
+        if (id < 0) {
+            return false;
+        }
+        int low = 0;
+        int high = buffer.limit() - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            int value = buffer.get(mid);
+            if (value < id) {
+                low = mid + 1;
+            } else if (value > id) {
+                high = mid - 1;
+            } else {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @Override
+    public int size() {
+        return buffer.limit();
+    }
+
+    @Override
+    public Iterator<Plugin> iterator() {
+        return new Iterator<>() {
+            int index;
+
+            @Override
+            public boolean hasNext() {
+                return index < buffer.limit();
+            }
+
+            @Override
+            public Plugin next() {
+                if (index >= buffer.limit()) {
+                    throw new NoSuchElementException();
+                }
+                return ids.get(buffer.get(index++));
+            }
+        };
+    }
+}
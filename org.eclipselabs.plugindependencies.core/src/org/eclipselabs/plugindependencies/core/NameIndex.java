@@ -0,0 +1,217 @@
+/*******************************************************************************
+ * Copyright (c) 2026 Andrey Loskutov
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *    Andrey Loskutov <loskutov@gmx.de> - initial API and implementation
+ *******************************************************************************/
+package org.eclipselabs.plugindependencies.core;
+
+import java.util.AbstractSet;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Name to elements index used by {@link PlatformState}. Elements with same name are
+ * kept in insertion order, equal elements are found via hash lookup. Lookups return
+ * read-only live views, nothing is copied.
+ * <p>
+ * Equal elements can be added more than once (duplicated bundles at different
+ * locations): the views contain only the first one, but {@link #count(String)}
+ * counts all of them.
+ * <p>
+ * Elements are compared by their immutable parts only (type, name, version and the
+ * fragment flag of plugins), see {@link Key}: the host of a fragment is part of
+ * {@link Plugin#equals(Object)}, but is only set by resolution, after indexing.
+ */
+final class NameIndex<T extends NamedElement> {
+
+    private final Map<String, Bucket<T>> byName;
+
+    NameIndex() {
+        byName = new HashMap<>();
+    }
+
+    /**
+     * @return first added element equal to the given one, or null
+     */
+    T find(T element) {
+        Bucket<T> bucket = byName.get(element.getName());
+        return bucket == null ? null : bucket.find(element);
+    }
+
+    /**
+     * Adds given element to the index, even if an equal one is already there
+     */
+    void add(T element) {
+        Bucket<T> bucket = byName.get(element.getName());
+        if (bucket == null) {
+            bucket = new Bucket<>(element);
+            byName.put(element.getName(), bucket);
+        } else {
+            bucket.insert(element);
+        }
+    }
+
+    /**
+     * Replaces all elements with given name by the given ones (with same name), as if
+     * they were added in the given order
+     */
+    void replace(String name, Collection<T> elements) {
+        byName.remove(name);
+        for (T element : elements) {
+            add(element);
+        }
+    }
+
+    /**
+     * @return read-only view of all distinct elements with the given name, null if
+     *         there is no element with such name
+     */
+    Set<T> get(String name) {
+        return byName.get(name);
+    }
+
+    /**
+     * @return the only one element with given name, null if there is none or more then
+     *         one (including equal duplicates)
+     */
+    T getUnique(String name) {
+        Bucket<T> bucket = byName.get(name);
+        if (bucket == null || bucket.count > 1) {
+            return null;
+        }
+        return bucket.first;
+    }
+
+    /**
+     * @return version sorted view on the distinct elements with given name, null if
+     *         there is no element with such name
+     */
+    VersionIndex<T> versions(String name) {
+        Bucket<T> bucket = byName.get(name);
+        return bucket == null ? null : bucket.versions();
+    }
+
+    /**
+     * @return number of elements added with given name, including equal duplicates
+     */
+    int count(String name) {
+        Bucket<T> bucket = byName.get(name);
+        return bucket == null ? 0 : bucket.count;
+    }
+
+    /**
+     * Elements with same name. Most names have one element only, so the map is only
+     * created if a second, different element is added.
+     */
+    private static final class Bucket<T extends NamedElement> extends AbstractSet<T> {
+        final T first;
+        private Map<Key, T> distinct;
+        int count;
+        /** created on first version query, dropped if new elements are added */
+        private volatile VersionIndex<T> versions;
+
+        Bucket(T first) {
+            this.first = first;
+            count = 1;
+        }
+
+        T find(T element) {
+            if (distinct == null) {
+                return Key.same(first, element) ? first : null;
+            }
+            return element.getName().equals(first.getName()) ? distinct.get(new Key(element)) : null;
+        }
+
+        VersionIndex<T> versions() {
+            VersionIndex<T> result = versions;
+            if (result == null) {
+                result = new VersionIndex<>(this);
+                versions = result;
+            }
+            return result;
+        }
+
+        void insert(T element) {
+            count++;
+            versions = null;
+            if (distinct == null) {
+                if (Key.same(first, element)) {
+                    return;
+                }
+                distinct = new LinkedHashMap<>(4);
+                distinct.put(new Key(first), first);
+            }
+            distinct.putIfAbsent(new Key(element), element);
+        }
+
+        @Override
+        public boolean contains(Object o) {
+            if (!(o instanceof NamedElement)) {
+                return false;
+            }
+            NamedElement element = (NamedElement) o;
+            if (distinct == null) {
+                return Key.same(first, element);
+            }
+            return element.getName().equals(first.getName()) && distinct.containsKey(new Key(element));
+        }
+
+        @Override
+        public Iterator<T> iterator() {
+            if (distinct == null) {
+                return Collections.singleton(first).iterator();
+            }
+            return Collections.unmodifiableCollection(distinct.values()).iterator();
+        }
+
+        @Override
+        public int size() {
+            return distinct == null ? 1 : distinct.size();
+        }
+    }
+
+    /**
+     * Immutable identity of an element inside one bucket (same name): same as
+     * {@link PlatformState} uses to detect duplicated bundles
+     */
+    private static final class Key {
+        final Class<?> type;
+        final Object version;
+        final boolean fragment;
+
+        Key(NamedElement element) {
+            type = element.getClass();
+            version = element.versionKey();
+            fragment = element instanceof Plugin && ((Plugin) element).isFragment();
+        }
+
+        static boolean same(NamedElement e1, NamedElement e2) {
+            return e1 == e2 || (e1.getClass() == e2.getClass() && e1.exactMatch(e2)
+                    && (!(e1 instanceof Plugin) || ((Plugin) e1).isFragment() == ((Plugin) e2).isFragment()));
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * version.hashCode() + (fragment ? 1 : 0);
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (!(obj instanceof Key)) {
+                return false;
+            }
+            Key other = (Key) obj;
+            return type == other.type && fragment == other.fragment && version.equals(other.version);
+        }
+    }
+}
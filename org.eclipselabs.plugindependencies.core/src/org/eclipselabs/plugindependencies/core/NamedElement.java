@@ -12,9 +12,11 @@ import java.util.Collection;
 import java.util.Collections;
 import java.util.Comparator;
 import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
+import java.util.Set;
 
 /**
  * @author aloskuto
@@ -28,6 +30,8 @@ public abstract class NamedElement {
     private final String versionStr;
     private final Version version;
     private boolean versionRange;
+    /** lazily parsed version string, see {@link #getVersionRange()} */
+    private VersionRange parsedRange;
 
     protected final List<Problem> log;
 
@@ -47,6 +51,15 @@ public abstract class NamedElement {
     }
 
     public NamedElement(String name, String version) {
+        this(name, version, false);
+    }
+
+    /**
+     * @param readOnly
+     *            true if the element can't have own problems or filters: its log and
+     *            filter map are empty and can't be modified
+     */
+    NamedElement(String name, String version, boolean readOnly) {
         super();
         Objects.requireNonNull(name);
         this.name = name.trim();
@@ -62,7 +75,7 @@ public abstract class NamedElement {
                 versionRange = false;
             } else {
                 if(Character.isDigit(version.charAt(0))){
-                    this.version = new Version(version);
+                    this.version = Version.valueOf(version);
                     this.versionStr = this.version.toString();
                     versionRange = false;
                 } else {
@@ -72,8 +85,13 @@ public abstract class NamedElement {
                 }
             }
         }
-        this.log = new ArrayList<>();
-        filterMap = new LinkedHashMap<>();
+        if (readOnly) {
+            log = Collections.emptyList();
+            filterMap = Collections.emptyMap();
+        } else {
+            log = new ArrayList<>();
+            filterMap = new LinkedHashMap<>();
+        }
     }
 
     /**
@@ -121,6 +139,27 @@ public abstract class NamedElement {
         return versionStr;
     }
 
+    /**
+     * @return never null, parsed version of this element. In case no version or a
+     *         version range were specified, returns {@link Version#ZERO}
+     */
+    public final Version getParsedVersion() {
+        return version;
+    }
+
+    /**
+     * @return parsed version string of this element (plain version or range), null if
+     *         the version string is neither a valid version nor a valid range
+     */
+    final VersionRange getVersionRange() {
+        VersionRange range = parsedRange;
+        if (range == null) {
+            range = VersionRange.valueOf(versionStr);
+            parsedRange = range;
+        }
+        return range;
+    }
+
     protected void addErrorToLog(String note, NamedElement... related) {
         if (note == null || note.isEmpty()) {
             return;
@@ -195,7 +234,7 @@ public abstract class NamedElement {
             return DependencyResolver.isCompatibleVersion(versionStr, vers);
         }
         if(Character.isDigit(vers.charAt(0))) {
-            return version.equals(new Version(vers));
+            return version.equals(Version.valueOf(vers));
         }
         return versionStr.equals(vers);
     }
@@ -204,6 +243,14 @@ public abstract class NamedElement {
         if(!name.equals(elt.name)){
             return false;
         }
+        return sameVersion(elt);
+    }
+
+    /**
+     * @return true if the given element has same version (or same version range),
+     *         names are not compared
+     */
+    final boolean sameVersion(NamedElement elt) {
         if(versionRange != elt.versionRange){
             return false;
         }
@@ -213,6 +260,13 @@ public abstract class NamedElement {
         return version.equals(elt.version);
     }
 
+    /**
+     * @return value which is equal for all elements with {@link #sameVersion(NamedElement)}
+     */
+    final Object versionKey() {
+        return versionRange ? versionStr : version;
+    }
+
     public boolean hasWarnings(){
         for (Problem p : log) {
             if(p.getSeverity() == Problem.WARN){
@@ -275,6 +329,85 @@ public abstract class NamedElement {
         return true;
     }
 
+    /**
+     * @return given set if it can be modified, otherwise a modifiable copy. Sets are
+     *         read-only after the state is resolved, see {@link #readOnly(Set)}, and
+     *         only copied back if the resolved state is changed later
+     */
+    static <T> Set<T> modifiable(Set<T> set) {
+        return set instanceof LinkedHashSet ? set : new LinkedHashSet<>(set);
+    }
+
+    /**
+     * @return read-only view of given set, same set if it is read-only already
+     */
+    static <T> Set<T> readOnly(Set<T> set) {
+        if (!(set instanceof LinkedHashSet)) {
+            return set;
+        }
+        return set.isEmpty() ? Collections.emptySet() : Collections.unmodifiableSet(set);
+    }
+
+    /**
+     * @return read-only view of given list, same list if it is read-only already
+     */
+    static <T> List<T> readOnly(List<T> list) {
+        if (!(list instanceof ArrayList)) {
+            return list;
+        }
+        return list.isEmpty() ? Collections.emptyList() : Collections.unmodifiableList(list);
+    }
+
+    /**
+     * @return modifiable copy of given set, sorted with given order
+     */
+    static <T> Set<T> sorted(Set<T> set, Comparator<? super T> order) {
+        List<T> list = new ArrayList<>(set);
+        list.sort(order);
+        return new LinkedHashSet<>(list);
+    }
+
+    /**
+     * @return given set without the elements contained in the second one (usually an
+     *         identity set), modifiable copy if something is removed from a read-only set
+     */
+    static <T> Set<T> without(Set<T> set, Set<?> toRemove) {
+        if (set.isEmpty() || toRemove.isEmpty()) {
+            return set;
+        }
+        for (T element : set) {
+            if (toRemove.contains(element)) {
+                Set<T> result = modifiable(set);
+                result.removeIf(toRemove::contains);
+                return result;
+            }
+        }
+        return set;
+    }
+
+    /**
+     * Removes given elements from all sets of elements depending on this one, after
+     * their resolution was reset
+     */
+    void removeResolvers(Set<?> resolvers) {
+        // nothing by default
+    }
+
+    /**
+     * Sorts all sets of elements depending on this one in the order they are added by a
+     * full resolution
+     */
+    void restoreOrder() {
+        // nothing by default
+    }
+
+    /**
+     * Makes all sets read-only, can be called again if the element was changed later
+     */
+    void freeze() {
+        // nothing by default
+    }
+
     public boolean isFiltered(NamedElement element) {
         if (element == null || filterMap.isEmpty()) {
             return false;
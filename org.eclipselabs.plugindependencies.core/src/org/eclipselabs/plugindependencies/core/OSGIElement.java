@@ -12,7 +12,9 @@
 package org.eclipselabs.plugindependencies.core;
 
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Collections;
+import java.util.Comparator;
 import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Set;
@@ -24,6 +26,13 @@ import java.util.Set;
  */
 public abstract class OSGIElement extends NamedElement /* TODO implements Comparable */ {
 
+    /**
+     * Order in which elements are resolved by {@link PlatformState}: plugins before
+     * features, each in the order they were added to the state
+     */
+    static final Comparator<OSGIElement> STATE_ORDER = Comparator
+            .comparing((OSGIElement e) -> e instanceof Feature).thenComparingInt(e -> e.stateOrder);
+
     private Set<Plugin> requiredPlugins;
     private Set<Plugin> requiredReexportedPlugins;
 
@@ -39,6 +48,12 @@ public abstract class OSGIElement extends NamedElement /* TODO implements Compar
 
     private boolean isFromWorkspace;
 
+    /** see {@link #STATE_ORDER} */
+    private int stateOrder;
+
+    /** size of the log before resolution, -1 if not resolved yet */
+    private int resolutionLogStart = -1;
+
     public OSGIElement(String name, String version) {
         super(name, version);
         this.requiredPlugins = new LinkedHashSet<>();
@@ -54,6 +69,7 @@ public abstract class OSGIElement extends NamedElement /* TODO implements Compar
     }
 
     void addRequiring(OSGIElement requires) {
+        requiredBy = modifiable(requiredBy);
         this.requiredBy.add(requires);
     }
 
@@ -62,16 +78,83 @@ public abstract class OSGIElement extends NamedElement /* TODO implements Compar
     }
 
     public void setRequiredPlugins(String requplugins) {
-        requiredPluginEntries = StringUtil.splitInManifestEntries(requplugins);
+        setRequiredPlugins(StringUtil.splitInManifestEntries(requplugins));
+    }
+
+    /**
+     * @param entries
+     *            modifiable list, see {@link #addRequiredPluginEntry(ManifestEntry)}
+     */
+    void setRequiredPlugins(List<ManifestEntry> entries) {
+        requiredPluginEntries = entries;
     }
 
     public void parsingDone(){
-        requiredPlugins = requiredPlugins.isEmpty()? Collections.EMPTY_SET : Collections.unmodifiableSet(requiredPlugins);
-        requiredReexportedPlugins = requiredReexportedPlugins.isEmpty()? Collections.EMPTY_SET : Collections.unmodifiableSet(requiredReexportedPlugins);
-        includedInFeatures = includedInFeatures.isEmpty()? Collections.EMPTY_SET : Collections.unmodifiableSet(includedInFeatures);
-        duplicates = duplicates.isEmpty()? Collections.EMPTY_LIST : Collections.unmodifiableList(duplicates);
-        requiredBy = requiredBy.isEmpty()? Collections.EMPTY_SET : Collections.unmodifiableSet(requiredBy);
-        requiredPluginEntries = requiredPluginEntries.isEmpty()? Collections.EMPTY_LIST : Collections.unmodifiableList(requiredPluginEntries);
+        freeze();
+    }
+
+    @Override
+    void freeze() {
+        requiredPlugins = readOnly(requiredPlugins);
+        requiredReexportedPlugins = readOnly(requiredReexportedPlugins);
+        includedInFeatures = readOnly(includedInFeatures);
+        duplicates = readOnly(duplicates);
+        requiredBy = readOnly(requiredBy);
+        requiredPluginEntries = readOnly(requiredPluginEntries);
+    }
+
+    int getStateOrder() {
+        return stateOrder;
+    }
+
+    void setStateOrder(int stateOrder) {
+        this.stateOrder = stateOrder;
+    }
+
+    /**
+     * Remembers the log size, so problems found from now on can be removed if the
+     * element is resolved again, see {@link #resetResolution()}
+     */
+    void startResolution() {
+        if (resolutionLogStart < 0) {
+            resolutionLogStart = log.size();
+        }
+    }
+
+    /**
+     * Forgets everything found by resolution (and later steps) for this element, as if
+     * it was just parsed. Elements this one depends on still refer to it, see
+     * {@link #removeResolvers(Set)}
+     */
+    void resetResolution() {
+        requiredPlugins = new LinkedHashSet<>();
+        requiredReexportedPlugins = new LinkedHashSet<>();
+        if (resolutionLogStart >= 0) {
+            log.subList(resolutionLogStart, log.size()).clear();
+        }
+    }
+
+    /**
+     * Adds all elements which refer back to this one because of its resolution, see
+     * {@link #removeResolvers(Set)}
+     */
+    void addResolvedTargets(Collection<NamedElement> targets) {
+        targets.addAll(requiredPlugins);
+    }
+
+    @Override
+    void removeResolvers(Set<?> resolvers) {
+        requiredBy = without(requiredBy, resolvers);
+        includedInFeatures = without(includedInFeatures, resolvers);
+    }
+
+    /**
+     * Sorts all sets of elements depending on this one in the {@link #STATE_ORDER}
+     */
+    @Override
+    void restoreOrder() {
+        requiredBy = sorted(requiredBy, STATE_ORDER);
+        includedInFeatures = sorted(includedInFeatures, STATE_ORDER);
     }
 
     public Set<Plugin> getRequiredPlugins() {
@@ -84,9 +167,11 @@ public abstract class OSGIElement extends NamedElement /* TODO implements Compar
 
     public void addRequiredPlugin(Plugin plugin, boolean reexport) {
         if (plugin != null) {
+            requiredPlugins = modifiable(requiredPlugins);
             requiredPlugins.add(plugin);
             plugin.addRequiring(this);
             if(reexport){
+                requiredReexportedPlugins = modifiable(requiredReexportedPlugins);
                 requiredReexportedPlugins.add(plugin);
             }
         }
@@ -101,6 +186,7 @@ public abstract class OSGIElement extends NamedElement /* TODO implements Compar
     }
 
     protected void addIncludingFeature(Feature includingFeature) {
+        includedInFeatures = modifiable(includedInFeatures);
         this.includedInFeatures.add(includingFeature);
     }
 
@@ -119,9 +205,16 @@ public abstract class OSGIElement extends NamedElement /* TODO implements Compar
     }
 
     public void addDuplicate(OSGIElement dup){
+        if (!(duplicates instanceof ArrayList)) {
+            duplicates = new ArrayList<>(duplicates);
+        }
         duplicates.add(dup);
     }
 
+    void clearDuplicates() {
+        duplicates = new ArrayList<>();
+    }
+
     public List<OSGIElement> getDuplicates() {
         return duplicates;
     }
@@ -201,6 +201,7 @@ enum Options {
                         return result;
                     }
                 }
+                cli.saveCache();
                 cli.getState().resolveDependencies();
                 return RC_OK;
             } catch (IOException e) {
@@ -400,6 +401,113 @@ enum Options {
         }
     },
 
+    Threads("-threads", false) {
+        @Override
+        int handle(CommandLineInterpreter cli, List<String> args) {
+            if(args.size() != 1) {
+                String message = "Threads requires exactly one argument: number of threads";
+                Logging.getLogger().error(message);
+                return RC_RUNTIME_ERROR;
+            }
+            try {
+                cli.setThreads(Integer.parseInt(args.get(0)));
+                return RC_OK;
+            } catch (IllegalArgumentException e) {
+                Logging.getLogger().error("Invalid number of threads: " + args.get(0), e);
+                return RC_RUNTIME_ERROR;
+            }
+        }
+
+        @Override
+        void printHelp(String arg) {
+            String help = "-threads number" + "\t\t\t\t"
+                    + "Number of threads used to read plugins and features and to resolve dependencies."
+                    + " Default is 1 (sequential processing).";
+            Logging.writeStandardOut(help);
+        }
+    },
+
+    CacheDir("-cacheDir", false) {
+        @Override
+        int handle(CommandLineInterpreter cli, List<String> args) {
+            if(args.size() != 1) {
+                String message = "Cache directory requires exactly one argument: directory path";
+                Logging.getLogger().error(message);
+                return RC_RUNTIME_ERROR;
+            }
+            cli.setCacheDirectory(new File(args.get(0)));
+            return RC_OK;
+        }
+
+        @Override
+        void printHelp(String arg) {
+            String help = "-cacheDir path" + "\t\t\t\t"
+                    + "Caches parsed plugin and feature data in the specified directory"
+                    + " and reuses it for unchanged plugins and features on next runs."
+                    + " Default is unset.";
+            Logging.writeStandardOut(help);
+        }
+    },
+
+    ClosureStoreFile("-closureStore", false) {
+        @Override
+        int handle(CommandLineInterpreter cli, List<String> args) {
+            if(args.size() != 1) {
+                String message = "Closure store requires exactly one argument: file path";
+                Logging.getLogger().error(message);
+                return RC_RUNTIME_ERROR;
+            }
+            return cli.setClosureFile(new File(args.get(0)));
+        }
+
+        @Override
+        void printHelp(String arg) {
+            String help = "-closureStore file" + "\t\t\t"
+                    + "Writes dependency closures of all plugins to the specified memory-mapped file"
+                    + " instead of keeping them in memory. Use for very large platforms."
+                    + " Existing file content is overwritten."
+                    + " Default is unset.";
+            Logging.writeStandardOut(help);
+        }
+    },
+
+    ExecutionEnvironments("-ee", false) {
+        @Override
+        int handle(CommandLineInterpreter cli, List<String> args) {
+            List<String> environments = new ArrayList<>();
+            for (String arg : args) {
+                for (String ee : arg.split(",")) {
+                    if (!ee.trim().isEmpty()) {
+                        environments.add(ee.trim());
+                    }
+                }
+            }
+            if(environments.isEmpty()) {
+                String message = "Execution environments option requires at least one environment, like JavaSE-17";
+                Logging.getLogger().error(message);
+                return RC_RUNTIME_ERROR;
+            }
+            try {
+                cli.setExecutionEnvironments(environments);
+                return RC_OK;
+            } catch (IllegalArgumentException e) {
+                Logging.getLogger().error(e.getMessage(), e);
+                return RC_RUNTIME_ERROR;
+            }
+        }
+
+        @Override
+        void printHelp(String arg) {
+            String help = "-ee environment [environment ...]" + "\t\t"
+                    + "Checks all plugins against the specified Java SE execution environments (like JavaSE-11)"
+                    + " in one pass: required execution environments, osgi.ee capability requirements"
+                    + " and packages imported from the Java home."
+                    + " Packages of older Java releases are read from ct.sym of the Java home."
+                    + " Default is unset.";
+            Logging.writeStandardOut(help);
+        }
+    },
+
     UNKNOWN("", false);
 
     private final String optionName;
@@ -0,0 +1,96 @@
+/*******************************************************************************
+ * Copyright (c) 2026 Andrey Loskutov
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *    Andrey Loskutov <loskutov@gmx.de> - initial API and implementation
+ *******************************************************************************/
+package org.eclipselabs.plugindependencies.core;
+
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+/**
+ * Read-only set of plugins which keeps the insertion order, stored as array of
+ * {@link PluginIds}. Used for the classpath of a plugin, where the order matters.
+ * Instances are shared via {@link ClosureStore}.
+ */
+final class OrderedPluginSet extends AbstractSet<Plugin> {
+
+    private final PluginIds ids;
+    /** plugin ids in insertion order */
+    private final int[] order;
+    /** same ids, sorted for lookups */
+    private final int[] sorted;
+    private final int hash;
+
+    OrderedPluginSet(PluginIds ids, Set<Plugin> plugins) {
+        this.ids = ids;
+        order = new int[plugins.size()];
+        int i = 0;
+        for (Plugin plugin : plugins) {
+            order[i++] = ids.idOf(plugin);
+        }
+        sorted = order.clone();
+        Arrays.sort(sorted);
+        hash = Arrays.hashCode(order);
+    }
+
+    /**
+     * @return true if both sets contain same plugins in same order
+     */
+    boolean sameOrder(OrderedPluginSet other) {
+        return hash == other.hash && ids == other.ids && Arrays.equals(order, other.order);
+    }
+
+    int orderHash() {
+        return hash;
+    }
+
+    /**
+     * @return approximate number of bytes used by the stored ids
+     */
+    long idsSize() {
+        return order.length * 8L;
+    }
+
+    @Override
+    public boolean contains(Object o) {
+        if (!(o instanceof Plugin)) {
+            return false;
+        }
+        int id = ((Plugin) o).getId(ids);
+        return id >= 0 && Arrays.binarySearch(sorted, id) >= 0;
+    }
+
+    @Override
+    public int size() {
+        return order.length;
+    }
+
+    @Override
+    public Iterator<Plugin> iterator() {
+        return new Iterator<>() {
+            int index;
+
+            @Override
+            public boolean hasNext() {
+                return index < order.length;
+            }
+
+            @Override
+            public Plugin next() {
+                if (index >= order.length) {
+                    throw new NoSuchElementException();
+                }
+                return ids.get(order[index++]);
+            }
+        };
+    }
+}
@@ -11,7 +11,6 @@
  *******************************************************************************/
 package org.eclipselabs.plugindependencies.core;
 
-import java.util.Collections;
 import java.util.LinkedHashSet;
 import java.util.Set;
 
@@ -54,18 +53,31 @@ public class Package extends NamedElement {
     }
 
     public void addSplitPlugin(Plugin plugin) {
+        split = modifiable(split);
         this.split.add(plugin);
     }
 
     public void addExportPlugin(Plugin plugin) {
+        exportedBy = modifiable(exportedBy);
         this.exportedBy.add(plugin);
     }
 
+    /**
+     * Removes given plugin from the exporting and split contributing plugins
+     */
+    void removeExportPlugin(Plugin plugin) {
+        exportedBy = modifiable(exportedBy);
+        exportedBy.removeIf(p -> p == plugin);
+        split = modifiable(split);
+        split.removeIf(p -> p == plugin);
+    }
+
     public Set<Plugin> getReexportedBy() {
         return reexportedBy;
     }
 
     public void addReExportPlugin(Plugin plugin) {
+        reexportedBy = modifiable(reexportedBy);
         this.reexportedBy.add(plugin);
     }
 
@@ -74,9 +86,24 @@ public class Package extends NamedElement {
     }
 
     public void addImportedBy(Plugin importsPackage) {
+        importedBy = modifiable(importedBy);
         this.importedBy.add(importsPackage);
     }
 
+    @Override
+    void removeResolvers(Set<?> resolvers) {
+        importedBy = without(importedBy, resolvers);
+        reexportedBy = without(reexportedBy, resolvers);
+    }
+
+    @Override
+    void restoreOrder() {
+        exportedBy = sorted(exportedBy, OSGIElement.STATE_ORDER);
+        split = sorted(split, OSGIElement.STATE_ORDER);
+        importedBy = sorted(importedBy, OSGIElement.STATE_ORDER);
+        reexportedBy = sorted(reexportedBy, OSGIElement.STATE_ORDER);
+    }
+
     /**
      * Print the Plugins that are Exporting this.
      *
@@ -135,10 +162,15 @@ public class Package extends NamedElement {
     }
 
     public void parsingDone() {
-        importedBy = importedBy.isEmpty()? Collections.EMPTY_SET : Collections.unmodifiableSet(importedBy);
-        reexportedBy = reexportedBy.isEmpty()? Collections.EMPTY_SET : Collections.unmodifiableSet(reexportedBy);
-        exportedBy = exportedBy.isEmpty()? Collections.EMPTY_SET : Collections.unmodifiableSet(exportedBy);
-        split = split.isEmpty()? Collections.EMPTY_SET : Collections.unmodifiableSet(split);
+        freeze();
+    }
+
+    @Override
+    void freeze() {
+        importedBy = readOnly(importedBy);
+        reexportedBy = readOnly(reexportedBy);
+        exportedBy = readOnly(exportedBy);
+        split = readOnly(split);
     }
 
 }
@@ -13,34 +13,22 @@ package org.eclipselabs.plugindependencies.core;
 import java.io.File;
 import java.io.IOException;
 import java.io.PrintWriter;
-import java.net.URI;
-import java.net.URL;
-import java.net.URLClassLoader;
-import java.nio.file.FileSystem;
-import java.nio.file.FileSystems;
-import java.nio.file.Files;
-import java.nio.file.Path;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.Comparator;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.IdentityHashMap;
 import java.util.Iterator;
-import java.util.LinkedHashMap;
 import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Set;
-import java.util.Stack;
-import java.util.TreeSet;
 import java.util.function.Consumer;
-import java.util.jar.JarFile;
-import java.util.stream.Collectors;
-import java.util.stream.Stream;
 
-import org.eclipselabs.plugindependencies.core.DependencyResolver.PluginElt;
+import org.eclipselabs.plugindependencies.core.VersionIndex.Matches;
 
 /**
  */
@@ -50,34 +38,85 @@ public class PlatformState {
 
     public static PlatformSpecs UNDEFINED_SPECS = new PlatformSpecs(null, null, null);
 
+    private static final String NOT_IN_FEATURE = "not incuded in any feature";
+    private static final String CONTRIBUTES_PACKAGE = "this plugin is one of ";
+    private static final String USES_PACKAGE = "this plugin uses package '";
+
     private static final List<String> JDK_PACK_PREFIXES = Collections.unmodifiableList(
             Arrays.asList("javax.",  "java.", "org.omg.", "org.w3c.dom", "org.xml.sax",
                     "org.ietf.jgss", "org.jcp.xml.", "com.sun.", "com.oracle.", "jdk.", "sun."));
 
-    private Set<Plugin> plugins;
-    private Set<Package> packages;
-    private Set<Capability> capabilities;
-    private Set<Feature> features;
-    private final Map<String, List<Package>> nameToPackages;
-    private final Map<String, List<Capability>> nameToCapabilities;
-    private final Map<String, List<Plugin>> nameToPlugins;
-    private final Map<String, List<Feature>> nameToFeatures;
+    /** {@link #JDK_PACK_PREFIXES} as trie: one walk along the package name checks all */
+    private static final PrefixTrie<String> JDK_PACK_TRIE = new PrefixTrie<>();
+    static {
+        for (String prefix : JDK_PACK_PREFIXES) {
+            JDK_PACK_TRIE.put(prefix, prefix);
+        }
+    }
+
+    private final Set<Plugin> plugins;
+    private final Set<Package> packages;
+    private final Set<Capability> capabilities;
+    private final Set<Feature> features;
+    /** sets above as returned to clients: read-only once dependencies are resolved */
+    private Set<Plugin> pluginsView;
+    private Set<Package> packagesView;
+    private Set<Capability> capabilitiesView;
+    private Set<Feature> featuresView;
+    /** see {@link OSGIElement#getStateOrder()} */
+    private int nextPluginOrder;
+    private int nextFeatureOrder;
+    private final NameIndex<Package> nameToPackages;
+    private final NameIndex<Capability> nameToCapabilities;
+    private final NameIndex<Plugin> nameToPlugins;
+    private final NameIndex<Feature> nameToFeatures;
+    /** if true, lookups for unknown names return empty sets, see {@link #setStrictLookups(boolean)} */
+    private boolean strictLookups;
     private String javaHome;
     private File javaHomeRtJar;
     private boolean dependenciesresolved;
     private static String dummyVersion;
     private static String realVersion = NamedElement.ZERO_VERSION;
 
-    private final Set<ManifestEntry> hiddenElements;
+    private final HiddenElements hiddenElements;
     private Set<String> ignoredBundlesWithCycles;
 
     private PlatformSpecs platformSpecs;
 
     private boolean validated;
 
+    /** true if closures of all plugins are computed */
+    private boolean closuresComputed;
+
     private boolean reportPluginsNotContainedInFeatures;
 
-    static Map<File, Set<String>> knownSystemPackages = new HashMap<>();
+    /** only used while parsing, see {@link #getInternPool()} */
+    private InternPool internPool;
+
+    /** directory for persistent indexes, may be null */
+    private File cacheDirectory;
+    /** lazily read packages of the Java home, see {@link #getSystemPackages()} */
+    private volatile Set<String> systemPackages;
+    /** Java home packages already found by {@link #searchInJavaHome(String)} */
+    private final Map<String, Set<Package>> javaHomePackages = new HashMap<>();
+    /** execution environments bundles are checked against, empty if not set */
+    private List<ExecutionEnvironment> executionEnvironments = Collections.emptyList();
+    /** lazily read packages of all Java releases, see {@link #getReleasePackages()} */
+    private SystemPackageIndex.ReleasePackages releasePackages;
+    /** memo of the last dependency resolution, only kept for statistics */
+    private ResolutionMemo resolutionMemo;
+    /** number of threads used to resolve dependencies */
+    private int threads = 1;
+    /** dense plugin ids for plugin bitsets, assigned at resolution time */
+    private PluginIds pluginIds;
+    /** closures and classpaths of all plugins, see {@link #getClosureStore()} */
+    private ClosureStore closureStore;
+    /** file closures are written to, null to keep them on heap */
+    private ClosureFile closureFile;
+    /** snapshot of the resolved dependencies, see {@link #getDependencyGraph()} */
+    private DependencyGraph dependencyGraph;
+    /** requirements of all plugins and features, created on first incremental change */
+    private RequirementIndex requirementIndex;
 
     /**
      *
@@ -87,16 +126,20 @@ public class PlatformState {
     }
 
     public PlatformState(Set<Plugin> plugins, Set<Package> packages, Set<Feature> features, Set<Capability> capabilities) {
-        hiddenElements = new LinkedHashSet<>();
+        hiddenElements = new HiddenElements();
         platformSpecs = new PlatformSpecs(null, null, null);
         this.plugins = plugins == null? new LinkedHashSet<>() : plugins;
         this.packages = packages == null? new LinkedHashSet<>() : packages;
         this.capabilities = capabilities == null? new LinkedHashSet<>() : capabilities;
         this.features = features == null? new LinkedHashSet<>() : features;
-        nameToPackages = new LinkedHashMap<>();
-        nameToCapabilities = new LinkedHashMap<>();
-        nameToPlugins = new LinkedHashMap<>();
-        nameToFeatures = new LinkedHashMap<>();
+        pluginsView = this.plugins;
+        packagesView = this.packages;
+        capabilitiesView = this.capabilities;
+        featuresView = this.features;
+        nameToPackages = new NameIndex<>();
+        nameToCapabilities = new NameIndex<>();
+        nameToPlugins = new NameIndex<>();
+        nameToFeatures = new NameIndex<>();
         ignoredBundlesWithCycles = new LinkedHashSet<>();
 
         setJavaHome(DEFAULT_JAVA_HOME);
@@ -124,25 +167,44 @@ public class PlatformState {
     }
 
     public Set<Plugin> getPlugins(){
-        return plugins;
+        return pluginsView;
     }
 
     public Set<Package> getPackages(){
-        return packages;
+        return packagesView;
     }
 
     public Set<Capability> getCapabilities(){
-        return capabilities;
+        return capabilitiesView;
     }
 
     public Set<Feature> getFeatures(){
-        return features;
+        return featuresView;
     }
 
     String getJavaHome() {
         return javaHome;
     }
 
+    /**
+     * @return pool shared by plugin and feature parsers. The pool is released after
+     *         dependencies are resolved, because the state is not modified anymore
+     */
+    synchronized InternPool getInternPool() {
+        if (internPool == null) {
+            internPool = new InternPool();
+        }
+        return internPool;
+    }
+
+    /**
+     * Hides given plugins or features: they will be ignored if added later. Entry
+     * without version hides all versions. Entry name ending with '*' hides all
+     * elements with the name starting with the given prefix.
+     *
+     * @throws IllegalStateException
+     *             if plugins or features are already added
+     */
     public void hideElement(ManifestEntry elt){
         if(dependenciesresolved || !plugins.isEmpty() || ! features.isEmpty()){
             throw new IllegalStateException("Can't change already existing state");
@@ -168,6 +230,9 @@ public class PlatformState {
         if(jar.exists()) {
             javaHomeRtJar = jar;
         }
+        systemPackages = null;
+        releasePackages = null;
+        javaHomePackages.clear();
         if (javaHomeRtJar != null) {
             javaHome = newHome;
         } else {
@@ -176,28 +241,33 @@ public class PlatformState {
         }
     }
 
+    /**
+     * Adds given plugin, parsed for this state. If dependencies are resolved already,
+     * only plugins and features affected by the new plugin are resolved again, see
+     * {@link #updatePlugin(Plugin, Plugin)}
+     *
+     * @return given plugin, or the already known plugin it is a duplicate of
+     */
     public Plugin addPlugin(Plugin newOne){
         newOne = checkIfHidden(newOne);
         if(newOne == Plugin.DUMMY_PLUGIN){
             return newOne;
         }
+        if(dependenciesresolved){
+            newOne.setStateOrder(nextPluginOrder++);
+            return update(null, newOne);
+        }
         plugins.add(newOne);
 
-        List<Plugin> list = nameToPlugins.get(newOne.getName());
-        if(list == null){
-            list = new ArrayList<>();
-            nameToPlugins.put(newOne.getName(), list);
-        }
-        int existing = list.indexOf(newOne);
-        Plugin oldOne = null;
-        if(existing >= 0){
-            oldOne = list.get(existing);
+        Plugin oldOne = nameToPlugins.find(newOne);
+        if(oldOne != null){
             if(Objects.equals(oldOne.getPath(), newOne.getPath())) {
                 return oldOne;
             }
             oldOne.addDuplicate(newOne);
         }
-        list.add(newOne);
+        newOne.setStateOrder(nextPluginOrder++);
+        nameToPlugins.add(newOne);
         for (Package exportedPackage : newOne.getExportedPackages()) {
             /*
              * Package is exported by another plugin, package has to be found in packages
@@ -215,36 +285,276 @@ public class PlatformState {
         return oldOne != null? oldOne : newOne;
     }
 
-    private Plugin checkIfHidden(Plugin newOne) {
-        if(!hiddenElements.isEmpty()){
-            for (ManifestEntry hidden : hiddenElements) {
-                if(hidden.hasDefaultVersion()){
-                    if(hidden.isMatching(newOne)){
-                        return Plugin.DUMMY_PLUGIN;
-                    }
-                } else {
-                    if(hidden.exactMatch(newOne)){
-                        return Plugin.DUMMY_PLUGIN;
-                    }
+    /**
+     * Replaces given plugin with a new version of it, for example after the manifest of
+     * a workspace bundle was changed. The new plugin must be parsed for this state (see
+     * {@link PluginParser#parseManifest(java.util.jar.Manifest, PlatformState)}), but not
+     * added to it.
+     * <p>
+     * If dependencies are resolved already, only the plugins and features affected by
+     * the change are resolved again, see {@link IncrementalResolver}. The result is the
+     * same as if all plugins were added again (the new one at the position of the old
+     * one) and resolved.
+     *
+     * @return the new plugin, or the plugin it is a duplicate of
+     * @throws IllegalArgumentException
+     *             if the old plugin is not part of this state
+     */
+    public Plugin updatePlugin(Plugin oldOne, Plugin newOne){
+        checkRegistered(oldOne);
+        Objects.requireNonNull(newOne);
+        if(newOne == oldOne || checkIfHidden(newOne) == Plugin.DUMMY_PLUGIN){
+            throw new IllegalArgumentException("Can't replace " + oldOne + " with " + newOne);
+        }
+        newOne.setStateOrder(oldOne.getStateOrder());
+        return update(oldOne, newOne);
+    }
+
+    /**
+     * Removes given plugin. If dependencies are resolved already, only the plugins and
+     * features affected by the removal are resolved again, see
+     * {@link #updatePlugin(Plugin, Plugin)}
+     *
+     * @throws IllegalArgumentException
+     *             if the plugin is not part of this state
+     */
+    public void removePlugin(Plugin plugin){
+        checkRegistered(plugin);
+        update(plugin, null);
+    }
+
+    private void checkRegistered(Plugin plugin) {
+        Objects.requireNonNull(plugin);
+        for (Plugin known : getRegisteredPlugins(plugin.getName())) {
+            if(known == plugin) {
+                return;
+            }
+        }
+        throw new IllegalArgumentException("Plugin is not part of the state: " + plugin);
+    }
+
+    private Plugin update(Plugin oldOne, Plugin newOne) {
+        IncrementalResolver resolver = null;
+        if(dependenciesresolved){
+            resolver = new IncrementalResolver(this, oldOne, newOne);
+            resolver.reset();
+        }
+        Set<NamedElement> changed = Collections.newSetFromMap(new IdentityHashMap<>());
+        Plugin result = register(oldOne, newOne, changed);
+        if(resolver != null){
+            resolver.resolve(changed);
+        } else {
+            for (NamedElement element : changed) {
+                element.restoreOrder();
+            }
+        }
+        dependencyGraph = null;
+        return result;
+    }
+
+    /**
+     * Replaces the old plugin (if any) with the new one (if any). Duplicates, name
+     * index and exported packages are updated for all plugins with the same names, as
+     * if they were added again in their original order. Resolution of all these plugins
+     * must be reset.
+     *
+     * @param changed
+     *            receives packages and capabilities with changed exporting plugins
+     * @return the new plugin or the plugin it is a duplicate of, null if there is no new
+     *         plugin
+     */
+    private Plugin register(Plugin oldOne, Plugin newOne, Set<NamedElement> changed) {
+        Set<String> names = new LinkedHashSet<>();
+        if(oldOne != null){
+            names.add(oldOne.getName());
+            unregisterExports(oldOne, changed);
+        }
+        if(newOne != null){
+            names.add(newOne.getName());
+            // split packages are registered by the parser
+            unregisterExports(newOne, changed);
+        }
+        List<Plugin> group = new ArrayList<>();
+        for (String name : names) {
+            for (Plugin plugin : getRegisteredPlugins(name)) {
+                if(plugin != oldOne){
+                    group.add(plugin);
+                    // added again below, in the original order
+                    unregisterExports(plugin, changed);
+                }
+            }
+        }
+        Plugin sameBundle = null;
+        if(newOne != null){
+            for (Plugin plugin : group) {
+                if(isSameBundle(plugin, newOne) && Objects.equals(plugin.getPath(), newOne.getPath())){
+                    sameBundle = plugin;
+                    break;
+                }
+            }
+            if(sameBundle == null){
+                group.add(newOne);
+                group.sort(OSGIElement.STATE_ORDER);
+            }
+        }
+        Plugin result = sameBundle;
+        List<Plugin> distinct = new ArrayList<>();
+        for (Plugin plugin : group) {
+            plugin.clearDuplicates();
+        }
+        for (Plugin plugin : group) {
+            Plugin first = null;
+            for (Plugin known : distinct) {
+                if(isSameBundle(known, plugin)){
+                    first = known;
+                    break;
+                }
+            }
+            if(first == null){
+                distinct.add(plugin);
+            } else {
+                first.addDuplicate(plugin);
+            }
+            if(plugin == newOne){
+                result = first == null ? newOne : first;
+            }
+            // resolution is reset, so these are the own exported packages
+            for (Package pack : plugin.getExportedPackages()) {
+                pack.addExportPlugin(plugin);
+                if(plugin.getSplitPackages().contains(pack)){
+                    pack.addSplitPlugin(plugin);
+                }
+                changed.add(pack);
+            }
+            for (Capability cap : plugin.getProvidedCapabilities()) {
+                cap.addProvidingPlugin(plugin);
+                changed.add(cap);
+            }
+        }
+        for (String name : names) {
+            List<Plugin> named = new ArrayList<>();
+            for (Plugin plugin : group) {
+                if(plugin.getName().equals(name)){
+                    named.add(plugin);
                 }
             }
+            nameToPlugins.replace(name, named);
+        }
+        List<Plugin> all = new ArrayList<>(plugins.size() + 1);
+        for (Plugin plugin : plugins) {
+            if(!names.contains(plugin.getName())){
+                all.add(plugin);
+            }
+        }
+        all.addAll(distinct);
+        all.sort(OSGIElement.STATE_ORDER);
+        plugins.clear();
+        plugins.addAll(all);
+        if(oldOne != null){
+            removeUnexported(oldOne);
+            if(pluginIds != null && newOne != null && result == newOne){
+                pluginIds.replace(oldOne, newOne);
+            }
+        }
+        return result;
+    }
+
+    private static void unregisterExports(Plugin plugin, Set<NamedElement> changed) {
+        for (Package pack : plugin.getExportedPackages()) {
+            pack.removeExportPlugin(plugin);
+            changed.add(pack);
+        }
+        for (Capability cap : plugin.getProvidedCapabilities()) {
+            cap.removeProvidingPlugin(plugin);
+            changed.add(cap);
+        }
+    }
+
+    /**
+     * Removes packages and capabilities of the removed plugin not provided by any other
+     * plugin, they would not be created by a new parse
+     */
+    private void removeUnexported(Plugin removed) {
+        for (Package pack : removed.getExportedPackages()) {
+            if(pack.getExportedBy().isEmpty()){
+                removePackage(pack);
+            }
+        }
+        for (Capability cap : removed.getProvidedCapabilities()) {
+            if(cap.getProvidedBy().isEmpty() && capabilities.remove(cap)){
+                List<Capability> named = new ArrayList<>(nameToCapabilities.get(cap.getName()));
+                named.remove(cap);
+                nameToCapabilities.replace(cap.getName(), named);
+            }
+        }
+    }
+
+    /**
+     * Removes given package if it was only added because plugins imported it from Java
+     * home, and no plugin imports it anymore
+     */
+    void removeIfUnused(Package pack) {
+        Set<Package> javaPackage = javaHomePackages.get(pack.getName());
+        if(javaPackage != null && javaPackage.iterator().next() == pack
+                && pack.getExportedBy().isEmpty() && pack.getImportedBy().isEmpty()){
+            removePackage(pack);
+        }
+    }
+
+    private void removePackage(Package pack) {
+        // an equal package could be added after this one was removed
+        if(nameToPackages.find(pack) == pack && packages.remove(pack)){
+            List<Package> named = new ArrayList<>(nameToPackages.get(pack.getName()));
+            named.remove(pack);
+            nameToPackages.replace(pack.getName(), named);
+        }
+    }
+
+    private static boolean isSameBundle(Plugin p1, Plugin p2) {
+        // host is not known while parsing, so not compared
+        return p1.exactMatch(p2) && p1.isFragment() == p2.isFragment();
+    }
+
+    /**
+     * @return all plugins with given name in the order they were added, including
+     *         duplicates
+     */
+    List<Plugin> getRegisteredPlugins(String name) {
+        Set<Plugin> distinct = nameToPlugins.get(name);
+        if(distinct == null){
+            return Collections.emptyList();
+        }
+        List<Plugin> result = new ArrayList<>();
+        for (Plugin plugin : distinct) {
+            result.add(plugin);
+            for (OSGIElement dup : plugin.getDuplicates()) {
+                result.add((Plugin) dup);
+            }
+        }
+        result.sort(OSGIElement.STATE_ORDER);
+        return result;
+    }
+
+    /**
+     * @return requirements of all plugins and features, see {@link IncrementalResolver}
+     */
+    RequirementIndex getRequirementIndex() {
+        if(requirementIndex == null){
+            requirementIndex = new RequirementIndex(this);
+        }
+        return requirementIndex;
+    }
+
+    private Plugin checkIfHidden(Plugin newOne) {
+        if(hiddenElements.isHidden(newOne)){
+            return Plugin.DUMMY_PLUGIN;
         }
         return newOne;
     }
 
     private Feature checkIfHidden(Feature newOne) {
-        if(!hiddenElements.isEmpty()){
-            for (ManifestEntry hidden : hiddenElements) {
-                if(hidden.hasDefaultVersion()){
-                    if(hidden.isMatching(newOne)){
-                        return Feature.DUMMY_FEATURE;
-                    }
-                } else {
-                    if(hidden.exactMatch(newOne)){
-                        return Feature.DUMMY_FEATURE;
-                    }
-                }
-            }
+        if(hiddenElements.isHidden(newOne)){
+            return Feature.DUMMY_FEATURE;
         }
         return newOne;
     }
@@ -253,17 +563,11 @@ public class PlatformState {
         if(!packages.contains(newOne)){
             packages.add(newOne);
         }
-
-        List<Package> list = nameToPackages.get(newOne.getName());
-        if(list == null){
-            list = new ArrayList<>();
-            nameToPackages.put(newOne.getName(), list);
-        }
-        int existing = list.indexOf(newOne);
-        if(existing >= 0){
-            return list.get(existing);
+        Package existing = nameToPackages.find(newOne);
+        if(existing != null){
+            return existing;
         }
-        list.add(newOne);
+        nameToPackages.add(newOne);
         return newOne;
     }
 
@@ -271,17 +575,11 @@ public class PlatformState {
         if(!capabilities.contains(newOne)){
             capabilities.add(newOne);
         }
-
-        List<Capability> list = nameToCapabilities.get(newOne.getName());
-        if(list == null){
-            list = new ArrayList<>();
-            nameToCapabilities.put(newOne.getName(), list);
-        }
-        int existing = list.indexOf(newOne);
-        if(existing >= 0){
-            return list.get(existing);
+        Capability existing = nameToCapabilities.find(newOne);
+        if(existing != null){
+            return existing;
         }
-        list.add(newOne);
+        nameToCapabilities.add(newOne);
         return newOne;
     }
 
@@ -292,87 +590,120 @@ public class PlatformState {
         }
         features.add(newOne);
 
-        List<Feature> list = nameToFeatures.get(newOne.getName());
-        if(list == null){
-            list = new ArrayList<>();
-            nameToFeatures.put(newOne.getName(), list);
-        }
-        int existing = list.indexOf(newOne);
-        Feature oldOne = null;
-        if(existing >= 0){
-            oldOne = list.get(existing);
+        Feature oldOne = nameToFeatures.find(newOne);
+        if(oldOne != null){
             oldOne.addDuplicate(newOne);
         }
-        list.add(newOne);
+        newOne.setStateOrder(nextFeatureOrder++);
+        nameToFeatures.add(newOne);
         return oldOne != null? oldOne : newOne;
     }
 
+    /**
+     * @return read-only view of the plugins with given name. If there are no such
+     *         plugins, returns all plugins, or (in strict mode) an empty set
+     */
     public Set<Plugin> getPlugins(String name){
-        List<Plugin> list = nameToPlugins.get(name);
-        if(list == null) {
-            if (plugins.isEmpty()) {
-                return Collections.emptySet();
-            }
-            // For tests only
-            return Collections.unmodifiableSet(plugins);
-        }
-        // XXX???
-        return new LinkedHashSet<>(list);
+        return lookup(nameToPlugins, name, plugins);
     }
 
+    /**
+     * @return read-only view of the packages with given name. If there are no such
+     *         packages, returns all packages, or (in strict mode) an empty set
+     */
     public Set<Package> getPackages(String name){
-        List<Package> list = nameToPackages.get(name);
-        if(list == null) {
-            if (packages.isEmpty()) {
-                return Collections.emptySet();
-            }
-            // For tests only
-            return Collections.unmodifiableSet(packages);
-        }
-        // XXX???
-        return new LinkedHashSet<>(list);
+        return lookup(nameToPackages, name, packages);
     }
 
+    /**
+     * @return read-only view of the capabilities with given name. If there are no such
+     *         capabilities, returns all capabilities, or (in strict mode) an empty set
+     */
     public Set<Capability> getCapabilities(String name){
-        List<Capability> list = nameToCapabilities.get(name);
-        if(list == null) {
-            if (packages.isEmpty()) {
-                return Collections.emptySet();
-            }
-            // For tests only
-            return Collections.unmodifiableSet(capabilities);
-        }
-        // XXX???
-        return new LinkedHashSet<>(list);
+        return lookup(nameToCapabilities, name, capabilities);
     }
 
+    /**
+     * @return read-only view of the features with given name. If there are no such
+     *         features, returns all features, or (in strict mode) an empty set
+     */
     public Set<Feature> getFeatures(String name){
-        List<Feature> list = nameToFeatures.get(name);
-        if(list == null) {
-            if (features.isEmpty()) {
-                return Collections.emptySet();
-            }
-            // For tests only
-            return Collections.unmodifiableSet(features);
+        return lookup(nameToFeatures, name, features);
+    }
+
+    /**
+     * @param exact
+     *            true to match the version of the entry exactly (as for feature
+     *            includes), false to match the entry version range
+     * @return plugins matching given entry
+     */
+    Matches<Plugin> findPlugins(ManifestEntry entry, boolean exact) {
+        if (exact) {
+            String name = entry.getName().trim();
+            VersionIndex<Plugin> index = nameToPlugins.versions(name);
+            return index == null ? Matches.empty() : index.matchExact(name, entry.getVersion());
         }
-        // XXX???
-        return new LinkedHashSet<>(list);
+        return find(nameToPlugins, entry);
     }
 
-    public Package getPackage(String name){
-        List<Package> list = nameToPackages.get(name);
-        if(list == null || list.isEmpty() || list.size() > 1) {
-            return null;
+    /**
+     * @param exact
+     *            true to match the version of the entry exactly (as for feature
+     *            includes), false to match the entry version range
+     * @return features matching given entry
+     */
+    Matches<Feature> findFeatures(ManifestEntry entry, boolean exact) {
+        if (exact) {
+            VersionIndex<Feature> index = nameToFeatures.versions(entry.getName());
+            return index == null ? Matches.empty() : index.matchExact(entry.getName(), entry.getVersion());
         }
-        return list.get(0);
+        return find(nameToFeatures, entry);
     }
 
-    public Capability getCapability(String name){
-        List<Capability> list = nameToCapabilities.get(name);
-        if(list == null || list.isEmpty() || list.size() > 1) {
-            return null;
+    /**
+     * @return packages matching given import entry
+     */
+    Matches<Package> findPackages(ManifestEntry entry) {
+        return find(nameToPackages, entry);
+    }
+
+    private static <T extends NamedElement> Matches<T> find(NameIndex<T> index, ManifestEntry entry) {
+        // unknown names never match, so the lenient lookup fallback is not needed
+        VersionIndex<T> versions = index.versions(entry.getName());
+        return versions == null ? Matches.empty() : versions.match(entry);
+    }
+
+    private <T extends NamedElement> Set<T> lookup(NameIndex<T> index, String name, Set<T> all) {
+        Set<T> found = index.get(name);
+        if (found != null) {
+            return found;
         }
-        return list.get(0);
+        if (strictLookups || all.isEmpty()) {
+            return Collections.emptySet();
+        }
+        // For tests only
+        return Collections.unmodifiableSet(all);
+    }
+
+    /**
+     * @param strict
+     *            true if lookups by unknown name should return empty sets. By default
+     *            (for tests only) all elements of requested type are returned
+     */
+    public void setStrictLookups(boolean strict) {
+        this.strictLookups = strict;
+    }
+
+    public boolean isStrictLookups() {
+        return strictLookups;
+    }
+
+    public Package getPackage(String name){
+        return nameToPackages.getUnique(name);
+    }
+
+    public Capability getCapability(String name){
+        return nameToCapabilities.getUnique(name);
     }
 
     public Package createPackage(ManifestEntry entry){
@@ -396,23 +727,25 @@ public class PlatformState {
     }
 
     public Plugin getPlugin(String name){
-        List<Plugin> list = nameToPlugins.get(name);
-        if(list == null || list.isEmpty() || list.size() > 1) {
-            return null;
-        }
-        return list.get(0);
+        return nameToPlugins.getUnique(name);
     }
 
     public List<Problem> computeAllDependenciesRecursive() {
         if(!dependenciesresolved){
             resolveDependencies();
         }
-        for (Plugin plugin : plugins) {
-            computeAllDependenciesRecursive(plugin);
-        }
+        new DependencyClosure(this).compute(plugins);
+        closuresComputed = true;
         return validate();
     }
 
+    /**
+     * @return true if closures of all plugins are computed
+     */
+    boolean isClosuresComputed() {
+        return closuresComputed;
+    }
+
     public List<Problem> validate() {
         if(validated){
             return collectErrors();
@@ -420,64 +753,7 @@ public class PlatformState {
         validated = true;
         // validate same package contributed by different plugins in same dependency chain
         for (Package pack : packages) {
-            if(pack.getExportedBy().size() > 1){
-                Set<Plugin> exportedBy = new HashSet<>(pack.getExportedBy());
-
-                Iterator<Plugin> exportedByIter = exportedBy.iterator();
-                Set<Plugin> toRemove = new HashSet<>();
-                while (exportedByIter.hasNext()) {
-                    Plugin p1 = exportedByIter.next();
-                    if(pack.getSplit().contains(p1)){
-                        exportedByIter.remove();
-                        continue;
-                    }
-                    // plugins which import and export same package are most likely
-                    // just forwarding that dependency to clients
-                    if(p1.getImportedPackages().contains(pack)){
-                        exportedByIter.remove();
-                        continue;
-                    }
-
-                    // plugins which exports a package already reexported by re-exporting required bundle is most likely
-                    // just forwarding that dependency to clients
-                    if (p1.getReExportedPackages().contains(pack)) {
-                        exportedByIter.remove();
-                        continue;
-                    }
-
-                    for (Plugin p2 : exportedBy) {
-                        // ignore packages from same plugin with different version
-                        // ignore packages from fragments and hosts
-                        if(p1 != p2 && (p1.getName().equals(p2.getName()) || p1.isFragmentOrHost(p2))){
-                            toRemove.add(p2);
-                            toRemove.add(p1);
-                        }
-                    }
-                }
-                exportedBy.removeAll(toRemove);
-
-                if(exportedBy.size() > 1){
-                    if(exportedBy.size() == 2) {
-                        Iterator<Plugin> iterator = exportedBy.iterator();
-                        String firstName = iterator.next().getName();
-                        String secondName = iterator.next().getName();
-                        if ((firstName.startsWith(secondName) && firstName.endsWith(".tests"))
-                                || (secondName.startsWith(firstName) && secondName.endsWith(".tests"))) {
-                            // ignore: it is a test bundle that has classes in same package like the production code
-                            continue;
-                        }
-                    }
-                    pack.addWarningToLog("package contributed by multiple, not related plugins", exportedBy);
-                    for (Plugin plugin : exportedBy) {
-                        plugin.addWarningToLog("this plugin is one of " + exportedBy.size() + " plugins contributing package '" + pack.getNameAndVersion() + "'", pack);
-                    }
-
-                    Set<Plugin> importedBy = pack.getImportedBy();
-                    for (Plugin plugin : importedBy) {
-                        plugin.addWarningToLog("this plugin uses package '" + pack.getNameAndVersion() + "' contributed by multiple plugins", pack);
-                    }
-                }
-            }
+            validatePackage(pack);
         }
         // validate same capability contributed by different plugins in same dependency chain
         for (Capability cap : capabilities) {
@@ -520,20 +796,10 @@ public class PlatformState {
             }
         }
         for (Plugin plugin : plugins) {
-            List<OSGIElement> dups = plugin.getDuplicates();
-            if(!dups.isEmpty()){
-                if(!hasOnlyWorkspaceDup(dups)) {
-                    logDuplicates(plugin, dups);
-                }
-            }
+            validateDuplicates(plugin);
         }
         for (Feature feature : features) {
-            List<OSGIElement> dups = feature.getDuplicates();
-            if(!dups.isEmpty()){
-                if(!hasOnlyWorkspaceDup(dups)) {
-                    logDuplicates(feature, dups);
-                }
-            }
+            validateDuplicates(feature);
         }
         // TODO validate packages with different versions used by different plugins in same dependency chain
         // TODO validate singleton plugins with different versions used by different plugins in same dependency chain
@@ -541,6 +807,91 @@ public class PlatformState {
         return errors;
     }
 
+    boolean isValidated() {
+        return validated;
+    }
+
+    /**
+     * Reports same package contributed by different, not related plugins
+     */
+    void validatePackage(Package pack) {
+        if(pack.getExportedBy().size() > 1){
+            Set<Plugin> exportedBy = new HashSet<>(pack.getExportedBy());
+
+            Iterator<Plugin> exportedByIter = exportedBy.iterator();
+            Set<Plugin> toRemove = new HashSet<>();
+            while (exportedByIter.hasNext()) {
+                Plugin p1 = exportedByIter.next();
+                if(pack.getSplit().contains(p1)){
+                    exportedByIter.remove();
+                    continue;
+                }
+                // plugins which import and export same package are most likely
+                // just forwarding that dependency to clients
+                if(p1.getImportedPackages().contains(pack)){
+                    exportedByIter.remove();
+                    continue;
+                }
+
+                // plugins which exports a package already reexported by re-exporting required bundle is most likely
+                // just forwarding that dependency to clients
+                if (p1.getReExportedPackages().contains(pack)) {
+                    exportedByIter.remove();
+                    continue;
+                }
+
+                for (Plugin p2 : exportedBy) {
+                    // ignore packages from same plugin with different version
+                    // ignore packages from fragments and hosts
+                    if(p1 != p2 && (p1.getName().equals(p2.getName()) || p1.isFragmentOrHost(p2))){
+                        toRemove.add(p2);
+                        toRemove.add(p1);
+                    }
+                }
+            }
+            exportedBy.removeAll(toRemove);
+
+            if(exportedBy.size() > 1){
+                if(exportedBy.size() == 2) {
+                    Iterator<Plugin> iterator = exportedBy.iterator();
+                    String firstName = iterator.next().getName();
+                    String secondName = iterator.next().getName();
+                    if ((firstName.startsWith(secondName) && firstName.endsWith(".tests"))
+                            || (secondName.startsWith(firstName) && secondName.endsWith(".tests"))) {
+                        // ignore: it is a test bundle that has classes in same package like the production code
+                        return;
+                    }
+                }
+                pack.addWarningToLog("package contributed by multiple, not related plugins", exportedBy);
+                for (Plugin plugin : exportedBy) {
+                    plugin.addWarningToLog(CONTRIBUTES_PACKAGE + exportedBy.size() + " plugins contributing package '" + pack.getNameAndVersion() + "'", pack);
+                }
+
+                Set<Plugin> importedBy = pack.getImportedBy();
+                for (Plugin plugin : importedBy) {
+                    plugin.addWarningToLog(USES_PACKAGE + pack.getNameAndVersion() + "' contributed by multiple plugins", pack);
+                }
+            }
+        }
+    }
+
+    /**
+     * Removes problems added to given plugin by {@link #validatePackage(Package)}
+     */
+    static void removePackageProblems(Plugin plugin, Package pack) {
+        plugin.getLog().removeIf(p -> p.getRelated().size() == 1 && p.getRelated().iterator().next() == pack
+                && (p.getMessage().startsWith(CONTRIBUTES_PACKAGE) || p.getMessage().startsWith(USES_PACKAGE)));
+    }
+
+    static void validateDuplicates(OSGIElement element) {
+        List<OSGIElement> dups = element.getDuplicates();
+        if(!dups.isEmpty()){
+            if(!hasOnlyWorkspaceDup(dups)) {
+                logDuplicates(element, dups);
+            }
+        }
+    }
+
     private List<Problem> collectErrors() {
         List<Problem> errors = new ArrayList<>();
         Consumer<? super Problem> collectErrors = x -> {
@@ -596,64 +947,10 @@ public class PlatformState {
     }
 
     Set<Plugin> computeAllDependenciesRecursive(final Plugin root) {
-        if(root.isRecursiveResolved()){
-            return root.getRecursiveResolvedPlugins();
-        }
-        Stack<PluginElt> stack = new Stack<>();
-        stack.add(new PluginElt(null, root));
-        while (!stack.isEmpty()){
-            PluginElt current = stack.peek();
-            PluginElt next = current.next();
-
-            if(next == PluginElt.EMPTY) {
-                stack.pop();
-                // make sure we finished the iteration and replace the default empty set if no dependencies found
-                current.setResolved(this);
-                continue;
-            }
-
-            if(stack.contains(next)){
-                if(!next.plugin.isRecursiveResolved()){
-                    Set<Plugin> resolvedPlugins = next.plugin.getRecursiveResolvedPlugins();
-                    for (Plugin p : resolvedPlugins) {
-                        current.resolved(p, this);
-                    }
-                }
-                // avoid (but report) cyclic dependencies
-                if(current.plugin != next.plugin.getHost()
-                        && next.plugin != current.plugin.getHost()) {
-//                    String[] affected = stack.stream().map(p -> p.plugin.getName()).toArray(String[]::new);
-                    if(shouldIgnoreCycleError(current.plugin.getName(), next.plugin.getName())) {
-                        next.plugin.addWarningToLog("Dependency cycle detected with " + current.plugin.getNameAndVersion(), next.toVisit);
-                    } else {
-                        next.plugin.addErrorToLog("Dependency cycle detected with " + current.plugin.getNameAndVersion(), next.toVisit);
-                    }
-                }
-                continue;
-            }
-
-            if(root.containsRecursiveResolved(next.plugin)) {
-                Set<Plugin> resolvedPlugins = next.plugin.getRecursiveResolvedPlugins();
-                for (Plugin p : resolvedPlugins) {
-                    current.resolved(p, this);
-                }
-                current.resolved(next.plugin, this);
-            } else {
-                stack.push(next);
-            }
-        }
-        Set<Plugin> rrp = root.getRecursiveResolvedPlugins();
-        for (Plugin plugin : rrp) {
-            if(!plugin.isRecursiveResolved()){
-                if(plugin.isFragment()){
-                    plugin.setResolved(this);
-                }
-            }
-            if(!plugin.isRecursiveResolved()) {
-                throw new IllegalStateException("Unable to resolve: " + plugin);
-            }
+        if(!root.isRecursiveResolved()){
+            new DependencyClosure(this).compute(Collections.singleton(root));
         }
-        return rrp;
+        return root.getRecursiveResolvedPlugins();
     }
 
     public Set<Plugin> computeCompilationDependencies(final Plugin root) {
@@ -661,15 +958,48 @@ public class PlatformState {
         return root.getVisibleOnCompilePlugins();
     }
 
+    /**
+     * @return ids of all known plugins, see {@link PluginBitSet}
+     */
+    PluginIds getPluginIds() {
+        if (pluginIds == null) {
+            pluginIds = new PluginIds(plugins);
+            closureStore = new ClosureStore(pluginIds, closureFile);
+        }
+        return pluginIds;
+    }
+
+    /**
+     * @return frozen snapshot of the resolved dependencies of all plugins and
+     *         features, created on first call. Resolves dependencies if not done yet
+     */
+    public DependencyGraph getDependencyGraph() {
+        if (!dependenciesresolved) {
+            resolveDependencies();
+        }
+        if (dependencyGraph == null) {
+            dependencyGraph = DependencyGraph.create(this);
+        }
+        return dependencyGraph;
+    }
+
+    /**
+     * @return shared storage for closures and classpaths of all plugins
+     */
+    ClosureStore getClosureStore() {
+        getPluginIds();
+        return closureStore;
+    }
+
     public DependencyResolver resolveDependencies() {
         DependencyResolver depres = new DependencyResolver(this);
-
-        for (Plugin plugin : getPlugins()) {
-            depres.resolvePluginDependency(plugin);
+        for (Plugin plugin : plugins) {
+            plugin.startResolution();
         }
-        for (Feature feature : getFeatures()) {
-            depres.resolveFeatureDependency(feature);
+        for (Feature feature : features) {
+            feature.startResolution();
         }
+        depres.resolve(getPlugins(), getFeatures(), threads);
         checkPluginsContainedInFeatures();
         for (Plugin plugin : getPlugins()) {
             plugin.parsingDone();
@@ -683,27 +1013,87 @@ public class PlatformState {
         for (Capability cap : getCapabilities()) {
             cap.parsingDone();
         }
-        packages = Collections.unmodifiableSet(packages);
-        capabilities = Collections.unmodifiableSet(capabilities);
-        plugins = Collections.unmodifiableSet(plugins);
-        features = Collections.unmodifiableSet(features);
+        synchronized (this) {
+            internPool = null;
+        }
+        // backing sets are only changed by addPlugin(), updatePlugin() and removePlugin()
+        packagesView = Collections.unmodifiableSet(packages);
+        capabilitiesView = Collections.unmodifiableSet(capabilities);
+        pluginsView = Collections.unmodifiableSet(plugins);
+        featuresView = Collections.unmodifiableSet(features);
+        requirementIndex = null;
+        resolutionMemo = depres.getMemo();
+        pluginIds = new PluginIds(plugins);
+        closureStore = new ClosureStore(pluginIds, closureFile);
+        dependencyGraph = null;
         dependenciesresolved = true;
         return depres;
     }
 
+    /**
+     * @param threads
+     *            number of threads used to resolve dependencies, 1 means sequential
+     *            resolution. The result doesn't depend on the number of threads
+     */
+    public void setThreads(int threads) {
+        if (threads < 1) {
+            throw new IllegalArgumentException("Number of threads must be positive: " + threads);
+        }
+        this.threads = threads;
+    }
+
+    int getThreads() {
+        return threads;
+    }
+
+    /**
+     * @param file
+     *            file closures of all plugins are written to and read back from via
+     *            memory mapping, instead of keeping them on heap. Existing content is
+     *            discarded. Must be set before dependencies are resolved
+     * @throws IOException
+     *             if the file can't be created
+     */
+    public void setClosureFile(File file) throws IOException {
+        closureFile = ClosureFile.open(file);
+    }
+
+    /**
+     * @return statistics of the requirements resolution (how many requirements were
+     *         answered from the memo), null if dependencies are not resolved yet
+     */
+    String getResolutionStatistics() {
+        return resolutionMemo == null ? null : resolutionMemo.toString();
+    }
+
+    /**
+     * @return statistics of the shared closures, null if not computed yet
+     */
+    String getClosureStatistics() {
+        return closureStore == null ? null : closureStore.toString();
+    }
+
 
     private void checkPluginsContainedInFeatures() {
         for (Plugin plugin : getPlugins()) {
-            String name = plugin.getName();
-            if(name.endsWith(".tests") || name.endsWith(".source")) {
-                continue;
+            checkContainedInFeatures(plugin);
+        }
+    }
+
+    void checkContainedInFeatures(Plugin plugin) {
+        String name = plugin.getName();
+        if(name.endsWith(".tests") || name.endsWith(".source")) {
+            return;
+        }
+        Set<Feature> inFeatures = plugin.getIncludedInFeatures();
+        if(inFeatures.isEmpty()) {
+            if(isReportPluginsNotContainedInFeatures()) {
+                plugin.addWarningToLog(NOT_IN_FEATURE, plugin);
             }
-            Set<Feature> inFeatures = plugin.getIncludedInFeatures();
-            if(inFeatures.isEmpty()) {
-                if(isReportPluginsNotContainedInFeatures()) {
-                    plugin.addWarningToLog("not incuded in any feature", plugin);
-                }
-            } else if(inFeatures.size() > 1) {
+        } else {
+            // could be reported before the plugin was added to a feature by an update
+            plugin.getLog().removeIf(p -> p.getMessage().equals(NOT_IN_FEATURE) && p.getOwner() == plugin);
+            if(inFeatures.size() > 1) {
                 /*
                  * TODO add INFO level and report that
                 StringBuilder note = new StringBuilder("plugin incuded in more than one feature\n");
@@ -755,93 +1145,105 @@ public class PlatformState {
         return platformSpecs;
     }
 
-    public void setPlatformSpecs(PlatformSpecs platformSpecs) {
-        this.platformSpecs = platformSpecs;
+    /**
+     * @param cacheDir
+     *            directory to store persistent indexes (like the Java home packages
+     *            index), may be null
+     */
+    public void setCacheDirectory(File cacheDir) {
+        this.cacheDirectory = cacheDir;
+        systemPackages = null;
+        releasePackages = null;
+        javaHomePackages.clear();
     }
 
-    public Set<Package> searchInJavaHome(String packageName) {
-        List<String> prefixes = JDK_PACK_PREFIXES;
-        boolean canBeFromJdk = false;
-        for (String prefix : prefixes) {
-            if(packageName.startsWith(prefix)){
-                canBeFromJdk = true;
-                break;
+    /**
+     * @param environments
+     *            Java SE execution environments (like "JavaSE-11") all bundles should
+     *            be checked against, empty to skip the check
+     * @throws IllegalArgumentException
+     *             if one of the environments is not a valid Java SE execution
+     *             environment
+     */
+    public void setExecutionEnvironments(List<String> environments) {
+        List<ExecutionEnvironment> list = new ArrayList<>();
+        for (String ee : environments) {
+            ExecutionEnvironment env = ExecutionEnvironment.valueOf(ee);
+            boolean known = false;
+            for (ExecutionEnvironment e : list) {
+                known |= e.getRelease() == env.getRelease();
+            }
+            if (!known) {
+                list.add(env);
             }
         }
-        if(!canBeFromJdk){
-            return Collections.emptySet();
-        }
-        Set<String> allSystem = checkSystemPackages(javaHomeRtJar);
-        if (allSystem.contains(packageName)) {
-            return createPackage(packageName);
-        }
-        return Collections.emptySet();
+        executionEnvironments = Collections.unmodifiableList(list);
     }
 
-    private Set<Package> createPackage(String packageName) {
-        Package p = createPackage(packageName, NamedElement.EMPTY_VERSION);
-        Set<Package> result = new LinkedHashSet<>();
-        result.add(p);
-        return result;
+    /**
+     * @return never null, execution environments all bundles should be checked against
+     */
+    List<ExecutionEnvironment> getExecutionEnvironments() {
+        return executionEnvironments;
     }
 
-    static Set<String> checkSystemPackages(File jar) {
-        if (jar.getName().equals("jrt-fs.jar")) {
-            return checkJrtFsPackages(jar);
-        }
-        return checkRtPackages(jar);
+    public void setPlatformSpecs(PlatformSpecs platformSpecs) {
+        this.platformSpecs = platformSpecs;
     }
 
-    static Set<String> checkJrtFsPackages(File jar) {
-        if (!jar.getName().equals("jrt-fs.jar")) {
-            return Collections.emptySet();
+    /**
+     * @return read-only set with the package of given name if the configured Java home
+     *         provides it, empty set otherwise. Repeated lookups of same package return
+     *         same set and don't allocate anything.
+     */
+    public Set<Package> searchInJavaHome(String packageName) {
+        Set<Package> result = javaHomePackages.get(packageName);
+        if (result != null) {
+            return result;
         }
-        Set<String> set = knownSystemPackages.get(jar);
-        if (set != null) {
-            return set;
-        }
-        try(URLClassLoader loader = new URLClassLoader(new URL[] { jar.toPath().toUri().toURL() })) {
-            FileSystem fs = FileSystems.newFileSystem(URI.create("jrt:/"), Collections.emptyMap(), loader);
-            Path top = fs.getPath("/packages");
-            Stream<Path> list = Files.list(top).filter(Files::isDirectory).map(n -> n.getFileName()).filter(n -> n != null);
-            set = list.map(p -> p.toString()).filter(n -> n.indexOf('.') > 0).sorted().collect(Collectors.toCollection(LinkedHashSet::new));
-            set = Collections.unmodifiableSet(set);
-            knownSystemPackages.put(jar, set);
-            return set;
-        } catch (IOException e) {
-            Logging.getLogger().error(" failed to read system packages from '" + jar + "'.", e);
+        if (!isJavaHomePackage(packageName)) {
             return Collections.emptySet();
         }
+        Package p = createPackage(packageName, NamedElement.EMPTY_VERSION);
+        result = Collections.singleton(p);
+        javaHomePackages.put(packageName, result);
+        return result;
     }
 
-    static Set<String> checkRtPackages(File jar) {
-        if (!jar.getName().equals("rt.jar")) {
-            return Collections.emptySet();
-        }
-        Set<String> set = knownSystemPackages.get(jar);
-        if (set != null) {
-            return set;
-        }
+    /**
+     * @return true if the configured Java home provides the package. Unlike
+     *         {@link #searchInJavaHome(String)} this never modifies the state
+     */
+    boolean isJavaHomePackage(String packageName) {
+        return JDK_PACK_TRIE.hasPrefixOf(packageName) && getSystemPackages().contains(packageName);
+    }
 
-        File libDir = jar.getParentFile();
-        File[] jarList = libDir.listFiles((dir, name) -> name.endsWith(".jar"));
-        if(jarList == null){
-            return Collections.emptySet();
+    /**
+     * @return packages provided by the configured Java home
+     */
+    Set<String> getSystemPackages() {
+        Set<String> result = systemPackages;
+        if (result == null) {
+            result = SystemPackageIndex.getPackages(javaHomeRtJar, cacheDirectory);
+            systemPackages = result;
         }
-        Set<String> result = new TreeSet<>();
-        for (File file : jarList) {
-            try (JarFile jarfile = new JarFile(file)) {
-                Stream<String> stream = jarfile.stream().map(e -> e.getName());
-                stream = stream.filter(e -> e.endsWith(".class")).map(e -> e.substring(0, e.lastIndexOf('/')));
-                stream = stream.map(e -> e.replace('/', '.'));
-                set = stream.collect(Collectors.toCollection(LinkedHashSet::new));
-                result.addAll(set);
-            } catch (IOException e) {
-                Logging.getLogger().error(" failed to read system packages from '" + jar + "'.", e);
+        return result;
+    }
+
+    /**
+     * @return packages of all Java releases known to the configured Java home, empty if
+     *         the Java home does not provide this information (Java 8 and older)
+     */
+    SystemPackageIndex.ReleasePackages getReleasePackages() {
+        SystemPackageIndex.ReleasePackages result = releasePackages;
+        if (result == null) {
+            if (javaHomeRtJar == null) {
+                result = SystemPackageIndex.ReleasePackages.EMPTY;
+            } else {
+                result = SystemPackageIndex.getReleasePackages(javaHomeRtJar, cacheDirectory);
             }
+            releasePackages = result;
         }
-        result = Collections.unmodifiableSet(result);
-        knownSystemPackages.put(jar, result);
         return result;
     }
 
@@ -1039,9 +1441,7 @@ public class PlatformState {
             if (diff != 0) {
                 return diff;
             }
-            Version v1 = new Version(o1.getVersion());
-            Version v2 = new Version(o2.getVersion());
-            return v1.compareTo(v2);
+            return o1.getParsedVersion().compareTo(o2.getParsedVersion());
         }
     }
 
@@ -17,11 +17,13 @@ import java.io.File;
 import java.io.FileReader;
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Properties;
 import java.util.Set;
+import java.util.function.Predicate;
 import java.util.jar.Manifest;
 
 /**
@@ -38,8 +40,13 @@ public class Plugin extends OSGIElement {
 
     private List<ManifestEntry> importedPackageEntries;
     private List<ManifestEntry> requiredCapabilityEntries;
+    private List<ManifestEntry> requiredExecutionEnvironments;
 
     private Set<Package> exportedPackages;
+    /** packages exported by this plugin itself, null if same as {@link #exportedPackages} */
+    private Set<Package> ownExportedPackages;
+    /** exported packages marked as split, see {@link Package#getSplit()} */
+    private Set<Package> splitPackages;
     private final Set<Capability> providedCapabilities;
 
     private Set<Package> reExportedPackages;
@@ -51,6 +58,11 @@ public class Plugin extends OSGIElement {
 
     private Set<Plugin> recursiveResolvedPlugins;
 
+    /** ids this plugin is registered in, see {@link #getId(PluginIds)} */
+    private volatile PluginIds ids;
+
+    private int id;
+
     private Set<Plugin> visibleOnCompilePlugins;
 
     private Set<Plugin> reexportedBy;
@@ -86,7 +98,9 @@ public class Plugin extends OSGIElement {
         isSingleton = singleton;
         this.importedPackageEntries = new ArrayList<>();
         this.requiredCapabilityEntries = new ArrayList<>();
+        this.requiredExecutionEnvironments = Collections.emptyList();
         this.exportedPackages = new LinkedHashSet<>();
+        this.splitPackages = Collections.emptySet();
         this.providedCapabilities = new LinkedHashSet<>();
         this.reExportedPackages = new LinkedHashSet<>();
         this.importedPackages = new LinkedHashSet<>();
@@ -127,7 +141,10 @@ public class Plugin extends OSGIElement {
     }
 
     public void setFragmentHost(String fragmentHost) {
-        List<ManifestEntry> entries = StringUtil.splitInManifestEntries(fragmentHost);
+        setFragmentHost(StringUtil.splitInManifestEntries(fragmentHost));
+    }
+
+    void setFragmentHost(List<ManifestEntry> entries) {
         if (entries.size() > 0) {
             this.fragmentHostEntry = entries.get(0);
             if (entries.size() > 1) {
@@ -142,7 +159,7 @@ public class Plugin extends OSGIElement {
         if(!isFragment || fragmentHostEntry == null){
             return null;
         }
-        return new Version(fragmentHostEntry.getVersion());
+        return Version.valueOf(fragmentHostEntry.getVersion());
     }
 
     public Set<Package> getImportedPackages() {
@@ -154,11 +171,13 @@ public class Plugin extends OSGIElement {
     }
 
     public void addImportedPackage(Package importedPackage) {
+        importedPackages = modifiable(importedPackages);
         this.importedPackages.add(importedPackage);
         importedPackage.addImportedBy(this);
     }
 
     public void addRequiredCapability(Capability requiredCapability) {
+        requiredCapabilities = modifiable(requiredCapabilities);
         this.requiredCapabilities.add(requiredCapability);
         requiredCapability.addRequiredBy(this);
     }
@@ -168,7 +187,11 @@ public class Plugin extends OSGIElement {
     }
 
     public void setImportedPackageEntries(String requPackages) {
-        importedPackageEntries = Collections.unmodifiableList(StringUtil.splitInManifestEntries(requPackages));
+        setImportedPackageEntries(StringUtil.splitInManifestEntries(requPackages));
+    }
+
+    void setImportedPackageEntries(List<ManifestEntry> entries) {
+        importedPackageEntries = Collections.unmodifiableList(entries);
     }
 
     public List<ManifestEntry> getRequiredCapabilityEntries() {
@@ -184,14 +207,47 @@ public class Plugin extends OSGIElement {
 
         // Found in junit-jupiter-api, version=5.12.2:
         // org.junit.platform.engine;filter:="(&(org.junit.platform.engine=junit-jupiter)(version>=5.12.2)(!(version>=6)))";effective:=active,osgi.ee;filter:="(&(osgi.ee=JavaSE)(version=1.8))"
-        List<ManifestEntry> splitInManifestEntries = StringUtil.splitInManifestEntries(reqCapabilities);
-        requiredCapabilityEntries = Collections.unmodifiableList(splitInManifestEntries);
+        setRequiredCapabilityEntries(StringUtil.splitInManifestEntries(reqCapabilities));
+    }
+
+    void setRequiredCapabilityEntries(List<ManifestEntry> entries) {
+        requiredCapabilityEntries = Collections.unmodifiableList(entries);
+    }
+
+    /**
+     * @return never null, entries from the "Bundle-RequiredExecutionEnvironment"
+     *         header, any of them is sufficient to run the bundle
+     */
+    public List<ManifestEntry> getRequiredExecutionEnvironments() {
+        return requiredExecutionEnvironments;
+    }
+
+    public void setRequiredExecutionEnvironments(String environments) {
+        setRequiredExecutionEnvironments(StringUtil.splitInManifestEntries(environments));
+    }
+
+    void setRequiredExecutionEnvironments(List<ManifestEntry> entries) {
+        requiredExecutionEnvironments = Collections.unmodifiableList(entries);
     }
 
     public Set<Package> getExportedPackages() {
         return exportedPackages;
     }
 
+    /**
+     * @return packages exported by this plugin itself, without the re-exported ones
+     */
+    Set<Package> getOwnExportedPackages() {
+        return ownExportedPackages == null ? exportedPackages : ownExportedPackages;
+    }
+
+    /**
+     * @return exported packages marked as split
+     */
+    Set<Package> getSplitPackages() {
+        return splitPackages;
+    }
+
     public Set<Capability> getProvidedCapabilities() {
         return providedCapabilities;
     }
@@ -209,23 +265,34 @@ public class Plugin extends OSGIElement {
     }
 
     public void addReExportPlugin(Plugin plugin) {
+        reexportedBy = modifiable(reexportedBy);
         this.reexportedBy.add(plugin);
     }
 
     public void setExportedPackages(String expPackagesString, PlatformState state) {
-        List<ManifestEntry> entries = StringUtil.splitInManifestEntries(expPackagesString);
+        setExportedPackages(StringUtil.splitInManifestEntries(expPackagesString), state);
+    }
+
+    void setExportedPackages(List<ManifestEntry> entries, PlatformState state) {
         for (ManifestEntry entry : entries) {
             Package pack = state.createPackage(entry);
             pack.addExportPlugin(this);
             if(entry.isSplit()){
                 pack.addSplitPlugin(this);
+                if (splitPackages.isEmpty()) {
+                    splitPackages = new LinkedHashSet<>();
+                }
+                splitPackages.add(pack);
             }
             exportedPackages.add(pack);
         }
     }
 
     public void setProvidedCapabilities(String providedCapabilityString, PlatformState state) {
-        List<ManifestEntry> entries = StringUtil.splitInManifestEntries(providedCapabilityString);
+        setProvidedCapabilities(StringUtil.splitInManifestEntries(providedCapabilityString), state);
+    }
+
+    void setProvidedCapabilities(List<ManifestEntry> entries, PlatformState state) {
         for (ManifestEntry entry : entries) {
             Capability cap = state.createCapability(entry);
             cap.addProvidingPlugin(this);
@@ -310,6 +377,7 @@ public class Plugin extends OSGIElement {
             addErrorToLog("fragment can't have additional fragments: " + fragment, fragment);
             return;
         }
+        fragments = modifiable(fragments);
         this.fragments.add(fragment);
     }
 
@@ -390,7 +458,8 @@ public class Plugin extends OSGIElement {
             if(capabilityFilter != null) {
                 logEntry.append(" " + capabilityFilter);
                 if(capabilityFilter.contains("osgi.ee")) {
-                    // TODO check for EE version
+                    // checked against the configured execution environments, see
+                    // DependencyResolver.checkExecutionEnvironment()
                 } else {
                     addWarningToLog(logEntry.toString(), requiredCapability);
                 }
@@ -452,66 +521,6 @@ public class Plugin extends OSGIElement {
         return recursiveResolvedPlugins.contains(p);
     }
 
-    public void addToRecursiveResolvedPlugins(Plugin plugin, PlatformState state) {
-        if(plugin == null){
-            return;
-        } else if (this.equals(plugin)) {
-            if(isRecursiveResolved()) {
-                Problem problem;
-                if(state.shouldIgnoreCycleError(this.getName())) {
-                    problem = new Problem("Self-dependency cycle detected", Problem.WARN, this, Collections.EMPTY_LIST);
-                } else {
-                    problem = new Problem("Self-dependency cycle detected", Problem.ERROR, this, Collections.EMPTY_LIST);
-                }
-                if(!log.contains(problem)) {
-                    log.add(problem);
-                }
-            }
-            return;
-        }
-        if(recursiveResolvedPlugins == null){
-            recursiveResolvedPlugins = new LinkedHashSet<>();
-        }
-        if(recursiveResolvedPlugins.contains(plugin)){
-            return;
-        }
-        if(isRecursiveResolved()) {
-            if (plugin.containsRecursiveResolved(this)) {
-                recursiveResolvedPlugins = new LinkedHashSet<>(recursiveResolvedPlugins);
-                recursiveResolvedPlugins.add(plugin);
-                recursiveResolvedPlugins = Collections.unmodifiableSet(recursiveResolvedPlugins);
-                if(!isFragmentOrHost(plugin)){
-                    if(state.shouldIgnoreCycleError(plugin.getName(), this.getName())) {
-                        addWarningToLog("plugin has cycle with: " + plugin.getInformationLine(), plugin);
-                        plugin.addWarningToLog("plugin has cycle with: " + getInformationLine(), this);
-                    } else {
-                        addErrorToLog("plugin has cycle with: " + plugin.getInformationLine(), plugin);
-                        plugin.addErrorToLog("plugin has cycle with: " + getInformationLine(), this);
-                    }
-                }
-            } else {
-                if(!isFragmentOrHost(plugin)){
-                    if(state.shouldIgnoreCycleError(plugin.getName(), this.getName())) {
-                        addWarningToLog("plugin has indirect cycle with: " + plugin.getInformationLine(), plugin);
-                        plugin.addWarningToLog("plugin has indirect cycle with: " + getInformationLine(), this);
-                    } else {
-                        addErrorToLog("plugin has indirect cycle with: " + plugin.getInformationLine(), plugin);
-                        plugin.addErrorToLog("plugin has indirect cycle with: " + getInformationLine(), this);
-                    }
-                }
-            }
-            return;
-        }
-
-        recursiveResolvedPlugins.add(plugin);
-        Set<Plugin> rrp = plugin.getRecursiveResolvedPlugins();
-        for (Plugin child : rrp) {
-            if(this != child) {
-                recursiveResolvedPlugins.add(child);
-            }
-        }
-    }
-
     boolean isFragmentOrHost(Plugin other){
         if(isFragment() && getHost() == other){
             return true;
@@ -521,13 +530,18 @@ public class Plugin extends OSGIElement {
 
     @Override
     public void parsingDone() {
-        super.parsingDone();
-        fragments = fragments.isEmpty()? Collections.EMPTY_SET : Collections.unmodifiableSet(fragments);
-        reExportedPackages = computeReexportedPackages();
-        exportedPackages = exportedPackages.isEmpty()? Collections.EMPTY_SET : Collections.unmodifiableSet(exportedPackages);
-        importedPackages = importedPackages.isEmpty()? Collections.EMPTY_SET : Collections.unmodifiableSet(importedPackages);
-        requiredCapabilities = requiredCapabilities.isEmpty()? Collections.EMPTY_SET : Collections.unmodifiableSet(requiredCapabilities);
-        reexportedBy = reexportedBy.isEmpty()? Collections.EMPTY_SET : Collections.unmodifiableSet(reexportedBy);
+        parsingDone(null);
+    }
+
+    /**
+     * @param exportsDone
+     *            null if all plugins of the state are done in state order. Otherwise
+     *            tells if re-exported packages of given plugin were already added to its
+     *            exported packages by a full resolution at this point
+     */
+    void parsingDone(Predicate<Plugin> exportsDone) {
+        reExportedPackages = computeReexportedPackages(exportsDone);
+        freeze();
 
         for (Package rp : reExportedPackages) {
             if(!exportedPackages.contains(rp)){
@@ -541,10 +555,21 @@ public class Plugin extends OSGIElement {
         }
     }
 
-    private Set<Package> computeReexportedPackages() {
+    @Override
+    void freeze() {
+        super.freeze();
+        fragments = readOnly(fragments);
+        exportedPackages = readOnly(exportedPackages);
+        importedPackages = readOnly(importedPackages);
+        requiredCapabilities = readOnly(requiredCapabilities);
+        reexportedBy = readOnly(reexportedBy);
+    }
+
+    private Set<Package> computeReexportedPackages(Predicate<Plugin> exportsDone) {
         Set<Plugin> reex = resolveRequiredReexportedRecursively(this);
         for (Plugin plugin : reex) {
-            Set<Package> ex = plugin.getExportedPackages();
+            Set<Package> ex = exportsDone == null || exportsDone.test(plugin) ? plugin.getExportedPackages()
+                    : plugin.getOwnExportedPackages();
             reExportedPackages.addAll(ex);
         }
         if (reExportedPackages.isEmpty()) {
@@ -554,10 +579,57 @@ public class Plugin extends OSGIElement {
         for (Package pack : reExportedPackages) {
             pack.addReExportPlugin(this);
         }
+        ownExportedPackages = readOnly(new LinkedHashSet<>(exportedPackages));
         exportedPackages.addAll(reExportedPackages);
         return Collections.unmodifiableSet(reExportedPackages);
     }
 
+    @Override
+    void resetResolution() {
+        super.resetResolution();
+        host = null;
+        importedPackages = new LinkedHashSet<>();
+        requiredCapabilities = new LinkedHashSet<>();
+        // only filters of the required capabilities are added to plugins
+        getFilterMap().keySet().removeIf(Capability.class::isInstance);
+        exportedPackages = new LinkedHashSet<>(getOwnExportedPackages());
+        ownExportedPackages = null;
+        reExportedPackages = new LinkedHashSet<>();
+        resetClosure();
+    }
+
+    /**
+     * Forgets the closure and classpath, they are computed again on next request
+     */
+    void resetClosure() {
+        recursiveResolvedPlugins = null;
+        visibleOnCompilePlugins = new LinkedHashSet<>();
+    }
+
+    @Override
+    void addResolvedTargets(Collection<NamedElement> targets) {
+        super.addResolvedTargets(targets);
+        if (host != null) {
+            targets.add(host);
+        }
+        targets.addAll(importedPackages);
+        targets.addAll(reExportedPackages);
+    }
+
+    @Override
+    void removeResolvers(Set<?> resolvers) {
+        super.removeResolvers(resolvers);
+        fragments = without(fragments, resolvers);
+        reexportedBy = without(reexportedBy, resolvers);
+    }
+
+    @Override
+    void restoreOrder() {
+        super.restoreOrder();
+        fragments = sorted(fragments, STATE_ORDER);
+        reexportedBy = sorted(reexportedBy, STATE_ORDER);
+    }
+
     private static Set<Plugin> resolveRequiredReexportedRecursively(Plugin start) {
         Set<Plugin> reexportedPlugins = start.getRequiredReexportedPlugins();
         if(reexportedPlugins.isEmpty()){
@@ -584,35 +656,26 @@ public class Plugin extends OSGIElement {
         return reex;
     }
 
-    public void setResolved(PlatformState state){
-        if(isRecursiveResolved()){
-            return;
-        }
-        if(isFragment()) {
-            if (host != null) {
-                if (!host.isRecursiveResolved()) {
-                    return;
-                }
-                addToRecursiveResolvedPlugins(host, state);
-            }
-        }
-
-        computeClasspath();
+    /**
+     * Sets all plugins this plugin depends on (directly or indirectly) and computes the
+     * classpath, see {@link DependencyClosure}
+     */
+    void setRecursiveResolved(Set<Plugin> plugins, ClosureStore store) {
+        computeClasspath(store);
+        recursiveResolvedPlugins = plugins;
+    }
 
-        if(recursiveResolvedPlugins == null || recursiveResolvedPlugins.isEmpty()){
-            recursiveResolvedPlugins = Collections.emptySet();
-        } else {
-            recursiveResolvedPlugins = Collections.unmodifiableSet(recursiveResolvedPlugins);
-        }
+    /**
+     * @return id of this plugin in given ids, -1 if not registered there
+     */
+    int getId(PluginIds pluginIds) {
+        return ids == pluginIds ? id : -1;
+    }
 
-        if(isHost()) {
-            Set<Plugin> frs = getFragments();
-            for (Plugin fragment : frs) {
-                if(!fragment.isRecursiveResolved()) {
-                    fragment.setResolved(state);
-                }
-            }
-        }
+    void setId(PluginIds pluginIds, int newId) {
+        // id first: ids is volatile and publishes the id
+        this.id = newId;
+        this.ids = pluginIds;
     }
 
     /**
@@ -625,9 +688,9 @@ public class Plugin extends OSGIElement {
      * <li>plus all plugins that contribute split packages to packages exported by all plugins we had already
      * </ol>
      *
-     * @see DependencyResolver.PluginElt#addDirectDependencies()
+     * @see DependencyClosure#getDirectDependencies(Plugin)
      */
-    private void computeClasspath() {
+    private void computeClasspath(ClosureStore store) {
 
         // org.eclipse.ui.workbench.texteditor exports org.eclipse.ui.texteditor *split* package
         // the same package exported by org.eclipse.ui.editors bundle
@@ -658,7 +721,7 @@ public class Plugin extends OSGIElement {
         // paranoia
         visibleOnCompilePlugins.remove(this);
 
-        visibleOnCompilePlugins = visibleOnCompilePlugins.isEmpty()? Collections.EMPTY_SET : Collections.unmodifiableSet(visibleOnCompilePlugins);
+        visibleOnCompilePlugins = store.classpath(visibleOnCompilePlugins);
     }
 
     void addPluginWithAndReexported(Set<Plugin> plugins, Plugin toAdd) {
@@ -0,0 +1,239 @@
+/*******************************************************************************
+ * Copyright (c) 2026 Andrey Loskutov
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *    Andrey Loskutov <loskutov@gmx.de> - initial API and implementation
+ *******************************************************************************/
+package org.eclipselabs.plugindependencies.core;
+
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+/**
+ * Read-only set of plugins stored as bitset over {@link PluginIds}. Closures of
+ * thousands of plugins cost one bit per plugin of the platform instead of one hash
+ * set entry per element, and are merged with word-wise OR. Iteration is in id order.
+ * <p>
+ * The bits are stored compressed, in the smaller one of two forms: the words between
+ * the first and the last non zero word, or only the non zero words with their
+ * positions. Instances are shared via {@link ClosureStore}.
+ */
+final class PluginBitSet extends AbstractSet<Plugin> {
+
+    private static final long[] NO_WORDS = new long[0];
+
+    private final PluginIds ids;
+    /** stored words, see {@link #positions} */
+    private final long[] words;
+    /** word positions of {@link #words}, null if the words are consecutive */
+    private final int[] positions;
+    /** position of the first word if the words are consecutive */
+    private final int offset;
+    private final int size;
+    private final int hash;
+
+    /**
+     * @param bits
+     *            not referenced after construction
+     */
+    PluginBitSet(PluginIds ids, long[] bits) {
+        this.ids = ids;
+        int first = -1;
+        int last = -1;
+        int nonZero = 0;
+        int count = 0;
+        for (int i = 0; i < bits.length; i++) {
+            if (bits[i] != 0) {
+                if (first < 0) {
+                    first = i;
+                }
+                last = i;
+                nonZero++;
+                count += Long.bitCount(bits[i]);
+            }
+        }
+        size = count;
+        if (nonZero == 0) {
+            words = NO_WORDS;
+            positions = null;
+            offset = 0;
+        } else if ((last - first + 1) * 8L <= nonZero * 12L) {
+            words = Arrays.copyOfRange(bits, first, last + 1);
+            positions = null;
+            offset = first;
+        } else {
+            words = new long[nonZero];
+            positions = new int[nonZero];
+            for (int i = first, j = 0; i <= last; i++) {
+                if (bits[i] != 0) {
+                    words[j] = bits[i];
+                    positions[j++] = i;
+                }
+            }
+            offset = 0;
+        }
+        hash = 31 * (31 * Arrays.hashCode(words) + Arrays.hashCode(positions)) + offset;
+    }
+
+    /**
+     * Adds all plugins of given set to the bits
+     *
+     * @return given bits, or a longer copy if they were too short
+     */
+    static long[] or(long[] bits, Set<Plugin> plugins, PluginIds ids) {
+        if (plugins instanceof PluginBitSet && ((PluginBitSet) plugins).ids == ids) {
+            PluginBitSet set = (PluginBitSet) plugins;
+            for (int i = 0; i < set.words.length; i++) {
+                int position = set.position(i);
+                if (position >= bits.length) {
+                    bits = Arrays.copyOf(bits, set.position(set.words.length - 1) + 1);
+                }
+                bits[position] |= set.words[i];
+            }
+            return bits;
+        }
+        if (plugins instanceof MappedPluginSet) {
+            return ((MappedPluginSet) plugins).or(bits, ids);
+        }
+        for (Plugin plugin : plugins) {
+            bits = set(bits, ids.idOf(plugin));
+        }
+        return bits;
+    }
+
+    /**
+     * @return given bits with the id set, a longer copy if the id doesn't fit
+     */
+    static long[] set(long[] bits, int id) {
+        int word = id >>> 6;
+        if (word >= bits.length) {
+            bits = Arrays.copyOf(bits, word + 1);
+        }
+        bits[word] |= 1L << id;
+        return bits;
+    }
+
+    /**
+     * @return ids of all set bits, sorted
+     */
+    static int[] toIds(long[] bits) {
+        int count = 0;
+        for (long word : bits) {
+            count += Long.bitCount(word);
+        }
+        int[] result = new int[count];
+        int index = 0;
+        for (int i = 0; i < bits.length; i++) {
+            long word = bits[i];
+            while (word != 0) {
+                result[index++] = (i << 6) + Long.numberOfTrailingZeros(word);
+                word &= word - 1;
+            }
+        }
+        return result;
+    }
+
+    static void clear(long[] bits, int id) {
+        bits[id >>> 6] &= ~(1L << id);
+    }
+
+    static boolean get(long[] bits, int id) {
+        int word = id >>> 6;
+        return word < bits.length && (bits[word] & (1L << id)) != 0;
+    }
+
+    /**
+     * @return target with all bits of the source added, a longer copy if the source is
+     *         longer than the target
+     */
+    static long[] or(long[] target, long[] source) {
+        if (source.length > target.length) {
+            target = Arrays.copyOf(target, source.length);
+        }
+        for (int i = 0; i < source.length; i++) {
+            target[i] |= source[i];
+        }
+        return target;
+    }
+
+    private int position(int index) {
+        return positions == null ? offset + index : positions[index];
+    }
+
+    /**
+     * @return true if both sets contain same plugins, faster than {@link #equals(Object)}
+     */
+    boolean sameBits(PluginBitSet other) {
+        return hash == other.hash && ids == other.ids && offset == other.offset
+                && Arrays.equals(words, other.words) && Arrays.equals(positions, other.positions);
+    }
+
+    /**
+     * @return hash code of the stored bits, see {@link #sameBits(PluginBitSet)}
+     */
+    int bitsHash() {
+        return hash;
+    }
+
+    /**
+     * @return approximate number of bytes used by the stored bits
+     */
+    long bitsSize() {
+        return words.length * 8L + (positions == null ? 0 : positions.length * 4L);
+    }
+
+    @Override
+    public boolean contains(Object o) {
+        if (!(o instanceof Plugin)) {
+            return false;
+        }
+        int id = ((Plugin) o).getId(ids);
+        if (id < 0) {
+            return false;
+        }
+        int word = id >>> 6;
+        int index = positions == null ? word - offset : Arrays.binarySearch(positions, word);
+        return index >= 0 && index < words.length && (words[index] & (1L << id)) != 0;
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public Iterator<Plugin> iterator() {
+        return new Iterator<>() {
+            int index;
+            long current = words.length == 0 ? 0 : words[0];
+
+            @Override
+            public boolean hasNext() {
+                while (current == 0) {
+                    if (++index >= words.length) {
+                        return false;
+                    }
+                    current = words[index];
+                }
+                return true;
+            }
+
+            @Override
+            public Plugin next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                int bit = Long.numberOfTrailingZeros(current);
+                current &= current - 1;
+                return ids.get((position(index) << 6) + bit);
+            }
+        };
+    }
+}
@@ -0,0 +1,108 @@
+/*******************************************************************************
+ * Copyright (c) 2026 Andrey Loskutov
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *    Andrey Loskutov <loskutov@gmx.de> - initial API and implementation
+ *******************************************************************************/
+package org.eclipselabs.plugindependencies.core;
+
+import java.util.Arrays;
+import java.util.Collection;
+
+/**
+ * Dense int ids of the plugins of one {@link PlatformState}, so sets of plugins can be
+ * stored as bitsets, see {@link PluginBitSet}. Ids are assigned in the order plugins
+ * are seen and never change. Plugins found after the state is resolved get the next
+ * free id on first use. Lookups of assigned ids are thread safe and lock free: the
+ * table is copied if it grows and (re-)published after each change, so only changes
+ * need the lock.
+ */
+final class PluginIds {
+
+    /** id to plugin table, see {@link #get(int)} */
+    private volatile Plugin[] plugins;
+    private int size;
+
+    PluginIds(Collection<Plugin> all) {
+        plugins = new Plugin[Math.max(16, all.size())];
+        for (Plugin plugin : all) {
+            idOf(plugin);
+        }
+    }
+
+    /**
+     * @return id of given plugin, assigns a new one if the plugin has none yet
+     */
+    int idOf(Plugin plugin) {
+        int id = plugin.getId(this);
+        if (id >= 0) {
+            return id;
+        }
+        return assign(plugin);
+    }
+
+    private synchronized int assign(Plugin plugin) {
+        int id = plugin.getId(this);
+        if (id >= 0) {
+            return id;
+        }
+        Plugin[] table = plugins;
+        if (size == table.length) {
+            table = Arrays.copyOf(table, size * 2);
+        }
+        id = size++;
+        table[id] = plugin;
+        plugin.setId(this, id);
+        plugins = table;
+        return id;
+    }
+
+    /**
+     * Gives the id of the old plugin to the new one (if the new one has no id yet), so
+     * a replaced plugin keeps its position in all plugin sets. The old plugin has no id
+     * afterwards
+     */
+    synchronized void replace(Plugin oldOne, Plugin newOne) {
+        int id = oldOne.getId(this);
+        if (id < 0 || newOne.getId(this) >= 0) {
+            return;
+        }
+        oldOne.setId(null, -1);
+        Plugin[] table = plugins;
+        table[id] = newOne;
+        newOne.setId(this, id);
+        plugins = table;
+    }
+
+    /**
+     * @return plugin with given (assigned) id
+     */
+    Plugin get(int id) {
+        return plugins[id];
+    }
+
+    /**
+     * @return copy of the current id to plugin table, index is the id
+     */
+    synchronized Plugin[] toArray() {
+        return Arrays.copyOf(plugins, size);
+    }
+
+    /**
+     * @return number of assigned ids
+     */
+    synchronized int size() {
+        return size;
+    }
+
+    /**
+     * @return number of longs needed for a bitset over all assigned ids
+     */
+    synchronized int words() {
+        return (size + 63) >>> 6;
+    }
+}
@@ -17,26 +17,27 @@ import static org.eclipselabs.plugindependencies.core.CommandLineInterpreter.RC_
 import static org.eclipselabs.plugindependencies.core.PlatformState.fixName;
 import static org.eclipselabs.plugindependencies.core.PlatformState.fixVersion;
 
-import java.io.ByteArrayInputStream;
-import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.util.ArrayDeque;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.Comparator;
+import java.util.Deque;
 import java.util.List;
-import java.util.jar.JarFile;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.jar.Manifest;
-import java.util.zip.ZipEntry;
 
-import org.w3c.dom.Document;
-import org.w3c.dom.Element;
-import org.w3c.dom.NamedNodeMap;
-import org.w3c.dom.Node;
-import org.w3c.dom.NodeList;
+import org.eclipselabs.plugindependencies.core.BundleArchive.PluginXml;
 
 /**
  * @author obroesam
@@ -45,17 +46,24 @@ import org.w3c.dom.NodeList;
 public class PluginParser {
 
     private boolean parseEarlyStartup;
+    private int threads;
+    private BundleCache cache;
     private final PlatformState state;
 
     public PluginParser(PlatformState state) {
         super();
         this.state = state;
+        this.threads = 1;
     }
 
     /**
      * Parses all Plugins located in pluginDirectoryPath and adds them to the Plugin set.
      * Parsing is done through reading of Manifest located in each Plugin at
      * .../META-INF/MANIFEST.MF . Exported Packages are added to the package set.
+     * <p>
+     * If more than one thread is configured, bundles are read and parsed in parallel,
+     * but added to the platform state strictly in the sorted file order, so the
+     * resulting state is the same as with the sequential parsing.
      *
      * @param rootDir
      *            Path to directory where Plugins are located
@@ -76,6 +84,10 @@ public class PluginParser {
         }
         sortFiles(dirArray);
 
+        if(threads > 1 && dirArray.length > 1) {
+            return createPluginsInParallel(dirArray);
+        }
+
         int result = RC_OK;
         for (File pluginOrDirectory : dirArray) {
             try {
@@ -87,37 +99,70 @@ public class PluginParser {
         return result;
     }
 
-    public int createPluginAndAddToSet(File pluginOrDirectory, boolean workspace) throws IOException {
-        Manifest manifest = getManifest(pluginOrDirectory);
-        Plugin plugin;
-        String pluginXml = null;
-        if (manifest == null) {
-            pluginXml = getPluginXml(pluginOrDirectory);
-            if(pluginXml == null){
-                return RC_OK;
-            }
-        }
-        plugin = parseManifest(manifest, state);
-        if (plugin == null) {
-            if (manifest == null && pluginXml == null) {
-                return RC_OK;
-            }
-            if(pluginXml == null){
-                pluginXml = getPluginXml(pluginOrDirectory);
-                if (pluginXml == null) {
-                    return RC_OK;
+    /**
+     * Reads bundles with a bounded pool of parser threads. The calling thread is the
+     * only one which modifies the platform state: it waits for the parse results in the
+     * given (sorted) order and commits them one by one. At most a fixed window of
+     * bundles is read ahead, so memory stays bounded for very large directories.
+     */
+    private int createPluginsInParallel(File[] dirArray) {
+        int poolSize = Math.min(threads, dirArray.length);
+        ExecutorService executor = Executors.newFixedThreadPool(poolSize, new ParserThreadFactory("Plugin parser"));
+        Deque<Future<ParsedBundle>> window = new ArrayDeque<>();
+        int windowSize = poolSize * 4;
+        int submitted = 0;
+        int result = RC_OK;
+        try {
+            for (File pluginOrDirectory : dirArray) {
+                while (submitted < dirArray.length && window.size() < windowSize) {
+                    File next = dirArray[submitted++];
+                    window.add(executor.submit(() -> readBundle(next, false)));
+                }
+                Future<ParsedBundle> future = window.poll();
+                try {
+                    result = Math.min(result, addToState(future.get()));
+                } catch (ExecutionException e) {
+                    Logging.getLogger().error("Error while discovering plugins from: " + pluginOrDirectory, e.getCause());
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    Logging.getLogger().error("Interrupted while discovering plugins from: " + pluginOrDirectory, e);
+                    return RC_RUNTIME_ERROR;
+                } catch (Throwable t) {
+                    Logging.getLogger().error("Error while discovering plugins from: " + pluginOrDirectory, t);
                 }
             }
-            plugin = parsePluginPromXml(pluginXml);
-            if (plugin == null) {
-                return RC_OK;
-            }
+        } finally {
+            executor.shutdownNow();
         }
-        plugin.setFromWorkspace(workspace);
-        plugin.setPath(pluginOrDirectory.getCanonicalPath());
-        if(parseEarlyStartup){
-            plugin.setEarlyStartup(parseEarlyStartup(pluginOrDirectory));
+        return result;
+    }
+
+    public int createPluginAndAddToSet(File pluginOrDirectory, boolean workspace) throws IOException {
+        return addToState(readBundle(pluginOrDirectory, workspace));
+    }
+
+    /**
+     * Parses given bundle again and replaces the given plugin with it, see
+     * {@link PlatformState#updatePlugin(Plugin, Plugin)}. The plugin is removed if the
+     * file is not a bundle anymore.
+     *
+     * @return the new plugin (or the one it is a duplicate of), null if the plugin was
+     *         removed
+     */
+    public Plugin updatePlugin(Plugin oldOne, File pluginOrDirectory, boolean workspace) throws IOException {
+        ParsedBundle bundle = readBundle(pluginOrDirectory, workspace);
+        if (bundle == null) {
+            state.removePlugin(oldOne);
+            return null;
         }
+        return state.updatePlugin(oldOne, bundle.register(state));
+    }
+
+    private int addToState(ParsedBundle bundle) {
+        if (bundle == null) {
+            return RC_OK;
+        }
+        Plugin plugin = bundle.register(state);
         Plugin addedPlugin = state.addPlugin(plugin);
         if (addedPlugin == plugin) {
             return RC_OK;
@@ -125,70 +170,71 @@ public class PluginParser {
         return RC_ANALYSIS_ERROR;
     }
 
-    private static Plugin parsePluginPromXml(String pluginXml) {
-        Document doc;
-        try {
-            doc = FeatureParser.DB_FACTORY.newDocumentBuilder()
-                    .parse(new ByteArrayInputStream(pluginXml.getBytes()));
-        } catch (Exception e) {
-            Logging.getLogger().error("Failed to parse plugin.xml: " + pluginXml, e);
-            return null;
+    /**
+     * Reads and parses given bundle. This does not modify the platform state and so can
+     * be executed concurrently for different bundles.
+     *
+     * @return null if the given file is not a bundle
+     */
+    private ParsedBundle readBundle(File pluginOrDirectory, boolean workspace) throws IOException {
+        BundleArchive archive;
+        if (cache == null) {
+            archive = BundleArchive.read(pluginOrDirectory, parseEarlyStartup);
+        } else {
+            archive = cache.readBundle(pluginOrDirectory, parseEarlyStartup);
         }
-
-        // <plugin>
-        NodeList plugins = doc.getElementsByTagName("plugin");
-        if(plugins == null || plugins.getLength() != 1){
+        if (archive == null) {
             return null;
         }
-        Node pluginNode = plugins.item(0);
-        if(pluginNode == null){
-            return null;
+        PluginXml pluginXml = archive.getPluginXml();
+        ParsedBundle bundle = parseManifest(archive.getManifest(), state.getInternPool());
+        if (bundle == null) {
+            if (pluginXml == null) {
+                return null;
+            }
+            Plugin plugin = parsePluginXml(pluginXml, pluginOrDirectory, state.getInternPool());
+            if (plugin == null) {
+                return null;
+            }
+            bundle = new ParsedBundle(plugin, Collections.emptyList(), Collections.emptyList());
         }
-        NamedNodeMap attributes = pluginNode.getAttributes();
-        if(attributes == null){
-            return null;
+        Plugin plugin = bundle.plugin;
+        plugin.setFromWorkspace(workspace);
+        plugin.setPath(archive.getCanonicalPath());
+        if(parseEarlyStartup){
+            plugin.setEarlyStartup(isEarlyStartup(pluginXml, pluginOrDirectory));
         }
-        Node idNode = attributes.getNamedItem("id");
-        if(idNode == null){
+        return bundle;
+    }
+
+    private static Plugin parsePluginXml(PluginXml pluginXml, File pluginOrDirectory, InternPool pool) {
+        if (pluginXml.getError() != null) {
+            Logging.getLogger().error("Failed to parse plugin.xml from: " + pluginOrDirectory, pluginXml.getError());
             return null;
         }
-        String id = idNode.getTextContent();
-        Node versionNode = attributes.getNamedItem("version");
-        String version;
-        if(versionNode == null){
-            version = "";
-        } else {
-            version = versionNode.getTextContent();
+        // <plugin>
+        String id = pluginXml.getId();
+        if(id == null){
+            return null;
         }
-        Plugin plugin = new Plugin(null, id, version, false, true);
+        Plugin plugin = new Plugin(null, pool.intern(id), pluginXml.getVersion(), false, true);
 
-        NodeList imports = doc.getElementsByTagName("import");
-        for (int i = 0; i < imports.getLength(); i++) {
-            Element e = (Element)imports.item(i);
-            String plug = e.getAttribute("plugin").trim();
-            if(plug.isEmpty()){
-                continue;
-            }
-            String pv = FeatureParser.createVersion(e);
-            ManifestEntry imported = new ManifestEntry(fixName(plug), fixVersion(pv));
-            plugin.addRequiredPluginEntry(imported);
+        for (String[] imported : pluginXml.getImports()) {
+            String pv = FeatureParser.createVersion(imported[1], imported[2]);
+            plugin.addRequiredPluginEntry(new ManifestEntry(pool.intern(fixName(imported[0])), pool.intern(fixVersion(pv))));
         }
         return plugin;
     }
 
-    private static boolean parseEarlyStartup(File pluginOrDirectory) {
+    private static boolean isEarlyStartup(PluginXml pluginXml, File pluginOrDirectory) {
         // <extension point="org.eclipse.ui.startup">
-        try {
-            String pluginXml = getPluginXml(pluginOrDirectory);
-            if(pluginXml == null){
-                return false;
-            }
-            // TODO use real xml parser
-            return pluginXml.contains("\"org.eclipse.ui.startup\"");
-        } catch (Exception e) {
-            Logging.getLogger().error("Error while parsing plugin.xml from: " + pluginOrDirectory, e);
+        if(pluginXml == null){
+            return false;
         }
-        return false;
+        if (pluginXml.getError() != null) {
+            Logging.getLogger().error("Error while parsing plugin.xml from: " + pluginOrDirectory, pluginXml.getError());
+        }
+        return pluginXml.isEarlyStartup();
     }
 
     public static File[] sortFiles(File[] dirArray) {
@@ -210,6 +256,18 @@ public class PluginParser {
      * @return Parsed Plugin
      */
     public static Plugin parseManifest(Manifest mf, PlatformState ps) {
+        ParsedBundle bundle = parseManifest(mf, ps.getInternPool());
+        if (bundle == null) {
+            return null;
+        }
+        return bundle.register(ps);
+    }
+
+    /**
+     * @param pool
+     *            pool for the names and manifest entries shared between bundles
+     */
+    private static ParsedBundle parseManifest(Manifest mf, InternPool pool) {
         if (mf == null) {
             return null;
         }
@@ -220,25 +278,29 @@ public class PluginParser {
         }
         String fragmentHost = readAttribute(mf, "Fragment-Host");
         boolean fragment = fragmentHost != null;
-        Plugin extractedPlugin = new Plugin(mf, StringUtil.firstEntry(symbolicName, ';'), version, fragment, symbolicName.contains("singleton:=true"));
+        String name = pool.intern(StringUtil.firstEntry(symbolicName, ';'));
+        Plugin extractedPlugin = new Plugin(mf, name, version, fragment, symbolicName.contains("singleton:=true"));
 
-        extractedPlugin.setRequiredPlugins(readAttribute(mf, "Require-Bundle"));
+        extractedPlugin.setRequiredPlugins(pool.splitInManifestEntries(readAttribute(mf, "Require-Bundle")));
 
-        extractedPlugin.setImportedPackageEntries(readImportPackage(mf));
+        extractedPlugin.setImportedPackageEntries(pool.splitInManifestEntries(readImportPackage(mf)));
 
-        extractedPlugin.setRequiredCapabilityEntries(readAttribute(mf, "Require-Capability"));
+        extractedPlugin.setRequiredCapabilityEntries(pool.splitInManifestEntries(readAttribute(mf, "Require-Capability")));
 
-        extractedPlugin.setExportedPackages(readAttribute(mf, "Export-Package"), ps);
+        extractedPlugin.setRequiredExecutionEnvironments(
+                pool.splitInManifestEntries(readAttribute(mf, "Bundle-RequiredExecutionEnvironment")));
 
-        extractedPlugin.setProvidedCapabilities(readAttribute(mf, "Provide-Capability"), ps);
+        List<ManifestEntry> exportedPackages = pool.splitInManifestEntries(readAttribute(mf, "Export-Package"));
+
+        List<ManifestEntry> providedCapabilities = pool.splitInManifestEntries(readAttribute(mf, "Provide-Capability"));
 
         extractedPlugin.setBundleClassPath(readAttribute(mf, "Bundle-ClassPath"));
 
         if (fragment) {
-            extractedPlugin.setFragmentHost(fragmentHost);
+            extractedPlugin.setFragmentHost(pool.splitInManifestEntries(fragmentHost));
         }
 
-        return extractedPlugin;
+        return new ParsedBundle(extractedPlugin, exportedPackages, providedCapabilities);
     }
 
     private static String readImportPackage(Manifest mf) {
@@ -267,7 +329,7 @@ public class PluginParser {
             List<String> entries = StringUtil.splitListOfEntries(dynamicImports);
             StringBuilder sb = new StringBuilder();
             for (String entry : entries) {
-                sb.append(entry).append(";dynamicImport,");
+                sb.append(entry).append(';').append(ManifestEntry.DYNAMIC_IMPORT).append(',');
             }
             dynamicImports = sb.toString();
         }
@@ -286,11 +348,7 @@ public class PluginParser {
      */
     public static Manifest getManifest(File pluginOrFolder) throws IOException {
         if (pluginOrFolder.getName().endsWith(".jar")) {
-            try (JarFile jarfile = new JarFile(pluginOrFolder)) {
-                return jarfile.getManifest();
-            } catch(RuntimeException e) {
-                throw new IOException(e);
-            }
+            return BundleArchive.readJarManifest(pluginOrFolder);
         }
         Path path = Paths.get(pluginOrFolder.getPath(), "/META-INF/MANIFEST.MF");
         if (path.toFile().exists() && !pluginOrFolder.isHidden()) {
@@ -303,42 +361,6 @@ public class PluginParser {
         return null;
     }
 
-    /**
-     * Gets the plugin.xml of the pluginFolder. pluginFolder could be folder or Jar Archive.
-     * In both cases the plugin.xml is located at pluginFolder/plugin.xml .
-     *
-     * @param pluginOrFolder
-     *            Folder or Jar Archive in which the plugin.xml could be found
-     * @return plugin.xml that is found in the folder or JAR Archive
-     * @throws IOException
-     *             From reading file system
-     */
-    public static String getPluginXml(File pluginOrFolder) throws IOException {
-        if (pluginOrFolder.getName().endsWith(".jar")) {
-            try (JarFile jarfile = new JarFile(pluginOrFolder)) {
-                ZipEntry entry = jarfile.getEntry("plugin.xml");
-                if(entry != null) {
-                    InputStream is = jarfile.getInputStream(entry);
-                    ByteArrayOutputStream buffer = new ByteArrayOutputStream();
-                    byte[] data = new byte[16384];
-                    int nRead;
-                    while ((nRead = is.read(data, 0, data.length)) != -1) {
-                        buffer.write(data, 0, nRead);
-                    }
-                    buffer.flush();
-                    return new String(buffer.toByteArray());
-                }
-            } catch(RuntimeException e) {
-                throw new IOException(e);
-            }
-        }
-        Path path = Paths.get(pluginOrFolder.getPath(), "plugin.xml");
-        if (path.toFile().exists() && !pluginOrFolder.isHidden()) {
-            return new String(Files.readAllBytes(path));
-        }
-        return null;
-    }
-
     /**
      * @return Returns the parseEarlyStartup.
      */
@@ -352,4 +374,73 @@ public class PluginParser {
     public void setParseEarlyStartup(boolean parseEarlyStartup) {
         this.parseEarlyStartup = parseEarlyStartup;
     }
+
+    /**
+     * @return number of threads used to read bundles
+     */
+    public int getThreads() {
+        return threads;
+    }
+
+    /**
+     * @param threads number of threads used to read bundles, 1 means sequential parsing
+     */
+    public void setThreads(int threads) {
+        if (threads < 1) {
+            throw new IllegalArgumentException("Number of threads must be positive: " + threads);
+        }
+        this.threads = threads;
+    }
+
+    /**
+     * @return cache used to read bundles, may be null
+     */
+    public BundleCache getCache() {
+        return cache;
+    }
+
+    /**
+     * @param cache cache used to read bundles, may be null
+     */
+    public void setCache(BundleCache cache) {
+        this.cache = cache;
+    }
+
+    /**
+     * Plugin parsed from a bundle, together with the exported packages and provided
+     * capabilities which are not yet registered in the platform state.
+     */
+    private static final class ParsedBundle {
+        final Plugin plugin;
+        private final List<ManifestEntry> exportedPackages;
+        private final List<ManifestEntry> providedCapabilities;
+
+        ParsedBundle(Plugin plugin, List<ManifestEntry> exportedPackages, List<ManifestEntry> providedCapabilities) {
+            this.plugin = plugin;
+            this.exportedPackages = exportedPackages;
+            this.providedCapabilities = providedCapabilities;
+        }
+
+        Plugin register(PlatformState ps) {
+            plugin.setExportedPackages(exportedPackages, ps);
+            plugin.setProvidedCapabilities(providedCapabilities, ps);
+            return plugin;
+        }
+    }
+
+    static final class ParserThreadFactory implements ThreadFactory {
+        private final AtomicInteger count = new AtomicInteger();
+        private final String name;
+
+        ParserThreadFactory(String name) {
+            this.name = name;
+        }
+
+        @Override
+        public Thread newThread(Runnable r) {
+            Thread t = new Thread(r, name + " " + count.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        }
+    }
 }
@@ -0,0 +1,116 @@
+/*******************************************************************************
+ * Copyright (c) 2026 Andrey Loskutov
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *    Andrey Loskutov <loskutov@gmx.de> - initial API and implementation
+ *******************************************************************************/
+package org.eclipselabs.plugindependencies.core;
+
+import java.util.Arrays;
+import java.util.function.Predicate;
+
+/**
+ * Character trie mapping string prefixes to values. Finding all prefixes of a name
+ * costs one walk along the name, independent of the number of prefixes in the trie,
+ * and does not allocate anything.
+ */
+final class PrefixTrie<V> {
+
+    private final Node root;
+    private int size;
+
+    PrefixTrie() {
+        root = new Node();
+    }
+
+    /**
+     * Adds given value for the prefix, the same value is added only once
+     */
+    void put(String prefix, V value) {
+        Node node = root;
+        for (int i = 0; i < prefix.length(); i++) {
+            node = node.childOrCreate(prefix.charAt(i));
+        }
+        for (Object v : node.values) {
+            if (v.equals(value)) {
+                return;
+            }
+        }
+        Object[] values = Arrays.copyOf(node.values, node.values.length + 1);
+        values[values.length - 1] = value;
+        node.values = values;
+        size++;
+    }
+
+    boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * @return true if some prefix in the trie is a prefix of the given name (or equals
+     *         to it)
+     */
+    boolean hasPrefixOf(String name) {
+        return findPrefixOf(name, v -> true) != null;
+    }
+
+    /**
+     * @return first value accepted by the given test, which is stored for one of the
+     *         prefixes of the given name (shorter prefixes first), or null
+     */
+    @SuppressWarnings("unchecked")
+    V findPrefixOf(String name, Predicate<? super V> test) {
+        Node node = root;
+        for (int i = 0; node != null; i++) {
+            for (Object v : node.values) {
+                if (test.test((V) v)) {
+                    return (V) v;
+                }
+            }
+            node = i < name.length() ? node.child(name.charAt(i)) : null;
+        }
+        return null;
+    }
+
+    /**
+     * Node with children sorted by character, most nodes have only one child
+     */
+    private static final class Node {
+        private static final char[] NO_KEYS = new char[0];
+        private static final Node[] NO_CHILDREN = new Node[0];
+        private static final Object[] NO_VALUES = new Object[0];
+
+        char[] keys = NO_KEYS;
+        Node[] children = NO_CHILDREN;
+        Object[] values = NO_VALUES;
+
+        Node child(char c) {
+            int idx = Arrays.binarySearch(keys, c);
+            return idx < 0 ? null : children[idx];
+        }
+
+        Node childOrCreate(char c) {
+            int idx = Arrays.binarySearch(keys, c);
+            if (idx >= 0) {
+                return children[idx];
+            }
+            int insert = -idx - 1;
+            char[] newKeys = new char[keys.length + 1];
+            Node[] newChildren = new Node[children.length + 1];
+            System.arraycopy(keys, 0, newKeys, 0, insert);
+            System.arraycopy(children, 0, newChildren, 0, insert);
+            System.arraycopy(keys, insert, newKeys, insert + 1, keys.length - insert);
+            System.arraycopy(children, insert, newChildren, insert + 1, children.length - insert);
+            Node child = new Node();
+            newKeys[insert] = c;
+            newChildren[insert] = child;
+            keys = newKeys;
+            children = newChildren;
+            return child;
+        }
+    }
+}
@@ -0,0 +1,107 @@
+/*******************************************************************************
+ * Copyright (c) 2026 Andrey Loskutov
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *    Andrey Loskutov <loskutov@gmx.de> - initial API and implementation
+ *******************************************************************************/
+package org.eclipselabs.plugindependencies.core;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Plugins and features by the names of the plugins, packages and capabilities they
+ * require, resolved or not. If a plugin is added or removed, these are the elements
+ * which can resolve differently, see {@link IncrementalResolver}. Unresolved
+ * requirements have no reverse edges in the state, so they can't be found otherwise
+ * without looking at all elements.
+ */
+final class RequirementIndex {
+
+    private final Map<String, List<OSGIElement>> byPlugin;
+    private final Map<String, List<Plugin>> byPackage;
+    private final Map<String, List<Plugin>> byCapability;
+
+    RequirementIndex(PlatformState state) {
+        byPlugin = new HashMap<>();
+        byPackage = new HashMap<>();
+        byCapability = new HashMap<>();
+        for (Plugin plugin : state.getPlugins()) {
+            add(plugin);
+            for (OSGIElement dup : plugin.getDuplicates()) {
+                add(dup);
+            }
+        }
+        for (Feature feature : state.getFeatures()) {
+            add(feature);
+        }
+    }
+
+    void add(OSGIElement element) {
+        update(element, true);
+    }
+
+    void remove(OSGIElement element) {
+        update(element, false);
+    }
+
+    private void update(OSGIElement element, boolean add) {
+        for (ManifestEntry entry : element.getRequiredPluginEntries()) {
+            update(byPlugin, entry, element, add);
+        }
+        if (element instanceof Plugin) {
+            Plugin plugin = (Plugin) element;
+            if (plugin.getFragmentHost() != null) {
+                update(byPlugin, plugin.getFragmentHost(), plugin, add);
+            }
+            for (ManifestEntry entry : plugin.getImportedPackageEntries()) {
+                update(byPackage, entry, plugin, add);
+            }
+            for (ManifestEntry entry : plugin.getRequiredCapabilityEntries()) {
+                update(byCapability, entry, plugin, add);
+            }
+        } else if (element instanceof Feature) {
+            for (ManifestEntry entry : ((Feature) element).getIncludedPluginEntries()) {
+                update(byPlugin, entry, element, add);
+            }
+        }
+    }
+
+    /**
+     * @return elements requiring or including a plugin with given name, or hosted by it
+     */
+    List<OSGIElement> requiringPlugin(String name) {
+        return byPlugin.getOrDefault(name, Collections.emptyList());
+    }
+
+    List<Plugin> importingPackage(String name) {
+        return byPackage.getOrDefault(name, Collections.emptyList());
+    }
+
+    List<Plugin> requiringCapability(String name) {
+        return byCapability.getOrDefault(name, Collections.emptyList());
+    }
+
+    private static <T extends OSGIElement> void update(Map<String, List<T>> map, ManifestEntry entry, T element,
+            boolean add) {
+        String name = PlatformState.fixName(entry.getName());
+        if (!add) {
+            List<T> list = map.get(name);
+            if (list != null) {
+                list.removeIf(e -> e == element);
+            }
+            return;
+        }
+        List<T> list = map.computeIfAbsent(name, k -> new ArrayList<>(2));
+        if (list.isEmpty() || list.get(list.size() - 1) != element) {
+            list.add(element);
+        }
+    }
+}
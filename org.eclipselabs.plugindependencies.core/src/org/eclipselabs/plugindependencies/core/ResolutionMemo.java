@@ -0,0 +1,156 @@
+/*******************************************************************************
+ * Copyright (c) 2026 Andrey Loskutov
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *    Andrey Loskutov <loskutov@gmx.de> - initial API and implementation
+ *******************************************************************************/
+package org.eclipselabs.plugindependencies.core;
+
+import java.util.Collections;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+
+import org.eclipselabs.plugindependencies.core.VersionIndex.Matches;
+
+/**
+ * Results of already resolved requirements. Thousands of bundles declare identical
+ * requirements (like {@code Require-Bundle: org.eclipse.core.runtime}), with the memo
+ * the candidates are searched and the provider is chosen only once for all of them.
+ * <p>
+ * The key is what the search result depends on: kind of the requirement, name and
+ * parsed version range. So {@code version="1.0"} and {@code version="1.0.0"} share
+ * one result. The memo is thread safe and lives as long as one
+ * {@link DependencyResolver}.
+ */
+final class ResolutionMemo {
+
+    enum Kind {
+        /** Require-Bundle, required plugins of features and fragment hosts */
+        PLUGIN,
+        /** plugins included into features, version must match exactly */
+        INCLUDED_PLUGIN,
+        /** Import-Package */
+        PACKAGE
+    }
+
+    private record Key(Kind kind, String name, VersionRange range, boolean bundleVersion) {
+        // value type only
+    }
+
+    private final ConcurrentMap<Key, Resolution<?>> resolutions;
+    private final LongAdder lookups;
+    private final LongAdder hits;
+
+    ResolutionMemo() {
+        resolutions = new ConcurrentHashMap<>(4096);
+        lookups = new LongAdder();
+        hits = new LongAdder();
+    }
+
+    /**
+     * @param resolver
+     *            computes the resolution if the memo doesn't know it yet
+     * @return resolution of given requirement, same for all requirements with same
+     *         kind, name and version range
+     */
+    @SuppressWarnings("unchecked")
+    <T extends NamedElement> Resolution<T> resolve(Kind kind, ManifestEntry entry,
+            Function<ManifestEntry, Resolution<T>> resolver) {
+        lookups.increment();
+        Key key = new Key(kind, entry.getName(), entry.getVersionRange(), entry.usesBundleVersion());
+        Resolution<T> result = (Resolution<T>) resolutions.get(key);
+        if (result != null) {
+            hits.increment();
+            return result;
+        }
+        result = resolver.apply(entry);
+        Resolution<T> old = (Resolution<T>) resolutions.putIfAbsent(key, result);
+        return old != null ? old : result;
+    }
+
+    /**
+     * @return number of distinct requirements
+     */
+    int size() {
+        return resolutions.size();
+    }
+
+    /**
+     * @return number of lookups answered from the memo
+     */
+    long getHits() {
+        return hits.sum();
+    }
+
+    /**
+     * @return number of all lookups
+     */
+    long getLookups() {
+        return lookups.sum();
+    }
+
+    @Override
+    public String toString() {
+        long all = getLookups();
+        long ratio = all == 0 ? 0 : getHits() * 100 / all;
+        return "ResolutionMemo [requirements=" + size() + ", hits=" + getHits() + "/" + all + " (" + ratio
+                + "%)]";
+    }
+
+    /**
+     * Candidates found for a requirement and the chosen provider
+     */
+    static final class Resolution<T extends NamedElement> {
+        /**
+         * Marks packages not found in the state, but provided by the Java home. The
+         * package is created when the resolution is applied, see
+         * {@link PlatformState#searchInJavaHome(String)}
+         */
+        static final Resolution<Package> JAVA_HOME = new Resolution<>(null, 1, null);
+
+        private final T chosen;
+        private final int size;
+        /** only kept if the requirement is broken (not exactly one candidate) */
+        private final Set<T> candidates;
+
+        Resolution(T chosen, int size, Set<T> candidates) {
+            this.chosen = chosen;
+            this.size = size;
+            this.candidates = candidates;
+        }
+
+        static <T extends NamedElement> Resolution<T> of(Matches<T> matches) {
+            int size = matches.size();
+            Set<T> candidates = size == 1 ? null : Collections.unmodifiableSet(matches.toSet());
+            return new Resolution<>(matches.highest(), size, candidates);
+        }
+
+        /**
+         * @return element with highest version, null if nothing matches
+         */
+        T getChosen() {
+            return chosen;
+        }
+
+        int size() {
+            return size;
+        }
+
+        /**
+         * @return read-only set with all candidates
+         */
+        Set<T> getCandidates() {
+            if (candidates == null) {
+                return Collections.singleton(chosen);
+            }
+            return candidates;
+        }
+    }
+}
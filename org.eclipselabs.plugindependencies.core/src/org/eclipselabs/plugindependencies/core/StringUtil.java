@@ -31,10 +31,22 @@ public class StringUtil {
      * @return list of ManifestEntry. For every plugin/package one entry.
      */
     public static List<ManifestEntry> splitInManifestEntries(String stringOfEntries) {
-        List<String> splittedEntries = splitListOfEntries(stringOfEntries);
         List<ManifestEntry> entries = new ArrayList<>();
-        for (String entry : splittedEntries) {
-            entries.add(new ManifestEntry(split(entry, ';')));
+        if (stringOfEntries == null) {
+            return entries;
+        }
+        if (stringOfEntries.isEmpty()) {
+            // as before: empty (but present) header is one entry with empty name
+            entries.add(new ManifestEntry(asList(stringOfEntries)));
+            return entries;
+        }
+        HeaderTokenizer tokenizer = new HeaderTokenizer(stringOfEntries);
+        while (tokenizer.nextClause()) {
+            List<String> parts = new ArrayList<>();
+            while (tokenizer.nextPart()) {
+                parts.add(tokenizer.part());
+            }
+            entries.add(new ManifestEntry(parts));
         }
         return entries;
     }
@@ -66,28 +78,31 @@ public class StringUtil {
             return new ArrayList<String>();
         }
         List<String> listOfEntries = split(stringOfEntries, ',');
-        String collectEntry = "";
+        StringBuilder collectEntry = new StringBuilder();
+        int quotes = 0;
         List<String> entries = new ArrayList<>();
         for (String entry : listOfEntries) {
-            collectEntry += entry;
-            if (isEvenAmountOfChar(collectEntry, '"')) {
-                entries.add(collectEntry);
-                collectEntry = "";
+            collectEntry.append(entry);
+            quotes += countChar(entry, '"');
+            if (quotes % 2 == 0) {
+                entries.add(collectEntry.toString());
+                collectEntry.setLength(0);
+                quotes = 0;
             } else {
-                collectEntry += ",";
+                collectEntry.append(',');
             }
         }
         return entries;
     }
 
-    private static boolean isEvenAmountOfChar(String string, char toSearch) {
+    private static int countChar(String string, char toSearch) {
         int counter = 0;
-        for (char c : string.toCharArray()) {
-            if (c == toSearch) {
+        for (int i = 0; i < string.length(); i++) {
+            if (string.charAt(i) == toSearch) {
                 counter++;
             }
         }
-        return counter % 2 == 0;
+        return counter;
     }
 
     public static String extractBundleVersionOrRange(String versionString) {
@@ -0,0 +1,554 @@
+/*******************************************************************************
+ * Copyright (c) 2026 Andrey Loskutov
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *    Andrey Loskutov <loskutov@gmx.de> - initial API and implementation
+ *******************************************************************************/
+package org.eclipselabs.plugindependencies.core;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.net.URI;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.FileSystem;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.AbstractSet;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.jar.JarFile;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+/**
+ * Index of packages provided by a Java home. The packages are read either from the
+ * jrt file system (Java 9+, via {@code lib/jrt-fs.jar}) or from all jars in the
+ * {@code lib} directory of Java 8 and older (via {@code lib/rt.jar}).
+ * <p>
+ * For Java 9+ homes the public API packages of all older Java releases supported by
+ * {@code javac --release} are available too, see {@link ReleasePackages}. They are
+ * read from {@code lib/ct.sym} only if requested.
+ * <p>
+ * Indexes are shared in the process, one per Java home, and can be requested
+ * concurrently: each Java home is read only once, different ones in parallel. If a
+ * cache directory is given, the index is also stored there and reused by the next
+ * runs, as long as the {@code release} file and the module image (or the jars in
+ * {@code lib}) are not changed.
+ */
+final class SystemPackageIndex {
+
+    static final String FILE_PREFIX = "system-packages-";
+    static final String FILE_SUFFIX = ".index";
+    static final String RELEASES_SUFFIX = ".releases.index";
+
+    /** "PDSP" */
+    private static final int MAGIC = 0x50445350;
+    /** Must be incremented on any change of the file format or of the indexed data */
+    private static final int FORMAT_VERSION = 1;
+
+    private static final String[] VENDOR_PATHS = { "sun/", "com/sun/", "com/oracle/", "jdk/" };
+
+    private static final ConcurrentMap<File, SystemPackageIndex> INDEXES = new ConcurrentHashMap<>();
+
+    /** rt.jar or jrt-fs.jar */
+    private final File jar;
+    private Set<String> packages;
+    private ReleasePackages releasePackages;
+    private String fingerprint;
+
+    private SystemPackageIndex(File jar) {
+        this.jar = jar;
+    }
+
+    /**
+     * @param jar
+     *            rt.jar or jrt-fs.jar of a Java home, other files are ignored
+     * @param cacheDir
+     *            directory for persistent index, may be null
+     * @return never null, sorted unmodifiable set of package names
+     */
+    static Set<String> getPackages(File jar, File cacheDir) {
+        String name = jar.getName();
+        if (!name.equals("jrt-fs.jar") && !name.equals("rt.jar")) {
+            return Collections.emptySet();
+        }
+        SystemPackageIndex index = INDEXES.computeIfAbsent(jar.getAbsoluteFile(), SystemPackageIndex::new);
+        return index.get(cacheDir);
+    }
+
+    /**
+     * @param jar
+     *            jrt-fs.jar of a Java home, other files are ignored
+     * @param cacheDir
+     *            directory for persistent index, may be null
+     * @return never null, packages of all Java releases known to the Java home,
+     *         empty if not available
+     */
+    static ReleasePackages getReleasePackages(File jar, File cacheDir) {
+        if (!jar.getName().equals("jrt-fs.jar")) {
+            return ReleasePackages.EMPTY;
+        }
+        SystemPackageIndex index = INDEXES.computeIfAbsent(jar.getAbsoluteFile(), SystemPackageIndex::new);
+        return index.getReleases(cacheDir);
+    }
+
+    /**
+     * Forgets all indexes read in this process, persistent indexes are kept. For tests
+     * only.
+     */
+    static void clearLoaded() {
+        INDEXES.clear();
+    }
+
+    private synchronized Set<String> get(File cacheDir) {
+        File indexFile = cacheDir == null ? null : getIndexFile(cacheDir, FILE_SUFFIX);
+        if (packages == null) {
+            if (fingerprint == null) {
+                fingerprint = createFingerprint();
+            }
+            if (indexFile != null && indexFile.isFile()) {
+                packages = load(indexFile, SystemPackageIndex::readNames);
+                if (packages != null) {
+                    return packages;
+                }
+            }
+            packages = isJrt() ? readJrtPackages() : readRtPackages();
+        } else if (indexFile == null || indexFile.isFile()) {
+            return packages;
+        }
+        if (indexFile != null && !packages.isEmpty()) {
+            save(indexFile, this::writeNames);
+        }
+        return packages;
+    }
+
+    private synchronized ReleasePackages getReleases(File cacheDir) {
+        File indexFile = cacheDir == null ? null : getIndexFile(cacheDir, RELEASES_SUFFIX);
+        if (releasePackages == null) {
+            if (fingerprint == null) {
+                fingerprint = createFingerprint();
+            }
+            if (indexFile != null && indexFile.isFile()) {
+                releasePackages = load(indexFile, ReleasePackages::read);
+                if (releasePackages != null) {
+                    return releasePackages;
+                }
+            }
+            releasePackages = readCtSym(get(cacheDir));
+        } else if (indexFile == null || indexFile.isFile()) {
+            return releasePackages;
+        }
+        if (indexFile != null && releasePackages.size() > 0) {
+            save(indexFile, releasePackages::write);
+        }
+        return releasePackages;
+    }
+
+    private boolean isJrt() {
+        return jar.getName().equals("jrt-fs.jar");
+    }
+
+    /**
+     * @return index file name unique for the Java home
+     */
+    private File getIndexFile(File cacheDir, String suffix) {
+        CRC32 crc = new CRC32();
+        crc.update(jar.getAbsolutePath().getBytes(StandardCharsets.UTF_8));
+        return new File(cacheDir, FILE_PREFIX + Long.toHexString(crc.getValue()) + suffix);
+    }
+
+    /**
+     * @return string which changes if the Java home content is changed: checksum of the
+     *         "release" file plus size and time stamp of the module image and ct.sym
+     *         (Java 9+) or of all jars in the lib directory (Java 8)
+     */
+    private String createFingerprint() {
+        StringBuilder sb = new StringBuilder();
+        File lib = jar.getParentFile();
+        File home = lib.getParentFile();
+        File release = new File(home, "release");
+        if (!release.isFile() && home.getParentFile() != null) {
+            // jre/lib/rt.jar
+            release = new File(home.getParentFile(), "release");
+        }
+        if (release.isFile()) {
+            try {
+                CRC32 crc = new CRC32();
+                crc.update(Files.readAllBytes(release.toPath()));
+                sb.append("release:").append(crc.getValue());
+            } catch (IOException e) {
+                sb.append("release:?");
+            }
+        }
+        List<File> files = new ArrayList<>();
+        if (isJrt()) {
+            files.add(new File(lib, "modules"));
+            files.add(new File(lib, "ct.sym"));
+        } else {
+            File[] jars = lib.listFiles((dir, name) -> name.endsWith(".jar"));
+            if (jars != null) {
+                Arrays.sort(jars);
+                files.addAll(Arrays.asList(jars));
+            }
+        }
+        for (File file : files) {
+            sb.append(';').append(file.getName()).append(':').append(file.length()).append(':')
+                    .append(file.lastModified());
+        }
+        return sb.toString();
+    }
+
+    /**
+     * @return null if the index can't be read or is outdated
+     */
+    private <T> T load(File indexFile, IndexReader<T> reader) {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(indexFile.toPath())))) {
+            if (in.readInt() != MAGIC || in.readInt() != FORMAT_VERSION) {
+                return null;
+            }
+            if (!jar.getAbsolutePath().equals(in.readUTF()) || !fingerprint.equals(in.readUTF())) {
+                return null;
+            }
+            return reader.read(in);
+        } catch (IOException | RuntimeException e) {
+            Logging.getLogger().warning("Ignoring broken system packages index: " + indexFile + ", " + e);
+            return null;
+        }
+    }
+
+    /**
+     * Writes the index to a temporary file and moves it to the final location, so
+     * concurrent processes never see partially written index
+     */
+    private void save(File indexFile, IndexWriter writer) {
+        Path target = indexFile.toPath();
+        try {
+            Files.createDirectories(target.getParent());
+            Path tmp = Files.createTempFile(target.getParent(), FILE_PREFIX, ".tmp");
+            try {
+                try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tmp)))) {
+                    out.writeInt(MAGIC);
+                    out.writeInt(FORMAT_VERSION);
+                    out.writeUTF(jar.getAbsolutePath());
+                    out.writeUTF(fingerprint);
+                    writer.write(out);
+                }
+                try {
+                    Files.move(tmp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+                } catch (AtomicMoveNotSupportedException e) {
+                    Files.move(tmp, target, StandardCopyOption.REPLACE_EXISTING);
+                }
+            } finally {
+                Files.deleteIfExists(tmp);
+            }
+        } catch (IOException e) {
+            Logging.getLogger().warning("failed to write system packages index: " + indexFile, e);
+        }
+    }
+
+    private static Set<String> readNames(DataInputStream in) throws IOException {
+        int count = in.readInt();
+        String[] result = new String[count];
+        for (int i = 0; i < count; i++) {
+            result[i] = in.readUTF();
+        }
+        return new SortedNames(result);
+    }
+
+    private void writeNames(DataOutputStream out) throws IOException {
+        out.writeInt(packages.size());
+        for (String pack : packages) {
+            out.writeUTF(pack);
+        }
+    }
+
+    private Set<String> readJrtPackages() {
+        try (URLClassLoader loader = new URLClassLoader(new URL[] { jar.toPath().toUri().toURL() });
+                FileSystem fs = FileSystems.newFileSystem(URI.create("jrt:/"), Collections.emptyMap(), loader);
+                Stream<Path> list = Files.list(fs.getPath("/packages"))) {
+            String[] names = list.filter(Files::isDirectory).map(n -> n.getFileName()).filter(n -> n != null)
+                    .map(p -> p.toString()).filter(n -> n.indexOf('.') > 0).toArray(String[]::new);
+            return new SortedNames(names);
+        } catch (IOException e) {
+            Logging.getLogger().error(" failed to read system packages from '" + jar + "'.", e);
+            return Collections.emptySet();
+        }
+    }
+
+    private Set<String> readRtPackages() {
+        File libDir = jar.getParentFile();
+        File[] jarList = libDir.listFiles((dir, name) -> name.endsWith(".jar"));
+        if(jarList == null){
+            return Collections.emptySet();
+        }
+        Set<String> result = new TreeSet<>();
+        for (File file : jarList) {
+            try (JarFile jarfile = new JarFile(file)) {
+                Stream<String> stream = jarfile.stream().map(e -> e.getName());
+                stream = stream.filter(e -> e.endsWith(".class")).map(e -> e.substring(0, e.lastIndexOf('/')));
+                stream = stream.map(e -> e.replace('/', '.'));
+                result.addAll(stream.collect(Collectors.toCollection(LinkedHashSet::new)));
+            } catch (IOException e) {
+                Logging.getLogger().error(" failed to read system packages from '" + jar + "'.", e);
+            }
+        }
+        return new SortedNames(result.toArray(new String[result.size()]));
+    }
+
+    /**
+     * Reads packages of all releases from ct.sym. Entries there look like
+     * {@code 9ABC/java.base/java/lang/Object.sig}: the first segment lists all releases
+     * (one character each, '7'..'9', 'A' for 10 and so on) with this class signature,
+     * followed by the module (Java 9+ layout) and the class path. The current release
+     * has no signatures but only the "system-modules" entry, its packages are the ones
+     * of the previous release still present in the module image.
+     */
+    private ReleasePackages readCtSym(Set<String> current) {
+        File ctSym = new File(jar.getParentFile(), "ct.sym");
+        if (!ctSym.isFile()) {
+            return ReleasePackages.EMPTY;
+        }
+        Map<String, Long> masks = new HashMap<>();
+        int currentRelease = -1;
+        try (ZipFile zip = new ZipFile(ctSym)) {
+            Enumeration<? extends ZipEntry> entries = zip.entries();
+            while (entries.hasMoreElements()) {
+                String name = entries.nextElement().getName();
+                int slash = name.indexOf('/');
+                long releases = slash > 0 ? parseReleases(name, slash) : 0;
+                if (releases == 0) {
+                    continue;
+                }
+                if (name.endsWith("/system-modules")) {
+                    currentRelease = Math.max(currentRelease, 63 - Long.numberOfLeadingZeros(releases));
+                    continue;
+                }
+                if (!name.endsWith(".sig")) {
+                    continue;
+                }
+                int start = slash + 1;
+                int next = name.indexOf('/', start);
+                int dot = name.indexOf('.', start);
+                if (next > 0 && dot > 0 && dot < next) {
+                    // skip module name
+                    start = next + 1;
+                }
+                int end = name.lastIndexOf('/');
+                if (end <= start || isVendorPackage(name, start)) {
+                    continue;
+                }
+                masks.merge(name.substring(start, end).replace('/', '.'), releases, (a, b) -> a | b);
+            }
+        } catch (IOException e) {
+            Logging.getLogger().error(" failed to read release packages from '" + ctSym + "'.", e);
+            return ReleasePackages.EMPTY;
+        }
+        if (currentRelease > 0) {
+            // module image lists also non exported packages, so only take over the
+            // public API of the previous release which is still there
+            long previous = 1L << (currentRelease - 1);
+            long bit = 1L << currentRelease;
+            for (Map.Entry<String, Long> e : masks.entrySet()) {
+                if ((e.getValue() & previous) != 0 && current.contains(e.getKey())) {
+                    e.setValue(e.getValue() | bit);
+                }
+            }
+        }
+        return new ReleasePackages(new TreeMap<>(masks), currentRelease);
+    }
+
+    /**
+     * Vendor specific packages are recorded in ct.sym only for Java 9+, so they would
+     * look like missing in older releases and are not indexed at all
+     */
+    private static boolean isVendorPackage(String name, int start) {
+        for (String prefix : VENDOR_PATHS) {
+            if (name.startsWith(prefix, start)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @return bit mask of releases encoded in the first segment of a ct.sym entry, 0
+     *         if it is not a list of releases
+     */
+    private static long parseReleases(String name, int end) {
+        long releases = 0;
+        for (int i = 0; i < end; i++) {
+            char c = name.charAt(i);
+            int release;
+            if (c >= '0' && c <= '9') {
+                release = c - '0';
+            } else if (c >= 'A' && c <= 'Z') {
+                release = c - 'A' + 10;
+            } else {
+                return 0;
+            }
+            releases |= 1L << release;
+        }
+        return releases;
+    }
+
+    /**
+     * Public API packages of Java releases, as known to {@code javac --release}, without
+     * vendor specific ones ({@code sun.*}, {@code com.sun.*} and so on). Package
+     * names are kept in one sorted array, each with a bit mask of releases providing
+     * it.
+     */
+    static final class ReleasePackages {
+        static final ReleasePackages EMPTY = new ReleasePackages(new TreeMap<>(), -1);
+
+        private final String[] names;
+        private final long[] releases;
+        private final int currentRelease;
+
+        ReleasePackages(SortedMap<String, Long> masks, int currentRelease) {
+            names = new String[masks.size()];
+            releases = new long[masks.size()];
+            int i = 0;
+            for (Map.Entry<String, Long> e : masks.entrySet()) {
+                names[i] = e.getKey();
+                releases[i] = e.getValue().longValue();
+                i++;
+            }
+            this.currentRelease = currentRelease;
+        }
+
+        /**
+         * @return true if the package is provided by at least one known release
+         */
+        boolean isKnown(String pack) {
+            return Arrays.binarySearch(names, pack) >= 0;
+        }
+
+        /**
+         * @param release
+         *            Java feature release, like 8 or 17
+         * @return true if the package is provided by given release
+         */
+        boolean isAvailable(String pack, int release) {
+            int idx = Arrays.binarySearch(names, pack);
+            return idx >= 0 && release >= 0 && release < 64 && (releases[idx] & (1L << release)) != 0;
+        }
+
+        /**
+         * @return true if the packages of the given release are known
+         */
+        boolean isKnownRelease(int release) {
+            if (release < 0 || release >= 64) {
+                return false;
+            }
+            long bit = 1L << release;
+            for (long mask : releases) {
+                if ((mask & bit) != 0) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        /**
+         * @return release of the Java home, -1 if unknown
+         */
+        int getCurrentRelease() {
+            return currentRelease;
+        }
+
+        int size() {
+            return names.length;
+        }
+
+        void write(DataOutputStream out) throws IOException {
+            out.writeInt(currentRelease);
+            out.writeInt(names.length);
+            for (int i = 0; i < names.length; i++) {
+                out.writeUTF(names[i]);
+                out.writeLong(releases[i]);
+            }
+        }
+
+        static ReleasePackages read(DataInputStream in) throws IOException {
+            int current = in.readInt();
+            int count = in.readInt();
+            SortedMap<String, Long> masks = new TreeMap<>();
+            for (int i = 0; i < count; i++) {
+                masks.put(in.readUTF(), Long.valueOf(in.readLong()));
+            }
+            return new ReleasePackages(masks, current);
+        }
+    }
+
+    private interface IndexReader<T> {
+        T read(DataInputStream in) throws IOException;
+    }
+
+    private interface IndexWriter {
+        void write(DataOutputStream out) throws IOException;
+    }
+
+    /**
+     * Read-only set of distinct names kept in one sorted array: much more compact than
+     * a hash set of few thousands package names, lookups are binary searches without
+     * any allocation. Iteration order is the natural string order.
+     */
+    static final class SortedNames extends AbstractSet<String> {
+        private final String[] names;
+
+        SortedNames(String[] names) {
+            Arrays.sort(names);
+            int distinct = 0;
+            for (int i = 0; i < names.length; i++) {
+                if (distinct == 0 || !names[distinct - 1].equals(names[i])) {
+                    names[distinct++] = names[i];
+                }
+            }
+            this.names = distinct == names.length ? names : Arrays.copyOf(names, distinct);
+        }
+
+        @Override
+        public boolean contains(Object o) {
+            return o instanceof String && Arrays.binarySearch(names, o) >= 0;
+        }
+
+        @Override
+        public Iterator<String> iterator() {
+            return Collections.unmodifiableList(Arrays.asList(names)).iterator();
+        }
+
+        @Override
+        public int size() {
+            return names.length;
+        }
+    }
+}
@@ -23,9 +23,18 @@ public class Version implements Comparable<Version> {
     private final int minor;
     private final int micro;
     private final String qualifier;
+    /** lazily computed, see {@link #toString()} */
+    private String string;
 
     public static final Version ZERO = new Version(0,0,0, "");
 
+    /**
+     * Recently parsed versions by their string form (as given and canonical). Versions
+     * are immutable, so equal versions can share one instance. The cache is bounded:
+     * version strings come from manifests and filters of every analyzed platform
+     */
+    private static final BoundedCache<Version> CACHE = new BoundedCache<>(4096);
+
     public Version(String version) {
         int m = 0;
         String q = "";
@@ -50,6 +59,34 @@ public class Version implements Comparable<Version> {
         }
     }
 
+    /**
+     * Same as {@link #Version(String)}, but returns cached instances for recently seen
+     * version strings, so equal versions are mostly represented by the same instance.
+     *
+     * @throws IllegalArgumentException
+     *             if the given string is not a valid version
+     */
+    public static Version valueOf(String version) {
+        Version v = CACHE.get(version);
+        if (v != null) {
+            return v;
+        }
+        v = new Version(version);
+        if (v.equals(ZERO)) {
+            v = ZERO;
+        } else {
+            String canonicalString = v.toString();
+            Version canonical = CACHE.get(canonicalString);
+            if (canonical != null) {
+                v = canonical;
+            } else {
+                CACHE.put(canonicalString, v);
+            }
+        }
+        CACHE.put(version, v);
+        return v;
+    }
+
     private Version(int major, int minor, int micro, String qualifier) {
         this.major = major;
         this.minor = minor;
@@ -57,6 +94,14 @@ public class Version implements Comparable<Version> {
         this.qualifier = qualifier;
     }
 
+    public int getMajor() {
+        return major;
+    }
+
+    public int getMinor() {
+        return minor;
+    }
+
     @Override
     public int hashCode() {
         final int prime = 31;
@@ -118,6 +163,10 @@ public class Version implements Comparable<Version> {
 
     @Override
     public String toString() {
+        String result = string;
+        if (result != null) {
+            return result;
+        }
         StringBuilder s = new StringBuilder();
         s.append(major);
         s.append('.').append(minor);
@@ -125,16 +174,18 @@ public class Version implements Comparable<Version> {
         if (!qualifier.isEmpty()) {
             s.append('.').append(qualifier);
         }
-        return s.toString();
+        result = s.toString();
+        string = result;
+        return result;
     }
 
     static String createCompatibleRightBound(String str) {
-        Version v = new Version(str);
+        Version v = valueOf(str);
         return new Version(v.major + 1, 0, 0, "").toString();
     }
 
     static String createEquivalentRightBound(String str) {
-        Version v = new Version(str);
+        Version v = valueOf(str);
         return new Version(v.major, v.minor + 1, 0, "").toString();
     }
 
@@ -0,0 +1,232 @@
+/*******************************************************************************
+ * Copyright (c) 2026 Andrey Loskutov
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *    Andrey Loskutov <loskutov@gmx.de> - initial API and implementation
+ *******************************************************************************/
+package org.eclipselabs.plugindependencies.core;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.Set;
+import java.util.function.Predicate;
+
+/**
+ * Version sorted view on elements with same name, see {@link NameIndex}. Elements with
+ * plain versions are sorted by version, so all elements matching a required version
+ * range are one slice found via binary search, and the highest match is the last one
+ * in the slice. Elements with version ranges or not parseable versions are rare and
+ * always checked one by one.
+ * <p>
+ * Matches are reported in the insertion order of the elements and the highest match
+ * is the first added one with the highest version, exactly as if all elements were
+ * checked one by one.
+ */
+final class VersionIndex<T extends NamedElement> {
+
+    private static final int[] NONE = new int[0];
+
+    /** all elements in insertion order */
+    private final Object[] all;
+    /** positions (in {@link #all}) of elements with plain versions, sorted by version */
+    private final int[] sorted;
+    /** versions of {@link #sorted} elements */
+    private final Version[] versions;
+    /** positions of elements with ranges or not parseable versions */
+    private final int[] irregular;
+
+    VersionIndex(Collection<T> elements) {
+        all = elements.toArray();
+        int regularCount = 0;
+        for (Object o : all) {
+            if (isRegular((NamedElement) o)) {
+                regularCount++;
+            }
+        }
+        Integer[] regular = new Integer[regularCount];
+        irregular = regularCount == all.length ? NONE : new int[all.length - regularCount];
+        for (int i = 0, r = 0, ir = 0; i < all.length; i++) {
+            if (isRegular((NamedElement) all[i])) {
+                regular[r++] = Integer.valueOf(i);
+            } else {
+                irregular[ir++] = i;
+            }
+        }
+        // stable sort: equal versions stay in insertion order
+        Arrays.sort(regular, (a, b) -> element(a.intValue()).getParsedVersion()
+                .compareTo(element(b.intValue()).getParsedVersion()));
+        sorted = new int[regularCount];
+        versions = new Version[regularCount];
+        for (int i = 0; i < regularCount; i++) {
+            sorted[i] = regular[i].intValue();
+            versions[i] = element(sorted[i]).getParsedVersion();
+        }
+    }
+
+    private static boolean isRegular(NamedElement element) {
+        VersionRange range = element.getVersionRange();
+        return range != null && !range.isRange();
+    }
+
+    @SuppressWarnings("unchecked")
+    private T element(int position) {
+        return (T) all[position];
+    }
+
+    /**
+     * @return elements matching the given entry, same as
+     *         {@link ManifestEntry#isMatching(NamedElement)} for each element
+     */
+    Matches<T> match(ManifestEntry entry) {
+        if (entry.usesBundleVersion()) {
+            // package matches depend on the exporting bundles
+            return new Matches<>(this, 0, 0, filter(null, entry::isMatching));
+        }
+        VersionRange range = entry.getVersionRange();
+        int lo = 0;
+        int hi = 0;
+        if (range != null) {
+            Version min = range.getMinimum();
+            lo = bound(min, !range.isMinimumInclusive());
+            Version max = range.getMaximum();
+            hi = max == null ? sorted.length : bound(max, range.isMaximumInclusive());
+            hi = Math.max(lo, hi);
+        }
+        return new Matches<>(this, lo, hi, filter(irregular, entry::isMatching));
+    }
+
+    /**
+     * @return elements matching the given version, same as
+     *         {@link NamedElement#matches(String, String)} for each element
+     */
+    Matches<T> matchExact(String name, String version) {
+        if (version.isEmpty() || NamedElement.ZERO_VERSION.equals(version)) {
+            return new Matches<>(this, 0, sorted.length, irregular);
+        }
+        Predicate<T> matcher = e -> e.matches(name, version);
+        if (!Character.isDigit(version.charAt(0))) {
+            // plain versions never match
+            return new Matches<>(this, 0, 0, filter(irregular, matcher));
+        }
+        Version v = Version.valueOf(version);
+        return new Matches<>(this, bound(v, false), bound(v, true), filter(irregular, matcher));
+    }
+
+    /**
+     * @param candidates
+     *            positions to check, null to check all elements
+     * @return ascending positions of matching candidates
+     */
+    private int[] filter(int[] candidates, Predicate<T> matcher) {
+        int count = candidates == null ? all.length : candidates.length;
+        if (count == 0) {
+            return NONE;
+        }
+        int[] result = new int[count];
+        int found = 0;
+        for (int i = 0; i < count; i++) {
+            int pos = candidates == null ? i : candidates[i];
+            if (matcher.test(element(pos))) {
+                result[found++] = pos;
+            }
+        }
+        return found == 0 ? NONE : found == count ? result : Arrays.copyOf(result, found);
+    }
+
+    /**
+     * @return index of the first sorted element with version greater than (if
+     *         exclusive) or greater or equal to the given one
+     */
+    private int bound(Version version, boolean exclusive) {
+        int lo = 0;
+        int hi = versions.length;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            int cmp = versions[mid].compareTo(version);
+            if (cmp < 0 || (exclusive && cmp == 0)) {
+                lo = mid + 1;
+            } else {
+                hi = mid;
+            }
+        }
+        return lo;
+    }
+
+    /**
+     * Result of a version query: a slice of the version sorted elements plus matching
+     * elements with irregular versions. Nothing is copied until the matches are
+     * requested as set.
+     */
+    static final class Matches<T extends NamedElement> {
+        private final VersionIndex<T> index;
+        private final int lo;
+        private final int hi;
+        private final int[] extra;
+
+        Matches(VersionIndex<T> index, int lo, int hi, int[] extra) {
+            this.index = index;
+            this.lo = lo;
+            this.hi = hi;
+            this.extra = extra;
+        }
+
+        static <T extends NamedElement> Matches<T> empty() {
+            return new Matches<>(null, 0, 0, NONE);
+        }
+
+        int size() {
+            return hi - lo + extra.length;
+        }
+
+        /**
+         * @return first added element with the highest version, null if there are no
+         *         matches
+         */
+        T highest() {
+            if (size() == 0) {
+                return null;
+            }
+            if (extra.length == 0) {
+                // first one of the highest equal versions, they are in insertion order
+                int first = Math.max(lo, index.bound(index.versions[hi - 1], false));
+                return index.element(index.sorted[first]);
+            }
+            T highest = null;
+            for (T element : toSet()) {
+                if (highest == null || element.getParsedVersion().compareTo(highest.getParsedVersion()) > 0) {
+                    highest = element;
+                }
+            }
+            return highest;
+        }
+
+        /**
+         * @return new modifiable set with all matches in insertion order
+         */
+        Set<T> toSet() {
+            int size = size();
+            if (size == 0) {
+                return new LinkedHashSet<>();
+            }
+            int[] positions = Arrays.copyOf(extra, size);
+            System.arraycopy(index.sorted, lo, positions, extra.length, hi - lo);
+            Arrays.sort(positions);
+            Set<T> result = new LinkedHashSet<>();
+            for (int pos : positions) {
+                result.add(index.element(pos));
+            }
+            return result;
+        }
+
+        @Override
+        public String toString() {
+            return size() == 0 ? Collections.emptySet().toString() : toSet().toString();
+        }
+    }
+}
@@ -0,0 +1,253 @@
+/*******************************************************************************
+ * Copyright (c) 2026 Andrey Loskutov
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *    Andrey Loskutov <loskutov@gmx.de> - initial API and implementation
+ *******************************************************************************/
+package org.eclipselabs.plugindependencies.core;
+
+import java.util.Objects;
+
+/**
+ * Immutable parsed OSGI version or version range. A plain version {@code "1.2.3"} is
+ * treated as the range {@code [1.2.3, infinity)}, the empty string as
+ * {@code [0.0.0, infinity)}. Bracketed ranges like {@code "[1.0,2.0)"} have both
+ * bounds.
+ * <p>
+ * Accepted syntax: no whitespace, up to three numeric segments and an optional
+ * qualifier consisting of letters, digits, '-' and '_'.
+ */
+public final class VersionRange {
+
+    /** [0.0.0, infinity) */
+    public static final VersionRange ANY = new VersionRange(NamedElement.EMPTY_VERSION, Version.ZERO, true, null,
+            false, false);
+
+    /** marker for strings which are neither a version nor a range */
+    private static final VersionRange INVALID = new VersionRange("<invalid>", Version.ZERO, false, Version.ZERO,
+            false, false);
+
+    /** recently parsed ranges, bounded like the cache of {@link Version#valueOf(String)} */
+    private static final BoundedCache<VersionRange> CACHE = new BoundedCache<>(4096);
+
+    private final String string;
+    private final Version minimum;
+    private final boolean minimumInclusive;
+    /** null means unbounded */
+    private final Version maximum;
+    private final boolean maximumInclusive;
+    private final boolean range;
+
+    private VersionRange(String string, Version minimum, boolean minimumInclusive, Version maximum,
+            boolean maximumInclusive, boolean range) {
+        this.string = string;
+        this.minimum = minimum;
+        this.minimumInclusive = minimumInclusive;
+        this.maximum = maximum;
+        this.maximumInclusive = maximumInclusive;
+        this.range = range;
+    }
+
+    /**
+     * @param versionOrRange
+     *            version, bracketed version range or empty string
+     * @return parsed (cached) range, or null if the given string is neither a valid
+     *         version nor a valid range
+     */
+    public static VersionRange valueOf(String versionOrRange) {
+        if (versionOrRange.isEmpty()) {
+            return ANY;
+        }
+        VersionRange result = CACHE.get(versionOrRange);
+        if (result == null) {
+            result = parse(versionOrRange);
+            CACHE.put(versionOrRange, result);
+        }
+        return result == INVALID ? null : result;
+    }
+
+    private static VersionRange parse(String s) {
+        int length = s.length();
+        char first = s.charAt(0);
+        if (first != '[' && first != '(') {
+            Version v = parseVersion(s, 0, length);
+            return v == null ? INVALID : new VersionRange(s, v, true, null, false, false);
+        }
+        char last = s.charAt(length - 1);
+        int comma = s.indexOf(',');
+        if (length < 5 || (last != ']' && last != ')') || comma < 0) {
+            return INVALID;
+        }
+        Version min = parseVersion(s, 1, comma);
+        Version max = parseVersion(s, comma + 1, length - 1);
+        if (min == null || max == null) {
+            return INVALID;
+        }
+        return new VersionRange(s, min, first == '[', max, last == ']', true);
+    }
+
+    /**
+     * @return null if the given part of the string is not a well formed version:
+     *         {@code N(.N)?(.N)?(.Q)?}
+     */
+    private static Version parseVersion(String s, int start, int end) {
+        if (start >= end) {
+            return null;
+        }
+        int segments = 0;
+        int segmentStart = start;
+        boolean digitsOnly = true;
+        for (int i = start; i <= end; i++) {
+            char c = i < end ? s.charAt(i) : '.';
+            if (c == '.') {
+                if (i == segmentStart) {
+                    return null;
+                }
+                segments++;
+                boolean lastSegment = i == end;
+                if (!digitsOnly && (segments == 1 || !lastSegment)) {
+                    // only the last segment (but not the first one) can be a qualifier
+                    return null;
+                }
+                if (segments > 4) {
+                    return null;
+                }
+                segmentStart = i + 1;
+                digitsOnly = true;
+            } else if (c < '0' || c > '9') {
+                if (!isQualifierChar(c)) {
+                    return null;
+                }
+                digitsOnly = false;
+            }
+        }
+        try {
+            return Version.valueOf(s.substring(start, end));
+        } catch (IllegalArgumentException e) {
+            // numbers too large or qualifier where a number is expected
+            return null;
+        }
+    }
+
+    private static boolean isQualifierChar(char c) {
+        return (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || (c >= '0' && c <= '9') || c == '-' || c == '_';
+    }
+
+    /**
+     * @return true for bracketed ranges, false for plain versions
+     */
+    public boolean isRange() {
+        return range;
+    }
+
+    /**
+     * @return lower bound, or the version itself for plain versions
+     */
+    public Version getMinimum() {
+        return minimum;
+    }
+
+    /**
+     * @return upper bound, or null if unbounded
+     */
+    public Version getMaximum() {
+        return maximum;
+    }
+
+    boolean isMinimumInclusive() {
+        return minimumInclusive;
+    }
+
+    boolean isMaximumInclusive() {
+        return maximumInclusive;
+    }
+
+    /**
+     * @return true if the given version is inside of this range
+     */
+    public boolean includes(Version version) {
+        int min = minimum.compareTo(version);
+        if (min > 0 || (min == 0 && !minimumInclusive)) {
+            return false;
+        }
+        if (maximum == null) {
+            return true;
+        }
+        int max = version.compareTo(maximum);
+        return max < 0 || (max == 0 && maximumInclusive);
+    }
+
+    /**
+     * @return true if there is at least one version included in both ranges
+     */
+    public boolean intersects(VersionRange other) {
+        Version low;
+        boolean lowInclusive;
+        int cmp = minimum.compareTo(other.minimum);
+        if (cmp == 0) {
+            low = minimum;
+            lowInclusive = minimumInclusive && other.minimumInclusive;
+        } else if (cmp > 0) {
+            low = minimum;
+            lowInclusive = minimumInclusive;
+        } else {
+            low = other.minimum;
+            lowInclusive = other.minimumInclusive;
+        }
+        Version high;
+        boolean highInclusive;
+        if (maximum == null || other.maximum == null) {
+            high = maximum == null ? other.maximum : maximum;
+            highInclusive = maximum == null ? other.maximumInclusive : maximumInclusive;
+            if (high == null) {
+                return true;
+            }
+        } else {
+            cmp = maximum.compareTo(other.maximum);
+            if (cmp == 0) {
+                high = maximum;
+                highInclusive = maximumInclusive && other.maximumInclusive;
+            } else if (cmp < 0) {
+                high = maximum;
+                highInclusive = maximumInclusive;
+            } else {
+                high = other.maximum;
+                highInclusive = other.maximumInclusive;
+            }
+        }
+        cmp = low.compareTo(high);
+        return cmp < 0 || (cmp == 0 && lowInclusive && highInclusive);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(minimum, Boolean.valueOf(minimumInclusive), maximum, Boolean.valueOf(maximumInclusive),
+                Boolean.valueOf(range));
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (this == obj) {
+            return true;
+        }
+        if (!(obj instanceof VersionRange)) {
+            return false;
+        }
+        VersionRange other = (VersionRange) obj;
+        return range == other.range && minimumInclusive == other.minimumInclusive
+                && maximumInclusive == other.maximumInclusive && minimum.equals(other.minimum)
+                && Objects.equals(maximum, other.maximum);
+    }
+
+    /**
+     * @return the string this range was parsed from
+     */
+    @Override
+    public String toString() {
+        return string;
+    }
+}
@@ -0,0 +1,300 @@
+/*******************************************************************************
+ * Copyright (c) 2026 Andrey Loskutov
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *    Andrey Loskutov <loskutov@gmx.de> - initial API and implementation
+ *******************************************************************************/
+package org.eclipselabs.plugindependencies.core;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+import java.util.zip.ZipException;
+
+/**
+ * Minimal read-only zip reader for the few entries we need from a bundle jar
+ * (manifest, plugin.xml). In contrast to {@link java.util.jar.JarFile} it does not
+ * build an index of all entries and does not verify signatures: only the end of the
+ * file with the central directory is read and scanned, and only the requested entries
+ * are read and inflated. Nothing is memory-mapped, so the file is not locked after
+ * {@link #close()}.
+ * <p>
+ * Anything unusual (zip64, multi-disk or encrypted archives, unsupported compression,
+ * inconsistent headers) is reported as {@link ZipException}, so that callers can fall
+ * back to {@link java.util.jar.JarFile}.
+ */
+final class ZipCentralDirectory implements Closeable {
+
+    static final String MANIFEST_NAME = "META-INF/MANIFEST.MF";
+
+    private static final int EOCD_SIG = 0x06054b50;
+    private static final int CEN_SIG = 0x02014b50;
+    private static final int LOC_SIG = 0x04034b50;
+    private static final int EOCD_SIZE = 22;
+    private static final int CEN_SIZE = 46;
+    private static final int LOC_SIZE = 30;
+    private static final int MAX_COMMENT = 0xFFFF;
+    private static final int STORED = 0;
+    private static final int DEFLATED = 8;
+
+    private final FileChannel channel;
+    private final ByteBuffer directory;
+    private final int entries;
+    /** offset of the archive start in the file (non zero if some data was prepended) */
+    private final long base;
+
+    private ZipCentralDirectory(FileChannel channel) throws IOException {
+        this.channel = channel;
+        long size = channel.size();
+        if (size < EOCD_SIZE) {
+            throw new ZipException("Not a zip file");
+        }
+        int tailSize = (int) Math.min(size, EOCD_SIZE + MAX_COMMENT);
+        long tailStart = size - tailSize;
+        ByteBuffer tail = readFully(tailStart, tailSize);
+        int eocd = -1;
+        for (int i = tailSize - EOCD_SIZE; i >= 0; i--) {
+            if (tail.getInt(i) == EOCD_SIG && i + EOCD_SIZE + u16(tail, i + 20) <= tailSize) {
+                eocd = i;
+                break;
+            }
+        }
+        if (eocd < 0) {
+            throw new ZipException("End of central directory not found");
+        }
+        if (u16(tail, eocd + 4) != 0 || u16(tail, eocd + 6) != 0) {
+            throw new ZipException("Multi-disk archives are not supported");
+        }
+        int total = u16(tail, eocd + 10);
+        long cdSize = u32(tail, eocd + 12);
+        long cdOffset = u32(tail, eocd + 16);
+        if (total == 0xFFFF || cdSize == 0xFFFFFFFFL || cdOffset == 0xFFFFFFFFL) {
+            throw new ZipException("Zip64 archives are not supported");
+        }
+        long eocdPos = tailStart + eocd;
+        long cdStart = eocdPos - cdSize;
+        if (cdStart < 0 || cdStart < cdOffset) {
+            throw new ZipException("Invalid central directory");
+        }
+        base = cdStart - cdOffset;
+        entries = total;
+        if (cdStart >= tailStart) {
+            // small archive: directory is already read
+            ByteBuffer slice = tail.duplicate();
+            slice.position((int) (cdStart - tailStart)).limit(eocd);
+            directory = slice.slice().order(ByteOrder.LITTLE_ENDIAN);
+        } else if (cdSize > Integer.MAX_VALUE) {
+            throw new ZipException("Central directory too large");
+        } else {
+            directory = readFully(cdStart, (int) cdSize);
+        }
+    }
+
+    /**
+     * @param file
+     *            zip file
+     * @return opened directory, never null
+     * @throws ZipException
+     *             if the file is not a zip file or not supported
+     * @throws IOException
+     *             if the file can't be read
+     */
+    static ZipCentralDirectory open(File file) throws IOException {
+        FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ);
+        try {
+            return new ZipCentralDirectory(channel);
+        } catch (IOException e) {
+            channel.close();
+            throw e;
+        } catch (RuntimeException e) {
+            channel.close();
+            throw toZipException(e);
+        }
+    }
+
+    /**
+     * @return jar manifest content, or null if the archive has no manifest
+     */
+    byte[] readManifest() throws IOException {
+        return read(MANIFEST_NAME, true);
+    }
+
+    /**
+     * @param name
+     *            entry name (ASCII only)
+     * @return entry content, or null if there is no such entry
+     */
+    byte[] read(String name) throws IOException {
+        return read(name, false);
+    }
+
+    private byte[] read(String name, boolean ignoreCase) throws IOException {
+        try {
+            int cen = find(name, ignoreCase);
+            if (cen < 0) {
+                return null;
+            }
+            return readEntry(cen);
+        } catch (RuntimeException e) {
+            throw toZipException(e);
+        }
+    }
+
+    /**
+     * @return position of the central directory header for given name or -1. Exact
+     *         matches win over case insensitive matches (same as in
+     *         {@link java.util.jar.JarFile} for the manifest)
+     */
+    private int find(String name, boolean ignoreCase) throws ZipException {
+        int pos = 0;
+        int caseInsensitiveMatch = -1;
+        int limit = directory.limit();
+        for (int i = 0; i < entries; i++) {
+            if (pos + CEN_SIZE > limit || directory.getInt(pos) != CEN_SIG) {
+                throw new ZipException("Invalid central directory entry at " + pos);
+            }
+            int nameLength = u16(directory, pos + 28);
+            if (nameLength == name.length() && pos + CEN_SIZE + nameLength <= limit) {
+                int match = compareName(pos + CEN_SIZE, name);
+                if (match == 0) {
+                    return pos;
+                }
+                if (match == 1 && ignoreCase && caseInsensitiveMatch < 0) {
+                    caseInsensitiveMatch = pos;
+                }
+            }
+            pos += CEN_SIZE + nameLength + u16(directory, pos + 30) + u16(directory, pos + 32);
+        }
+        return caseInsensitiveMatch;
+    }
+
+    /**
+     * @return 0 for exact match, 1 for case insensitive match, -1 otherwise
+     */
+    private int compareName(int offset, String name) {
+        int result = 0;
+        for (int j = 0; j < name.length(); j++) {
+            int b = directory.get(offset + j) & 0xFF;
+            char c = name.charAt(j);
+            if (b != c) {
+                if (toUpperAscii(b) != toUpperAscii(c)) {
+                    return -1;
+                }
+                result = 1;
+            }
+        }
+        return result;
+    }
+
+    private static int toUpperAscii(int c) {
+        return c >= 'a' && c <= 'z' ? c - ('a' - 'A') : c;
+    }
+
+    private byte[] readEntry(int cen) throws IOException {
+        int flags = u16(directory, cen + 8);
+        if ((flags & 1) != 0) {
+            throw new ZipException("Encrypted entries are not supported");
+        }
+        int method = u16(directory, cen + 10);
+        long compressedSize = u32(directory, cen + 20);
+        long size = u32(directory, cen + 24);
+        long localHeader = base + u32(directory, cen + 42);
+        if (compressedSize > Integer.MAX_VALUE - 1 || size > Integer.MAX_VALUE - 1) {
+            throw new ZipException("Entry too large");
+        }
+        ByteBuffer loc = readFully(localHeader, LOC_SIZE);
+        if (loc.getInt(0) != LOC_SIG) {
+            throw new ZipException("Invalid local header at " + localHeader);
+        }
+        long dataStart = localHeader + LOC_SIZE + u16(loc, 26) + u16(loc, 28);
+        switch (method) {
+        case STORED: {
+            if (compressedSize != size) {
+                throw new ZipException("Invalid size of stored entry");
+            }
+            ByteBuffer data = readFully(dataStart, (int) size);
+            return data.array();
+        }
+        case DEFLATED: {
+            // one extra zero byte: "nowrap" inflater may need an extra dummy byte
+            ByteBuffer data = ByteBuffer.allocate((int) compressedSize + 1);
+            data.limit((int) compressedSize);
+            readFully(dataStart, data);
+            return inflate(data.array(), (int) compressedSize + 1, (int) size);
+        }
+        default:
+            throw new ZipException("Unsupported compression method: " + method);
+        }
+    }
+
+    private static byte[] inflate(byte[] input, int inputLength, int size) throws ZipException {
+        Inflater inflater = new Inflater(true);
+        try {
+            inflater.setInput(input, 0, inputLength);
+            byte[] result = new byte[size];
+            int count = 0;
+            while (count < size) {
+                int n = inflater.inflate(result, count, size - count);
+                if (n == 0 && (inflater.finished() || inflater.needsInput() || inflater.needsDictionary())) {
+                    break;
+                }
+                count += n;
+            }
+            if (count != size) {
+                throw new ZipException("Unexpected size of inflated entry: " + count + ", expected: " + size);
+            }
+            return result;
+        } catch (DataFormatException e) {
+            ZipException ze = new ZipException("Invalid compressed data");
+            ze.initCause(e);
+            throw ze;
+        } finally {
+            inflater.end();
+        }
+    }
+
+    private ByteBuffer readFully(long position, int length) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(length).order(ByteOrder.LITTLE_ENDIAN);
+        readFully(position, buffer);
+        return buffer;
+    }
+
+    private void readFully(long position, ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            int n = channel.read(buffer, position);
+            if (n < 0) {
+                throw new ZipException("Unexpected end of file");
+            }
+            position += n;
+        }
+    }
+
+    private static int u16(ByteBuffer b, int index) {
+        return b.getShort(index) & 0xFFFF;
+    }
+
+    private static long u32(ByteBuffer b, int index) {
+        return b.getInt(index) & 0xFFFFFFFFL;
+    }
+
+    private static ZipException toZipException(RuntimeException e) {
+        ZipException ze = new ZipException("Malformed zip file: " + e);
+        ze.initCause(e);
+        return ze;
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+}